@@ -0,0 +1,161 @@
+package edu.ucla.library.prl.harvester;
+
+import java.lang.reflect.Proxy;
+import java.net.MalformedURLException;
+import java.text.ParseException;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import javax.mail.internet.AddressException;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.google.i18n.phonenumbers.NumberParseException;
+
+import edu.ucla.library.prl.harvester.utils.TestUtils;
+
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import io.vertx.sqlclient.Row;
+
+/**
+ * Measures the time it takes to list institutions and jobs read from the database (i.e. to map each row to an object,
+ * and then to JSON), via the validating JSON constructors against the trusted row mapping.
+ * <p>
+ * The rows are held in memory, so that only the mapping is measured. Run with: {@code mvn test -Pjmh}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RowMappingBenchmark {
+
+    /**
+     * The number of rows of each table to list.
+     */
+    @Param("10000")
+    private int myRowCount;
+
+    /**
+     * The rows of the institutions table.
+     */
+    private List<Row> myInstitutionRows;
+
+    /**
+     * The rows of the harvest jobs table.
+     */
+    private List<Row> myJobRows;
+
+    /**
+     * Creates random rows.
+     *
+     * @throws AddressException If a random institution's email is invalid
+     * @throws MalformedURLException If a random institution's or job's URL is invalid
+     * @throws NumberParseException If a random institution's phone number is invalid
+     * @throws ParseException If a random job's cron expression is invalid
+     */
+    @Setup
+    public void setUp() throws AddressException, MalformedURLException, NumberParseException, ParseException {
+        myInstitutionRows = new ArrayList<>(myRowCount);
+        myJobRows = new ArrayList<>(myRowCount);
+
+        for (int id = 1; id <= myRowCount; id++) {
+            final Map<String, Object> institution = TestUtils.getRandomInstitution().toSqlTemplateParametersMap();
+            final Map<String, Object> job = TestUtils.getRandomJob(id).toSqlTemplateParametersMap();
+
+            institution.put(Institution.ID, id);
+            job.put(Job.ID, id);
+            job.put(Job.LAST_SUCCESSFUL_RUN, OffsetDateTime.now());
+
+            myInstitutionRows.add(toRow(institution));
+            myJobRows.add(toRow(job));
+        }
+    }
+
+    /**
+     * @param aBlackhole A sink for the results
+     */
+    @Benchmark
+    public void validatingInstitutions(final Blackhole aBlackhole) {
+        for (final Row row : myInstitutionRows) {
+            aBlackhole.consume(new Institution(row.toJson()).toJson());
+        }
+    }
+
+    /**
+     * @param aBlackhole A sink for the results
+     */
+    @Benchmark
+    public void trustedInstitutions(final Blackhole aBlackhole) {
+        for (final Row row : myInstitutionRows) {
+            aBlackhole.consume(Institution.fromRow(row).toJson());
+        }
+    }
+
+    /**
+     * @param aBlackhole A sink for the results
+     */
+    @Benchmark
+    public void validatingJobs(final Blackhole aBlackhole) {
+        for (final Row row : myJobRows) {
+            aBlackhole.consume(new Job(row.toJson()).toJson());
+        }
+    }
+
+    /**
+     * @param aBlackhole A sink for the results
+     */
+    @Benchmark
+    public void trustedJobs(final Blackhole aBlackhole) {
+        for (final Row row : myJobRows) {
+            aBlackhole.consume(Job.fromRow(row).toJson());
+        }
+    }
+
+    /**
+     * Creates an in-memory row. Its getters take a column name, and it converts itself to JSON like a database row
+     * does (i.e. with arrays as JSON arrays and timestamps as strings).
+     *
+     * @param aColumns The row's values, by column name
+     * @return The row
+     */
+    private static Row toRow(final Map<String, Object> aColumns) {
+        return (Row) Proxy.newProxyInstance(Row.class.getClassLoader(), new Class<?>[] { Row.class },
+                (proxy, method, args) -> {
+                    if ("toJson".equals(method.getName())) {
+                        final JsonObject json = new JsonObject();
+
+                        aColumns.forEach((column, value) -> {
+                            if (value instanceof String[]) {
+                                json.put(column, new JsonArray(Arrays.asList((String[]) value)));
+                            } else if (value instanceof OffsetDateTime) {
+                                json.put(column, value.toString());
+                            } else {
+                                json.put(column, value);
+                            }
+                        });
+
+                        return json;
+                    }
+
+                    return aColumns.get(args[0]);
+                });
+    }
+}
@@ -0,0 +1,137 @@
+package edu.ucla.library.prl.harvester.services;
+
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.text.ParseException;
+import java.time.OffsetDateTime;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.quartz.CronExpression;
+
+import edu.ucla.library.prl.harvester.Job;
+import edu.ucla.library.prl.harvester.JobResult;
+
+import io.vertx.core.Future;
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonObject;
+import io.vertx.serviceproxy.ServiceBinder;
+import io.vertx.serviceproxy.ServiceProxyBuilder;
+
+/**
+ * Measures the per-call overhead of the generated harvest service proxy, which encodes jobs and job results to JSON,
+ * against that of {@link LocalHarvestServiceProxy}, which doesn't.
+ * <p>
+ * Run with: {@code mvn test -Pjmh}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class HarvestServiceProxyBenchmark {
+
+    /**
+     * A Vert.x instance.
+     */
+    private Vertx myVertx;
+
+    /**
+     * The generated service proxy.
+     */
+    private HarvestService myGeneratedProxy;
+
+    /**
+     * The local service proxy.
+     */
+    private HarvestService myLocalProxy;
+
+    /**
+     * The job to run.
+     */
+    private Job myJob;
+
+    /**
+     * Registers a harvest service that returns a result right away, so that only the overhead of the call is measured.
+     *
+     * @throws MalformedURLException If the test job's URL is invalid
+     * @throws ParseException If the test job's cron expression is invalid
+     */
+    @Setup
+    public void setUp() throws MalformedURLException, ParseException {
+        final HarvestService service = new NoOpHarvestService();
+
+        myVertx = Vertx.vertx();
+        myJob = Job.withID(new Job(1, new URL("http://example.com/oai"), List.of("set1", "set2"),
+                new CronExpression("0 0 2 * * ?"), OffsetDateTime.now()), 1);
+
+        new ServiceBinder(myVertx).setAddress(HarvestService.ADDRESS).register(HarvestService.class, service);
+        LocalHarvestServiceProxy.register(myVertx, service);
+
+        myGeneratedProxy = new ServiceProxyBuilder(myVertx).setAddress(HarvestService.ADDRESS)
+                .build(HarvestService.class);
+        myLocalProxy = HarvestService.createProxy(myVertx, new JsonObject());
+    }
+
+    /**
+     * Closes the Vert.x instance.
+     */
+    @TearDown
+    public void tearDown() {
+        myVertx.close().toCompletionStage().toCompletableFuture().join();
+    }
+
+    /**
+     * @return The result of a call through the generated service proxy
+     */
+    @Benchmark
+    public JobResult generatedProxy() {
+        return myGeneratedProxy.run(myJob).toCompletionStage().toCompletableFuture().join();
+    }
+
+    /**
+     * @return The result of a call through the local service proxy
+     */
+    @Benchmark
+    public JobResult localProxy() {
+        return myLocalProxy.run(myJob).toCompletionStage().toCompletableFuture().join();
+    }
+
+    /**
+     * A harvest service that doesn't harvest anything.
+     */
+    private static final class NoOpHarvestService implements HarvestService {
+
+        @Override
+        public Future<JobResult> run(final Job aJob) {
+            return Future.succeededFuture(new JobResult(aJob.getID().get(), OffsetDateTime.now(), 0, 0, 0));
+        }
+
+        @Override
+        public Future<JobResult> reindex(final Job aJob) {
+            return run(aJob);
+        }
+
+        @Override
+        public Future<JobResult> rebuild(final Job aJob) {
+            return run(aJob);
+        }
+
+        @Override
+        public Future<Void> close() {
+            return Future.succeededFuture();
+        }
+    }
+}
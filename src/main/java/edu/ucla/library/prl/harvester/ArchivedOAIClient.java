@@ -0,0 +1,70 @@
+
+package edu.ucla.library.prl.harvester;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+
+import org.dspace.xoai.serviceprovider.client.OAIClient;
+import org.dspace.xoai.serviceprovider.exceptions.HttpException;
+import org.dspace.xoai.serviceprovider.parameters.Parameters;
+
+import info.freelibrary.util.Logger;
+import info.freelibrary.util.LoggerFactory;
+
+/**
+ * An OAI-PMH client that replays the response pages written to an {@link OaipmhArchive} by an
+ * {@link ArchivingOAIClient}, in the order they were originally fetched.
+ * <p>
+ * The request parameters are ignored: each request simply gets the next page. Since every archived page but the last
+ * one contains a resumption token, a listRecords request made with this client yields exactly the archived records.
+ */
+final class ArchivedOAIClient implements OAIClient {
+
+    /**
+     * A logger.
+     */
+    private static final Logger LOGGER = LoggerFactory.getLogger(ArchivedOAIClient.class, MessageCodes.BUNDLE);
+
+    /**
+     * The directory that pages are read from.
+     */
+    private final Path mySetDir;
+
+    /**
+     * The page files that have not been read yet.
+     */
+    private final Iterator<Path> myPageFiles;
+
+    /**
+     * Creates a client that replays archived pages.
+     *
+     * @param aSetDir The directory that pages are read from
+     * @throws IOException If the directory could not be read
+     */
+    ArchivedOAIClient(final Path aSetDir) throws IOException {
+        mySetDir = aSetDir;
+
+        try (Stream<Path> pageFiles = Files.list(aSetDir)) {
+            myPageFiles = pageFiles.filter(Files::isRegularFile).sorted().toList().iterator();
+        }
+    }
+
+    @Override
+    public InputStream execute(final Parameters aParams) throws HttpException {
+        if (!myPageFiles.hasNext()) {
+            throw new HttpException(LOGGER.getMessage(MessageCodes.PRL_052, mySetDir));
+        }
+
+        try {
+            return new BufferedInputStream(new GZIPInputStream(Files.newInputStream(myPageFiles.next())));
+        } catch (final IOException details) {
+            throw new HttpException(details);
+        }
+    }
+}
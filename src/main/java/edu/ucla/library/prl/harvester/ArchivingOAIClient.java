@@ -0,0 +1,225 @@
+
+package edu.ucla.library.prl.harvester;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.zip.GZIPOutputStream;
+
+import org.dspace.xoai.serviceprovider.client.OAIClient;
+import org.dspace.xoai.serviceprovider.exceptions.OAIRequestException;
+import org.dspace.xoai.serviceprovider.parameters.Parameters;
+
+import info.freelibrary.util.Logger;
+import info.freelibrary.util.LoggerFactory;
+
+/**
+ * An OAI-PMH client that writes a compressed copy of every response page it fetches to an {@link OaipmhArchive}.
+ * <p>
+ * Each page is copied as it's read, so it's never held in memory; the copy is written to a temporary file, which is
+ * only renamed to its page file once the page has been read to the end. A page that's closed before then is read to
+ * the end first, and a page that fails to be read leaves no page file behind.
+ * <p>
+ * A new instance must be used for each listRecords request, since pages are numbered in the order they're fetched.
+ */
+final class ArchivingOAIClient implements OAIClient {
+
+    /**
+     * A logger.
+     */
+    private static final Logger LOGGER = LoggerFactory.getLogger(ArchivingOAIClient.class, MessageCodes.BUNDLE);
+
+    /**
+     * The format of page file names; these sort lexicographically in the order the pages were fetched.
+     */
+    static final String PAGE_FILE_NAME = "page-%05d.xml.gz";
+
+    /**
+     * The extension of the temporary file that a page is copied to while it's being read.
+     */
+    private static final String PARTIAL_EXT = ".part";
+
+    /**
+     * The size of the buffer used for reading the rest of a page that's closed early.
+     */
+    private static final int DRAIN_BUFFER_SIZE = 8 * 1024;
+
+    /**
+     * The client that fetches the pages.
+     */
+    private final OAIClient myClient;
+
+    /**
+     * The directory that pages are written to.
+     */
+    private final Path mySetDir;
+
+    /**
+     * The number of pages fetched so far.
+     */
+    private int myPageCount;
+
+    /**
+     * Creates an archiving client.
+     *
+     * @param aClient The client that fetches the pages
+     * @param aSetDir The directory that pages are written to
+     */
+    ArchivingOAIClient(final OAIClient aClient, final Path aSetDir) {
+        myClient = aClient;
+        mySetDir = aSetDir;
+    }
+
+    @Override
+    public InputStream execute(final Parameters aParams) throws OAIRequestException {
+        final InputStream response = myClient.execute(aParams);
+
+        myPageCount += 1;
+
+        return new ArchivingInputStream(response, mySetDir.resolve(String.format(PAGE_FILE_NAME, myPageCount)));
+    }
+
+    /**
+     * A page that's copied to its page file as it's read.
+     */
+    private static final class ArchivingInputStream extends FilterInputStream {
+
+        /**
+         * The page file.
+         */
+        private final Path myPageFile;
+
+        /**
+         * The temporary file that the page is copied to while it's being read.
+         */
+        private final Path myPartialFile;
+
+        /**
+         * The compressed copy of the page, or null once it's been finished or abandoned.
+         */
+        private OutputStream myCopy;
+
+        /**
+         * Creates a page that's copied to its page file as it's read.
+         *
+         * @param aPage The page
+         * @param aPageFile The page file
+         */
+        private ArchivingInputStream(final InputStream aPage, final Path aPageFile) {
+            super(aPage);
+
+            myPageFile = aPageFile;
+            myPartialFile = aPageFile.resolveSibling(aPageFile.getFileName() + PARTIAL_EXT);
+
+            try {
+                Files.createDirectories(aPageFile.getParent());
+                myCopy = new GZIPOutputStream(Files.newOutputStream(myPartialFile));
+            } catch (final IOException details) {
+                abandon(details);
+            }
+        }
+
+        @Override
+        public int read() throws IOException {
+            final byte[] buffer = new byte[1];
+
+            return read(buffer, 0, 1) == -1 ? -1 : buffer[0] & 0xFF;
+        }
+
+        @Override
+        public int read(final byte[] aBuffer, final int anOffset, final int aLength) throws IOException {
+            final int count;
+
+            try {
+                count = in.read(aBuffer, anOffset, aLength);
+            } catch (final IOException details) {
+                if (myCopy != null) {
+                    abandon(details);
+                }
+
+                throw details;
+            }
+
+            if (count == -1) {
+                finish();
+            } else if (count > 0 && myCopy != null) {
+                try {
+                    myCopy.write(aBuffer, anOffset, count);
+                } catch (final IOException details) {
+                    abandon(details);
+                }
+            }
+
+            return count;
+        }
+
+        @Override
+        public long skip(final long aCount) throws IOException {
+            final byte[] buffer = new byte[(int) Math.min(aCount, DRAIN_BUFFER_SIZE)];
+            final int count = aCount > 0 ? read(buffer, 0, buffer.length) : 0;
+
+            return Math.max(count, 0);
+        }
+
+        @Override
+        public void close() throws IOException {
+            final byte[] buffer = new byte[DRAIN_BUFFER_SIZE];
+
+            try {
+                // XOAI closes a page once it's parsed the resumption token, so read the rest of it for the copy
+                while (myCopy != null && read(buffer, 0, buffer.length) != -1) {
+                    // Keep reading
+                }
+            } finally {
+                in.close();
+            }
+        }
+
+        /**
+         * Finishes the copy of a page that's been read to the end, and renames it to the page file.
+         */
+        private void finish() {
+            if (myCopy == null) {
+                return;
+            }
+
+            try {
+                myCopy.close();
+                Files.move(myPartialFile, myPageFile, StandardCopyOption.REPLACE_EXISTING);
+                myCopy = null;
+            } catch (final IOException details) {
+                abandon(details);
+            }
+        }
+
+        /**
+         * Abandons the copy of a page, since the archive is a convenience; failing to write to it shouldn't fail the
+         * harvest.
+         *
+         * @param aCause The reason that the copy is abandoned
+         */
+        private void abandon(final IOException aCause) {
+            LOGGER.warn(MessageCodes.PRL_051, myPageFile, aCause.toString());
+
+            try {
+                if (myCopy != null) {
+                    myCopy.close();
+                }
+            } catch (final IOException details) {
+                LOGGER.warn(MessageCodes.PRL_051, myPageFile, details.toString());
+            } finally {
+                myCopy = null;
+            }
+
+            try {
+                Files.deleteIfExists(myPartialFile);
+            } catch (final IOException details) {
+                LOGGER.warn(MessageCodes.PRL_051, myPageFile, details.toString());
+            }
+        }
+    }
+}
@@ -3,8 +3,13 @@ package edu.ucla.library.prl.harvester;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Optional;
 import java.util.Properties;
+import java.util.stream.Collectors;
 
 import info.freelibrary.util.Logger;
 import info.freelibrary.util.LoggerFactory;
@@ -40,11 +45,36 @@ public final class Config {
      */
     public static final String DB_RECONNECT_INTERVAL = "DB_RECONNECT_INTERVAL";
 
+    /**
+     * The ENV property for whether harvest runs go through the shared queue in the database.
+     */
+    public static final String HARVEST_RUN_QUEUE_ENABLED = "HARVEST_RUN_QUEUE_ENABLED";
+
     /**
      * The ENV property for the harvest timeout (in milliseconds).
      */
     public static final String HARVEST_TIMEOUT = "HARVEST_TIMEOUT";
 
+    /**
+     * The ENV property for the number of harvest worker verticles to deploy, if the harvest run queue is enabled.
+     */
+    public static final String HARVEST_WORKERS = "HARVEST_WORKERS";
+
+    /**
+     * The ENV property for the file that the recent latencies of outgoing HTTP requests are saved to, by host.
+     */
+    public static final String HOST_LATENCIES_FILE = "HOST_LATENCIES_FILE";
+
+    /**
+     * The ENV property for the max timeout (in milliseconds) that's derived from a host's recent latencies.
+     */
+    public static final String HTTP_TIMEOUT_CEILING = "HTTP_TIMEOUT_CEILING";
+
+    /**
+     * The ENV property for the min timeout (in milliseconds) that's derived from a host's recent latencies.
+     */
+    public static final String HTTP_TIMEOUT_FLOOR = "HTTP_TIMEOUT_FLOOR";
+
     /**
      * The ENV property for the User-Agent HTTP request header to use for outgoing requests.
      */
@@ -75,26 +105,129 @@ public final class Config {
      */
     public static final String LDAP_URL = "LDAP_URL";
 
+    /**
+     * The ENV property for the directory where fetched OAI-PMH response pages are archived.
+     */
+    public static final String OAIPMH_ARCHIVE_DIR = "OAIPMH_ARCHIVE_DIR";
+
+    /**
+     * The ENV property for the number of days after which a job with an archive is harvested in full again, so that
+     * its earlier archived runs can be pruned.
+     */
+    public static final String OAIPMH_ARCHIVE_FULL_RUN_INTERVAL = "OAIPMH_ARCHIVE_FULL_RUN_INTERVAL";
+
+    /**
+     * The ENV property for the number of consecutive failed requests to an OAI-PMH repository that opens its circuit
+     * breaker.
+     */
+    public static final String OAIPMH_CIRCUIT_BREAKER_FAILURE_THRESHOLD = "OAIPMH_CIRCUIT_BREAKER_FAILURE_THRESHOLD";
+
+    /**
+     * The ENV property for how long an OAI-PMH repository's circuit breaker stays open before a request is let through.
+     */
+    public static final String OAIPMH_CIRCUIT_BREAKER_RESET_TIMEOUT = "OAIPMH_CIRCUIT_BREAKER_RESET_TIMEOUT";
+
+    /**
+     * The ENV property for the comma-separated list of OAI-PMH repository hosts not to ask for compressed responses.
+     */
+    public static final String OAIPMH_COMPRESSION_DISABLED_HOSTS = "OAIPMH_COMPRESSION_DISABLED_HOSTS";
+
+    /**
+     * The ENV property for the max time that the internal OAI-PMH client may take to read a response body.
+     */
+    public static final String OAIPMH_CLIENT_HTTP_BODY_TIMEOUT = "OAIPMH_CLIENT_HTTP_BODY_TIMEOUT";
+
     /**
      * The ENV property for the HTTP timeout of the internal OAI-PMH client.
      */
     public static final String OAIPMH_CLIENT_HTTP_TIMEOUT = "OAIPMH_CLIENT_HTTP_TIMEOUT";
 
     /**
-     * The ENV property for the Solr core URL.
+     * The ENV property for the number of times that a harvest job's OAI-PMH requests may be retried, in total.
+     */
+    public static final String OAIPMH_CLIENT_RETRY_BUDGET = "OAIPMH_CLIENT_RETRY_BUDGET";
+
+    /**
+     * The ENV property for the max delay before an OAI-PMH request is retried.
+     */
+    public static final String OAIPMH_CLIENT_RETRY_MAX_DELAY = "OAIPMH_CLIENT_RETRY_MAX_DELAY";
+
+    /**
+     * The ENV property for the number of threads used to map harvested records to Solr documents.
+     */
+    public static final String RECORD_MAPPING_PARALLELISM = "RECORD_MAPPING_PARALLELISM";
+
+    /**
+     * The ENV property for the default window (in seconds) within which each job's scheduled runs are spread out.
+     */
+    public static final String SCHEDULE_JITTER_WINDOW = "SCHEDULE_JITTER_WINDOW";
+
+    /**
+     * The ENV property for whether the scheduler keeps its state in the database.
+     */
+    public static final String SCHEDULER_JDBC_JOB_STORE_ENABLED = "SCHEDULER_JDBC_JOB_STORE_ENABLED";
+
+    /**
+     * The ENV property for the max number of scheduled harvests that may run at once.
+     */
+    public static final String SCHEDULER_THREAD_COUNT = "SCHEDULER_THREAD_COUNT";
+
+    /**
+     * The ENV property for the comma-separated URLs of the Solr core's replicas, which queries are balanced across.
+     */
+    public static final String SOLR_CORE_REPLICA_URLS = "SOLR_CORE_REPLICA_URLS";
+
+    /**
+     * The ENV property for the Solr core URL, which updates are sent to.
      */
     public static final String SOLR_CORE_URL = "SOLR_CORE_URL";
 
+    /**
+     * The ENV property for the URL of the standby Solr core that full rebuilds are written to, before it's swapped
+     * with the Solr core; both cores must be on the same Solr node.
+     */
+    public static final String SOLR_REBUILD_CORE_URL = "SOLR_REBUILD_CORE_URL";
+
+    /**
+     * The env property for the RAM buffer size (in megabytes) of the standby Solr core while it's being rebuilt.
+     */
+    public static final String SOLR_REBUILD_RAM_BUFFER_SIZE = "SOLR_REBUILD_RAM_BUFFER_SIZE";
+
     /**
      * The env property for the max batch size for Solr update queries.
      */
     public static final String SOLR_UPDATE_MAX_BATCH_SIZE = "SOLR_UPDATE_MAX_BATCH_SIZE";
 
+    /**
+     * The env property for the directory of the durable queue that Solr updates are written to.
+     */
+    public static final String SOLR_UPDATE_QUEUE_DIR = "SOLR_UPDATE_QUEUE_DIR";
+
     /**
      * The env property for the retry count for Solr update queries.
      */
     public static final String SOLR_UPDATE_RETRY_COUNT = "SOLR_UPDATE_RETRY_COUNT";
 
+    /**
+     * The ENV property for the max number of institutions, and of jobs, that the harvest schedule store caches.
+     */
+    public static final String STORE_CACHE_SIZE = "STORE_CACHE_SIZE";
+
+    /**
+     * The ENV property for the max number of HTTP requests per second used to check possible thumbnail URLs.
+     */
+    public static final String THUMBNAIL_VERIFICATION_RATE = "THUMBNAIL_VERIFICATION_RATE";
+
+    /**
+     * The ENV property for the file that trace spans are written to, one JSON object per line.
+     */
+    public static final String TRACES_FILE = "TRACES_FILE";
+
+    /**
+     * The ENV property for the URL of an OTLP (OpenTelemetry protocol) collector that trace spans are sent to.
+     */
+    public static final String TRACES_OTLP_ENDPOINT = "TRACES_OTLP_ENDPOINT";
+
     /**
      * A logger.
      */
@@ -151,6 +284,26 @@ public final class Config {
         }
     }
 
+    /**
+     * Gets whether harvest runs go through the shared queue in the database, so that they can be run by any node.
+     *
+     * @param aConfig A configuration
+     * @return Whether the harvest run queue is enabled
+     */
+    public static boolean isHarvestRunQueueEnabled(final JsonObject aConfig) {
+        return aConfig.getBoolean(Config.HARVEST_RUN_QUEUE_ENABLED, false);
+    }
+
+    /**
+     * Gets the number of harvest worker verticles to deploy, if the harvest run queue is enabled.
+     *
+     * @param aConfig A configuration
+     * @return The number of harvest workers
+     */
+    public static int getHarvestWorkerCount(final JsonObject aConfig) {
+        return aConfig.getInteger(Config.HARVEST_WORKERS, Constants.DEFAULT_HARVEST_WORKERS);
+    }
+
     /**
      * Gets the User-Agent HTTP request header to use for outgoing requests.
      *
@@ -169,6 +322,17 @@ public final class Config {
         }
     }
 
+    /**
+     * Gets the file that the recent latencies of outgoing HTTP requests are saved to, if one is configured.
+     *
+     * @param aConfig A configuration
+     * @return The optional file
+     */
+    public static Optional<Path> getHostLatenciesFile(final JsonObject aConfig) {
+        return Optional.ofNullable(StringUtils.trimToNull(aConfig.getString(Config.HOST_LATENCIES_FILE)))
+                .map(Path::of);
+    }
+
     /**
      * Gets the application's port.
      *
@@ -179,6 +343,57 @@ public final class Config {
         return aConfig.getInteger(Config.HTTP_PORT, Constants.DEFAULT_HTTP_PORT);
     }
 
+    /**
+     * Creates an empty set of host latencies, from which the timeouts of outgoing HTTP requests are derived.
+     *
+     * @param aConfig A configuration
+     * @return The host latencies
+     */
+    public static HostLatencies getHostLatencies(final JsonObject aConfig) {
+        return new HostLatencies(getOaipmhClientHttpTimeout(aConfig),
+                aConfig.getInteger(Config.HTTP_TIMEOUT_FLOOR, Constants.DEFAULT_HTTP_TIMEOUT_FLOOR),
+                aConfig.getInteger(Config.HTTP_TIMEOUT_CEILING, Constants.DEFAULT_HTTP_TIMEOUT_CEILING));
+    }
+
+    /**
+     * Gets the archive of fetched OAI-PMH response pages, if one is configured.
+     *
+     * @param aConfig A configuration
+     * @return The optional archive
+     */
+    public static Optional<OaipmhArchive> getOaipmhArchive(final JsonObject aConfig) {
+        final int fullRunInterval = aConfig.getInteger(Config.OAIPMH_ARCHIVE_FULL_RUN_INTERVAL,
+                Constants.DEFAULT_OAIPMH_ARCHIVE_FULL_RUN_INTERVAL);
+
+        return Optional.ofNullable(StringUtils.trimToNull(aConfig.getString(Config.OAIPMH_ARCHIVE_DIR)))
+                .map(dir -> new OaipmhArchive(Path.of(dir), Duration.ofDays(fullRunInterval)));
+    }
+
+    /**
+     * Gets the options to use with the internal OAI-PMH client.
+     *
+     * @param aConfig A configuration
+     * @return The OAI-PMH client options
+     */
+    public static OaipmhClientOptions getOaipmhClientOptions(final JsonObject aConfig) {
+        final String compressionDisabledHosts = aConfig.getString(Config.OAIPMH_COMPRESSION_DISABLED_HOSTS, "");
+
+        return new OaipmhClientOptions().setTimeout(getOaipmhClientHttpTimeout(aConfig))
+                .setBodyTimeout(aConfig.getInteger(Config.OAIPMH_CLIENT_HTTP_BODY_TIMEOUT,
+                        Constants.DEFAULT_OAIPMH_CLIENT_HTTP_BODY_TIMEOUT))
+                .setUserAgent(getHarvesterUserAgent(aConfig))
+                .setRetryBudget(aConfig.getInteger(Config.OAIPMH_CLIENT_RETRY_BUDGET,
+                        Constants.DEFAULT_OAIPMH_CLIENT_RETRY_BUDGET))
+                .setRetryMaxDelay(aConfig.getInteger(Config.OAIPMH_CLIENT_RETRY_MAX_DELAY,
+                        Constants.DEFAULT_OAIPMH_CLIENT_RETRY_MAX_DELAY))
+                .setCircuitBreakerFailureThreshold(aConfig.getInteger(Config.OAIPMH_CIRCUIT_BREAKER_FAILURE_THRESHOLD,
+                        Constants.DEFAULT_OAIPMH_CIRCUIT_BREAKER_FAILURE_THRESHOLD))
+                .setCircuitBreakerResetTimeout(aConfig.getInteger(Config.OAIPMH_CIRCUIT_BREAKER_RESET_TIMEOUT,
+                        Constants.DEFAULT_OAIPMH_CIRCUIT_BREAKER_RESET_TIMEOUT))
+                .setCompressionDisabledHosts(Arrays.stream(compressionDisabledHosts.split(",")).map(String::strip)
+                        .filter(host -> !host.isEmpty()).collect(Collectors.toSet()));
+    }
+
     /**
      * Gets the HTTP timeout to use with the internal OAI-PMH client.
      *
@@ -189,6 +404,83 @@ public final class Config {
         return aConfig.getInteger(Config.OAIPMH_CLIENT_HTTP_TIMEOUT, Constants.DEFAULT_OAIPMH_CLIENT_HTTP_TIMEOUT);
     }
 
+    /**
+     * Gets the number of threads used to map harvested records to Solr documents.
+     *
+     * @param aConfig A configuration
+     * @return The parallelism, which defaults to the number of available processors
+     */
+    public static int getRecordMappingParallelism(final JsonObject aConfig) {
+        return aConfig.getInteger(Config.RECORD_MAPPING_PARALLELISM, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Gets the default window (in seconds) within which each job's scheduled runs are spread out.
+     *
+     * @param aConfig A configuration
+     * @return The default schedule jitter window, which is zero (i.e., no jitter) unless configured
+     */
+    public static int getScheduleJitterWindow(final JsonObject aConfig) {
+        return aConfig.getInteger(Config.SCHEDULE_JITTER_WINDOW, 0);
+    }
+
+    /**
+     * Gets whether the scheduler keeps its state in the database, so that runs missed while the application was down
+     * are caught up on startup.
+     *
+     * @param aConfig A configuration
+     * @return Whether the JDBC job store is enabled
+     */
+    public static boolean isSchedulerJdbcJobStoreEnabled(final JsonObject aConfig) {
+        return aConfig.getBoolean(Config.SCHEDULER_JDBC_JOB_STORE_ENABLED, false);
+    }
+
+    /**
+     * Gets the max number of scheduled harvests that may run at once.
+     *
+     * @param aConfig A configuration
+     * @return The scheduler's thread count
+     */
+    public static int getSchedulerThreadCount(final JsonObject aConfig) {
+        return aConfig.getInteger(Config.SCHEDULER_THREAD_COUNT, Constants.DEFAULT_SCHEDULER_THREAD_COUNT);
+    }
+
+    /**
+     * Gets the URLs of the Solr core's replicas, or else the URL of the Solr core.
+     *
+     * @param aConfig A configuration
+     * @return The URLs that Solr requests may be sent to
+     */
+    public static List<String> getSolrCoreURLs(final JsonObject aConfig) {
+        final String replicaURLs = StringUtils.trimToNull(aConfig.getString(Config.SOLR_CORE_REPLICA_URLS));
+
+        if (replicaURLs == null) {
+            return List.of(aConfig.getString(Config.SOLR_CORE_URL));
+        }
+
+        return Arrays.stream(replicaURLs.split(",")).map(String::trim).filter(url -> !url.isEmpty()).toList();
+    }
+
+    /**
+     * Gets the URL of the standby Solr core that full rebuilds are written to, if rebuilds are enabled.
+     *
+     * @param aConfig A configuration
+     * @return The optional URL of the standby Solr core
+     */
+    public static Optional<String> getSolrRebuildCoreURL(final JsonObject aConfig) {
+        return Optional.ofNullable(StringUtils.trimToNull(aConfig.getString(Config.SOLR_REBUILD_CORE_URL)));
+    }
+
+    /**
+     * Gets the RAM buffer size (in megabytes) of the standby Solr core while it's being rebuilt.
+     *
+     * @param aConfig A configuration
+     * @return The RAM buffer size
+     */
+    public static int getSolrRebuildRamBufferSize(final JsonObject aConfig) {
+        return aConfig.getInteger(Config.SOLR_REBUILD_RAM_BUFFER_SIZE, Constants.DEFAULT_SOLR_REBUILD_RAM_BUFFER_SIZE);
+    }
+
     /**
      * Gets the max batch size for Solr update queries.
      *
@@ -199,6 +491,17 @@ public final class Config {
         return aConfig.getInteger(Config.SOLR_UPDATE_MAX_BATCH_SIZE, Constants.DEFAULT_SOLR_UPDATE_MAX_BATCH_SIZE);
     }
 
+    /**
+     * Gets the directory of the durable queue that Solr updates are written to, if one is configured.
+     *
+     * @param aConfig A configuration
+     * @return The optional queue directory
+     */
+    public static Optional<Path> getSolrUpdateQueueDir(final JsonObject aConfig) {
+        return Optional.ofNullable(StringUtils.trimToNull(aConfig.getString(Config.SOLR_UPDATE_QUEUE_DIR)))
+                .map(Path::of);
+    }
+
     /**
      * Gets the retry count for Solr update queries.
      *
@@ -208,4 +511,44 @@ public final class Config {
     public static int getSolrUpdateRetryCount(final JsonObject aConfig) {
         return aConfig.getInteger(Config.SOLR_UPDATE_RETRY_COUNT, Constants.DEFAULT_SOLR_UPDATE_RETRY_COUNT);
     }
+
+    /**
+     * Gets the max number of institutions, and of jobs, that the harvest schedule store caches.
+     *
+     * @param aConfig A configuration
+     * @return The cache size, which disables the cache if it's zero
+     */
+    public static int getStoreCacheSize(final JsonObject aConfig) {
+        return aConfig.getInteger(Config.STORE_CACHE_SIZE, Constants.DEFAULT_STORE_CACHE_SIZE);
+    }
+
+    /**
+     * Gets the max number of HTTP requests per second used to check possible thumbnail URLs.
+     *
+     * @param aConfig A configuration
+     * @return The rate
+     */
+    public static int getThumbnailVerificationRate(final JsonObject aConfig) {
+        return aConfig.getInteger(Config.THUMBNAIL_VERIFICATION_RATE, Constants.DEFAULT_THUMBNAIL_VERIFICATION_RATE);
+    }
+
+    /**
+     * Gets the file that trace spans are written to, if one is configured.
+     *
+     * @param aConfig A configuration
+     * @return The optional file
+     */
+    public static Optional<Path> getTracesFile(final JsonObject aConfig) {
+        return Optional.ofNullable(StringUtils.trimToNull(aConfig.getString(Config.TRACES_FILE))).map(Path::of);
+    }
+
+    /**
+     * Gets the URL of the OTLP collector that trace spans are sent to, if one is configured.
+     *
+     * @param aConfig A configuration
+     * @return The optional URL
+     */
+    public static Optional<String> getTracesOtlpEndpoint(final JsonObject aConfig) {
+        return Optional.ofNullable(StringUtils.trimToNull(aConfig.getString(Config.TRACES_OTLP_ENDPOINT)));
+    }
 }
@@ -21,11 +21,68 @@ public final class Constants {
      */
     public static final int DEFAULT_HTTP_PORT = 8888;
 
+    /**
+     * The default value for the max timeout (in milliseconds) that's derived from a host's recent latencies.
+     */
+    public static final int DEFAULT_HTTP_TIMEOUT_CEILING = 300_000;
+
+    /**
+     * The default value for the min timeout (in milliseconds) that's derived from a host's recent latencies.
+     */
+    public static final int DEFAULT_HTTP_TIMEOUT_FLOOR = 5_000;
+
+    /**
+     * The default value for the max time (in milliseconds) that the internal OAI-PMH client may take to read a response
+     * body.
+     */
+    public static final int DEFAULT_OAIPMH_CLIENT_HTTP_BODY_TIMEOUT = 300_000;
+
+    /**
+     * The default value for the number of days after which a job with an archive is harvested in full again.
+     */
+    public static final int DEFAULT_OAIPMH_ARCHIVE_FULL_RUN_INTERVAL = 30;
+
     /**
      * The default value for the HTTP timeout of the internal OAI-PMH client.
      */
     public static final int DEFAULT_OAIPMH_CLIENT_HTTP_TIMEOUT = 60_000;
 
+    /**
+     * The default value for the number of consecutive failed requests to an OAI-PMH repository that opens its circuit
+     * breaker.
+     */
+    public static final int DEFAULT_OAIPMH_CIRCUIT_BREAKER_FAILURE_THRESHOLD = 5;
+
+    /**
+     * The default value for how long (in milliseconds) an OAI-PMH repository's circuit breaker stays open.
+     */
+    public static final int DEFAULT_OAIPMH_CIRCUIT_BREAKER_RESET_TIMEOUT = 300_000;
+
+    /**
+     * The default value for the number of times that a harvest job's OAI-PMH requests may be retried, in total.
+     */
+    public static final int DEFAULT_OAIPMH_CLIENT_RETRY_BUDGET = 10;
+
+    /**
+     * The default value for the max delay (in milliseconds) before an OAI-PMH request is retried.
+     */
+    public static final int DEFAULT_OAIPMH_CLIENT_RETRY_MAX_DELAY = 60_000;
+
+    /**
+     * The default value for the number of harvest worker verticles to deploy.
+     */
+    public static final int DEFAULT_HARVEST_WORKERS = 1;
+
+    /**
+     * The default value for the max number of scheduled harvests that may run at once.
+     */
+    public static final int DEFAULT_SCHEDULER_THREAD_COUNT = 10;
+
+    /**
+     * The default value for the RAM buffer size (in megabytes) of the standby Solr core while it's being rebuilt.
+     */
+    public static final int DEFAULT_SOLR_REBUILD_RAM_BUFFER_SIZE = 256;
+
     /**
      * The default value for the max batch size for Solr update queries.
      */
@@ -36,6 +93,16 @@ public final class Constants {
      */
     public static final Integer DEFAULT_SOLR_UPDATE_RETRY_COUNT = 3;
 
+    /**
+     * The default value for the max number of institutions, and of jobs, that the harvest schedule store caches.
+     */
+    public static final int DEFAULT_STORE_CACHE_SIZE = 1000;
+
+    /**
+     * The default value for the max number of HTTP requests per second used to check possible thumbnail URLs.
+     */
+    public static final int DEFAULT_THUMBNAIL_VERIFICATION_RATE = 10;
+
     /**
      * Constant classes should have private constructors.
      */
@@ -0,0 +1,141 @@
+package edu.ucla.library.prl.harvester;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
+
+import info.freelibrary.util.Logger;
+import info.freelibrary.util.LoggerFactory;
+
+import io.opentelemetry.api.common.Attributes;
+import io.opentelemetry.sdk.common.CompletableResultCode;
+import io.opentelemetry.sdk.trace.data.EventData;
+import io.opentelemetry.sdk.trace.data.SpanData;
+import io.opentelemetry.sdk.trace.export.SpanExporter;
+
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+
+/**
+ * A span exporter that appends finished spans to a local file, one JSON object per line, for looking into slow
+ * harvests without an OpenTelemetry collector.
+ */
+final class FileSpanExporter implements SpanExporter {
+
+    /**
+     * A logger.
+     */
+    private static final Logger LOGGER = LoggerFactory.getLogger(FileSpanExporter.class, MessageCodes.BUNDLE);
+
+    /**
+     * The file that spans are written to.
+     */
+    private final Path myFile;
+
+    /**
+     * A writer of the file.
+     */
+    private final BufferedWriter myWriter;
+
+    /**
+     * Creates an exporter.
+     *
+     * @param aFile The file that spans are appended to
+     * @throws IOException If the file can't be opened
+     */
+    FileSpanExporter(final Path aFile) throws IOException {
+        myFile = aFile;
+        myWriter = Files.newBufferedWriter(aFile, StandardCharsets.UTF_8, StandardOpenOption.CREATE,
+                StandardOpenOption.APPEND);
+    }
+
+    @Override
+    public synchronized CompletableResultCode export(final Collection<SpanData> aSpans) {
+        try {
+            for (final SpanData span : aSpans) {
+                myWriter.write(toJson(span).encode());
+                myWriter.newLine();
+            }
+
+            myWriter.flush();
+
+            return CompletableResultCode.ofSuccess();
+        } catch (final IOException details) {
+            LOGGER.warn(MessageCodes.PRL_095, aSpans.size(), myFile, details.getMessage());
+
+            return CompletableResultCode.ofFailure();
+        }
+    }
+
+    @Override
+    public synchronized CompletableResultCode flush() {
+        try {
+            myWriter.flush();
+
+            return CompletableResultCode.ofSuccess();
+        } catch (final IOException details) {
+            return CompletableResultCode.ofFailure();
+        }
+    }
+
+    @Override
+    public synchronized CompletableResultCode shutdown() {
+        try {
+            myWriter.close();
+
+            return CompletableResultCode.ofSuccess();
+        } catch (final IOException details) {
+            return CompletableResultCode.ofFailure();
+        }
+    }
+
+    /**
+     * @param aSpan A finished span
+     * @return A JSON representation of the span
+     */
+    static JsonObject toJson(final SpanData aSpan) {
+        final JsonArray events = new JsonArray();
+        final JsonObject json = new JsonObject().put("traceId", aSpan.getTraceId()).put("spanId", aSpan.getSpanId());
+
+        if (aSpan.getParentSpanContext().isValid()) {
+            json.put("parentSpanId", aSpan.getParentSpanId());
+        }
+
+        for (final EventData event : aSpan.getEvents()) {
+            events.add(new JsonObject().put("name", event.getName()).put("time", toInstant(event.getEpochNanos()))
+                    .put("attributes", toJson(event.getAttributes())));
+        }
+
+        return json.put("name", aSpan.getName()).put("kind", aSpan.getKind().name())
+                .put("start", toInstant(aSpan.getStartEpochNanos()))
+                .put("durationMs", TimeUnit.NANOSECONDS.toMillis(aSpan.getEndEpochNanos() - aSpan.getStartEpochNanos()))
+                .put("status", aSpan.getStatus().getStatusCode().name())
+                .put("attributes", toJson(aSpan.getAttributes())).put("events", events);
+    }
+
+    /**
+     * @param anAttributes The attributes of a span or event
+     * @return A JSON representation of the attributes
+     */
+    private static JsonObject toJson(final Attributes anAttributes) {
+        final JsonObject json = new JsonObject();
+
+        anAttributes.forEach((key, value) -> json.put(key.getKey(), value));
+
+        return json;
+    }
+
+    /**
+     * @param anEpochNanos A time, in nanoseconds since the epoch
+     * @return The time, in ISO-8601 format
+     */
+    private static String toInstant(final long anEpochNanos) {
+        return Instant.ofEpochSecond(0, anEpochNanos).toString();
+    }
+}
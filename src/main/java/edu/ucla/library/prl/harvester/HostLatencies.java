@@ -0,0 +1,201 @@
+package edu.ucla.library.prl.harvester;
+
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+
+/**
+ * The recent latencies of HTTP requests to each host, from which per-host timeouts are derived.
+ * <p>
+ * A host's timeout is a multiple of the 99th percentile of its recent latencies, within a floor and a ceiling, so that
+ * stuck connections to fast hosts are given up on sooner, and slow hosts are given the time they need. Until a host has
+ * enough recent latencies, the default timeout is used. Requests that time out are recorded with their timeout as
+ * their latency, so that a host that slows down gets longer timeouts. This class is thread-safe.
+ */
+public final class HostLatencies {
+
+    /**
+     * The number of recent latencies that are kept for each host.
+     */
+    static final int WINDOW_SIZE = 100;
+
+    /**
+     * The number of recent latencies that a host needs before its timeout is derived from them.
+     */
+    static final int MIN_SAMPLE_COUNT = 20;
+
+    /**
+     * The percentile of a host's recent latencies that its timeout is derived from.
+     */
+    private static final double PERCENTILE = 0.99;
+
+    /**
+     * The multiple of the percentile latency that a host's timeout is.
+     */
+    private static final int TIMEOUT_MULTIPLIER = 3;
+
+    /**
+     * The recent latencies, by host.
+     */
+    private final Map<String, Window> myWindows = new ConcurrentHashMap<>();
+
+    /**
+     * The timeout (in milliseconds) for hosts without enough recent latencies.
+     */
+    private final long myDefaultTimeout;
+
+    /**
+     * The min timeout (in milliseconds).
+     */
+    private final long myFloor;
+
+    /**
+     * The max timeout (in milliseconds).
+     */
+    private final long myCeiling;
+
+    /**
+     * Creates an empty set of host latencies.
+     *
+     * @param aDefaultTimeout The timeout (in milliseconds) for hosts without enough recent latencies
+     * @param aFloor The min timeout (in milliseconds)
+     * @param aCeiling The max timeout (in milliseconds)
+     */
+    public HostLatencies(final long aDefaultTimeout, final long aFloor, final long aCeiling) {
+        myDefaultTimeout = aDefaultTimeout;
+        myFloor = aFloor;
+        myCeiling = Math.max(aFloor, aCeiling);
+    }
+
+    /**
+     * Gets the timeout for a request.
+     *
+     * @param aURL The URL of the request
+     * @return The timeout (in milliseconds)
+     */
+    public long getTimeout(final URL aURL) {
+        final Window window = myWindows.get(getHost(aURL));
+        final long percentile = window == null ? -1 : window.getPercentile(PERCENTILE);
+
+        if (percentile < 0) {
+            return myDefaultTimeout;
+        }
+
+        return Math.max(myFloor, Math.min(myCeiling, percentile * TIMEOUT_MULTIPLIER));
+    }
+
+    /**
+     * Records the latency of a request.
+     *
+     * @param aURL The URL of the request
+     * @param aLatency The latency (in milliseconds), or the timeout if the request timed out
+     */
+    public void record(final URL aURL, final long aLatency) {
+        myWindows.computeIfAbsent(getHost(aURL), host -> new Window()).add(aLatency);
+    }
+
+    /**
+     * Adds the recent latencies that were saved with {@link #toJson()}, e.g. before a restart.
+     *
+     * @param aJson The saved latencies
+     * @return These host latencies
+     */
+    public HostLatencies load(final JsonObject aJson) {
+        aJson.forEach(entry -> {
+            if (entry.getValue() instanceof JsonArray latencies) {
+                final Window window = myWindows.computeIfAbsent(entry.getKey(), host -> new Window());
+
+                latencies.forEach(latency -> {
+                    if (latency instanceof Number number) {
+                        window.add(number.longValue());
+                    }
+                });
+            }
+        });
+
+        return this;
+    }
+
+    /**
+     * @return The recent latencies (in milliseconds), by host, oldest first
+     */
+    public JsonObject toJson() {
+        final Map<String, Object> latencies = new TreeMap<>();
+
+        myWindows.forEach((host, window) -> latencies.put(host, new JsonArray(window.getLatencies())));
+
+        return new JsonObject(latencies);
+    }
+
+    /**
+     * @param aURL A URL
+     * @return The host (and port, if any) that the URL's latencies are kept under
+     */
+    private static String getHost(final URL aURL) {
+        return aURL.getAuthority().toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * A fixed-size window of a host's recent latencies.
+     */
+    private static final class Window {
+
+        /**
+         * The recent latencies, in a circular buffer.
+         */
+        private final long[] myLatencies = new long[WINDOW_SIZE];
+
+        /**
+         * The number of latencies that have been added.
+         */
+        private long myCount;
+
+        /**
+         * @param aLatency A latency (in milliseconds)
+         */
+        synchronized void add(final long aLatency) {
+            myLatencies[(int) (myCount % WINDOW_SIZE)] = Math.max(0, aLatency);
+            myCount += 1;
+        }
+
+        /**
+         * @param aPercentile A percentile, between 0 and 1
+         * @return The percentile of the recent latencies, or -1 if there aren't enough of them
+         */
+        synchronized long getPercentile(final double aPercentile) {
+            final int size = (int) Math.min(myCount, WINDOW_SIZE);
+            final long[] sorted;
+
+            if (size < MIN_SAMPLE_COUNT) {
+                return -1;
+            }
+
+            sorted = Arrays.copyOf(myLatencies, size);
+            Arrays.sort(sorted);
+
+            return sorted[(int) Math.ceil(aPercentile * size) - 1];
+        }
+
+        /**
+         * @return The recent latencies, oldest first
+         */
+        synchronized List<Long> getLatencies() {
+            final int size = (int) Math.min(myCount, WINDOW_SIZE);
+            final List<Long> latencies = new ArrayList<>(size);
+
+            for (long index = myCount - size; index < myCount; index++) {
+                latencies.add(myLatencies[(int) (index % WINDOW_SIZE)]);
+            }
+
+            return latencies;
+        }
+    }
+}
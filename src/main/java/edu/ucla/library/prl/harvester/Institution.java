@@ -24,8 +24,11 @@ import info.freelibrary.util.Logger;
 import info.freelibrary.util.LoggerFactory;
 import info.freelibrary.util.StringUtils;
 
+import io.vavr.Lazy;
+
 import io.vertx.codegen.annotations.DataObject;
 import io.vertx.core.json.JsonObject;
+import io.vertx.sqlclient.Row;
 import io.vertx.sqlclient.templates.SqlTemplate;
 
 /**
@@ -113,14 +116,26 @@ public final class Institution {
     private final String myLocation;
 
     /**
-     * The institution's optional email contact.
+     * The institution's optional email contact, as it's stored.
+     */
+    private final Optional<String> myEmailAddress;
+
+    /**
+     * The institution's optional email contact, which is only parsed when it's first needed if the institution was
+     * read from the database.
+     */
+    private final Lazy<Optional<InternetAddress>> myEmail;
+
+    /**
+     * The institution's optional phone contact, as it's stored (i.e. in international format).
      */
-    private final Optional<InternetAddress> myEmail;
+    private final Optional<String> myPhoneNumber;
 
     /**
-     * The institution's optional phone contact.
+     * The institution's optional phone contact, which is only parsed when it's first needed if the institution was
+     * read from the database.
      */
-    private final Optional<PhoneNumber> myPhone;
+    private final Lazy<Optional<PhoneNumber>> myPhone;
 
     /**
      * The institution's optional web contact.
@@ -153,8 +168,10 @@ public final class Institution {
         myLocation = Objects.requireNonNull(StringUtils.trimToNull(aLocation));
 
         if (anEmail.isPresent() || aPhone.isPresent() || aWebContact.isPresent()) {
-            myEmail = Objects.requireNonNull(anEmail);
-            myPhone = Objects.requireNonNull(aPhone);
+            myEmailAddress = anEmail.map(InternetAddress::toString);
+            myEmail = Lazy.of(() -> anEmail);
+            myPhoneNumber = aPhone.map(Institution::formatPhone);
+            myPhone = Lazy.of(() -> aPhone);
             myWebContact = Objects.requireNonNull(aWebContact);
         } else {
             throw new IllegalArgumentI18nException(MessageCodes.BUNDLE, MessageCodes.PRL_003);
@@ -163,6 +180,34 @@ public final class Institution {
         myWebsite = Objects.requireNonNull(aWebsite);
     }
 
+    /**
+     * Instantiates an institution from the values of a database row, which were validated when they were stored.
+     *
+     * @param anID The institution's identifier
+     * @param aName The institution's name
+     * @param aDescription The institution's description
+     * @param aLocation The institution's human-readable location
+     * @param anEmailAddress The institution's email contact, or null
+     * @param aPhoneNumber The institution's phone contact in international format, or null
+     * @param aWebContact The institution's optional web contact
+     * @param aWebsite The institiution's website
+     */
+    @SuppressWarnings("PMD.ExcessiveParameterList")
+    private Institution(final Integer anID, final String aName, final String aDescription, final String aLocation,
+            final String anEmailAddress, final String aPhoneNumber, final Optional<URL> aWebContact,
+            final URL aWebsite) {
+        myID = Optional.ofNullable(anID);
+        myName = aName;
+        myDescription = aDescription;
+        myLocation = aLocation;
+        myEmailAddress = Optional.ofNullable(anEmailAddress);
+        myEmail = Lazy.of(() -> Optional.ofNullable(anEmailAddress).map(Institution::parseEmail));
+        myPhoneNumber = Optional.ofNullable(aPhoneNumber);
+        myPhone = Lazy.of(() -> Optional.ofNullable(aPhoneNumber).map(Institution::parsePhone));
+        myWebContact = aWebContact;
+        myWebsite = aWebsite;
+    }
+
     /**
      * Instantiates an institution from its JSON representation.
      * <p>
@@ -203,32 +248,15 @@ public final class Institution {
             throw new InvalidInstitutionJsonException(MessageCodes.PRL_002, LOCATION);
         }
 
-        email = Optional.ofNullable(aJsonObject.getString(EMAIL)).map(rawEmail -> {
-            try {
-                return new InternetAddress(rawEmail, true);
-            } catch (final AddressException details) {
-                throw new InvalidInstitutionJsonException(details, MessageCodes.PRL_004, EMAIL, details.getMessage());
-            }
-        });
-        phone = Optional.ofNullable(aJsonObject.getString(PHONE)).map(rawPhone -> {
-            try {
-                return PHONE_NUMBER_UTIL.parse(rawPhone, null);
-            } catch (NumberParseException details) {
-                throw new InvalidInstitutionJsonException(details, MessageCodes.PRL_004, PHONE, details.getMessage());
-            }
-        });
-        webContact = Optional.ofNullable(aJsonObject.getString(WEB_CONTACT)).map(rawWebContact -> {
-            try {
-                return new URL(rawWebContact);
-            } catch (MalformedURLException details) {
-                throw new InvalidInstitutionJsonException(details, MessageCodes.PRL_004, WEB_CONTACT,
-                        details.getMessage());
-            }
-        });
+        email = Optional.ofNullable(aJsonObject.getString(EMAIL)).map(Institution::parseEmail);
+        phone = Optional.ofNullable(aJsonObject.getString(PHONE)).map(Institution::parsePhone);
+        webContact = Optional.ofNullable(aJsonObject.getString(WEB_CONTACT)).map(Institution::parseWebContact);
 
         if (email.isPresent() || phone.isPresent() || webContact.isPresent()) {
-            myEmail = email;
-            myPhone = phone;
+            myEmailAddress = email.map(InternetAddress::toString);
+            myEmail = Lazy.of(() -> email);
+            myPhoneNumber = phone.map(Institution::formatPhone);
+            myPhone = Lazy.of(() -> phone);
             myWebContact = webContact;
         } else {
             throw new InvalidInstitutionJsonException(MessageCodes.PRL_003);
@@ -245,6 +273,75 @@ public final class Institution {
         }
     }
 
+    /**
+     * Instantiates an institution from a database row that has a column for each of the JSON keys. Since the row's
+     * values were validated when they were stored, they're mapped as they are, and the email and phone contacts are
+     * only parsed when they're needed.
+     *
+     * @param aRow A row of the institutions table
+     * @return The institution
+     * @throws InvalidInstitutionJsonException If the row's web contact or website is invalid
+     */
+    public static Institution fromRow(final Row aRow) {
+        final String website = aRow.getString(WEBSITE);
+
+        try {
+            return new Institution(aRow.getInteger(ID), aRow.getString(NAME), aRow.getString(DESCRIPTION),
+                    aRow.getString(LOCATION), aRow.getString(EMAIL), aRow.getString(PHONE),
+                    Optional.ofNullable(aRow.getString(WEB_CONTACT)).map(Institution::parseWebContact),
+                    new URL(website));
+        } catch (final MalformedURLException details) {
+            throw new InvalidInstitutionJsonException(details, MessageCodes.PRL_004, WEBSITE, details.getMessage());
+        }
+    }
+
+    /**
+     * @param anEmail An email address
+     * @return The parsed email address
+     * @throws InvalidInstitutionJsonException If the email address is invalid
+     */
+    private static InternetAddress parseEmail(final String anEmail) {
+        try {
+            return new InternetAddress(anEmail, true);
+        } catch (final AddressException details) {
+            throw new InvalidInstitutionJsonException(details, MessageCodes.PRL_004, EMAIL, details.getMessage());
+        }
+    }
+
+    /**
+     * @param aPhone A phone number
+     * @return The parsed phone number
+     * @throws InvalidInstitutionJsonException If the phone number is invalid
+     */
+    private static PhoneNumber parsePhone(final String aPhone) {
+        try {
+            return PHONE_NUMBER_UTIL.parse(aPhone, null);
+        } catch (final NumberParseException details) {
+            throw new InvalidInstitutionJsonException(details, MessageCodes.PRL_004, PHONE, details.getMessage());
+        }
+    }
+
+    /**
+     * @param aPhone A phone number
+     * @return The phone number in international format
+     */
+    private static String formatPhone(final PhoneNumber aPhone) {
+        return PHONE_NUMBER_UTIL.format(aPhone, PhoneNumberFormat.INTERNATIONAL);
+    }
+
+    /**
+     * @param aWebContact A web contact URL
+     * @return The parsed web contact URL
+     * @throws InvalidInstitutionJsonException If the web contact URL is invalid
+     */
+    private static URL parseWebContact(final String aWebContact) {
+        try {
+            return new URL(aWebContact);
+        } catch (final MalformedURLException details) {
+            throw new InvalidInstitutionJsonException(details, MessageCodes.PRL_004, WEB_CONTACT, details.getMessage());
+        }
+    }
+
     /**
      * @return The JSON representation of the institution
      */
@@ -261,9 +358,8 @@ public final class Institution {
         map.put(NAME, getName());
         map.put(DESCRIPTION, getDescription());
         map.put(LOCATION, getLocation());
-        map.put(EMAIL, getEmail().map(InternetAddress::toString).orElse(null));
-        map.put(PHONE,
-                getPhone().map(phone -> PHONE_NUMBER_UTIL.format(phone, PhoneNumberFormat.INTERNATIONAL)).orElse(null));
+        map.put(EMAIL, myEmailAddress.orElse(null));
+        map.put(PHONE, myPhoneNumber.orElse(null));
         map.put(WEB_CONTACT, getWebContact().map(URL::toString).orElse(null));
         map.put(WEBSITE, getWebsite().toString());
 
@@ -289,8 +385,7 @@ public final class Institution {
 
         // Optional fields
         getEmail().ifPresent(email -> doc.setField("prrla_member_email", email.getAddress()));
-        getPhone().ifPresent(phone -> doc.setField("prrla_member_phone",
-                PHONE_NUMBER_UTIL.format(phone, PhoneNumberFormat.INTERNATIONAL)));
+        myPhoneNumber.ifPresent(phone -> doc.setField("prrla_member_phone", phone));
         getWebContact().ifPresent(webContact -> doc.setField("prrla_member_web_contact", webContact.toString()));
 
         return doc;
@@ -328,14 +423,14 @@ public final class Institution {
      * @return The optional email
      */
     public Optional<InternetAddress> getEmail() {
-        return myEmail;
+        return myEmail.get();
     }
 
     /**
      * @return The optional phone
      */
     public Optional<PhoneNumber> getPhone() {
-        return myPhone;
+        return myPhone.get();
     }
 
     /**
@@ -387,8 +482,8 @@ public final class Institution {
         result = prime * result + myName.hashCode();
         result = prime * result + myDescription.hashCode();
         result = prime * result + myLocation.hashCode();
-        result = prime * result + myEmail.map(email -> email.hashCode()).orElse(0);
-        result = prime * result + myPhone.map(phone -> phone.hashCode()).orElse(0);
+        result = prime * result + getEmail().map(email -> email.hashCode()).orElse(0);
+        result = prime * result + getPhone().map(phone -> phone.hashCode()).orElse(0);
         result = prime * result + myWebContact.map(webContact -> webContact.hashCode()).orElse(0);
         result = prime * result + myWebsite.hashCode();
 
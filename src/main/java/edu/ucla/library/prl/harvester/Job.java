@@ -7,6 +7,8 @@ import java.text.ParseException;
 import java.time.OffsetDateTime;
 import java.time.format.DateTimeParseException;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -17,9 +19,12 @@ import org.quartz.CronExpression;
 
 import info.freelibrary.util.StringUtils;
 
+import io.vavr.Lazy;
+
 import io.vertx.codegen.annotations.DataObject;
 import io.vertx.core.json.JsonArray;
 import io.vertx.core.json.JsonObject;
+import io.vertx.sqlclient.Row;
 import io.vertx.sqlclient.templates.SqlTemplate;
 
 /**
@@ -64,6 +69,17 @@ public final class Job {
      */
     static final String LAST_SUCCESSFUL_RUN = "lastSuccessfulRun";
 
+    /**
+     * JSON key for the schedule jitter window.
+     */
+    static final String SCHEDULE_JITTER_WINDOW = "scheduleJitterWindow";
+
+    /**
+     * JSON key for the next fire time, which the API adds to the JSON representation of a job (since it's scheduler
+     * state, rather than part of the job).
+     */
+    public static final String NEXT_FIRE_TIME = "nextFireTime";
+
     /**
      * The identifier of the job.
      */
@@ -85,15 +101,27 @@ public final class Job {
     private final List<String> mySets;
 
     /**
-     * The schedule on which this job should be run.
+     * The schedule on which this job should be run, as a cron expression string.
      */
-    private final CronExpression myScheduleCronExpression;
+    private final String myScheduleCron;
+
+    /**
+     * The schedule on which this job should be run, which is only parsed when it's first needed if the job was read
+     * from the database.
+     */
+    private final Lazy<CronExpression> myScheduleCronExpression;
 
     /**
      * The timestamp of the last successful run of this job; will be empty at first.
      */
     private final Optional<OffsetDateTime> myLastSuccessfulRun;
 
+    /**
+     * The window (in seconds) within which this job's scheduled runs are spread out; if empty, the application-wide
+     * default applies.
+     */
+    private final Optional<Integer> myScheduleJitterWindow;
+
     /**
      * Instantiates a job.
      *
@@ -105,12 +133,55 @@ public final class Job {
      */
     public Job(final int anInstitutionID, final URL aRepositoryBaseURL, final List<String> aSets,
             final CronExpression aScheduleCronExpression, final OffsetDateTime aLastSuccessfulRun) {
+        this(anInstitutionID, aRepositoryBaseURL, aSets, aScheduleCronExpression, aLastSuccessfulRun, null);
+    }
+
+    /**
+     * Instantiates a job with a schedule jitter window.
+     *
+     * @param anInstitutionID The identifier of the institution that this job should be associated with
+     * @param aRepositoryBaseURL The base URL of the OAI-PMH repository
+     * @param aSets The list of sets to harvest; if empty, assume all sets should be harvested
+     * @param aScheduleCronExpression The schedule on which this job should be run
+     * @param aLastSuccessfulRun The timestamp of the last successful run of this job; will be null at first
+     * @param aScheduleJitterWindow The window (in seconds) within which this job's scheduled runs are spread out; if
+     *        null, the application-wide default applies
+     */
+    public Job(final int anInstitutionID, final URL aRepositoryBaseURL, final List<String> aSets,
+            final CronExpression aScheduleCronExpression, final OffsetDateTime aLastSuccessfulRun,
+            final Integer aScheduleJitterWindow) {
         myID = Optional.empty();
         myInstitutionID = anInstitutionID;
         myRepositoryBaseURL = Objects.requireNonNull(aRepositoryBaseURL);
         mySets = Objects.requireNonNull(aSets);
-        myScheduleCronExpression = Objects.requireNonNull(aScheduleCronExpression);
+        myScheduleCron = Objects.requireNonNull(aScheduleCronExpression).getCronExpression();
+        myScheduleCronExpression = Lazy.of(() -> aScheduleCronExpression);
+        myLastSuccessfulRun = Optional.ofNullable(aLastSuccessfulRun);
+        myScheduleJitterWindow = Optional.ofNullable(aScheduleJitterWindow);
+    }
+
+    /**
+     * Instantiates a job from the values of a database row, which were validated when they were stored.
+     *
+     * @param anID The identifier of the job
+     * @param anInstitutionID The identifier of the institution that this job is associated with
+     * @param aRepositoryBaseURL The base URL of the OAI-PMH repository
+     * @param aSets The list of sets to harvest
+     * @param aScheduleCron The schedule on which this job should be run, as a cron expression string
+     * @param aLastSuccessfulRun The timestamp of the last successful run of this job, or null
+     * @param aScheduleJitterWindow The window (in seconds) within which this job's scheduled runs are spread out, or
+     *        null
+     */
+    private Job(final Integer anID, final int anInstitutionID, final URL aRepositoryBaseURL, final List<String> aSets,
+            final String aScheduleCron, final OffsetDateTime aLastSuccessfulRun, final Integer aScheduleJitterWindow) {
+        myID = Optional.ofNullable(anID);
+        myInstitutionID = anInstitutionID;
+        myRepositoryBaseURL = aRepositoryBaseURL;
+        mySets = aSets;
+        myScheduleCron = aScheduleCron;
+        myScheduleCronExpression = Lazy.of(() -> parseScheduleCron(aScheduleCron));
         myLastSuccessfulRun = Optional.ofNullable(aLastSuccessfulRun);
+        myScheduleJitterWindow = Optional.ofNullable(aScheduleJitterWindow);
     }
 
     /**
@@ -129,6 +200,7 @@ public final class Job {
         final String repositoryBaseURL = aJsonObject.getString(REPOSITORY_BASE_URL);
         final JsonArray sets = aJsonObject.getJsonArray(SETS);
         final String scheduleCronExpression = aJsonObject.getString(SCHEDULE_CRON_EXPRESSION);
+        final Object scheduleJitterWindow = aJsonObject.getValue(SCHEDULE_JITTER_WINDOW);
 
         myID = Optional.ofNullable(aJsonObject.getInteger(ID));
 
@@ -159,13 +231,11 @@ public final class Job {
         }
 
         if (scheduleCronExpression != null) {
-            try {
-                myScheduleCronExpression =
-                        new CronExpression(Objects.requireNonNull(StringUtils.trimToNull(scheduleCronExpression)));
-            } catch (final ParseException details) {
-                throw new InvalidJobJsonException(details, MessageCodes.PRL_004, SCHEDULE_CRON_EXPRESSION,
-                        details.getMessage());
-            }
+            final CronExpression cronExpression =
+                    parseScheduleCron(Objects.requireNonNull(StringUtils.trimToNull(scheduleCronExpression)));
+
+            myScheduleCron = cronExpression.getCronExpression();
+            myScheduleCronExpression = Lazy.of(() -> cronExpression);
         } else {
             throw new InvalidJobJsonException(MessageCodes.PRL_002, SCHEDULE_CRON_EXPRESSION);
         }
@@ -178,6 +248,50 @@ public final class Job {
                         details.getMessage());
             }
         });
+
+        if (scheduleJitterWindow == null) {
+            myScheduleJitterWindow = Optional.empty();
+        } else if (scheduleJitterWindow instanceof Integer && (Integer) scheduleJitterWindow >= 0) {
+            myScheduleJitterWindow = Optional.of((Integer) scheduleJitterWindow);
+        } else {
+            throw new InvalidJobJsonException(MessageCodes.PRL_004, SCHEDULE_JITTER_WINDOW, scheduleJitterWindow);
+        }
+    }
+
+    /**
+     * Instantiates a job from a database row that has a column for each of the JSON keys. Since the row's values were
+     * validated when they were stored, they're mapped as they are, and the schedule is only parsed when it's needed.
+     *
+     * @param aRow A row of the harvest jobs table
+     * @return The job
+     * @throws InvalidJobJsonException If the row's repository base URL is invalid
+     */
+    public static Job fromRow(final Row aRow) {
+        final String repositoryBaseURL = aRow.getString(REPOSITORY_BASE_URL);
+        final String[] sets = aRow.getArrayOfStrings(SETS);
+
+        try {
+            return new Job(aRow.getInteger(ID), aRow.getInteger(INSTITUTION_ID), new URL(repositoryBaseURL),
+                    sets != null ? Arrays.asList(sets) : List.of(), aRow.getString(SCHEDULE_CRON_EXPRESSION),
+                    aRow.getOffsetDateTime(LAST_SUCCESSFUL_RUN), aRow.getInteger(SCHEDULE_JITTER_WINDOW));
+        } catch (final MalformedURLException details) {
+            throw new InvalidJobJsonException(details, MessageCodes.PRL_004, REPOSITORY_BASE_URL,
+                    details.getMessage());
+        }
+    }
+
+    /**
+     * @param aScheduleCron A cron expression string
+     * @return The parsed cron expression
+     * @throws InvalidJobJsonException If the cron expression string is invalid
+     */
+    private static CronExpression parseScheduleCron(final String aScheduleCron) {
+        try {
+            return new CronExpression(aScheduleCron);
+        } catch (final ParseException details) {
+            throw new InvalidJobJsonException(details, MessageCodes.PRL_004, SCHEDULE_CRON_EXPRESSION,
+                    details.getMessage());
+        }
     }
 
     /**
@@ -190,6 +304,10 @@ public final class Job {
         json.put(SETS, new JsonArray(getSets()));
         getLastSuccessfulRun().ifPresent(datetime -> json.put(LAST_SUCCESSFUL_RUN, datetime.toString()));
 
+        if (getScheduleJitterWindow().isEmpty()) {
+            json.remove(SCHEDULE_JITTER_WINDOW);
+        }
+
         return json;
     }
 
@@ -204,9 +322,10 @@ public final class Job {
         map.put(METADATA_PREFIX, getMetadataPrefix());
         // SqlTemplate parameter mapping requires that an array is represented as a Java array (not a List or JsonArray)
         map.put(SETS, getSets().toArray(new String[0]));
-        map.put(SCHEDULE_CRON_EXPRESSION, getScheduleCronExpression().getCronExpression());
+        map.put(SCHEDULE_CRON_EXPRESSION, myScheduleCron);
         // Likewise, timestamps must be represented as OffsetDateTime (not a String)
         map.put(LAST_SUCCESSFUL_RUN, getLastSuccessfulRun().orElse(null));
+        map.put(SCHEDULE_JITTER_WINDOW, getScheduleJitterWindow().orElse(null));
 
         getID().ifPresent(id -> map.put(ID, id));
 
@@ -245,14 +364,14 @@ public final class Job {
      * @return The list of sets
      */
     public List<String> getSets() {
-        return mySets;
+        return Collections.unmodifiableList(mySets);
     }
 
     /**
      * @return The schedule
      */
     public CronExpression getScheduleCronExpression() {
-        return myScheduleCronExpression;
+        return myScheduleCronExpression.get();
     }
 
     /**
@@ -262,6 +381,13 @@ public final class Job {
         return myLastSuccessfulRun;
     }
 
+    /**
+     * @return The optional schedule jitter window (in seconds)
+     */
+    public Optional<Integer> getScheduleJitterWindow() {
+        return myScheduleJitterWindow;
+    }
+
     /**
      * @param aJob A job
      * @param aJobID The ID to associate with the job
@@ -279,9 +405,9 @@ public final class Job {
             if (getID().equals(other.getID()) && getInstitutionID() == other.getInstitutionID() &&
                     getRepositoryBaseURL().equals(other.getRepositoryBaseURL()) &&
                     getMetadataPrefix().equals(other.getMetadataPrefix()) && getSets().equals(other.getSets()) &&
-                    getScheduleCronExpression().getCronExpression()
-                            .equals(other.getScheduleCronExpression().getCronExpression()) &&
-                    getLastSuccessfulRun().equals(other.getLastSuccessfulRun())) {
+                    myScheduleCron.equals(other.myScheduleCron) &&
+                    getLastSuccessfulRun().equals(other.getLastSuccessfulRun()) &&
+                    getScheduleJitterWindow().equals(other.getScheduleJitterWindow())) {
                 return true;
             }
         }
@@ -298,8 +424,9 @@ public final class Job {
         result = prime * result + myInstitutionID;
         result = prime * result + myRepositoryBaseURL.hashCode();
         result = prime * result + mySets.hashCode();
-        result = prime * result + myScheduleCronExpression.getCronExpression().hashCode();
+        result = prime * result + myScheduleCron.hashCode();
         result = prime * result + myLastSuccessfulRun.map(timestamp -> timestamp.hashCode()).orElse(0);
+        result = prime * result + myScheduleJitterWindow.orElse(0);
 
         return result;
     }
@@ -34,6 +34,11 @@ public class JobResult {
      */
     static final String DELETED_RECORD_COUNT = "deletedRecordCount";
 
+    /**
+     * The JSON key for the unchanged record count.
+     */
+    static final String UNCHANGED_RECORD_COUNT = "unchangedRecordCount";
+
     /**
      * The ID of the associated job.
      */
@@ -54,6 +59,11 @@ public class JobResult {
      */
     private final int myDeletedRecordCount;
 
+    /**
+     * The number of records harvested that were skipped because they hadn't changed since they were last indexed.
+     */
+    private final int myUnchangedRecordCount;
+
     /**
      * Instantiates a job result.
      *
@@ -61,13 +71,15 @@ public class JobResult {
      * @param aStartTime The time when the job was started
      * @param aRecordCount The number of records harvested
      * @param aDeletedRecordCount The number of records deleted
+     * @param anUnchangedRecordCount The number of records skipped because they hadn't changed
      */
     public JobResult(final int aJobID, final OffsetDateTime aStartTime, final int aRecordCount,
-            final int aDeletedRecordCount) {
+            final int aDeletedRecordCount, final int anUnchangedRecordCount) {
         myJobID = aJobID;
         myStartTime = Objects.requireNonNull(aStartTime);
         myRecordCount = aRecordCount;
         myDeletedRecordCount = aDeletedRecordCount;
+        myUnchangedRecordCount = anUnchangedRecordCount;
     }
 
     /**
@@ -84,6 +96,7 @@ public class JobResult {
         final String startTime = aJsonObject.getString(START_TIME);
         final Integer recordCount = aJsonObject.getInteger(RECORD_COUNT);
         final Integer deletedRecordCount = aJsonObject.getInteger(DELETED_RECORD_COUNT);
+        final Integer unchangedRecordCount = aJsonObject.getInteger(UNCHANGED_RECORD_COUNT);
 
         if (jobID != null) {
             if (jobID >= 1) {
@@ -125,6 +138,17 @@ public class JobResult {
         } else {
             throw new InvalidJobResultJsonException(MessageCodes.PRL_002, DELETED_RECORD_COUNT);
         }
+
+        if (unchangedRecordCount != null) {
+            if (unchangedRecordCount >= 0) {
+                myUnchangedRecordCount = unchangedRecordCount.intValue();
+            } else {
+                throw new InvalidJobResultJsonException(MessageCodes.PRL_004, UNCHANGED_RECORD_COUNT,
+                        unchangedRecordCount);
+            }
+        } else {
+            throw new InvalidJobResultJsonException(MessageCodes.PRL_002, UNCHANGED_RECORD_COUNT);
+        }
     }
 
     /**
@@ -135,7 +159,8 @@ public class JobResult {
                 .put(JOB_ID, getJobID()) //
                 .put(START_TIME, getStartTime().toString()) //
                 .put(RECORD_COUNT, getRecordCount()) //
-                .put(DELETED_RECORD_COUNT, getDeletedRecordCount());
+                .put(DELETED_RECORD_COUNT, getDeletedRecordCount()) //
+                .put(UNCHANGED_RECORD_COUNT, getUnchangedRecordCount());
     }
 
     /**
@@ -166,6 +191,13 @@ public class JobResult {
         return myDeletedRecordCount;
     }
 
+    /**
+     * @return The unchanged record count
+     */
+    public int getUnchangedRecordCount() {
+        return myUnchangedRecordCount;
+    }
+
     @Override
     public boolean equals(final Object anOther) {
         if (anOther instanceof JobResult) {
@@ -173,7 +205,8 @@ public class JobResult {
 
             if (getJobID() == other.getJobID() && getStartTime().equals(other.getStartTime()) &&
                     getRecordCount() == other.getRecordCount() &&
-                    getDeletedRecordCount() == other.getDeletedRecordCount()) {
+                    getDeletedRecordCount() == other.getDeletedRecordCount() &&
+                    getUnchangedRecordCount() == other.getUnchangedRecordCount()) {
                 return true;
             }
         }
@@ -190,6 +223,7 @@ public class JobResult {
         result = prime * result + myStartTime.hashCode();
         result = prime * result + myRecordCount;
         result = prime * result + myDeletedRecordCount;
+        result = prime * result + myUnchangedRecordCount;
 
         return result;
     }
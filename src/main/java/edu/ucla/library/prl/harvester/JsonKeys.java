@@ -6,6 +6,16 @@ package edu.ucla.library.prl.harvester;
  */
 public final class JsonKeys {
 
+    /**
+     * A metrics key.
+     */
+    public static final String METRICS = "metrics";
+
+    /**
+     * A key for the health of the OAI-PMH repositories.
+     */
+    public static final String PROVIDERS = "providers";
+
     /**
      * A status key.
      */
@@ -0,0 +1,91 @@
+
+package edu.ucla.library.prl.harvester;
+
+import info.freelibrary.util.Logger;
+import info.freelibrary.util.LoggerFactory;
+
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.eventbus.EventBus;
+import io.vertx.core.eventbus.MessageCodec;
+
+/**
+ * An event bus message codec that passes objects to local consumers as they are, without encoding them.
+ * <p>
+ * This is only safe for objects that aren't modified after they're sent, like {@link Institution}, {@link Job} and
+ * {@link JobResult}. Messages that use this codec can't be delivered to other nodes.
+ *
+ * @param <T> The type of the objects
+ */
+public final class LocalMessageCodec<T> implements MessageCodec<T, T> {
+
+    /**
+     * A logger.
+     */
+    private static final Logger LOGGER = LoggerFactory.getLogger(LocalMessageCodec.class, MessageCodes.BUNDLE);
+
+    /**
+     * The name of the codec.
+     */
+    private final String myName;
+
+    /**
+     * Creates a codec.
+     *
+     * @param aClass The class of the objects
+     */
+    private LocalMessageCodec(final Class<T> aClass) {
+        myName = LocalMessageCodec.class.getSimpleName() + '.' + aClass.getSimpleName();
+    }
+
+    /**
+     * Registers local codecs as the default codecs for {@link Institution}, {@link Job} and {@link JobResult}, unless
+     * they're already registered.
+     *
+     * @param anEventBus An event bus
+     */
+    public static void registerAll(final EventBus anEventBus) {
+        register(anEventBus, Institution.class);
+        register(anEventBus, Job.class);
+        register(anEventBus, JobResult.class);
+    }
+
+    /**
+     * Registers a local codec as the default codec for a class, unless one is already registered.
+     *
+     * @param <T> The type of the objects
+     * @param anEventBus An event bus
+     * @param aClass The class of the objects
+     */
+    private static <T> void register(final EventBus anEventBus, final Class<T> aClass) {
+        try {
+            anEventBus.registerDefaultCodec(aClass, new LocalMessageCodec<>(aClass));
+        } catch (final IllegalStateException details) {
+            // The codec was already registered by another service on this Vert.x instance
+        }
+    }
+
+    @Override
+    public void encodeToWire(final Buffer aBuffer, final T anObject) {
+        throw new UnsupportedOperationException(LOGGER.getMessage(MessageCodes.PRL_074, myName));
+    }
+
+    @Override
+    public T decodeFromWire(final int aPosition, final Buffer aBuffer) {
+        throw new UnsupportedOperationException(LOGGER.getMessage(MessageCodes.PRL_074, myName));
+    }
+
+    @Override
+    public T transform(final T anObject) {
+        return anObject;
+    }
+
+    @Override
+    public String name() {
+        return myName;
+    }
+
+    @Override
+    public byte systemCodecID() {
+        return -1;
+    }
+}
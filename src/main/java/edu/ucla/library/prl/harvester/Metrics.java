@@ -0,0 +1,131 @@
+
+package edu.ucla.library.prl.harvester;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import io.vertx.core.json.JsonObject;
+
+/**
+ * Application-wide counters, which are reported by the status endpoint.
+ */
+public final class Metrics {
+
+    /**
+     * The number of scheduled harvest runs that started late, usually because their job was still running.
+     */
+    public static final String HARVEST_TRIGGERS_DELAYED = "harvestTriggersDelayed";
+
+    /**
+     * The number of scheduled harvest runs that misfired, because they were held back for longer than the scheduler's
+     * misfire threshold; each misfire collapses the runs it missed into a single run.
+     */
+    public static final String HARVEST_TRIGGERS_MISFIRED = "harvestTriggersMisfired";
+
+    /**
+     * The number of times that an OAI-PMH repository's circuit breaker opened.
+     */
+    public static final String OAIPMH_CIRCUIT_BREAKER_TRIPS = "oaipmhCircuitBreakerTrips";
+
+    /**
+     * The number of OAI-PMH requests that weren't sent, because the repository's circuit breaker was open.
+     */
+    public static final String OAIPMH_REQUESTS_REJECTED = "oaipmhRequestsRejected";
+
+    /**
+     * The number of OAI-PMH requests that were retried after they failed.
+     */
+    public static final String OAIPMH_REQUEST_RETRIES = "oaipmhRequestRetries";
+
+    /**
+     * The number of Solr documents that were deleted by paging through the documents that match a query.
+     */
+    public static final String SOLR_DOCS_DELETED = "solrDocsDeleted";
+
+    /**
+     * The number of requests sent to Solr, including retries.
+     */
+    public static final String SOLR_REQUESTS = "solrRequests";
+
+    /**
+     * The number of requests to Solr that failed, after all of their retries.
+     */
+    public static final String SOLR_REQUEST_ERRORS = "solrRequestErrors";
+
+    /**
+     * The number of requests to Solr that were retried after they failed.
+     */
+    public static final String SOLR_REQUEST_RETRIES = "solrRequestRetries";
+
+    /**
+     * The total time spent waiting for responses from Solr (in milliseconds); divided by {@link #SOLR_REQUESTS}, it's
+     * the mean latency.
+     */
+    public static final String SOLR_REQUEST_TIME = "solrRequestTimeMillis";
+
+    /**
+     * The number of institutions and jobs that were read from the harvest schedule store's cache.
+     */
+    public static final String STORE_CACHE_HITS = "storeCacheHits";
+
+    /**
+     * The number of institutions and jobs that were read from the database, because they weren't cached.
+     */
+    public static final String STORE_CACHE_MISSES = "storeCacheMisses";
+
+    /**
+     * The counters, by name.
+     */
+    private static final Map<String, LongAdder> COUNTERS = new ConcurrentHashMap<>();
+
+    /**
+     * Creates a new metrics class.
+     */
+    private Metrics() {
+        // This is intentionally left empty
+    }
+
+    /**
+     * Increments a counter.
+     *
+     * @param aName The name of the counter
+     */
+    public static void increment(final String aName) {
+        COUNTERS.computeIfAbsent(aName, name -> new LongAdder()).increment();
+    }
+
+    /**
+     * Adds an amount to a counter.
+     *
+     * @param aName The name of the counter
+     * @param anAmount The amount to add
+     */
+    public static void add(final String aName, final long anAmount) {
+        COUNTERS.computeIfAbsent(aName, name -> new LongAdder()).add(anAmount);
+    }
+
+    /**
+     * Gets the value of a counter.
+     *
+     * @param aName The name of the counter
+     * @return The value of the counter, which is zero if it has never been incremented
+     */
+    public static long get(final String aName) {
+        final LongAdder counter = COUNTERS.get(aName);
+
+        return counter == null ? 0 : counter.sum();
+    }
+
+    /**
+     * @return The values of all the counters, by name
+     */
+    public static JsonObject toJson() {
+        final Map<String, Object> values = new TreeMap<>();
+
+        COUNTERS.forEach((name, counter) -> values.put(name, counter.sum()));
+
+        return new JsonObject(values);
+    }
+}
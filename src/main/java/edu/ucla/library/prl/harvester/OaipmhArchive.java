@@ -0,0 +1,347 @@
+
+package edu.ucla.library.prl.harvester;
+
+import java.io.IOException;
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import io.vertx.core.json.JsonObject;
+
+/**
+ * A local, on-disk archive of the compressed OAI-PMH response pages fetched by harvest jobs.
+ * <p>
+ * The archive is organized by job, run and set, so that each run of a job can be replayed in order:
+ *
+ * <pre>
+ * {archive}/job-{jobID}/{runStartTime}/run.json
+ * {archive}/job-{jobID}/{runStartTime}/run.complete
+ * {archive}/job-{jobID}/{runStartTime}/{setSpec}/page-{n}.xml.gz
+ * </pre>
+ * <p>
+ * A run is only replayed once it has been marked complete, i.e. once the harvest that wrote it has succeeded; the
+ * pages of a run that failed partway through are fetched again by the job's next run anyway.
+ * <p>
+ * Runs are replayed from the job's latest full run (i.e. one that wasn't limited to the records changed since the last
+ * successful run), so the runs before it are pruned. So that the archive doesn't grow without bound, a job is
+ * harvested in full again once its latest full run is older than the full run interval.
+ */
+public final class OaipmhArchive {
+
+    /**
+     * The prefix of job directory names.
+     */
+    private static final String JOB_DIR_PREFIX = "job-";
+
+    /**
+     * The name of the file that describes a run.
+     */
+    private static final String RUN_MANIFEST = "run.json";
+
+    /**
+     * The name of the file that marks a run as complete.
+     */
+    private static final String RUN_COMPLETE_MARKER = "run.complete";
+
+    /**
+     * The manifest key for whether the run harvested all records, instead of only those changed since the last run.
+     */
+    private static final String FULL = "full";
+
+    /**
+     * The manifest key for the lookup table that maps setSpec to setName.
+     */
+    private static final String SET_NAMES = "setNames";
+
+    /**
+     * The format of run directory names; these sort lexicographically in chronological order.
+     */
+    private static final DateTimeFormatter RUN_DIR_FORMAT = DateTimeFormatter.ofPattern("yyyyMMdd'T'HHmmss.SSS'Z'");
+
+    /**
+     * The root directory of the archive.
+     */
+    private final Path myRootDir;
+
+    /**
+     * How old a job's latest full run may get before the job is harvested in full again; if it's not positive, jobs
+     * are only harvested in full when they have no complete full run.
+     */
+    private final Duration myFullRunInterval;
+
+    /**
+     * Creates an archive rooted at the supplied directory, whose jobs are only harvested in full when they have no
+     * complete full run.
+     *
+     * @param aRootDir The root directory of the archive
+     */
+    public OaipmhArchive(final Path aRootDir) {
+        this(aRootDir, Duration.ZERO);
+    }
+
+    /**
+     * Creates an archive rooted at the supplied directory.
+     *
+     * @param aRootDir The root directory of the archive
+     * @param aFullRunInterval How old a job's latest full run may get before the job is harvested in full again; if
+     *        it's not positive, jobs are only harvested in full when they have no complete full run
+     */
+    public OaipmhArchive(final Path aRootDir, final Duration aFullRunInterval) {
+        myRootDir = aRootDir;
+        myFullRunInterval = aFullRunInterval;
+    }
+
+    /**
+     * Creates the directory for a new run of a job, and records the information needed to replay it.
+     *
+     * @param aJobID The ID of the job
+     * @param aStartTime The time when the run was started
+     * @param aSetNameLookup A lookup table that maps setSpec to setName
+     * @param anIsFull Whether the run harvests all records, instead of only those changed since the last run
+     * @return The run directory
+     * @throws IOException If the directory or its manifest could not be written
+     */
+    public Path createRun(final int aJobID, final OffsetDateTime aStartTime, final Map<String, String> aSetNameLookup,
+            final boolean anIsFull) throws IOException {
+        final String runDirName = RUN_DIR_FORMAT.format(aStartTime.atZoneSameInstant(ZoneOffset.UTC));
+        final Path runDir = Files.createDirectories(getJobDir(aJobID).resolve(runDirName));
+        final JsonObject manifest =
+                new JsonObject().put(SET_NAMES, new JsonObject(Map.copyOf(aSetNameLookup))).put(FULL, anIsFull);
+
+        Files.writeString(runDir.resolve(RUN_MANIFEST), manifest.encodePrettily());
+
+        return runDir;
+    }
+
+    /**
+     * Marks a run as complete, once the harvest that wrote it has succeeded, so that it can be replayed.
+     *
+     * @param aRunDir A run directory
+     * @throws IOException If the marker could not be written
+     */
+    public static void completeRun(final Path aRunDir) throws IOException {
+        Files.writeString(aRunDir.resolve(RUN_COMPLETE_MARKER), "");
+    }
+
+    /**
+     * Lists the complete runs of a job that need to be replayed, in chronological order: the latest full run, and the
+     * runs after it.
+     *
+     * @param aJobID The ID of the job
+     * @return The list of run directories, which is empty if the job has not been archived
+     * @throws IOException If the job directory could not be read
+     */
+    public List<Path> listRuns(final int aJobID) throws IOException {
+        final List<Path> runDirs = listAllRuns(aJobID).stream().filter(OaipmhArchive::isComplete).toList();
+
+        for (int index = runDirs.size() - 1; index > 0; index--) {
+            if (isFull(runDirs.get(index))) {
+                return runDirs.subList(index, runDirs.size());
+            }
+        }
+
+        return runDirs;
+    }
+
+    /**
+     * Determines whether a job's next run should harvest all records, instead of only those changed since its last
+     * successful run, so that its earlier runs can be pruned.
+     *
+     * <p>
+     * A job that has no complete full run (e.g. one that was only archived before runs were marked complete) is always
+     * due, since its runs couldn't be replayed into all of its records otherwise.
+     *
+     * @param aJobID The ID of the job
+     * @param aNow The current time
+     * @return Whether the job has no complete full run, or none that's newer than the full run interval
+     * @throws IOException If the job directory could not be read
+     */
+    public boolean isFullRunDue(final int aJobID, final OffsetDateTime aNow) throws IOException {
+        final Optional<Path> latestFullRun = listAllRuns(aJobID).stream().filter(dir -> isComplete(dir) && isFull(dir))
+                .max(Comparator.naturalOrder());
+
+        if (latestFullRun.isEmpty()) {
+            return true;
+        }
+
+        if (myFullRunInterval.isZero() || myFullRunInterval.isNegative()) {
+            return false;
+        }
+
+        return getStartTime(latestFullRun.get()).plus(myFullRunInterval).isBefore(aNow);
+    }
+
+    /**
+     * Deletes the runs of a job that will never be replayed: the incomplete runs that are older than its latest
+     * complete run (i.e. those of harvests that failed), and the runs that are older than its latest complete full
+     * run. Since the runs of a job never overlap, this should be called after a run is marked complete.
+     *
+     * @param aJobID The ID of the job
+     * @return The run directories that were deleted
+     * @throws IOException If a run directory could not be deleted
+     */
+    public List<Path> pruneRuns(final int aJobID) throws IOException {
+        final List<Path> runDirs = listAllRuns(aJobID);
+        final List<Path> completeRunDirs = runDirs.stream().filter(OaipmhArchive::isComplete).toList();
+        final List<Path> prunedRunDirs = new ArrayList<>();
+        final Path latestCompleteRun;
+        final Optional<Path> latestFullRun;
+
+        if (completeRunDirs.isEmpty()) {
+            return prunedRunDirs;
+        }
+
+        latestCompleteRun = completeRunDirs.get(completeRunDirs.size() - 1);
+        latestFullRun = completeRunDirs.stream().filter(OaipmhArchive::isFull).max(Comparator.naturalOrder());
+
+        for (final Path runDir : runDirs) {
+            final boolean isFailed = !isComplete(runDir) && runDir.compareTo(latestCompleteRun) < 0;
+            final boolean isSuperseded = latestFullRun.isPresent() && runDir.compareTo(latestFullRun.get()) < 0;
+
+            if (isFailed || isSuperseded) {
+                delete(runDir);
+                prunedRunDirs.add(runDir);
+            }
+        }
+
+        return prunedRunDirs;
+    }
+
+    /**
+     * Gets the lookup table that maps setSpec to setName, as it was when the run was archived.
+     *
+     * @param aRunDir A run directory
+     * @return The lookup table
+     * @throws IOException If the run manifest could not be read
+     */
+    public static Map<String, String> getSetNameLookup(final Path aRunDir) throws IOException {
+        final JsonObject manifest = new JsonObject(Files.readString(aRunDir.resolve(RUN_MANIFEST)));
+
+        return manifest.getJsonObject(SET_NAMES).stream()
+                .collect(Collectors.toMap(Map.Entry::getKey, entry -> entry.getValue().toString()));
+    }
+
+    /**
+     * Lists the archived sets of a run.
+     *
+     * @param aRunDir A run directory
+     * @return A map from setSpec to the directory containing the pages for that set
+     * @throws IOException If the run directory could not be read
+     */
+    public static Map<String, Path> listSets(final Path aRunDir) throws IOException {
+        try (Stream<Path> setDirs = Files.list(aRunDir)) {
+            return setDirs.filter(Files::isDirectory).collect(Collectors.toMap(
+                    dir -> URLDecoder.decode(dir.getFileName().toString(), StandardCharsets.UTF_8), dir -> dir));
+        }
+    }
+
+    /**
+     * Gets the directory for the pages of a set within a run.
+     *
+     * @param aRunDir A run directory
+     * @param aSetSpec A setSpec
+     * @return The set directory
+     */
+    public static Path getSetDir(final Path aRunDir, final String aSetSpec) {
+        // setSpecs may contain colons (and potentially other characters that aren't safe in file names)
+        return aRunDir.resolve(URLEncoder.encode(aSetSpec, StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Lists all the runs of a job, whether or not they're complete, in chronological order.
+     *
+     * @param aJobID The ID of the job
+     * @return The list of run directories
+     * @throws IOException If the job directory could not be read
+     */
+    private List<Path> listAllRuns(final int aJobID) throws IOException {
+        final Path jobDir = getJobDir(aJobID);
+
+        if (!Files.isDirectory(jobDir)) {
+            return Collections.emptyList();
+        }
+
+        try (Stream<Path> runDirs = Files.list(jobDir)) {
+            return runDirs.filter(dir -> Files.isRegularFile(dir.resolve(RUN_MANIFEST))).sorted().toList();
+        }
+    }
+
+    /**
+     * @param aRunDir A run directory
+     * @return Whether the run has been marked complete; runs that were archived before runs were marked can't be told
+     *         apart from failed ones, so they're never complete
+     */
+    private static boolean isComplete(final Path aRunDir) {
+        return Files.isRegularFile(aRunDir.resolve(RUN_COMPLETE_MARKER));
+    }
+
+    /**
+     * @param aRunDir A run directory
+     * @return Whether the run harvested all records; runs archived before this was recorded are assumed not to have
+     */
+    private static boolean isFull(final Path aRunDir) {
+        return readManifest(aRunDir).map(manifest -> manifest.getBoolean(FULL, false)).orElse(false);
+    }
+
+    /**
+     * @param aRunDir A run directory
+     * @return The run's manifest, or empty if it could not be read
+     */
+    private static Optional<JsonObject> readManifest(final Path aRunDir) {
+        try {
+            return Optional.of(new JsonObject(Files.readString(aRunDir.resolve(RUN_MANIFEST))));
+        } catch (final IOException details) {
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * @param aRunDir A run directory
+     * @return The time when the run was started
+     */
+    private static OffsetDateTime getStartTime(final Path aRunDir) {
+        return LocalDateTime.parse(aRunDir.getFileName().toString(), RUN_DIR_FORMAT).atOffset(ZoneOffset.UTC);
+    }
+
+    /**
+     * Deletes a run directory and everything in it.
+     *
+     * @param aRunDir A run directory
+     * @throws IOException If the directory could not be deleted
+     */
+    private static void delete(final Path aRunDir) throws IOException {
+        final List<Path> paths;
+
+        try (Stream<Path> walk = Files.walk(aRunDir)) {
+            // Children before their parents
+            paths = walk.sorted(Comparator.reverseOrder()).toList();
+        }
+
+        for (final Path path : paths) {
+            Files.delete(path);
+        }
+    }
+
+    /**
+     * @param aJobID The ID of a job
+     * @return The directory for the job's runs
+     */
+    private Path getJobDir(final int aJobID) {
+        return myRootDir.resolve(JOB_DIR_PREFIX + aJobID);
+    }
+}
@@ -0,0 +1,254 @@
+package edu.ucla.library.prl.harvester;
+
+import java.net.URL;
+import java.time.Instant;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongSupplier;
+
+import info.freelibrary.util.Logger;
+import info.freelibrary.util.LoggerFactory;
+
+import io.vertx.core.json.JsonObject;
+
+/**
+ * A circuit breaker for an OAI-PMH repository, which tracks its health so that requests to a repository that's known
+ * to be down fail fast, instead of each tying up a worker thread until it times out.
+ * <p>
+ * The breaker opens after a number of consecutive failures (i.e. I/O errors and server errors). While it's open,
+ * requests are rejected without being sent; once the reset timeout has passed, it lets a single probe request through
+ * (i.e. it's half-open), and the outcome of that request closes it or opens it again. There's one breaker per
+ * repository base URL in this JVM, and their states are reported by the status endpoint.
+ */
+public final class OaipmhCircuitBreaker {
+
+    /**
+     * A logger.
+     */
+    private static final Logger LOGGER = LoggerFactory.getLogger(OaipmhCircuitBreaker.class, MessageCodes.BUNDLE);
+
+    /**
+     * The circuit breakers, by OAI-PMH repository base URL.
+     */
+    private static final Map<String, OaipmhCircuitBreaker> BREAKERS = new ConcurrentHashMap<>();
+
+    /**
+     * The JSON key for the state of a circuit breaker.
+     */
+    private static final String STATE = "state";
+
+    /**
+     * The JSON key for the number of consecutive failures.
+     */
+    private static final String CONSECUTIVE_FAILURES = "consecutiveFailures";
+
+    /**
+     * The JSON key for the message of the last failure.
+     */
+    private static final String LAST_FAILURE = "lastFailure";
+
+    /**
+     * The JSON key for the time that the breaker last opened.
+     */
+    private static final String OPENED_AT = "openedAt";
+
+    /**
+     * The OAI-PMH repository base URL.
+     */
+    private final String myBaseURL;
+
+    /**
+     * The number of consecutive failures that opens the breaker; if it's not positive, the breaker never opens.
+     */
+    private final int myFailureThreshold;
+
+    /**
+     * How long (in milliseconds) the breaker stays open before it lets a probe request through.
+     */
+    private final long myResetTimeout;
+
+    /**
+     * The current time (in milliseconds since the epoch).
+     */
+    private final LongSupplier myClock;
+
+    /**
+     * The state of the breaker.
+     */
+    private State myState = State.CLOSED;
+
+    /**
+     * The number of consecutive failures.
+     */
+    private int myConsecutiveFailures;
+
+    /**
+     * The message of the last failure, if any.
+     */
+    private String myLastFailure;
+
+    /**
+     * The time that the breaker last opened, or that its last probe request was let through.
+     */
+    private long myOpenedAt;
+
+    /**
+     * Creates a circuit breaker.
+     *
+     * @param aBaseURL The OAI-PMH repository base URL
+     * @param aFailureThreshold The number of consecutive failures that opens the breaker
+     * @param aResetTimeout How long (in milliseconds) the breaker stays open before it lets a probe request through
+     * @param aClock The current time (in milliseconds since the epoch)
+     */
+    OaipmhCircuitBreaker(final String aBaseURL, final int aFailureThreshold, final long aResetTimeout,
+            final LongSupplier aClock) {
+        myBaseURL = aBaseURL;
+        myFailureThreshold = aFailureThreshold;
+        myResetTimeout = aResetTimeout;
+        myClock = aClock;
+    }
+
+    /**
+     * Gets the circuit breaker for an OAI-PMH repository, creating it if this is the first request to it.
+     *
+     * @param aBaseURL The OAI-PMH repository base URL
+     * @param anOptions The OAI-PMH client options
+     * @return The repository's circuit breaker
+     */
+    static OaipmhCircuitBreaker get(final URL aBaseURL, final OaipmhClientOptions anOptions) {
+        return BREAKERS.computeIfAbsent(aBaseURL.toString(), url -> new OaipmhCircuitBreaker(url,
+                anOptions.getCircuitBreakerFailureThreshold(), anOptions.getCircuitBreakerResetTimeout(),
+                System::currentTimeMillis));
+    }
+
+    /**
+     * @return The states of the circuit breakers of the OAI-PMH repositories that have been requested, by base URL
+     */
+    public static JsonObject toJson() {
+        final Map<String, Object> states = new TreeMap<>();
+
+        BREAKERS.forEach((url, breaker) -> states.put(url, breaker.getStatus()));
+
+        return new JsonObject(states);
+    }
+
+    /**
+     * Checks whether a request may be sent to the repository; if it may, its outcome must be recorded.
+     *
+     * @throws OpenException If the breaker is open, or if it's half-open and its probe request is still in flight
+     */
+    synchronized void acquire() throws OpenException {
+        final long now = myClock.getAsLong();
+
+        if (myState != State.CLOSED) {
+            if (now - myOpenedAt < myResetTimeout) {
+                Metrics.increment(Metrics.OAIPMH_REQUESTS_REJECTED);
+
+                throw new OpenException(LOGGER.getMessage(MessageCodes.PRL_090, myBaseURL,
+                        Instant.ofEpochMilli(myOpenedAt + myResetTimeout), myLastFailure));
+            }
+
+            // Let a probe request through; if it never reports back, another one is let through after the timeout
+            myState = State.HALF_OPEN;
+            myOpenedAt = now;
+        }
+    }
+
+    /**
+     * Records that a request succeeded, which closes the breaker.
+     */
+    synchronized void recordSuccess() {
+        if (myState != State.CLOSED) {
+            LOGGER.info(MessageCodes.PRL_089, myBaseURL);
+        }
+
+        myState = State.CLOSED;
+        myConsecutiveFailures = 0;
+    }
+
+    /**
+     * Records that a request failed, which opens the breaker if it's the last straw.
+     *
+     * @param aMessage The failure message
+     */
+    synchronized void recordFailure(final String aMessage) {
+        myConsecutiveFailures += 1;
+        myLastFailure = aMessage;
+
+        if (myState == State.HALF_OPEN ||
+                (myState == State.CLOSED && myFailureThreshold > 0 && myConsecutiveFailures >= myFailureThreshold)) {
+            if (myState == State.CLOSED) {
+                LOGGER.warn(MessageCodes.PRL_088, myBaseURL, myConsecutiveFailures, aMessage);
+                Metrics.increment(Metrics.OAIPMH_CIRCUIT_BREAKER_TRIPS);
+            }
+
+            myState = State.OPEN;
+            myOpenedAt = myClock.getAsLong();
+        }
+    }
+
+    /**
+     * @return The state of the breaker
+     */
+    synchronized State getState() {
+        return myState;
+    }
+
+    /**
+     * @return A JSON representation of the breaker's state
+     */
+    private synchronized JsonObject getStatus() {
+        final JsonObject status =
+                new JsonObject().put(STATE, myState.name()).put(CONSECUTIVE_FAILURES, myConsecutiveFailures);
+
+        if (myLastFailure != null) {
+            status.put(LAST_FAILURE, myLastFailure);
+        }
+
+        if (myState != State.CLOSED) {
+            status.put(OPENED_AT, Instant.ofEpochMilli(myOpenedAt).toString());
+        }
+
+        return status;
+    }
+
+    /**
+     * The states of a circuit breaker.
+     */
+    enum State {
+
+        /**
+         * Requests are sent.
+         */
+        CLOSED,
+
+        /**
+         * Requests are rejected.
+         */
+        OPEN,
+
+        /**
+         * A probe request has been sent, and the others are rejected until its outcome is known.
+         */
+        HALF_OPEN
+    }
+
+    /**
+     * The exception that is thrown when a request isn't sent because the repository's circuit breaker is open.
+     */
+    static final class OpenException extends Exception {
+
+        /**
+         * The <code>serialVersionUID</code> for this class.
+         */
+        private static final long serialVersionUID = 5526364017407307862L;
+
+        /**
+         * @param aMessage The exception message
+         */
+        OpenException(final String aMessage) {
+            super(aMessage);
+        }
+    }
+}
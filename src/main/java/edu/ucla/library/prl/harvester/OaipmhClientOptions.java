@@ -0,0 +1,227 @@
+
+package edu.ucla.library.prl.harvester;
+
+import java.net.URL;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Options for the internal OAI-PMH client.
+ */
+public class OaipmhClientOptions {
+
+    /**
+     * The HTTP timeout (in milliseconds).
+     */
+    private int myTimeout = Constants.DEFAULT_OAIPMH_CLIENT_HTTP_TIMEOUT;
+
+    /**
+     * The max time (in milliseconds) to read a response body, once its headers have arrived.
+     */
+    private int myBodyTimeout = Constants.DEFAULT_OAIPMH_CLIENT_HTTP_BODY_TIMEOUT;
+
+    /**
+     * The User-Agent HTTP request header.
+     */
+    private String myUserAgent = Constants.DEFAULT_HARVESTER_USER_AGENT;
+
+    /**
+     * The hosts that must not be asked for compressed responses.
+     */
+    private Set<String> myCompressionDisabledHosts = Set.of();
+
+    /**
+     * The optional recent latencies of the repositories, from which the HTTP timeout of each is derived.
+     */
+    private Optional<HostLatencies> myHostLatencies = Optional.empty();
+
+    /**
+     * The number of consecutive failed requests to a repository that opens its circuit breaker.
+     */
+    private int myCircuitBreakerFailureThreshold = Constants.DEFAULT_OAIPMH_CIRCUIT_BREAKER_FAILURE_THRESHOLD;
+
+    /**
+     * How long (in milliseconds) a repository's circuit breaker stays open before a request is let through.
+     */
+    private int myCircuitBreakerResetTimeout = Constants.DEFAULT_OAIPMH_CIRCUIT_BREAKER_RESET_TIMEOUT;
+
+    /**
+     * The number of times that the OAI-PMH requests of a harvest may be retried, in total.
+     */
+    private int myRetryBudget = Constants.DEFAULT_OAIPMH_CLIENT_RETRY_BUDGET;
+
+    /**
+     * The max delay (in milliseconds) before a request is retried.
+     */
+    private int myRetryMaxDelay = Constants.DEFAULT_OAIPMH_CLIENT_RETRY_MAX_DELAY;
+
+    /**
+     * @return The HTTP timeout (in milliseconds)
+     */
+    public int getTimeout() {
+        return myTimeout;
+    }
+
+    /**
+     * @param aTimeout The HTTP timeout (in milliseconds)
+     * @return These options
+     */
+    public OaipmhClientOptions setTimeout(final int aTimeout) {
+        myTimeout = aTimeout;
+        return this;
+    }
+
+    /**
+     * @return The max time (in milliseconds) to read a response body, once its headers have arrived
+     */
+    public int getBodyTimeout() {
+        return myBodyTimeout;
+    }
+
+    /**
+     * Sets the max time to read a response body, once its headers have arrived. Unlike the HTTP timeout, which only
+     * covers the time until the headers arrive, this bounds a response that stalls partway through its body.
+     *
+     * @param aBodyTimeout The max time (in milliseconds)
+     * @return These options
+     */
+    public OaipmhClientOptions setBodyTimeout(final int aBodyTimeout) {
+        myBodyTimeout = aBodyTimeout;
+        return this;
+    }
+
+    /**
+     * @return The User-Agent HTTP request header
+     */
+    public String getUserAgent() {
+        return myUserAgent;
+    }
+
+    /**
+     * @param aUserAgent The User-Agent HTTP request header
+     * @return These options
+     */
+    public OaipmhClientOptions setUserAgent(final String aUserAgent) {
+        myUserAgent = aUserAgent;
+        return this;
+    }
+
+    /**
+     * @return The optional recent latencies of the repositories
+     */
+    public Optional<HostLatencies> getHostLatencies() {
+        return myHostLatencies;
+    }
+
+    /**
+     * Sets the recent latencies of the repositories, which the latency of each request is recorded with. The HTTP
+     * timeout of each request is then derived from them, instead of being fixed.
+     *
+     * @param aHostLatencies The recent latencies of the repositories
+     * @return These options
+     */
+    public OaipmhClientOptions setHostLatencies(final HostLatencies aHostLatencies) {
+        myHostLatencies = Optional.of(aHostLatencies);
+        return this;
+    }
+
+    /**
+     * @return The number of consecutive failed requests to a repository that opens its circuit breaker
+     */
+    public int getCircuitBreakerFailureThreshold() {
+        return myCircuitBreakerFailureThreshold;
+    }
+
+    /**
+     * Sets the number of consecutive failed requests to a repository that opens its circuit breaker; if it's not
+     * positive, circuit breakers never open.
+     *
+     * @param aFailureThreshold The number of consecutive failed requests
+     * @return These options
+     */
+    public OaipmhClientOptions setCircuitBreakerFailureThreshold(final int aFailureThreshold) {
+        myCircuitBreakerFailureThreshold = aFailureThreshold;
+        return this;
+    }
+
+    /**
+     * @return How long (in milliseconds) a repository's circuit breaker stays open before a request is let through
+     */
+    public int getCircuitBreakerResetTimeout() {
+        return myCircuitBreakerResetTimeout;
+    }
+
+    /**
+     * @param aResetTimeout How long (in milliseconds) a repository's circuit breaker stays open before a request is
+     *        let through
+     * @return These options
+     */
+    public OaipmhClientOptions setCircuitBreakerResetTimeout(final int aResetTimeout) {
+        myCircuitBreakerResetTimeout = aResetTimeout;
+        return this;
+    }
+
+    /**
+     * @return The number of times that the OAI-PMH requests of a harvest may be retried, in total
+     */
+    public int getRetryBudget() {
+        return myRetryBudget;
+    }
+
+    /**
+     * @param aRetryBudget The number of times that the OAI-PMH requests of a harvest may be retried, in total
+     * @return These options
+     */
+    public OaipmhClientOptions setRetryBudget(final int aRetryBudget) {
+        myRetryBudget = aRetryBudget;
+        return this;
+    }
+
+    /**
+     * @return The max delay (in milliseconds) before a request is retried
+     */
+    public int getRetryMaxDelay() {
+        return myRetryMaxDelay;
+    }
+
+    /**
+     * Sets the max delay before a request is retried. A repository that asks for a longer delay (with the Retry-After
+     * HTTP response header) isn't retried.
+     *
+     * @param aRetryMaxDelay The max delay (in milliseconds)
+     * @return These options
+     */
+    public OaipmhClientOptions setRetryMaxDelay(final int aRetryMaxDelay) {
+        myRetryMaxDelay = aRetryMaxDelay;
+        return this;
+    }
+
+    /**
+     * @return The hosts that must not be asked for compressed responses
+     */
+    public Set<String> getCompressionDisabledHosts() {
+        return myCompressionDisabledHosts;
+    }
+
+    /**
+     * Sets the hosts that must not be asked for compressed responses, for servers that mishandle compression.
+     *
+     * @param aHostSet A set of host names
+     * @return These options
+     */
+    public OaipmhClientOptions setCompressionDisabledHosts(final Set<String> aHostSet) {
+        myCompressionDisabledHosts =
+                aHostSet.stream().map(host -> host.toLowerCase(Locale.ROOT)).collect(Collectors.toUnmodifiableSet());
+        return this;
+    }
+
+    /**
+     * @param aBaseURL An OAI-PMH repository base URL
+     * @return Whether compressed responses should be requested from the repository
+     */
+    public boolean isCompressionEnabled(final URL aBaseURL) {
+        return !myCompressionDisabledHosts.contains(aBaseURL.getHost().toLowerCase(Locale.ROOT));
+    }
+}
@@ -0,0 +1,554 @@
+
+package edu.ucla.library.prl.harvester;
+
+import java.io.BufferedInputStream;
+import java.io.EOFException;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.URL;
+import java.net.http.HttpClient;
+import java.net.http.HttpClient.Redirect;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.HttpResponse.BodySubscribers;
+import java.net.http.HttpTimeoutException;
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+import org.dspace.xoai.serviceprovider.client.OAIClient;
+import org.dspace.xoai.serviceprovider.exceptions.HttpException;
+import org.dspace.xoai.serviceprovider.parameters.Parameters;
+
+import info.freelibrary.util.Logger;
+import info.freelibrary.util.LoggerFactory;
+
+import io.vertx.core.http.HttpHeaders;
+
+/**
+ * An OAI-PMH client that asks for compressed responses and decompresses them as a stream, while they're being parsed.
+ * <p>
+ * OAI-PMH XML typically compresses by an order of magnitude, which matters a lot for repositories on slow links.
+ * Compression can be disabled per host with {@link OaipmhClientOptions#setCompressionDisabledHosts}, for servers
+ * that mishandle it.
+ * <p>
+ * Requests to a repository that's known to be down are rejected by its {@link OaipmhCircuitBreaker}. A request only
+ * counts as a success once its body has been read and decompressed to the end, so a repository that keeps dropping (or
+ * corrupting) responses partway through is seen as failing. If the options have {@link HostLatencies}, the time it
+ * takes each response to start is recorded with them, and each request's HTTP timeout is derived from them. That
+ * timeout only covers the time until the response headers arrive, so the body has its own deadline,
+ * {@link OaipmhClientOptions#getBodyTimeout()}, which a watchdog enforces by cancelling the exchange; connecting has
+ * one too.
+ */
+final class OaipmhHttpClient implements OAIClient {
+
+    /**
+     * A logger.
+     */
+    private static final Logger LOGGER = LoggerFactory.getLogger(OaipmhHttpClient.class, MessageCodes.BUNDLE);
+
+    /**
+     * The max time to connect to a repository.
+     */
+    private static final Duration CONNECT_TIMEOUT = Duration.ofSeconds(30);
+
+    /**
+     * An HTTP client that is shared by all instances, so that connections to repositories can be reused.
+     */
+    private static final HttpClient HTTP_CLIENT =
+            HttpClient.newBuilder().followRedirects(Redirect.NORMAL).connectTimeout(CONNECT_TIMEOUT).build();
+
+    /**
+     * The body of a response whose status code isn't 200, which is discarded.
+     */
+    private static final InputStream DISCARDED_BODY = InputStream.nullInputStream();
+
+    /**
+     * The value of the Accept-Encoding HTTP request header, when compression is enabled.
+     */
+    private static final String ACCEPTED_ENCODINGS = "gzip, deflate";
+
+    /**
+     * The size of the buffer used for decompression.
+     */
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * The name of the Retry-After HTTP response header.
+     */
+    private static final String RETRY_AFTER = "Retry-After";
+
+    /**
+     * The OAI-PMH repository base URL.
+     */
+    private final URL myBaseURL;
+
+    /**
+     * The HTTP timeout (in milliseconds), if there are no host latencies.
+     */
+    private final long myTimeout;
+
+    /**
+     * The max time (in milliseconds) to read a response body, once its headers have arrived.
+     */
+    private final long myBodyTimeout;
+
+    /**
+     * The optional recent latencies of the repositories.
+     */
+    private final Optional<HostLatencies> myHostLatencies;
+
+    /**
+     * The User-Agent HTTP request header.
+     */
+    private final String myUserAgent;
+
+    /**
+     * Whether to ask for compressed responses.
+     */
+    private final boolean myCompressionEnabled;
+
+    /**
+     * The circuit breaker of the OAI-PMH repository.
+     */
+    private final OaipmhCircuitBreaker myCircuitBreaker;
+
+    /**
+     * Creates a client for an OAI-PMH repository.
+     *
+     * @param aBaseURL The OAI-PMH repository base URL
+     * @param anOptions The client options
+     */
+    OaipmhHttpClient(final URL aBaseURL, final OaipmhClientOptions anOptions) {
+        myBaseURL = aBaseURL;
+        myTimeout = anOptions.getTimeout();
+        myBodyTimeout = anOptions.getBodyTimeout();
+        myHostLatencies = anOptions.getHostLatencies();
+        myUserAgent = anOptions.getUserAgent();
+        myCompressionEnabled = anOptions.isCompressionEnabled(aBaseURL);
+        myCircuitBreaker = OaipmhCircuitBreaker.get(aBaseURL, anOptions);
+    }
+
+    @Override
+    public InputStream execute(final Parameters aParams) throws HttpException {
+        final URI uri = URI.create(aParams.toUrl(myBaseURL.toString()));
+        final long timeout = myHostLatencies.map(latencies -> latencies.getTimeout(myBaseURL)).orElse(myTimeout);
+        final HttpRequest.Builder request = HttpRequest.newBuilder(uri).timeout(Duration.ofMillis(timeout)).GET()
+                .header(HttpHeaders.USER_AGENT.toString(), myUserAgent);
+        final HttpResponse<InputStream> response;
+        final ResponseBody body;
+
+        if (myCompressionEnabled) {
+            request.header(HttpHeaders.ACCEPT_ENCODING.toString(), ACCEPTED_ENCODINGS);
+        }
+
+        try {
+            myCircuitBreaker.acquire();
+        } catch (final OaipmhCircuitBreaker.OpenException details) {
+            throw new HttpException(details);
+        }
+
+        try {
+            response = send(request.build(), timeout);
+
+            if (response.statusCode() != 200) {
+                throw new StatusException(LOGGER.getMessage(MessageCodes.PRL_058, uri, response.statusCode()),
+                        response.statusCode(), parseRetryAfter(response.headers().firstValue(RETRY_AFTER)));
+            }
+        } catch (final IOException details) {
+            // A repository that responds with a client error is up, even if it didn't like the request
+            if (details instanceof StatusException && ((StatusException) details).getStatusCode() < 500) {
+                myCircuitBreaker.recordSuccess();
+            } else {
+                myCircuitBreaker.recordFailure(details.getMessage());
+            }
+
+            throw new HttpException(details);
+        } catch (final InterruptedException details) {
+            Thread.currentThread().interrupt();
+            throw new HttpException(details);
+        }
+
+        // From here on, the outcome of the request is recorded by the body, once it's been read to the end or failed
+        body = new ResponseBody(response.body(), uri);
+
+        try {
+            return body.decode(response.headers().firstValue(HttpHeaders.CONTENT_ENCODING.toString()));
+        } catch (final IOException details) {
+            try {
+                body.close();
+            } catch (final IOException closeDetails) {
+                details.addSuppressed(closeDetails);
+            }
+
+            throw new HttpException(details);
+        }
+    }
+
+    /**
+     * Sends a request, and returns once the response headers have arrived; the body of a response whose status code
+     * isn't 200 is read and discarded. The time it takes the response headers to arrive is recorded as the latency, or
+     * the timeout if they don't arrive in time.
+     *
+     * @param aRequest A request, whose timeout covers the time until the response headers arrive
+     * @param aTimeout The request's timeout (in milliseconds)
+     * @return The response, whose body is a stream that's read as it arrives
+     * @throws HttpTimeoutException If the response headers didn't arrive in time, or the discarded body of a response
+     *         whose status code isn't 200 didn't; in the latter case, the exchange is cancelled
+     * @throws IOException If the request failed
+     * @throws InterruptedException If the calling thread was interrupted
+     */
+    private HttpResponse<InputStream> send(final HttpRequest aRequest, final long aTimeout)
+            throws IOException, InterruptedException {
+        final CompletableFuture<Void> headers = new CompletableFuture<>();
+        final long startTime = System.nanoTime();
+        final CompletableFuture<HttpResponse<InputStream>> exchange = HTTP_CLIENT.sendAsync(aRequest, responseInfo -> {
+            recordLatency(startTime);
+            headers.complete(null);
+
+            return responseInfo.statusCode() == 200 ? BodySubscribers.ofInputStream()
+                    : BodySubscribers.replacing(DISCARDED_BODY);
+        });
+
+        try {
+            // Until the headers arrive, the exchange is bounded by the request's timeout
+            CompletableFuture.anyOf(headers, exchange).get();
+
+            return exchange.get(myBodyTimeout, TimeUnit.MILLISECONDS);
+        } catch (final TimeoutException details) {
+            exchange.cancel(true);
+            throw new HttpTimeoutException(LOGGER.getMessage(MessageCodes.PRL_096, aRequest.uri(), myBodyTimeout));
+        } catch (final ExecutionException details) {
+            if (details.getCause() instanceof HttpTimeoutException cause) {
+                // Record the timeout as the latency, so that the timeouts of a host that has slowed down increase
+                myHostLatencies.ifPresent(latencies -> latencies.record(myBaseURL, aTimeout));
+                throw cause;
+            }
+
+            if (details.getCause() instanceof IOException cause) {
+                throw cause;
+            }
+
+            throw new IOException(details.getCause());
+        } catch (final InterruptedException details) {
+            exchange.cancel(true);
+            throw details;
+        }
+    }
+
+    /**
+     * Records the time it took a response to start.
+     *
+     * @param aStartTime The time that the request was sent (in nanoseconds, from {@link System#nanoTime()})
+     */
+    private void recordLatency(final long aStartTime) {
+        myHostLatencies.ifPresent(latencies -> {
+            latencies.record(myBaseURL, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - aStartTime));
+        });
+    }
+
+    /**
+     * Parses the value of a Retry-After HTTP response header, which is either a number of seconds or an HTTP date.
+     *
+     * @param aRetryAfter The optional value of the Retry-After HTTP response header
+     * @return The optional delay that the server asked for; empty if there's no header or it can't be parsed
+     */
+    static Optional<Duration> parseRetryAfter(final Optional<String> aRetryAfter) {
+        return aRetryAfter.map(String::strip).flatMap(value -> {
+            try {
+                return Optional.of(Duration.ofSeconds(Long.parseLong(value)));
+            } catch (final NumberFormatException details) {
+                try {
+                    final ZonedDateTime date = ZonedDateTime.parse(value, DateTimeFormatter.RFC_1123_DATE_TIME);
+
+                    return Optional.of(Duration.between(ZonedDateTime.now(date.getZone()), date));
+                } catch (final DateTimeParseException otherDetails) {
+                    return Optional.empty();
+                }
+            }
+        }).map(delay -> delay.isNegative() ? Duration.ZERO : delay);
+    }
+
+    /**
+     * Wraps a response body in a decompressing stream, according to its content coding.
+     *
+     * @param aBody A response body
+     * @param aContentEncoding The optional value of the Content-Encoding HTTP response header
+     * @return The decoded response body
+     * @throws IOException If the response body can't be read
+     */
+    static InputStream decode(final InputStream aBody, final Optional<String> aContentEncoding) throws IOException {
+        final String contentEncoding = aContentEncoding.map(value -> value.strip().toLowerCase(Locale.ROOT)).orElse("");
+
+        switch (contentEncoding) {
+            case "gzip":
+            case "x-gzip":
+                return new GZIPInputStream(aBody, BUFFER_SIZE);
+            case "deflate":
+                return inflate(aBody);
+            default:
+                return aBody;
+        }
+    }
+
+    /**
+     * Wraps a "deflate" response body in a decompressing stream.
+     * <p>
+     * The "deflate" content coding is supposed to be zlib-wrapped, but some servers send raw deflate data instead, so
+     * we check for a zlib header.
+     *
+     * @param aBody A response body
+     * @return The decoded response body
+     * @throws IOException If the response body can't be read
+     */
+    private static InputStream inflate(final InputStream aBody) throws IOException {
+        final BufferedInputStream body = new BufferedInputStream(aBody, BUFFER_SIZE);
+        final int cmf;
+        final int flg;
+        final Inflater inflater;
+
+        body.mark(2);
+        cmf = body.read();
+        flg = body.read();
+        body.reset();
+
+        // See RFC 1950: the compression method is 8 (deflate), and the 16-bit header is a multiple of 31
+        inflater = new Inflater(!(flg != -1 && (cmf & 0x0F) == 8 && (cmf << 8 | flg) % 31 == 0));
+
+        return new InflaterInputStream(body, inflater, BUFFER_SIZE) {
+
+            @Override
+            public void close() throws IOException {
+                try {
+                    super.close();
+                } finally {
+                    // An Inflater that is passed in isn't released by InflaterInputStream#close
+                    inflater.end();
+                }
+            }
+        };
+    }
+
+    /**
+     * The body of a response whose status code is 200, which is decompressed as it's read, within the body deadline.
+     * <p>
+     * Once it's been read to the end, the request is recorded as a success with the circuit breaker; if reading it
+     * fails (or the deadline passes first), the request is recorded as a failure. A body that's closed before it's been
+     * read to the end (as XOAI does, once it's parsed the resumption token) is drained first, so its outcome is known.
+     */
+    private final class ResponseBody extends FilterInputStream {
+
+        /**
+         * The size of the buffer used for draining the body.
+         */
+        private static final int DRAIN_BUFFER_SIZE = 8 * 1024;
+
+        /**
+         * The body as it arrives, which is closed (cancelling the exchange) if the deadline passes.
+         */
+        private final InputStream myRawBody;
+
+        /**
+         * The request URI, for logging.
+         */
+        private final URI myURI;
+
+        /**
+         * The deadline, which fails with a {@link TimeoutException} if it passes before the body is done.
+         */
+        private final CompletableFuture<Void> myDeadline = new CompletableFuture<>();
+
+        /**
+         * Whether the outcome of the request has been recorded.
+         */
+        private boolean myIsDone;
+
+        /**
+         * Creates the body, and starts its deadline.
+         *
+         * @param aRawBody The body as it arrives
+         * @param aURI The request URI
+         */
+        private ResponseBody(final InputStream aRawBody, final URI aURI) {
+            super(aRawBody);
+
+            myRawBody = aRawBody;
+            myURI = aURI;
+
+            myDeadline.orTimeout(myBodyTimeout, TimeUnit.MILLISECONDS).whenComplete((result, error) -> {
+                if (error != null) {
+                    // This unblocks a pending read, which then sees that the deadline has passed
+                    try {
+                        myRawBody.close();
+                    } catch (final IOException details) {
+                        LOGGER.debug(MessageCodes.PRL_106, myURI, details.getMessage());
+                    }
+                }
+            });
+        }
+
+        /**
+         * Starts decompressing the body, according to its content coding.
+         *
+         * @param aContentEncoding The optional value of the Content-Encoding HTTP response header
+         * @return The body
+         * @throws IOException If the start of the body can't be read
+         */
+        private ResponseBody decode(final Optional<String> aContentEncoding) throws IOException {
+            try {
+                in = OaipmhHttpClient.decode(myRawBody, aContentEncoding);
+            } catch (final IOException details) {
+                throw fail(details);
+            }
+
+            return this;
+        }
+
+        @Override
+        public int read() throws IOException {
+            try {
+                return check(in.read());
+            } catch (final IOException details) {
+                throw fail(details);
+            }
+        }
+
+        @Override
+        public int read(final byte[] aBuffer, final int anOffset, final int aLength) throws IOException {
+            try {
+                return check(in.read(aBuffer, anOffset, aLength));
+            } catch (final IOException details) {
+                throw fail(details);
+            }
+        }
+
+        @Override
+        public long skip(final long aCount) throws IOException {
+            final byte[] buffer = new byte[(int) Math.min(aCount, DRAIN_BUFFER_SIZE)];
+            final int count = aCount > 0 ? read(buffer, 0, buffer.length) : 0;
+
+            return Math.max(count, 0);
+        }
+
+        @Override
+        public void close() throws IOException {
+            final byte[] buffer = new byte[DRAIN_BUFFER_SIZE];
+
+            try {
+                while (!myIsDone && read(buffer, 0, buffer.length) != -1) {
+                    // Drain the rest of the body, within the deadline
+                }
+            } catch (final IOException details) {
+                // The failure has been recorded; the caller is done with the body anyway
+                LOGGER.debug(MessageCodes.PRL_106, myURI, details.getMessage());
+            } finally {
+                myDeadline.complete(null);
+                in.close();
+            }
+        }
+
+        /**
+         * Records the request as a success once the body has been read to the end.
+         *
+         * @param aResult The result of a read
+         * @return The result of the read
+         * @throws IOException If the body ended because the deadline passed
+         */
+        private int check(final int aResult) throws IOException {
+            if (aResult == -1 && !myIsDone) {
+                if (myDeadline.isCompletedExceptionally()) {
+                    throw fail(new EOFException());
+                }
+
+                myIsDone = true;
+                myDeadline.complete(null);
+                myCircuitBreaker.recordSuccess();
+            }
+
+            return aResult;
+        }
+
+        /**
+         * Records the request as a failure.
+         *
+         * @param aCause The reason that reading the body failed
+         * @return The exception to throw, which is an {@link HttpTimeoutException} if the deadline passed
+         */
+        private IOException fail(final IOException aCause) {
+            final IOException failure;
+
+            if (myDeadline.isCompletedExceptionally()) {
+                failure = new HttpTimeoutException(LOGGER.getMessage(MessageCodes.PRL_096, myURI, myBodyTimeout));
+            } else {
+                failure = aCause;
+            }
+
+            if (!myIsDone) {
+                myIsDone = true;
+                myDeadline.complete(null);
+                myCircuitBreaker.recordFailure(failure.getMessage());
+            }
+
+            return failure;
+        }
+    }
+
+    /**
+     * The exception that is thrown when an OAI-PMH repository responds with an HTTP status code other than 200.
+     */
+    static final class StatusException extends IOException {
+
+        /**
+         * The <code>serialVersionUID</code> for this class.
+         */
+        private static final long serialVersionUID = -3806163577285139480L;
+
+        /**
+         * The HTTP status code.
+         */
+        private final int myStatusCode;
+
+        /**
+         * The optional delay that the repository asked for before the request is retried.
+         */
+        private final transient Optional<Duration> myRetryAfter;
+
+        /**
+         * @param aMessage The exception message
+         * @param aStatusCode The HTTP status code
+         * @param aRetryAfter The optional delay that the repository asked for before the request is retried
+         */
+        StatusException(final String aMessage, final int aStatusCode, final Optional<Duration> aRetryAfter) {
+            super(aMessage);
+
+            myStatusCode = aStatusCode;
+            myRetryAfter = aRetryAfter;
+        }
+
+        /**
+         * @return The HTTP status code
+         */
+        int getStatusCode() {
+            return myStatusCode;
+        }
+
+        /**
+         * @return The optional delay that the repository asked for before the request is retried
+         */
+        Optional<Duration> getRetryAfter() {
+            return myRetryAfter;
+        }
+    }
+}
@@ -1,12 +1,15 @@
 
 package edu.ucla.library.prl.harvester;
 
+import java.io.IOException;
 import java.net.URL;
+import java.nio.file.Path;
 import java.time.OffsetDateTime;
 import java.util.Date;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
@@ -15,10 +18,8 @@ import org.apache.commons.collections4.iterators.IteratorChain;
 import org.dspace.xoai.model.oaipmh.Record;
 import org.dspace.xoai.model.oaipmh.Set;
 import org.dspace.xoai.serviceprovider.ServiceProvider;
-import org.dspace.xoai.serviceprovider.client.HttpOAIClient;
 import org.dspace.xoai.serviceprovider.client.OAIClient;
 import org.dspace.xoai.serviceprovider.exceptions.BadArgumentException;
-import org.dspace.xoai.serviceprovider.exceptions.HttpException;
 import org.dspace.xoai.serviceprovider.exceptions.NoSetHierarchyException;
 import org.dspace.xoai.serviceprovider.model.Context;
 import org.dspace.xoai.serviceprovider.model.Context.KnownTransformer;
@@ -69,9 +70,23 @@ public final class OaipmhUtils {
      */
     public static Future<Void> validateIdentifiers(final Vertx aVertx, final URL aBaseURL, final List<String> aSets,
             final int aTimeout, final String aUserAgent) {
+        return validateIdentifiers(aVertx, aBaseURL, aSets, getOptions(aTimeout, aUserAgent));
+    }
+
+    /**
+     * Checks that the given URL points to an OAI-PMH repository, and (if provided) that the sets are defined.
+     *
+     * @param aVertx A Vert.x instance
+     * @param aBaseURL A URL to check
+     * @param aSets A list of sets to check
+     * @param anOptions The OAI-PMH client options
+     * @return A Future that succeeds if the checks pass, and fails otherwise
+     */
+    public static Future<Void> validateIdentifiers(final Vertx aVertx, final URL aBaseURL, final List<String> aSets,
+            final OaipmhClientOptions anOptions) {
         final Promise<Void> validation = Promise.promise();
 
-        OaipmhUtils.listSets(aVertx, aBaseURL, aTimeout, aUserAgent).onSuccess(sets -> {
+        OaipmhUtils.listSets(aVertx, aBaseURL, anOptions).onSuccess(sets -> {
             final List<String> setSpecs = OaipmhUtils.getSetSpecs(sets);
 
             for (final String set : aSets) {
@@ -99,7 +114,20 @@ public final class OaipmhUtils {
      */
     public static Future<List<Set>> listSets(final Vertx aVertx, final URL aBaseURL, final int aTimeout,
             final String aUserAgent) {
-        return listSetsAsyncXoaiWrapper(aVertx, aBaseURL, aTimeout, aUserAgent).map(sets -> (List<Set>) sets);
+        return listSets(aVertx, aBaseURL, getOptions(aTimeout, aUserAgent));
+    }
+
+    /**
+     * Performs a listSets operation.
+     *
+     * @param aVertx A Vert.x instance
+     * @param aBaseURL The OAI-PMH repository base URL
+     * @param anOptions The OAI-PMH client options
+     * @return The list of OAI-PMH sets
+     */
+    public static Future<List<Set>> listSets(final Vertx aVertx, final URL aBaseURL,
+            final OaipmhClientOptions anOptions) {
+        return listSetsAsyncXoaiWrapper(aVertx, aBaseURL, anOptions).map(sets -> (List<Set>) sets);
     }
 
     /**
@@ -117,13 +145,41 @@ public final class OaipmhUtils {
     public static Future<Iterator<Record>> listRecords(final Vertx aVertx, final URL aBaseURL, final List<String> aSets,
             final String aMetadataPrefix, final Optional<OffsetDateTime> aFrom, final int aTimeout,
             final String aUserAgent) {
+        return listRecords(aVertx, aBaseURL, aSets, aMetadataPrefix, aFrom, getOptions(aTimeout, aUserAgent),
+                Optional.empty());
+    }
+
+    /**
+     * Performs a listRecords operation, optionally writing each response page to an {@link OaipmhArchive}.
+     * <p>
+     * Pages that fail to be fetched are retried, within a retry budget that's shared by all of the sets.
+     *
+     * @param aVertx A Vert.x instance
+     * @param aBaseURL The OAI-PMH repository base URL
+     * @param aSets The non-empty list of sets to harvest
+     * @param aMetadataPrefix The OAI-PMH metadata prefix
+     * @param aFrom The optional timestamp of the last successful run
+     * @param anOptions The OAI-PMH client options
+     * @param anArchiveRunDir The optional archive directory for this run (see {@link OaipmhArchive#createRun})
+     * @return An iterator on OAI-PMH records
+     */
+    public static Future<Iterator<Record>> listRecords(final Vertx aVertx, final URL aBaseURL, final List<String> aSets,
+            final String aMetadataPrefix, final Optional<OffsetDateTime> aFrom, final OaipmhClientOptions anOptions,
+            final Optional<Path> anArchiveRunDir) {
+        final AtomicInteger retryBudget = new AtomicInteger(anOptions.getRetryBudget());
         final Stream<Future<Iterator<Record>>> listRecordsPerSet = aSets.stream().map(setSpec -> {
             final ListRecordsParameters params =
                     ListRecordsParameters.request().withMetadataPrefix(aMetadataPrefix).withSetSpec(setSpec);
 
             aFrom.ifPresent(from -> params.withFrom(Date.from(from.toInstant())));
 
-            return listRecordsAsyncXoaiWrapper(aVertx, aBaseURL, params, aTimeout, aUserAgent);
+            return listRecordsAsyncXoaiWrapper(aVertx, params, () -> {
+                final OAIClient client = getRetryingClient(aBaseURL, anOptions, retryBudget);
+
+                return anArchiveRunDir.<OAIClient>map(runDir -> {
+                    return new ArchivingOAIClient(client, OaipmhArchive.getSetDir(runDir, setSpec));
+                }).orElse(client);
+            });
         });
 
         return CompositeFuture.all(listRecordsPerSet.collect(Collectors.toList())).map(result -> {
@@ -134,25 +190,41 @@ public final class OaipmhUtils {
         });
     }
 
+    /**
+     * Performs a listRecords operation against the pages of a set that were written to an {@link OaipmhArchive}.
+     *
+     * @param aVertx A Vert.x instance
+     * @param anArchiveSetDir The archive directory for a set within a run (see {@link OaipmhArchive#listSets})
+     * @param aMetadataPrefix The OAI-PMH metadata prefix
+     * @return An iterator on the archived OAI-PMH records
+     */
+    public static Future<Iterator<Record>> listArchivedRecords(final Vertx aVertx, final Path anArchiveSetDir,
+            final String aMetadataPrefix) {
+        final ListRecordsParameters params = ListRecordsParameters.request().withMetadataPrefix(aMetadataPrefix);
+
+        return listRecordsAsyncXoaiWrapper(aVertx, params, () -> new ArchivedOAIClient(anArchiveSetDir));
+    }
+
     /**
      * Provides an asynchronous API for the synchronous XOAI listSets API.
      *
      * @param aVertx A Vert.x instance
      * @param aBaseURL The OAI-PMH repository base URL
-     * @param aTimeout The value to use for the HTTP timeout
-     * @param aUserAgent The value to use for the User-Agent HTTP request header
+     * @param anOptions The OAI-PMH client options
      * @return A Future that resolves to a list of OAI-PMH sets
      */
     private static Future<List<Set>> listSetsAsyncXoaiWrapper(final Vertx aVertx, final URL aBaseURL,
-            final int aTimeout, final String aUserAgent) {
+            final OaipmhClientOptions anOptions) {
         final Promise<List<Set>> promise = Promise.promise();
 
         aVertx.<List<Set>>executeBlocking(execution -> {
             try {
-                final Iterator<Set> synchronousResult = getNewOaipmhClient(aBaseURL, aTimeout, aUserAgent).listSets();
+                final Iterator<Set> synchronousResult =
+                        getNewOaipmhClient(getRetryingClient(aBaseURL, anOptions,
+                                new AtomicInteger(anOptions.getRetryBudget()))).listSets();
 
                 execution.complete(IteratorUtils.toList(synchronousResult));
-            } catch (final HttpException | NoSetHierarchyException details) {
+            } catch (final NoSetHierarchyException details) {
                 execution.fail(details.getCause());
             }
         }, false, promise);
@@ -164,21 +236,21 @@ public final class OaipmhUtils {
      * Provides an asynchronous API for the synchronous XOAI listRecords API.
      *
      * @param aVertx A Vert.x instance
-     * @param aBaseURL The OAI-PMH repository base URL
      * @param aParams The OAI-PMH request parameters
-     * @param aTimeout The value to use for the HTTP timeout
-     * @param aUserAgent The value to use for the User-Agent HTTP request header
+     * @param aClientFactory A supplier of the underlying OAI-PMH client
      * @return A Future that resolves to an iterator on OAI-PMH records
      */
-    private static Future<Iterator<Record>> listRecordsAsyncXoaiWrapper(final Vertx aVertx, final URL aBaseURL,
-            final ListRecordsParameters aParams, final int aTimeout, final String aUserAgent) {
+    private static Future<Iterator<Record>> listRecordsAsyncXoaiWrapper(final Vertx aVertx,
+            final ListRecordsParameters aParams, final OAIClientFactory aClientFactory) {
         final Promise<Iterator<Record>> promise = Promise.promise();
 
         aVertx.<Iterator<Record>>executeBlocking(execution -> {
             try {
-                execution.complete(getNewOaipmhClient(aBaseURL, aTimeout, aUserAgent).listRecords(aParams));
-            } catch (final BadArgumentException | HttpException details) {
+                execution.complete(getNewOaipmhClient(aClientFactory.create()).listRecords(aParams));
+            } catch (final BadArgumentException details) {
                 execution.fail(details.getCause());
+            } catch (final IOException details) {
+                execution.fail(details);
             }
         }, false, promise);
 
@@ -193,19 +265,47 @@ public final class OaipmhUtils {
      * <p>
      * Related: <a href="https://github.com/DSpace/xoai/issues/55">DSpace/xoai/issues/55</a>
      *
-     * @param aBaseURL An OAI-PMH base URL
-     * @param aTimeout The value to use for the HTTP timeout
-     * @param aUserAgent The value to use for the User-Agent HTTP request header
+     * @param aClient The underlying client that fetches OAI-PMH responses
      * @return A new OAI-PMH client instance
-     * @throws HttpException It won't because of how {@link HttpOAIClient#HttpOAIClient(String, List, int, String)} is
-     *         being called with an empty list of exceptional URLs
      */
-    private static ServiceProvider getNewOaipmhClient(final URL aBaseURL, final int aTimeout, final String aUserAgent)
-            throws HttpException {
-        final OAIClient client = new HttpOAIClient(aBaseURL.toString(), List.of(), aTimeout, aUserAgent);
+    private static ServiceProvider getNewOaipmhClient(final OAIClient aClient) {
         final Context context =
-                new Context().withOAIClient(client).withMetadataTransformer(Constants.OAI_DC, KnownTransformer.OAI_DC);
+                new Context().withOAIClient(aClient).withMetadataTransformer(Constants.OAI_DC, KnownTransformer.OAI_DC);
 
         return new ServiceProvider(context);
     }
+
+    /**
+     * @param aBaseURL The OAI-PMH repository base URL
+     * @param anOptions The OAI-PMH client options
+     * @param aRetryBudget The number of retries left, which may be shared with other clients
+     * @return A client that fetches OAI-PMH responses, retrying transient failures
+     */
+    private static OAIClient getRetryingClient(final URL aBaseURL, final OaipmhClientOptions anOptions,
+            final AtomicInteger aRetryBudget) {
+        return new RetryingOAIClient(new OaipmhHttpClient(aBaseURL, anOptions), aBaseURL.toString(), aRetryBudget,
+                anOptions.getRetryMaxDelay());
+    }
+
+    /**
+     * @param aTimeout The value to use for the HTTP timeout
+     * @param aUserAgent The value to use for the User-Agent HTTP request header
+     * @return The equivalent OAI-PMH client options
+     */
+    private static OaipmhClientOptions getOptions(final int aTimeout, final String aUserAgent) {
+        return new OaipmhClientOptions().setTimeout(aTimeout).setUserAgent(aUserAgent);
+    }
+
+    /**
+     * A supplier of OAI-PMH clients, which are instantiated on a worker thread.
+     */
+    @FunctionalInterface
+    private interface OAIClientFactory {
+
+        /**
+         * @return A new OAI-PMH client
+         * @throws IOException If the client could not be instantiated
+         */
+        OAIClient create() throws IOException;
+    }
 }
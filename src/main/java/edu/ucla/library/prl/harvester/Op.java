@@ -29,5 +29,16 @@ public enum Op {
     /**
      * Job operations.
      */
-    addJobs, getJob, listJobs, removeJob, updateJob
+    addJobs, getJob, listJobs, removeJob, updateJob,
+
+    /**
+     * A constant for the operation that reindexes all jobs from the OAI-PMH response archive.
+     */
+    reindex,
+
+    /**
+     * A constant for the operation that rebuilds the standby Solr core from the OAI-PMH response archive, and then
+     * swaps it with the live one.
+     */
+    rebuild
 }
@@ -9,5 +9,20 @@ public enum Param {
     /**
      * The identifier of an {@link Institution} or {@link Job}.
      */
-    id
+    id,
+
+    /**
+     * The identifier after which a page of a list starts.
+     */
+    after,
+
+    /**
+     * The max number of items in a page of a list.
+     */
+    limit,
+
+    /**
+     * Whether to stream a list.
+     */
+    stream
 }
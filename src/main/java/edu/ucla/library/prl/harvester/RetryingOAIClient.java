@@ -0,0 +1,273 @@
+package edu.ucla.library.prl.harvester;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PushbackInputStream;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.http.HttpStatus;
+import org.dspace.xoai.serviceprovider.client.OAIClient;
+import org.dspace.xoai.serviceprovider.exceptions.HttpException;
+import org.dspace.xoai.serviceprovider.exceptions.OAIRequestException;
+import org.dspace.xoai.serviceprovider.parameters.Parameters;
+
+import info.freelibrary.util.Logger;
+import info.freelibrary.util.LoggerFactory;
+
+import io.opentelemetry.api.common.AttributeKey;
+import io.opentelemetry.api.common.Attributes;
+import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.api.trace.SpanKind;
+
+/**
+ * An OAI-PMH client that retries the requests that fail transiently, after a jittered exponential backoff.
+ * <p>
+ * Since XOAI requests one page at a time, a retry re-requests the same page (i.e. with the same resumption token),
+ * so one bad page doesn't fail the whole harvest. The first byte of each response body is read before it's returned,
+ * so that a connection that drops (or stalls past {@link OaipmhHttpClient}'s body deadline) before the body starts is
+ * retried too. The rest of the body is streamed to the parser as it arrives, rather than held in memory, so a page
+ * that fails once it's being parsed can't be re-requested transparently, and fails the request. Retries are limited by
+ * a budget that's shared by all of the clients of a harvest, and a repository that asks for a delay (with the
+ * Retry-After HTTP response header) is given it.
+ * <p>
+ * Each page is traced with a span, which records its retries.
+ * <p>
+ * Retries block the calling thread, which must be a worker thread.
+ */
+final class RetryingOAIClient implements OAIClient {
+
+    /**
+     * A logger.
+     */
+    private static final Logger LOGGER = LoggerFactory.getLogger(RetryingOAIClient.class, MessageCodes.BUNDLE);
+
+    /**
+     * The delay (in milliseconds) before the first retry of a request, which doubles with each further retry.
+     */
+    private static final long RETRY_BASE_DELAY = 1000;
+
+    /**
+     * The max power of two that the base delay is multiplied by, so that the delay can't overflow.
+     */
+    private static final int MAX_BACKOFF_EXPONENT = 16;
+
+    /**
+     * The HTTP status code for "Too Many Requests", which isn't defined by {@link HttpStatus}.
+     */
+    private static final int SC_TOO_MANY_REQUESTS = 429;
+
+    /**
+     * The name of the span of fetching a page.
+     */
+    private static final String PAGE_SPAN = "fetch OAI-PMH page";
+
+    /**
+     * The name of the span event for a retry.
+     */
+    private static final String RETRY_EVENT = "retry";
+
+    /**
+     * The attribute for the URL of a page.
+     */
+    private static final AttributeKey<String> URL = AttributeKey.stringKey("http.url");
+
+    /**
+     * The attribute for the delay (in milliseconds) before a retry.
+     */
+    private static final AttributeKey<Long> DELAY = AttributeKey.longKey("prl.retry.delay");
+
+    /**
+     * The attribute for the reason that a request is retried.
+     */
+    private static final AttributeKey<String> CAUSE = AttributeKey.stringKey("prl.retry.cause");
+
+    /**
+     * The client that fetches the pages.
+     */
+    private final OAIClient myClient;
+
+    /**
+     * The OAI-PMH repository base URL, for logging.
+     */
+    private final String myBaseURL;
+
+    /**
+     * The number of retries left for the harvest.
+     */
+    private final AtomicInteger myRetryBudget;
+
+    /**
+     * The max delay (in milliseconds) before a request is retried.
+     */
+    private final long myMaxDelay;
+
+    /**
+     * Creates a retrying client.
+     *
+     * @param aClient The client that fetches the pages
+     * @param aBaseURL The OAI-PMH repository base URL
+     * @param aRetryBudget The number of retries left for the harvest, which may be shared with other clients
+     * @param aMaxDelay The max delay (in milliseconds) before a request is retried
+     */
+    RetryingOAIClient(final OAIClient aClient, final String aBaseURL, final AtomicInteger aRetryBudget,
+            final long aMaxDelay) {
+        myClient = aClient;
+        myBaseURL = aBaseURL;
+        myRetryBudget = aRetryBudget;
+        myMaxDelay = aMaxDelay;
+    }
+
+    @Override
+    public InputStream execute(final Parameters aParams) throws HttpException {
+        final String url = aParams.toUrl(myBaseURL);
+        final Span span = Tracing.spanBuilder(PAGE_SPAN).setSpanKind(SpanKind.CLIENT).setAttribute(URL, url)
+                .startSpan();
+
+        try {
+            final InputStream page = fetch(aParams, url, span);
+
+            span.end();
+
+            return page;
+        } catch (final HttpException details) {
+            Tracing.end(span, details);
+            throw details;
+        }
+    }
+
+    /**
+     * Fetches a page, retrying it if it fails transiently.
+     *
+     * @param aParams The parameters of the page request
+     * @param aURL The URL of the page
+     * @param aSpan The span of fetching the page, which each retry is recorded with
+     * @return The page
+     * @throws HttpException If the page couldn't be fetched
+     */
+    private InputStream fetch(final Parameters aParams, final String aURL, final Span aSpan) throws HttpException {
+        int attempt = 0;
+
+        while (true) {
+            InputStream response = null;
+
+            try {
+                final PushbackInputStream page;
+                final int firstByte;
+
+                response = myClient.execute(aParams);
+                page = new PushbackInputStream(response);
+                firstByte = page.read();
+
+                if (firstByte != -1) {
+                    page.unread(firstByte);
+                }
+
+                return page;
+            } catch (final OAIRequestException | IOException details) {
+                final IOException cause = getIOException(details);
+                final long delay = getDelay(cause, attempt);
+                final int retriesLeft;
+
+                closeQuietly(response, aURL);
+
+                if (delay < 0) {
+                    throw toHttpException(details);
+                }
+
+                retriesLeft = myRetryBudget.decrementAndGet();
+
+                if (retriesLeft < 0) {
+                    throw toHttpException(details);
+                }
+
+                LOGGER.warn(MessageCodes.PRL_087, aURL, delay, retriesLeft, cause.getMessage());
+                Metrics.increment(Metrics.OAIPMH_REQUEST_RETRIES);
+                aSpan.addEvent(RETRY_EVENT, Attributes.of(DELAY, delay, CAUSE, String.valueOf(cause.getMessage())));
+
+                try {
+                    Thread.sleep(delay);
+                } catch (final InterruptedException interruption) {
+                    Thread.currentThread().interrupt();
+                    throw new HttpException(interruption);
+                }
+
+                attempt += 1;
+            }
+        }
+    }
+
+    /**
+     * Gets the delay before a failed request is retried.
+     *
+     * @param aCause The reason that the request failed, if it failed with an {@link IOException}
+     * @param anAttempt The number of times that the request has been retried so far
+     * @return The delay (in milliseconds), or -1 if the request shouldn't be retried
+     */
+    long getDelay(final IOException aCause, final int anAttempt) {
+        final long backoff;
+
+        if (aCause == null) {
+            return -1;
+        }
+
+        if (aCause instanceof OaipmhHttpClient.StatusException statusException) {
+            final int statusCode = statusException.getStatusCode();
+            final Optional<Duration> retryAfter = statusException.getRetryAfter();
+
+            // A client error won't go away by itself, unless the repository is rate limiting us
+            if (statusCode < HttpStatus.SC_INTERNAL_SERVER_ERROR && statusCode != SC_TOO_MANY_REQUESTS) {
+                return -1;
+            }
+
+            if (retryAfter.isPresent()) {
+                final long delay = retryAfter.get().toMillis();
+
+                return delay <= myMaxDelay ? delay : -1;
+            }
+        }
+
+        backoff = Math.min(myMaxDelay, RETRY_BASE_DELAY << Math.min(anAttempt, MAX_BACKOFF_EXPONENT));
+
+        // Spread out the retries of harvests that failed at the same time, e.g. when a repository restarts
+        return backoff / 2 + ThreadLocalRandom.current().nextLong(backoff / 2 + 1);
+    }
+
+    /**
+     * Closes the body of a page that failed, if it was returned.
+     *
+     * @param aResponse The body of a page, or null if it wasn't returned
+     * @param aURL The URL of the page
+     */
+    private static void closeQuietly(final InputStream aResponse, final String aURL) {
+        if (aResponse != null) {
+            try {
+                aResponse.close();
+            } catch (final IOException details) {
+                LOGGER.debug(MessageCodes.PRL_106, aURL, details.getMessage());
+            }
+        }
+    }
+
+    /**
+     * @param anException An exception thrown while fetching a page
+     * @return The exception, as thrown by an {@link OAIClient}
+     */
+    private static HttpException toHttpException(final Exception anException) {
+        return anException instanceof HttpException ? (HttpException) anException : new HttpException(anException);
+    }
+
+    /**
+     * @param anException An exception thrown while fetching a page
+     * @return The I/O error that caused it, or null if it wasn't caused by one
+     */
+    private static IOException getIOException(final Exception anException) {
+        if (anException instanceof IOException ioException) {
+            return ioException;
+        }
+
+        return anException.getCause() instanceof IOException ioException ? ioException : null;
+    }
+}
@@ -0,0 +1,190 @@
+package edu.ucla.library.prl.harvester;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Optional;
+import java.util.function.Function;
+
+import info.freelibrary.util.Logger;
+import info.freelibrary.util.LoggerFactory;
+
+import io.opentelemetry.api.GlobalOpenTelemetry;
+import io.opentelemetry.api.common.AttributeKey;
+import io.opentelemetry.api.common.Attributes;
+import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.api.trace.SpanBuilder;
+import io.opentelemetry.api.trace.StatusCode;
+import io.opentelemetry.api.trace.Tracer;
+import io.opentelemetry.api.trace.propagation.W3CTraceContextPropagator;
+import io.opentelemetry.context.Scope;
+import io.opentelemetry.context.propagation.ContextPropagators;
+import io.opentelemetry.exporter.otlp.http.trace.OtlpHttpSpanExporter;
+import io.opentelemetry.sdk.OpenTelemetrySdk;
+import io.opentelemetry.sdk.resources.Resource;
+import io.opentelemetry.sdk.trace.SdkTracerProvider;
+import io.opentelemetry.sdk.trace.SdkTracerProviderBuilder;
+import io.opentelemetry.sdk.trace.export.BatchSpanProcessor;
+
+import io.vertx.core.Future;
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonObject;
+
+/**
+ * The application's tracing, with OpenTelemetry.
+ * <p>
+ * Vert.x traces event bus messages (including service proxy calls), HTTP requests and database queries by itself, and
+ * propagates the trace context from senders to receivers. The steps of a harvest that it can't see (i.e. OAI-PMH page
+ * fetches, record mapping batches, thumbnail checks and Solr requests) are traced with the spans that are started
+ * here. Unless tracing is configured (see {@link TracingLauncher}), the spans are no-ops.
+ * <p>
+ * A span is made current on the Vert.x context that starts it, so that the event bus messages and HTTP requests that
+ * are sent from that context are traced as its children.
+ */
+public final class Tracing {
+
+    /**
+     * The attribute for the ID of a job.
+     */
+    public static final AttributeKey<Long> JOB_ID = AttributeKey.longKey("prl.job.id");
+
+    /**
+     * The attribute for the ID of an institution.
+     */
+    public static final AttributeKey<Long> INSTITUTION_ID = AttributeKey.longKey("prl.institution.id");
+
+    /**
+     * The attribute for an OAI-PMH repository base URL.
+     */
+    public static final AttributeKey<String> BASE_URL = AttributeKey.stringKey("prl.oaipmh.base_url");
+
+    /**
+     * The attribute for the number of records (or documents) that a span handled.
+     */
+    public static final AttributeKey<Long> RECORD_COUNT = AttributeKey.longKey("prl.record.count");
+
+    /**
+     * The name of the tracer, and of the traced service.
+     */
+    private static final String INSTRUMENTATION_NAME = "prl-harvester";
+
+    /**
+     * The resource attribute for the name of the traced service.
+     */
+    private static final AttributeKey<String> SERVICE_NAME = AttributeKey.stringKey("service.name");
+
+    /**
+     * A logger.
+     */
+    private static final Logger LOGGER = LoggerFactory.getLogger(Tracing.class, MessageCodes.BUNDLE);
+
+    /**
+     * Constant classes should have private constructors.
+     */
+    private Tracing() {
+        // This is intentionally left empty.
+    }
+
+    /**
+     * Sets up the exporting of trace spans to the file and/or the OTLP collector that are configured, and registers the
+     * resulting OpenTelemetry instance globally, so that {@link #getTracer()} uses it.
+     *
+     * @param aConfig A configuration
+     * @return The OpenTelemetry instance, or an empty Optional if tracing isn't configured
+     * @throws IOException If the traces file can't be opened
+     */
+    public static Optional<OpenTelemetrySdk> install(final JsonObject aConfig) throws IOException {
+        final Optional<Path> tracesFile = Config.getTracesFile(aConfig);
+        final Optional<String> otlpEndpoint = Config.getTracesOtlpEndpoint(aConfig);
+        final SdkTracerProviderBuilder tracerProvider;
+
+        if (tracesFile.isEmpty() && otlpEndpoint.isEmpty()) {
+            return Optional.empty();
+        }
+
+        tracerProvider = SdkTracerProvider.builder()
+                .setResource(Resource.getDefault().merge(Resource.create(Attributes.of(SERVICE_NAME,
+                        INSTRUMENTATION_NAME))));
+
+        if (tracesFile.isPresent()) {
+            LOGGER.info(MessageCodes.PRL_093, tracesFile.get());
+            tracerProvider.addSpanProcessor(BatchSpanProcessor.builder(new FileSpanExporter(tracesFile.get())).build());
+        }
+
+        if (otlpEndpoint.isPresent()) {
+            LOGGER.info(MessageCodes.PRL_093, otlpEndpoint.get());
+            tracerProvider.addSpanProcessor(BatchSpanProcessor
+                    .builder(OtlpHttpSpanExporter.builder().setEndpoint(otlpEndpoint.get()).build()).build());
+        }
+
+        return Optional.of(OpenTelemetrySdk.builder().setTracerProvider(tracerProvider.build())
+                .setPropagators(ContextPropagators.create(W3CTraceContextPropagator.getInstance()))
+                .buildAndRegisterGlobal());
+    }
+
+    /**
+     * @return The application's tracer
+     */
+    public static Tracer getTracer() {
+        return GlobalOpenTelemetry.getTracer(INSTRUMENTATION_NAME);
+    }
+
+    /**
+     * @param aName The name of a span
+     * @return A builder of the span, whose parent is the current span (if any)
+     */
+    public static SpanBuilder spanBuilder(final String aName) {
+        return getTracer().spanBuilder(aName);
+    }
+
+    /**
+     * Makes a span current on the Vert.x context of the calling thread, if there is one; the trace context is kept in
+     * Vert.x context locals, so threads that aren't Vert.x threads should pass their spans' parents explicitly instead.
+     *
+     * @param aSpan A span
+     * @return The scope that restores the previously current span when it's closed
+     */
+    public static Scope makeCurrent(final Span aSpan) {
+        return Vertx.currentContext() == null ? Scope.noop() : aSpan.makeCurrent();
+    }
+
+    /**
+     * Ends a span, recording its error (if any).
+     *
+     * @param aSpan A span
+     * @param anError The reason that the span's operation failed, or null if it succeeded
+     */
+    public static void end(final Span aSpan, final Throwable anError) {
+        if (anError != null) {
+            aSpan.recordException(anError);
+            aSpan.setStatus(StatusCode.ERROR, String.valueOf(anError.getMessage()));
+        }
+
+        aSpan.end();
+    }
+
+    /**
+     * Traces an asynchronous operation; the operation's span is current on the calling Vert.x context until it
+     * completes.
+     *
+     * @param <T> The type of the operation's result
+     * @param aSpanBuilder A builder of the operation's span
+     * @param anOperation A function that starts the operation, given its span
+     * @return The result of the operation
+     */
+    public static <T> Future<T> trace(final SpanBuilder aSpanBuilder, final Function<Span, Future<T>> anOperation) {
+        final Span span = aSpanBuilder.startSpan();
+        final Scope scope = makeCurrent(span);
+        Future<T> operation;
+
+        try {
+            operation = anOperation.apply(span);
+        } catch (final RuntimeException details) {
+            operation = Future.failedFuture(details);
+        }
+
+        return operation.onComplete(result -> {
+            scope.close();
+            end(span, result.cause());
+        });
+    }
+}
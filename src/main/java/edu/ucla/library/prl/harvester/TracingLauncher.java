@@ -0,0 +1,64 @@
+package edu.ucla.library.prl.harvester;
+
+import java.io.IOException;
+import java.util.Optional;
+
+import info.freelibrary.util.Logger;
+import info.freelibrary.util.LoggerFactory;
+
+import io.opentelemetry.sdk.OpenTelemetrySdk;
+
+import io.vertx.core.Launcher;
+import io.vertx.core.VertxOptions;
+import io.vertx.core.json.JsonObject;
+import io.vertx.tracing.opentelemetry.OpenTelemetryOptions;
+
+/**
+ * The application's Vert.x launcher, which sets up tracing (if it's configured) before Vert.x starts, since a Vert.x
+ * instance's tracer can't be changed once it's running.
+ */
+public class TracingLauncher extends Launcher {
+
+    /**
+     * A logger.
+     */
+    private static final Logger LOGGER = LoggerFactory.getLogger(TracingLauncher.class, MessageCodes.BUNDLE);
+
+    /**
+     * The OpenTelemetry instance, if tracing is configured.
+     */
+    private Optional<OpenTelemetrySdk> myOpenTelemetry = Optional.empty();
+
+    /**
+     * Starts the application.
+     *
+     * @param anArgs The command line arguments
+     */
+    public static void main(final String[] anArgs) {
+        new TracingLauncher().dispatch(anArgs);
+    }
+
+    @Override
+    public void beforeStartingVertx(final VertxOptions anOptions) {
+        // The configuration isn't loaded until Vert.x has started, but the tracing part of it comes from the system
+        // properties and the ENV; as with the default configuration stores, the ENV takes precedence
+        final JsonObject config = new JsonObject();
+
+        System.getProperties().forEach((key, value) -> config.put(key.toString(), value));
+        System.getenv().forEach(config::put);
+
+        try {
+            myOpenTelemetry = Tracing.install(config);
+        } catch (final IOException details) {
+            LOGGER.error(MessageCodes.PRL_094, details.getMessage());
+        }
+
+        myOpenTelemetry.ifPresent(sdk -> anOptions.setTracingOptions(new OpenTelemetryOptions(sdk)));
+    }
+
+    @Override
+    public void afterStoppingVertx() {
+        // Export the spans that are still buffered
+        myOpenTelemetry.ifPresent(sdk -> sdk.getSdkTracerProvider().close());
+    }
+}
@@ -1,9 +1,17 @@
 
 package edu.ucla.library.prl.harvester.handlers;
 
+import java.util.Optional;
+import java.util.function.BiFunction;
+
+import org.apache.http.HttpStatus;
+
 import edu.ucla.library.prl.harvester.Config;
 import edu.ucla.library.prl.harvester.Institution;
 import edu.ucla.library.prl.harvester.Job;
+import edu.ucla.library.prl.harvester.MediaType;
+import edu.ucla.library.prl.harvester.OaipmhClientOptions;
+import edu.ucla.library.prl.harvester.Param;
 import edu.ucla.library.prl.harvester.services.HarvestJobSchedulerService;
 import edu.ucla.library.prl.harvester.services.HarvestScheduleStoreService;
 
@@ -12,7 +20,11 @@ import io.vavr.Tuple2;
 
 import io.vertx.core.Future;
 import io.vertx.core.Handler;
+import io.vertx.core.Promise;
 import io.vertx.core.Vertx;
+import io.vertx.core.http.HttpClosedException;
+import io.vertx.core.http.HttpHeaders;
+import io.vertx.core.http.HttpServerResponse;
 import io.vertx.core.json.JsonObject;
 import io.vertx.ext.web.RoutingContext;
 
@@ -22,19 +34,19 @@ import io.vertx.ext.web.RoutingContext;
 public abstract class AbstractRequestHandler implements Handler<RoutingContext> {
 
     /**
-     * The Vert.x instance.
+     * The max number of items in a page of a list, if the request doesn't say.
      */
-    protected final Vertx myVertx;
+    protected static final int DEFAULT_PAGE_LIMIT = 100;
 
     /**
-     * The HTTP timeout to use with the internal OAI-PMH client.
+     * The Vert.x instance.
      */
-    protected final int myOaipmhClientHttpTimeout;
+    protected final Vertx myVertx;
 
     /**
-     * The User-Agent HTTP request header to use for outgoing requests.
+     * The options to use with the internal OAI-PMH client.
      */
-    protected final String myHarvesterUserAgent;
+    protected final OaipmhClientOptions myOaipmhClientOptions;
 
     /**
      * A proxy to the harvest schedule store service.
@@ -51,13 +63,92 @@ public abstract class AbstractRequestHandler implements Handler<RoutingContext>
      * @param aConfig A configuration
      */
     protected AbstractRequestHandler(final Vertx aVertx, final JsonObject aConfig) {
-        myHarvesterUserAgent = Config.getHarvesterUserAgent(aConfig);
-        myOaipmhClientHttpTimeout = Config.getOaipmhClientHttpTimeout(aConfig);
+        myOaipmhClientOptions = Config.getOaipmhClientOptions(aConfig);
         myHarvestJobSchedulerService = HarvestJobSchedulerService.createProxy(aVertx);
         myHarvestScheduleStoreService = HarvestScheduleStoreService.createProxy(aVertx);
         myVertx = aVertx;
     }
 
+    /**
+     * Gets the next fire time of each scheduled job; if the scheduler can't be reached, jobs are shown without them.
+     *
+     * @return A Future that resolves to a JSON object whose keys are job IDs and whose values are ISO 8601 timestamps
+     */
+    protected Future<JsonObject> getNextFireTimes() {
+        return myHarvestJobSchedulerService.getNextFireTimes().otherwise(new JsonObject());
+    }
+
+    /**
+     * @param aJob A job
+     * @param aNextFireTimes The next fire time of each scheduled job
+     * @return The JSON representation of the job, with its next fire time (if it has one)
+     */
+    protected static JsonObject toJsonWithNextFireTime(final Job aJob, final JsonObject aNextFireTimes) {
+        final JsonObject json = aJob.toJson();
+
+        aJob.getID().map(id -> aNextFireTimes.getString(Integer.toString(id)))
+                .ifPresent(nextFireTime -> json.put(Job.NEXT_FIRE_TIME, nextFireTime));
+
+        return json;
+    }
+
+    /**
+     * @param aContext A routing context
+     * @return The ID after which a page of a list starts and the max number of items on the page, if the request asks
+     *         for a page (i.e. if it has either of the {@link Param#after} or {@link Param#limit} query parameters)
+     */
+    protected static Optional<Tuple2<Integer, Integer>> getPage(final RoutingContext aContext) {
+        final String after = aContext.request().getParam(Param.after.name());
+        final String limit = aContext.request().getParam(Param.limit.name());
+
+        if (after == null && limit == null) {
+            return Optional.empty();
+        }
+
+        return Optional.of(Tuple.of(after == null ? 0 : Integer.parseInt(after),
+                limit == null ? DEFAULT_PAGE_LIMIT : Integer.parseInt(limit)));
+    }
+
+    /**
+     * @param aContext A routing context
+     * @return Whether the request asks for a list to be streamed (see {@link Param#stream})
+     */
+    protected static boolean isStreamRequested(final RoutingContext aContext) {
+        return Boolean.parseBoolean(aContext.request().getParam(Param.stream.name()));
+    }
+
+    /**
+     * Sends a JSON array as a chunked response, as it's streamed.
+     * <p>
+     * If the client disconnects (or the response fails) before the array has been written, the streamer is cancelled,
+     * so that it can release what it's holding on to (e.g. a paused database cursor and its connection).
+     *
+     * @param aContext A routing context
+     * @param aStreamer A function that streams a JSON array to the response, given a Future that fails if the
+     *        streaming should be cancelled
+     */
+    protected static void sendStream(final RoutingContext aContext,
+            final BiFunction<HttpServerResponse, Future<Void>, Future<Void>> aStreamer) {
+        final HttpServerResponse response = aContext.response().setChunked(true).setStatusCode(HttpStatus.SC_OK)
+                .putHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON.toString());
+        final Promise<Void> cancellation = Promise.promise();
+
+        response.exceptionHandler(cancellation::tryFail).closeHandler(closed -> {
+            if (!response.ended()) {
+                cancellation.tryFail(new HttpClosedException(aContext.request().path()));
+            }
+        });
+
+        aStreamer.apply(response, cancellation.future()).onSuccess(nil -> response.end()).onFailure(details -> {
+            if (response.headWritten()) {
+                // It's too late to send an error status, so cut the response short
+                response.reset();
+            } else {
+                aContext.fail(details);
+            }
+        });
+    }
+
     /**
      * @param aJobID A job ID
      * @return A 2-tuple of the job and its associated institution
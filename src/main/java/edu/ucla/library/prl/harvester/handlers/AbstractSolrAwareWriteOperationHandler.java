@@ -3,9 +3,10 @@ package edu.ucla.library.prl.harvester.handlers;
 
 import org.apache.solr.client.solrj.response.UpdateResponse;
 
-import edu.ucla.library.prl.harvester.Config;
+import edu.ucla.library.prl.harvester.Institution;
+import edu.ucla.library.prl.harvester.services.SolrGateway;
 
-import io.ino.solrs.JavaAsyncSolrClient;
+import info.freelibrary.util.StringUtils;
 
 import io.vavr.Tuple;
 
@@ -21,9 +22,9 @@ import io.vertx.core.json.JsonObject;
 public abstract class AbstractSolrAwareWriteOperationHandler<T extends Tuple> extends AbstractRequestHandler {
 
     /**
-     * A client for sending institution records to Solr.
+     * The gateway for sending institution records to Solr.
      */
-    protected final JavaAsyncSolrClient mySolrClient;
+    protected final SolrGateway mySolrGateway;
 
     /**
      * @param aVertx A Vert.x instance
@@ -32,7 +33,20 @@ public abstract class AbstractSolrAwareWriteOperationHandler<T extends Tuple> ex
     protected AbstractSolrAwareWriteOperationHandler(final Vertx aVertx, final JsonObject aConfig) {
         super(aVertx, aConfig);
 
-        mySolrClient = JavaAsyncSolrClient.create(aConfig.getString(Config.SOLR_CORE_URL));
+        mySolrGateway = SolrGateway.getShared(aVertx, aConfig);
+    }
+
+    /**
+     * Gets a Solr query that matches the item record docs of an institution.
+     * <p>
+     * Docs are matched on the institution's ID; docs indexed before they had the ID field are matched on the name.
+     *
+     * @param anInstitution An institution, bearing a unique local ID
+     * @return A Solr query
+     */
+    static String getItemRecordsQuery(final Institution anInstitution) {
+        return StringUtils.format("(institution_id:{} OR (institutionName:\"{}\" AND -institution_id:[* TO *]))",
+                anInstitution.getID().orElseThrow(), anInstitution.getName());
     }
 
     /**
@@ -12,8 +12,7 @@ import org.apache.solr.client.solrj.response.UpdateResponse;
 import edu.ucla.library.prl.harvester.Institution;
 import edu.ucla.library.prl.harvester.InvalidInstitutionJsonException;
 import edu.ucla.library.prl.harvester.MediaType;
-
-import io.ino.solrs.JavaAsyncSolrClient;
+import edu.ucla.library.prl.harvester.services.SolrGateway;
 
 import io.vavr.Tuple;
 import io.vavr.Tuple1;
@@ -75,21 +74,21 @@ public final class AddInstitutionsHandler extends AbstractSolrAwareWriteOperatio
      */
     @Override
     Future<UpdateResponse> updateSolr(final Tuple1<List<Institution>> aData) {
-        return updateInstitutionDoc(mySolrClient, aData._1());
+        return updateInstitutionDoc(mySolrGateway, aData._1());
     }
 
     /**
      * Adds or updates institution docs in Solr.
      *
-     * @param aSolrClient A Solr client
+     * @param aSolrGateway A Solr gateway
      * @param anInstitutions The list of institutions
      * @return The result of performing the Solr update
      */
-    static Future<UpdateResponse> updateInstitutionDoc(final JavaAsyncSolrClient aSolrClient,
+    static Future<UpdateResponse> updateInstitutionDoc(final SolrGateway aSolrGateway,
             final List<Institution> anInstitutions) {
         final CompletionStage<UpdateResponse> addInstitution =
-                aSolrClient.addDocs(anInstitutions.stream().map(Institution::toSolrDoc).toList())
-                        .thenCompose(result -> aSolrClient.commit());
+                aSolrGateway.addDocs(anInstitutions.stream().map(Institution::toSolrDoc).toList())
+                        .thenCompose(result -> aSolrGateway.commit());
 
         return Future.fromCompletionStage(addInstitution);
     }
@@ -77,9 +77,7 @@ public final class AddJobsHandler extends AbstractRequestHandler {
             final URL baseURL = job.getRepositoryBaseURL();
             final List<String> sets = job.getSets();
 
-            return OaipmhUtils
-                    .validateIdentifiers(myVertx, baseURL, sets, myOaipmhClientHttpTimeout, myHarvesterUserAgent)
-                    .map(job);
+            return OaipmhUtils.validateIdentifiers(myVertx, baseURL, sets, myOaipmhClientOptions).map(job);
         });
     }
 }
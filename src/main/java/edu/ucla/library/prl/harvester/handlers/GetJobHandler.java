@@ -32,10 +32,12 @@ public final class GetJobHandler extends AbstractRequestHandler {
         try {
             final int id = Integer.parseInt(aContext.request().getParam(Param.id.name()));
 
-            myHarvestScheduleStoreService.getJob(id).onSuccess(job -> {
+            myHarvestScheduleStoreService.getJob(id).compose(job -> {
+                return getNextFireTimes().map(nextFireTimes -> toJsonWithNextFireTime(job, nextFireTimes));
+            }).onSuccess(job -> {
                 response.setStatusCode(HttpStatus.SC_OK)
                         .putHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON.toString())
-                        .end(job.toJson().encode());
+                        .end(job.encode());
             }).onFailure(aContext::fail);
         } catch (final NumberFormatException details) {
             response.setStatusCode(HttpStatus.SC_BAD_REQUEST).end(details.getMessage());
@@ -1,33 +1,59 @@
 
 package edu.ucla.library.prl.harvester.handlers;
 
+import java.util.List;
+
 import org.apache.http.HttpStatus;
 
 import edu.ucla.library.prl.harvester.Institution;
 import edu.ucla.library.prl.harvester.MediaType;
+import edu.ucla.library.prl.harvester.services.HarvestScheduleStoreService;
 
+import io.vertx.core.Future;
 import io.vertx.core.Vertx;
 import io.vertx.core.http.HttpHeaders;
 import io.vertx.core.json.JsonArray;
 import io.vertx.core.json.JsonObject;
 import io.vertx.ext.web.RoutingContext;
+import io.vertx.sqlclient.Pool;
 
 /**
  * A handler for listing institutions.
  */
 public final class ListInstitutionsHandler extends AbstractRequestHandler {
 
+    /**
+     * A database connection pool, for streaming.
+     */
+    private final Pool myDbConnectionPool;
+
     /**
      * @param aVertx A Vert.x instance
      * @param aConfig A configuration
+     * @param aDbConnectionPool A database connection pool
      */
-    public ListInstitutionsHandler(final Vertx aVertx, final JsonObject aConfig) {
+    public ListInstitutionsHandler(final Vertx aVertx, final JsonObject aConfig, final Pool aDbConnectionPool) {
         super(aVertx, aConfig);
+
+        myDbConnectionPool = aDbConnectionPool;
     }
 
     @Override
     public void handle(final RoutingContext aContext) {
-        myHarvestScheduleStoreService.listInstitutions().onSuccess(institutions -> {
+        final Future<List<Institution>> listing;
+
+        if (isStreamRequested(aContext)) {
+            sendStream(aContext, (response, cancellation) -> {
+                return HarvestScheduleStoreService.streamInstitutions(myDbConnectionPool, response, cancellation);
+            });
+            return;
+        }
+
+        listing = getPage(aContext).map(page -> {
+            return myHarvestScheduleStoreService.listInstitutionsAfter(page._1(), page._2());
+        }).orElseGet(myHarvestScheduleStoreService::listInstitutions);
+
+        listing.onSuccess(institutions -> {
             final JsonArray responseBody = new JsonArray(institutions.stream().map(Institution::toJson).toList());
 
             aContext.response().setStatusCode(HttpStatus.SC_OK)
@@ -1,34 +1,64 @@
 
 package edu.ucla.library.prl.harvester.handlers;
 
+import java.util.List;
+
 import org.apache.http.HttpStatus;
 
 import edu.ucla.library.prl.harvester.Job;
 import edu.ucla.library.prl.harvester.MediaType;
+import edu.ucla.library.prl.harvester.services.HarvestScheduleStoreService;
 
+import io.vertx.core.Future;
 import io.vertx.core.Vertx;
 import io.vertx.core.http.HttpHeaders;
 import io.vertx.core.json.JsonArray;
 import io.vertx.core.json.JsonObject;
 import io.vertx.ext.web.RoutingContext;
+import io.vertx.sqlclient.Pool;
 
 /**
  * A handler for listing jobs.
  */
 public final class ListJobsHandler extends AbstractRequestHandler {
 
+    /**
+     * A database connection pool, for streaming.
+     */
+    private final Pool myDbConnectionPool;
+
     /**
      * @param aVertx A Vert.x instance
      * @param aConfig A configuration
+     * @param aDbConnectionPool A database connection pool
      */
-    public ListJobsHandler(final Vertx aVertx, final JsonObject aConfig) {
+    public ListJobsHandler(final Vertx aVertx, final JsonObject aConfig, final Pool aDbConnectionPool) {
         super(aVertx, aConfig);
+
+        myDbConnectionPool = aDbConnectionPool;
     }
 
     @Override
     public void handle(final RoutingContext aContext) {
-        myHarvestScheduleStoreService.listJobs().onSuccess(jobs -> {
-            final JsonArray responseBody = new JsonArray(jobs.stream().map(Job::toJson).toList());
+        final Future<List<Job>> listing;
+
+        if (isStreamRequested(aContext)) {
+            sendStream(aContext, (response, cancellation) -> getNextFireTimes().compose(nextFireTimes -> {
+                return HarvestScheduleStoreService.streamJobs(myDbConnectionPool,
+                        job -> toJsonWithNextFireTime(job, nextFireTimes), response, cancellation);
+            }));
+            return;
+        }
+
+        listing = getPage(aContext).map(page -> myHarvestScheduleStoreService.listJobsAfter(page._1(), page._2()))
+                .orElseGet(myHarvestScheduleStoreService::listJobs);
+
+        listing.compose(jobs -> {
+            return getNextFireTimes().map(nextFireTimes -> {
+                return jobs.stream().map(job -> toJsonWithNextFireTime(job, nextFireTimes)).toList();
+            });
+        }).onSuccess(jobs -> {
+            final JsonArray responseBody = new JsonArray(jobs);
 
             aContext.response().setStatusCode(HttpStatus.SC_OK)
                     .putHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON.toString())
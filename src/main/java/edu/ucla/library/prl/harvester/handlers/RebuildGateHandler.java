@@ -0,0 +1,49 @@
+package edu.ucla.library.prl.harvester.handlers;
+
+import org.apache.http.HttpStatus;
+
+import edu.ucla.library.prl.harvester.MessageCodes;
+import edu.ucla.library.prl.harvester.services.RebuildGate;
+
+import info.freelibrary.util.Logger;
+import info.freelibrary.util.LoggerFactory;
+
+import io.vertx.core.Handler;
+import io.vertx.core.Vertx;
+import io.vertx.ext.web.RoutingContext;
+
+/**
+ * A handler that turns away requests that write to the live Solr core while the Solr index is being rebuilt, and
+ * otherwise passes them on to the next handler, holding the {@link RebuildGate} until the response has been sent.
+ */
+public class RebuildGateHandler implements Handler<RoutingContext> {
+
+    /**
+     * A logger for the handler.
+     */
+    private static final Logger LOGGER = LoggerFactory.getLogger(RebuildGateHandler.class, MessageCodes.BUNDLE);
+
+    /**
+     * The gate that's closed while the Solr index is being rebuilt.
+     */
+    private final RebuildGate myRebuildGate;
+
+    /**
+     * @param aVertx A Vert.x instance
+     */
+    public RebuildGateHandler(final Vertx aVertx) {
+        myRebuildGate = RebuildGate.getShared(aVertx);
+    }
+
+    @Override
+    public void handle(final RoutingContext aContext) {
+        if (!myRebuildGate.tryEnter()) {
+            aContext.response().setStatusCode(HttpStatus.SC_SERVICE_UNAVAILABLE)
+                    .end(LOGGER.getMessage(MessageCodes.PRL_100));
+            return;
+        }
+
+        aContext.addEndHandler(result -> myRebuildGate.exit());
+        aContext.next();
+    }
+}
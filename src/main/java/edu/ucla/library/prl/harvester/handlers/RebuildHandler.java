@@ -0,0 +1,298 @@
+package edu.ucla.library.prl.harvester.handlers;
+
+import java.util.List;
+import java.util.Optional;
+
+import org.apache.http.HttpStatus;
+import org.apache.solr.client.solrj.SolrQuery;
+
+import edu.ucla.library.prl.harvester.Config;
+import edu.ucla.library.prl.harvester.Institution;
+import edu.ucla.library.prl.harvester.Job;
+import edu.ucla.library.prl.harvester.MediaType;
+import edu.ucla.library.prl.harvester.MessageCodes;
+import edu.ucla.library.prl.harvester.services.HarvestService;
+import edu.ucla.library.prl.harvester.services.RebuildGate;
+import edu.ucla.library.prl.harvester.services.SolrCores;
+import edu.ucla.library.prl.harvester.services.SolrGateway;
+
+import info.freelibrary.util.Logger;
+import info.freelibrary.util.LoggerFactory;
+import info.freelibrary.util.StringUtils;
+
+import io.vertx.core.CompositeFuture;
+import io.vertx.core.Future;
+import io.vertx.core.Vertx;
+import io.vertx.core.VertxException;
+import io.vertx.core.http.HttpHeaders;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.web.RoutingContext;
+import io.vertx.ext.web.client.WebClient;
+
+/**
+ * A handler for rebuilding the Solr index from the OAI-PMH response archive, without disturbing the live core.
+ * <p>
+ * The standby core is emptied, seeded with the institution docs, and then every job is rebuilt into it from the
+ * archive; it's committed once at the end, verified, and then swapped with the live core. If any step fails, the live
+ * core is left as it was. Rebuilding may take a while, so the response is sent as soon as it has started; progress is
+ * logged.
+ * <p>
+ * Until the rebuild is done, the {@link RebuildGate} turns away harvests and other writes to the live core, since the
+ * swap would lose them; the rebuild starts once those already in progress have finished, so that it includes them.
+ * Since the gate only holds off the writes of this node, a rebuild is refused if harvests may run on other nodes.
+ */
+public final class RebuildHandler extends AbstractRequestHandler {
+
+    /**
+     * A logger for the handler.
+     */
+    private static final Logger LOGGER = LoggerFactory.getLogger(RebuildHandler.class, MessageCodes.BUNDLE);
+
+    /**
+     * The name of the lock that's held while a rebuild is in progress.
+     */
+    private static final String REBUILD_LOCK = RebuildHandler.class.getName();
+
+    /**
+     * How long to wait for the rebuild lock before concluding that another rebuild holds it, in milliseconds.
+     */
+    private static final long REBUILD_LOCK_TIMEOUT = 100;
+
+    /**
+     * A query that matches the institution docs.
+     */
+    private static final String INSTITUTION_DOCS_QUERY =
+            "id:" + StringUtils.format(Institution.SOLR_DOC_ID_TEMPLATE, "*");
+
+    /**
+     * A query that matches the item record docs.
+     */
+    private static final String ITEM_RECORD_DOCS_QUERY = "*:* -" + INSTITUTION_DOCS_QUERY;
+
+    /**
+     * A proxy to the harvest service.
+     */
+    private final HarvestService myHarvestService;
+
+    /**
+     * The gateway for the live Solr core.
+     */
+    private final SolrGateway mySolrGateway;
+
+    /**
+     * The optional gateway for the standby Solr core.
+     */
+    private final Optional<SolrGateway> myRebuildSolrGateway;
+
+    /**
+     * The URL of the live Solr core.
+     */
+    private final String mySolrCoreURL;
+
+    /**
+     * The optional URL of the standby Solr core.
+     */
+    private final Optional<String> myRebuildCoreURL;
+
+    /**
+     * A web client for the Solr CoreAdmin API.
+     */
+    private final WebClient myWebClient;
+
+    /**
+     * Whether the OAI-PMH response archive is configured.
+     */
+    private final boolean myArchiveIsConfigured;
+
+    /**
+     * The gate that keeps the live Solr core from being written to while the rebuild is in progress.
+     */
+    private final RebuildGate myRebuildGate;
+
+    /**
+     * The RAM buffer size (in megabytes) of the standby Solr core while it's being loaded.
+     */
+    private final int myRebuildRamBufferSize;
+
+    /**
+     * Whether harvests may run on other nodes, whose writes to the live Solr core the gate can't hold off.
+     */
+    private final boolean myHarvestsAreClustered;
+
+    /**
+     * @param aVertx A Vert.x instance
+     * @param aConfig A configuration
+     */
+    public RebuildHandler(final Vertx aVertx, final JsonObject aConfig) {
+        super(aVertx, aConfig);
+
+        myHarvestService = HarvestService.createProxy(aVertx, aConfig);
+        mySolrGateway = SolrGateway.getShared(aVertx, aConfig);
+        myRebuildSolrGateway = SolrGateway.getSharedForRebuilds(aVertx, aConfig);
+        mySolrCoreURL = aConfig.getString(Config.SOLR_CORE_URL);
+        myRebuildCoreURL = Config.getSolrRebuildCoreURL(aConfig);
+        myWebClient = WebClient.create(aVertx);
+        myArchiveIsConfigured = Config.getOaipmhArchive(aConfig).isPresent();
+        myRebuildGate = RebuildGate.getShared(aVertx);
+        myRebuildRamBufferSize = Config.getSolrRebuildRamBufferSize(aConfig);
+        myHarvestsAreClustered =
+                Config.isSchedulerJdbcJobStoreEnabled(aConfig) || Config.isHarvestRunQueueEnabled(aConfig);
+    }
+
+    @Override
+    public void handle(final RoutingContext aContext) {
+        if (!myArchiveIsConfigured || myRebuildSolrGateway.isEmpty()) {
+            final String message =
+                    LOGGER.getMessage(myArchiveIsConfigured ? MessageCodes.PRL_080 : MessageCodes.PRL_054);
+
+            aContext.response().setStatusCode(HttpStatus.SC_SERVICE_UNAVAILABLE).end(message);
+            return;
+        }
+
+        if (myHarvestsAreClustered) {
+            aContext.response().setStatusCode(HttpStatus.SC_SERVICE_UNAVAILABLE)
+                    .end(LOGGER.getMessage(MessageCodes.PRL_108));
+            return;
+        }
+
+        myVertx.sharedData().getLocalLockWithTimeout(REBUILD_LOCK, REBUILD_LOCK_TIMEOUT).onSuccess(lock -> {
+            final Future<Void> drain =
+                    Future.fromCompletionStage(myRebuildGate.close(), myVertx.getOrCreateContext());
+
+            if (!drain.isComplete()) {
+                LOGGER.info(MessageCodes.PRL_103, myRebuildGate.getWriteCount());
+            }
+
+            myHarvestScheduleStoreService.listJobs().onSuccess(jobs -> {
+                final JsonArray responseBody = new JsonArray(jobs.stream().map(job -> job.getID().get()).toList());
+
+                // The jobs and institutions are listed again once the writes in progress are done, since they may
+                // change them
+                drain.compose(nil -> rebuild(myRebuildSolrGateway.get())).onComplete(rebuild -> {
+                    if (rebuild.failed()) {
+                        LOGGER.error(MessageCodes.PRL_083, rebuild.cause().getMessage());
+                    }
+
+                    myRebuildGate.open();
+                    lock.release();
+                });
+
+                aContext.response().setStatusCode(HttpStatus.SC_ACCEPTED)
+                        .putHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON.toString())
+                        .end(responseBody.encode());
+            }).onFailure(details -> {
+                myRebuildGate.open();
+                lock.release();
+                aContext.fail(details);
+            });
+        }).onFailure(details -> {
+            aContext.response().setStatusCode(HttpStatus.SC_CONFLICT).end(LOGGER.getMessage(MessageCodes.PRL_085));
+        });
+    }
+
+    /**
+     * Rebuilds the standby Solr core from the current jobs and institutions, and then swaps it with the live core.
+     *
+     * @param aSolrGateway The gateway for the standby Solr core
+     * @return A Future that succeeds once the standby core has been swapped with the live core
+     */
+    private Future<Void> rebuild(final SolrGateway aSolrGateway) {
+        final Future<List<Job>> jobs = myHarvestScheduleStoreService.listJobs();
+        final Future<List<Institution>> institutions = myHarvestScheduleStoreService.listInstitutions();
+
+        return CompositeFuture.all(jobs, institutions)
+                .compose(result -> rebuild(aSolrGateway, institutions.result(), jobs.result()));
+    }
+
+    /**
+     * Rebuilds the standby Solr core, and then swaps it with the live core.
+     * <p>
+     * The standby core's RAM buffer is raised while it's being loaded, since it isn't serving reads, and reset before
+     * it's swapped in, since its config moves with it.
+     *
+     * @param aSolrGateway The gateway for the standby Solr core
+     * @param anInstitutions The institutions
+     * @param aJobs The jobs
+     * @return A Future that succeeds once the standby core has been swapped with the live core
+     */
+    private Future<Void> rebuild(final SolrGateway aSolrGateway, final List<Institution> anInstitutions,
+            final List<Job> aJobs) {
+        final String rebuildCoreURL = myRebuildCoreURL.get();
+        Future<?> rebuild;
+
+        LOGGER.info(MessageCodes.PRL_081, rebuildCoreURL, aJobs.size());
+
+        rebuild = SolrCores.setUserProperty(myWebClient, rebuildCoreURL, SolrCores.RAM_BUFFER_SIZE_PROPERTY,
+                myRebuildRamBufferSize).compose(nil -> Future.fromCompletionStage(aSolrGateway.deleteAll()));
+        rebuild = rebuild.compose(nil -> {
+            if (anInstitutions.isEmpty()) {
+                return Future.<Void>succeededFuture();
+            }
+
+            return Future.fromCompletionStage(
+                    aSolrGateway.addDocs(anInstitutions.stream().map(Institution::toSolrDoc).toList())).mapEmpty();
+        });
+
+        // Rebuild one job at a time, since each job's sets are already rebuilt concurrently; unlike a reindex, a job
+        // that fails fails the whole rebuild, since the rebuilt core would otherwise be missing its records
+        for (final Job job : aJobs) {
+            rebuild = rebuild.compose(nil -> myHarvestService.rebuild(job));
+        }
+
+        rebuild = rebuild.compose(nil -> Future.fromCompletionStage(aSolrGateway.commit()));
+
+        // The RAM buffer is reset whether or not the rebuild succeeded, but the first failure is the one reported
+        return rebuild.transform(load -> {
+            final Future<Void> reset =
+                    SolrCores.unsetUserProperty(myWebClient, rebuildCoreURL, SolrCores.RAM_BUFFER_SIZE_PROPERTY);
+
+            return load.succeeded() ? reset : reset.transform(nil -> Future.<Void>failedFuture(load.cause()));
+        }).compose(nil -> verify(aSolrGateway, mySolrGateway, anInstitutions.size())).compose(itemRecordCount -> {
+            return SolrCores.swap(myWebClient, mySolrCoreURL, rebuildCoreURL).onSuccess(nil -> {
+                LOGGER.info(MessageCodes.PRL_082, rebuildCoreURL, mySolrCoreURL, anInstitutions.size(),
+                        itemRecordCount);
+            });
+        });
+    }
+
+    /**
+     * Checks that the standby Solr core has a doc for each institution, and at least as many item record docs as the
+     * live core, so that swapping it in doesn't lose any records.
+     *
+     * @param aSolrGateway The gateway for the standby Solr core
+     * @param aLiveSolrGateway The gateway for the live Solr core
+     * @param anInstitutionCount The number of institutions
+     * @return A Future that succeeds with the number of item record docs in the standby core
+     */
+    private static Future<Long> verify(final SolrGateway aSolrGateway, final SolrGateway aLiveSolrGateway,
+            final int anInstitutionCount) {
+        final Future<Long> institutionDocCount = count(aSolrGateway, INSTITUTION_DOCS_QUERY);
+        final Future<Long> itemRecordDocCount = count(aSolrGateway, ITEM_RECORD_DOCS_QUERY);
+        final Future<Long> liveItemRecordDocCount = count(aLiveSolrGateway, ITEM_RECORD_DOCS_QUERY);
+
+        return CompositeFuture.all(institutionDocCount, itemRecordDocCount, liveItemRecordDocCount).compose(result -> {
+            if (institutionDocCount.result() != anInstitutionCount) {
+                return Future.failedFuture(new VertxException(LOGGER.getMessage(MessageCodes.PRL_084,
+                        institutionDocCount.result(), anInstitutionCount), true));
+            }
+
+            if (itemRecordDocCount.result() < liveItemRecordDocCount.result()) {
+                return Future.failedFuture(new VertxException(LOGGER.getMessage(MessageCodes.PRL_102,
+                        itemRecordDocCount.result(), liveItemRecordDocCount.result()), true));
+            }
+
+            return Future.succeededFuture(itemRecordDocCount.result());
+        });
+    }
+
+    /**
+     * @param aSolrGateway A Solr gateway
+     * @param aQuery A query
+     * @return A Future that succeeds with the number of docs that match the query
+     */
+    private static Future<Long> count(final SolrGateway aSolrGateway, final String aQuery) {
+        return Future.fromCompletionStage(aSolrGateway.query(new SolrQuery(aQuery).setRows(0)))
+                .map(response -> response.getResults().getNumFound());
+    }
+}
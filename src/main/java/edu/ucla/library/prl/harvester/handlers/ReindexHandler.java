@@ -0,0 +1,76 @@
+package edu.ucla.library.prl.harvester.handlers;
+
+import org.apache.http.HttpStatus;
+
+import edu.ucla.library.prl.harvester.Config;
+import edu.ucla.library.prl.harvester.Job;
+import edu.ucla.library.prl.harvester.MediaType;
+import edu.ucla.library.prl.harvester.MessageCodes;
+import edu.ucla.library.prl.harvester.services.HarvestService;
+
+import info.freelibrary.util.Logger;
+import info.freelibrary.util.LoggerFactory;
+
+import io.vertx.core.Future;
+import io.vertx.core.Vertx;
+import io.vertx.core.http.HttpHeaders;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.web.RoutingContext;
+
+/**
+ * A handler for reindexing all jobs from the OAI-PMH response archive.
+ * <p>
+ * Reindexing may take a while, so the response is sent as soon as it has started; progress is logged.
+ */
+public final class ReindexHandler extends AbstractRequestHandler {
+
+    /**
+     * A logger for the handler.
+     */
+    private static final Logger LOGGER = LoggerFactory.getLogger(ReindexHandler.class, MessageCodes.BUNDLE);
+
+    /**
+     * A proxy to the harvest service.
+     */
+    private final HarvestService myHarvestService;
+
+    /**
+     * Whether the OAI-PMH response archive is configured.
+     */
+    private final boolean myArchiveIsConfigured;
+
+    /**
+     * @param aVertx A Vert.x instance
+     * @param aConfig A configuration
+     */
+    public ReindexHandler(final Vertx aVertx, final JsonObject aConfig) {
+        super(aVertx, aConfig);
+
+        myHarvestService = HarvestService.createProxy(aVertx, aConfig);
+        myArchiveIsConfigured = Config.getOaipmhArchive(aConfig).isPresent();
+    }
+
+    @Override
+    public void handle(final RoutingContext aContext) {
+        if (!myArchiveIsConfigured) {
+            aContext.response().setStatusCode(HttpStatus.SC_SERVICE_UNAVAILABLE)
+                    .end(LOGGER.getMessage(MessageCodes.PRL_054));
+            return;
+        }
+
+        myHarvestScheduleStoreService.listJobs().onSuccess(jobs -> {
+            final JsonArray responseBody = new JsonArray(jobs.stream().map(job -> job.getID().get()).toList());
+            Future<Void> reindex = Future.succeededFuture();
+
+            // Reindex one job at a time, since each job's sets are already reindexed concurrently
+            for (final Job job : jobs) {
+                reindex = reindex.compose(nil -> myHarvestService.reindex(job).<Void>mapEmpty().otherwiseEmpty());
+            }
+
+            aContext.response().setStatusCode(HttpStatus.SC_ACCEPTED)
+                    .putHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON.toString())
+                    .end(responseBody.encode());
+        }).onFailure(aContext::fail);
+    }
+}
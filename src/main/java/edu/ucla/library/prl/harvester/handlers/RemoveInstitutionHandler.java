@@ -1,24 +1,17 @@
 
 package edu.ucla.library.prl.harvester.handlers;
 
-import java.util.List;
-import java.util.concurrent.CompletionStage;
-import java.util.stream.Collectors;
-
 import org.apache.http.HttpStatus;
 import org.apache.solr.client.solrj.response.UpdateResponse;
 
 import edu.ucla.library.prl.harvester.Institution;
-import edu.ucla.library.prl.harvester.Job;
 import edu.ucla.library.prl.harvester.Param;
 
 import info.freelibrary.util.StringUtils;
 
 import io.vavr.Tuple;
 import io.vavr.Tuple1;
-import io.vavr.Tuple2;
 
-import io.vertx.core.CompositeFuture;
 import io.vertx.core.Future;
 import io.vertx.core.Vertx;
 import io.vertx.core.http.HttpServerResponse;
@@ -46,19 +39,12 @@ public final class RemoveInstitutionHandler extends AbstractSolrAwareWriteOperat
             final int id = Integer.parseInt(aContext.request().getParam(Param.id.name()));
 
             // Before modifying the database, get institution data so that we can update Solr accordingly
-            getInstitutionAndJobs(id).compose(institutionAndJobs -> {
-                final Institution institution = institutionAndJobs._1();
-                final List<Job> jobs = institutionAndJobs._2();
-
-                @SuppressWarnings("PMD.UnnecessaryLocalBeforeReturn")
-                final Future<Void> removal = removeJobs(jobs).compose(nil -> {
-                    // If and when all the jobs are removed, remove the institution
-                    return myHarvestScheduleStoreService.removeInstitution(id).compose(none -> {
-                        return updateSolr(Tuple.of(institution)).mapEmpty();
-                    });
-                });
-
-                return removal;
+            myHarvestScheduleStoreService.getInstitution(id).compose(institution -> {
+                // Remove the institution and its jobs from the database at once, then unschedule the jobs together
+                return myHarvestScheduleStoreService.removeInstitutionCascade(id).compose(jobIDs -> {
+                    return jobIDs.isEmpty() ? Future.succeededFuture()
+                            : myHarvestJobSchedulerService.removeJobs(jobIDs);
+                }).compose(nil -> updateSolr(Tuple.of(institution)));
             }).onSuccess(nil -> {
                 response.setStatusCode(HttpStatus.SC_NO_CONTENT).end();
             }).onFailure(aContext::fail);
@@ -77,41 +63,11 @@ public final class RemoveInstitutionHandler extends AbstractSolrAwareWriteOperat
     Future<UpdateResponse> updateSolr(final Tuple1<Institution> aData) {
         final Institution institution = aData._1();
 
-        final String itemRecordDocsQuery = StringUtils.format("institutionName:\"{}\"", institution.getName());
+        final String itemRecordDocsQuery = getItemRecordsQuery(institution);
         final String institutionDocQuery =
                 StringUtils.format("id:\"{}\"", institution.toSolrDoc().getFieldValue(Institution.ID));
         final String query = StringUtils.format("{} OR {}", itemRecordDocsQuery, institutionDocQuery);
-        final CompletionStage<UpdateResponse> removal =
-                mySolrClient.deleteByQuery(query).thenCompose(result -> mySolrClient.commit());
-
-        return Future.fromCompletionStage(removal);
-    }
-
-    /**
-     * @param anInstitutionID An institution ID
-     * @return A 2-tuple of the institution and the list of jobs associated with it
-     */
-    private Future<Tuple2<Institution, List<Job>>> getInstitutionAndJobs(final int anInstitutionID) {
-        return myHarvestScheduleStoreService.getInstitution(anInstitutionID).compose(institution -> {
-            // Get the list of Jobs that we need to remove
-            return myHarvestScheduleStoreService.listJobs().map(jobs -> {
-                // Filter out the jobs not associated with this institution
-                return jobs.stream().filter(job -> job.getInstitutionID() == anInstitutionID).toList();
-            }).map(filteredJobs -> Tuple.of(institution, filteredJobs));
-        });
-    }
-
-    /**
-     * @param aJobs A list of jobs
-     * @return A Future that succeeds if all the jobs were removed, and fails otherwise
-     */
-    private Future<Void> removeJobs(final List<Job> aJobs) {
-        return CompositeFuture.all(aJobs.parallelStream().map(job -> {
-            final int jobID = job.getID().get();
 
-            return myHarvestScheduleStoreService.removeJob(jobID).compose(nil -> {
-                return myHarvestJobSchedulerService.removeJob(jobID);
-            });
-        }).collect(Collectors.toList())).mapEmpty();
+        return Future.fromCompletionStage(mySolrGateway.deleteMatching(query)).mapEmpty();
     }
 }
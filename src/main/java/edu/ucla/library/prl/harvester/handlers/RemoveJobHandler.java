@@ -3,7 +3,6 @@ package edu.ucla.library.prl.harvester.handlers;
 
 import java.util.List;
 import java.util.Optional;
-import java.util.concurrent.CompletionStage;
 
 import org.apache.http.HttpStatus;
 import org.apache.solr.client.solrj.response.UpdateResponse;
@@ -68,31 +67,29 @@ public final class RemoveJobHandler extends AbstractSolrAwareWriteOperationHandl
     Future<UpdateResponse> updateSolr(final Tuple2<Job, Institution> aData) {
         final Job job = aData._1();
         final Institution institution = aData._2();
-        final Optional<String> recordRemovalQuery = getRecordRemovalQuery(institution.getName(), job.getSets());
+        final Optional<String> recordRemovalQuery = getRecordRemovalQuery(institution, job.getSets());
 
         if (recordRemovalQuery.isPresent()) {
             final String solrQuery = recordRemovalQuery.get();
-            final CompletionStage<UpdateResponse> removal =
-                    mySolrClient.deleteByQuery(solrQuery).thenCompose(result -> mySolrClient.commit());
 
-            return Future.fromCompletionStage(removal);
+            return Future.fromCompletionStage(mySolrGateway.deleteMatching(solrQuery)).mapEmpty();
         } else {
             return Future.succeededFuture();
         }
     }
 
     /**
-     * @param anInstitutionName An institution name
+     * @param anInstitution An institution, bearing a unique local ID
      * @param aSets A list of sets
      * @return A Solr query that can be used to remove records from the given sets associated with the given institution
      */
-    static Optional<String> getRecordRemovalQuery(final String anInstitutionName, final List<String> aSets) {
+    static Optional<String> getRecordRemovalQuery(final Institution anInstitution, final List<String> aSets) {
 
         if (!aSets.isEmpty()) {
             final String[] collectionQueryClauses = aSets.stream() //
                     .map(set -> StringUtils.format("set_spec:\"{}\"", set)) //
                     .toArray(length -> new String[aSets.size()]);
-            final String query = StringUtils.format("institutionName:\"{}\" AND ({})", anInstitutionName,
+            final String query = StringUtils.format("{} AND ({})", getItemRecordsQuery(anInstitution),
                     String.join(" OR ", collectionQueryClauses));
 
             return Optional.of(query);
@@ -4,6 +4,8 @@ package edu.ucla.library.prl.harvester.handlers;
 import static edu.ucla.library.prl.harvester.MediaType.APPLICATION_JSON;
 
 import edu.ucla.library.prl.harvester.JsonKeys;
+import edu.ucla.library.prl.harvester.Metrics;
+import edu.ucla.library.prl.harvester.OaipmhCircuitBreaker;
 
 import info.freelibrary.util.HTTP;
 
@@ -19,7 +21,10 @@ public class StatusHandler implements Handler<RoutingContext> {
 
     @Override
     public void handle(final RoutingContext aContext) {
+        final JsonObject status = new JsonObject().put(JsonKeys.STATUS, "ok").put(JsonKeys.METRICS, Metrics.toJson())
+                .put(JsonKeys.PROVIDERS, OaipmhCircuitBreaker.toJson());
+
         aContext.response().setStatusCode(HTTP.OK).putHeader(HttpHeaders.CONTENT_TYPE, APPLICATION_JSON.toString())
-                .end(new JsonObject().put(JsonKeys.STATUS, "ok").encodePrettily());
+                .end(status.encodePrettily());
     }
 }
@@ -12,7 +12,7 @@ import edu.ucla.library.prl.harvester.MediaType;
 import edu.ucla.library.prl.harvester.Param;
 
 import io.vavr.Tuple;
-import io.vavr.Tuple1;
+import io.vavr.Tuple2;
 
 import io.vertx.core.Future;
 import io.vertx.core.Vertx;
@@ -24,7 +24,8 @@ import io.vertx.ext.web.RoutingContext;
 /**
  * A handler for updating institutions.
  */
-public final class UpdateInstitutionHandler extends AbstractSolrAwareWriteOperationHandler<Tuple1<Institution>> {
+public final class UpdateInstitutionHandler
+        extends AbstractSolrAwareWriteOperationHandler<Tuple2<Institution, Institution>> {
 
     /**
      * @param aVertx A Vert.x instance
@@ -44,10 +45,11 @@ public final class UpdateInstitutionHandler extends AbstractSolrAwareWriteOperat
             final Institution institutionWithID = Institution.withID(institution, id);
 
             // Update the database and Solr
-            final Future<Void> update =
-                    myHarvestScheduleStoreService.updateInstitution(id, institution).compose(nil -> {
-                        return updateSolr(Tuple.of(institutionWithID)).mapEmpty();
-                    });
+            final Future<Void> update = myHarvestScheduleStoreService.getInstitution(id).compose(oldInstitution -> {
+                return myHarvestScheduleStoreService.updateInstitution(id, institution).compose(nil -> {
+                    return updateSolr(Tuple.of(oldInstitution, institutionWithID)).mapEmpty();
+                });
+            });
 
             update.onSuccess(nil -> {
                 final JsonObject responseBody = Institution.withID(institution, id).toJson();
@@ -62,12 +64,25 @@ public final class UpdateInstitutionHandler extends AbstractSolrAwareWriteOperat
     }
 
     /**
-     * Updates the institution doc in Solr.
+     * Updates the institution doc in Solr, and if the institution was renamed, the institution name of its item record
+     * docs (in place, with atomic updates).
      *
-     * @param aData A 1-tuple of the institution, bearing a unique local ID, to update
+     * @param aData A 2-tuple of the old institution and the new institution, both bearing a unique local ID
      */
     @Override
-    Future<UpdateResponse> updateSolr(final Tuple1<Institution> aData) {
-        return AddInstitutionsHandler.updateInstitutionDoc(mySolrClient, List.of(aData._1()));
+    Future<UpdateResponse> updateSolr(final Tuple2<Institution, Institution> aData) {
+        final Institution oldInstitution = aData._1();
+        final Institution newInstitution = aData._2();
+        final Future<UpdateResponse> institutionDocUpdate =
+                AddInstitutionsHandler.updateInstitutionDoc(mySolrGateway, List.of(newInstitution));
+
+        if (oldInstitution.getName().equals(newInstitution.getName())) {
+            return institutionDocUpdate;
+        }
+
+        return institutionDocUpdate.compose(response -> {
+            return Future.fromCompletionStage(mySolrGateway.setFieldOfMatching(getItemRecordsQuery(oldInstitution),
+                    "institutionName", newInstitution.getName())).map(response);
+        });
     }
 }
@@ -4,7 +4,6 @@ package edu.ucla.library.prl.harvester.handlers;
 import java.net.URL;
 import java.util.List;
 import java.util.Optional;
-import java.util.concurrent.CompletionStage;
 
 import org.apache.http.HttpStatus;
 import org.apache.solr.client.solrj.response.UpdateResponse;
@@ -49,7 +48,7 @@ public final class UpdateJobHandler extends AbstractSolrAwareWriteOperationHandl
             final URL baseURL = job.getRepositoryBaseURL();
             final List<String> sets = job.getSets();
 
-            OaipmhUtils.validateIdentifiers(myVertx, baseURL, sets, myOaipmhClientHttpTimeout, myHarvesterUserAgent)
+            OaipmhUtils.validateIdentifiers(myVertx, baseURL, sets, myOaipmhClientOptions)
                     .onSuccess(none -> {
                         getJobAndInstitution(id).compose(oldJobAndInstitution -> {
                             // Update the database, the in-memory scheduler, and Solr
@@ -108,8 +107,7 @@ public final class UpdateJobHandler extends AbstractSolrAwareWriteOperationHandl
         } else if (oldJobSets.isEmpty() && !newJobSets.isEmpty()) {
             // From non-selective harvesting to selective, so it's very likely that there are sets to remove
             // Must query OAI-PMH repository in order to get the sets belonging to the old job
-            getActualOldJobSets = OaipmhUtils
-                    .listSets(myVertx, oldJob.getRepositoryBaseURL(), myOaipmhClientHttpTimeout, myHarvesterUserAgent)
+            getActualOldJobSets = OaipmhUtils.listSets(myVertx, oldJob.getRepositoryBaseURL(), myOaipmhClientOptions)
                     .map(OaipmhUtils::getSetSpecs);
             // TODO: make it impossible to change the base URL
         } else if (!oldJobSets.isEmpty() && newJobSets.isEmpty()) {
@@ -124,14 +122,12 @@ public final class UpdateJobHandler extends AbstractSolrAwareWriteOperationHandl
         return getActualOldJobSets.compose(sets -> {
             final List<String> setsToRemove = getDifference(sets, newJobSets);
             final Optional<String> recordRemovalQuery =
-                    RemoveJobHandler.getRecordRemovalQuery(institution.getName(), setsToRemove);
+                    RemoveJobHandler.getRecordRemovalQuery(institution, setsToRemove);
 
             if (recordRemovalQuery.isPresent()) {
                 final String solrQuery = recordRemovalQuery.get();
-                final CompletionStage<UpdateResponse> removal =
-                        mySolrClient.deleteByQuery(solrQuery).thenCompose(result -> mySolrClient.commit());
 
-                return Future.fromCompletionStage(removal);
+                return Future.fromCompletionStage(mySolrGateway.deleteMatching(solrQuery)).mapEmpty();
             } else {
                 return Future.succeededFuture();
             }
@@ -159,8 +155,7 @@ public final class UpdateJobHandler extends AbstractSolrAwareWriteOperationHandl
         } else if (!anOldJob.getSets().isEmpty() && aNewJob.getSets().isEmpty()) {
             // From selective harvesting to non-selective, so query OAI-PMH repository to determine which additional
             // sets (if any) should be harvested
-            getActualNewJobSets = OaipmhUtils
-                    .listSets(myVertx, anOldJob.getRepositoryBaseURL(), myOaipmhClientHttpTimeout, myHarvesterUserAgent)
+            getActualNewJobSets = OaipmhUtils.listSets(myVertx, anOldJob.getRepositoryBaseURL(), myOaipmhClientOptions)
                     .map(OaipmhUtils::getSetSpecs);
         } else {
             // Still harvesting entire repository, so nothing to add
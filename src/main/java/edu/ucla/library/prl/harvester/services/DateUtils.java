@@ -191,7 +191,7 @@ final class DateUtils {
      */
     static List<Integer> getDecadesAscending(final List<String> aDates) {
         // First, get the years represented by the given dates
-        final Stream<Integer> years = aDates.parallelStream().map(DateUtils::getYears).flatMap(Set::stream);
+        final Stream<Integer> years = aDates.stream().map(DateUtils::getYears).flatMap(Set::stream);
 
         // Then, transform each year into the decade it belongs to; sort and de-dup
         return years.map(DateUtils::yearToDecade).sorted().distinct().toList();
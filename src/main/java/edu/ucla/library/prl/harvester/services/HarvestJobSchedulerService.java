@@ -95,6 +95,22 @@ public interface HarvestJobSchedulerService {
      */
     Future<Void> removeJob(int aJobId);
 
+    /**
+     * Removes a list of harvest jobs.
+     *
+     * @param aJobIds The unique local IDs for the harvest jobs
+     * @return A Future that succeeds if all the harvest jobs were removed
+     */
+    Future<Void> removeJobs(List<Integer> aJobIds);
+
+    /**
+     * Gets the next fire time of each scheduled harvest job, which reflects any schedule jitter.
+     *
+     * @return A Future that resolves to a JSON object whose keys are job IDs and whose values are ISO 8601 timestamps;
+     *         jobs that won't fire again are omitted
+     */
+    Future<JsonObject> getNextFireTimes();
+
     /**
      * Closes the underlying resources used by this service.
      *
@@ -1,14 +1,23 @@
 
 package edu.ucla.library.prl.harvester.services;
 
+import java.text.ParseException;
+import java.time.OffsetDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
 import java.util.List;
 import java.util.NoSuchElementException;
+import java.util.Optional;
+import java.util.Properties;
 import java.util.Set;
+import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
+import org.quartz.CronExpression;
 import org.quartz.CronScheduleBuilder;
 import org.quartz.CronTrigger;
+import org.quartz.DisallowConcurrentExecution;
 import org.quartz.JobBuilder;
 import org.quartz.JobDetail;
 import org.quartz.JobExecutionContext;
@@ -17,20 +26,32 @@ import org.quartz.JobKey;
 import org.quartz.Scheduler;
 import org.quartz.SchedulerContext;
 import org.quartz.SchedulerException;
+import org.quartz.Trigger;
 import org.quartz.TriggerBuilder;
+import org.quartz.TriggerKey;
 import org.quartz.impl.StdSchedulerFactory;
+import org.quartz.impl.matchers.GroupMatcher;
 
+import edu.ucla.library.prl.harvester.Config;
 import edu.ucla.library.prl.harvester.Job;
+import edu.ucla.library.prl.harvester.JobResult;
 import edu.ucla.library.prl.harvester.MessageCodes;
+import edu.ucla.library.prl.harvester.Tracing;
 
 import info.freelibrary.util.Logger;
 import info.freelibrary.util.LoggerFactory;
+import info.freelibrary.util.StringUtils;
+
+import io.opentelemetry.api.trace.SpanBuilder;
 
 import io.vertx.core.CompositeFuture;
 import io.vertx.core.Future;
+import io.vertx.core.Promise;
 import io.vertx.core.Vertx;
 import io.vertx.core.eventbus.EventBus;
 import io.vertx.core.json.JsonObject;
+import io.vertx.pgclient.PgConnectOptions;
+import io.vertx.sqlclient.Pool;
 
 /**
  * The implementation of {@link HarvestJobSchedulerService}.
@@ -43,19 +64,59 @@ public final class HarvestJobSchedulerServiceImpl implements HarvestJobScheduler
     private static final Logger LOGGER = LoggerFactory.getLogger(HarvestJobSchedulerService.class, MessageCodes.BUNDLE);
 
     /**
-     * The {@link JobDataMap} key for the JSON-encoded harvest job.
+     * The {@link SchedulerContext} key for the Vert.x instance.
      */
-    private static final String ENCODED_JOB_JSON = "encodedJobJSON";
+    private static final String VERTX = "vertx";
 
     /**
-     * The {@link SchedulerContext} key for the Vert.x event bus.
+     * The {@link SchedulerContext} key for the harvest service proxy.
      */
-    private static final String VERTX_EVENT_BUS = "vertxEventBus";
+    private static final String HARVEST_SERVICE = "harvestService";
 
     /**
-     * The {@link SchedulerContext} key for the harvest service proxy.
+     * The {@link SchedulerContext} key for the harvest schedule store service proxy.
      */
-    private static final String HARVEST_SERVICE = "harvestService";
+    private static final String HARVEST_SCHEDULE_STORE_SERVICE = "harvestScheduleStoreService";
+
+    /**
+     * The {@link SchedulerContext} key for the harvest run queue, which is only present if it's enabled.
+     */
+    private static final String HARVEST_RUN_QUEUE = "harvestRunQueue";
+
+    /**
+     * The name of the span of a scheduled harvest run.
+     */
+    private static final String RUN_HARVEST_SPAN = "RunHarvest";
+
+    /**
+     * The name of the scheduler, which is shared by all nodes that use the JDBC job store.
+     */
+    private static final String SCHEDULER_NAME = "PrlHarvesterScheduler";
+
+    /**
+     * The name of the JDBC job store's data source.
+     */
+    private static final String DATA_SOURCE_NAME = "prl";
+
+    /**
+     * The prefix of the names of the JDBC job store's data source properties.
+     */
+    private static final String DATA_SOURCE_PREFIX = "org.quartz.dataSource." + DATA_SOURCE_NAME;
+
+    /**
+     * The max schedule jitter window (in seconds), so that an offset carries into the hours by at most one.
+     */
+    private static final int MAX_JITTER_WINDOW = 3600;
+
+    /**
+     * A pattern matching cron expression fields that are a single number.
+     */
+    private static final Pattern SINGLE_VALUE_FIELD = Pattern.compile("\\d+");
+
+    /**
+     * The last value of a cron expression's seconds and minutes fields.
+     */
+    private static final String LAST_VALUE = "59";
 
     /**
      * A proxy to the harvest service, for running jobs.
@@ -73,6 +134,16 @@ public final class HarvestJobSchedulerServiceImpl implements HarvestJobScheduler
      */
     private final Scheduler myScheduler;
 
+    /**
+     * The optional database connection pool for the harvest run queue.
+     */
+    private final Optional<Pool> myHarvestRunQueuePool;
+
+    /**
+     * The schedule jitter window (in seconds) for jobs that don't have their own.
+     */
+    private final int myDefaultJitterWindow;
+
     /**
      * Instantiates the service. Call {@link HarvestJobSchedulerService#create} instead of this constructor.
      *
@@ -83,10 +154,22 @@ public final class HarvestJobSchedulerServiceImpl implements HarvestJobScheduler
     protected HarvestJobSchedulerServiceImpl(final Vertx aVertx, final JsonObject aConfig) throws SchedulerException {
         myHarvestService = HarvestService.createProxy(aVertx, aConfig);
         myHarvestScheduleStoreService = HarvestScheduleStoreService.createProxy(aVertx);
+        myDefaultJitterWindow = Config.getScheduleJitterWindow(aConfig);
 
-        myScheduler = new StdSchedulerFactory().getScheduler();
-        myScheduler.getContext().put(VERTX_EVENT_BUS, aVertx.eventBus());
+        myScheduler = new StdSchedulerFactory(getSchedulerProperties(aConfig)).getScheduler();
+        myScheduler.getContext().put(VERTX, aVertx);
         myScheduler.getContext().put(HARVEST_SERVICE, myHarvestService);
+        myScheduler.getContext().put(HARVEST_SCHEDULE_STORE_SERVICE, myHarvestScheduleStoreService);
+        myScheduler.getListenerManager().addTriggerListener(new HarvestTriggerListener());
+
+        if (Config.isHarvestRunQueueEnabled(aConfig)) {
+            // Due runs are enqueued for the harvest workers, instead of being run by this scheduler
+            myHarvestRunQueuePool = Optional.of(HarvestScheduleStoreService.getConnectionPool(aVertx, aConfig));
+            myScheduler.getContext().put(HARVEST_RUN_QUEUE, new HarvestRunQueue(myHarvestRunQueuePool.get()));
+        } else {
+            myHarvestRunQueuePool = Optional.empty();
+        }
+
         myScheduler.start();
     }
 
@@ -111,12 +194,50 @@ public final class HarvestJobSchedulerServiceImpl implements HarvestJobScheduler
         return unscheduleJob(aJobId);
     }
 
+    @Override
+    public Future<Void> removeJobs(final List<Integer> aJobIds) {
+        final List<JobKey> keys = aJobIds.stream().map(HarvestJobSchedulerServiceImpl::getJobKey).toList();
+
+        try {
+            if (myScheduler.deleteJobs(keys)) {
+                return Future.succeededFuture();
+            } else {
+                return Future.failedFuture(new HarvestJobSchedulerServiceException(Error.NOT_FOUND,
+                        LOGGER.getMessage(MessageCodes.PRL_021, aJobIds, "not found")));
+            }
+        } catch (final SchedulerException details) {
+            return Future.failedFuture(new HarvestJobSchedulerServiceException(Error.INTERNAL_ERROR,
+                    LOGGER.getMessage(MessageCodes.PRL_021, aJobIds, details.getMessage())));
+        }
+    }
+
+    @Override
+    public Future<JsonObject> getNextFireTimes() {
+        final JsonObject nextFireTimes = new JsonObject();
+
+        try {
+            for (final TriggerKey key : myScheduler.getTriggerKeys(GroupMatcher.anyTriggerGroup())) {
+                final Trigger trigger = myScheduler.getTrigger(key);
+
+                if (trigger != null && trigger.getNextFireTime() != null) {
+                    nextFireTimes.put(trigger.getJobKey().getName(), OffsetDateTime
+                            .ofInstant(trigger.getNextFireTime().toInstant(), ZoneId.systemDefault()).toString());
+                }
+            }
+
+            return Future.succeededFuture(nextFireTimes);
+        } catch (final SchedulerException details) {
+            return Future.failedFuture(new HarvestJobSchedulerServiceException(Error.INTERNAL_ERROR,
+                    details.getMessage()));
+        }
+    }
+
     @Override
     public Future<Void> close() {
         try {
             myScheduler.shutdown();
 
-            return Future.succeededFuture();
+            return myHarvestRunQueuePool.map(Pool::close).orElse(Future.succeededFuture());
         } catch (final SchedulerException details) {
             return Future.failedFuture(details);
         }
@@ -125,19 +246,203 @@ public final class HarvestJobSchedulerServiceImpl implements HarvestJobScheduler
     /**
      * Initializes the scheduler with all of the {@link Job}s stored in the database.
      * <p>
-     * If this method has already been called on the instance, calling it again will result in a no-op.
+     * Jobs that the scheduler already has with the same schedule (because they were restored from the JDBC job store)
+     * are left alone, so that runs missed while the application was down are still caught up on; jobs that are no
+     * longer in the database are removed. If this method has already been called on the instance, calling it again
+     * will result in a no-op.
      *
      * @return A Future that succeeds if the saved jobs were restored
      */
     Future<Void> initializeScheduler() {
         return myHarvestScheduleStoreService.listJobs().compose(jobs -> {
-            final Stream<Future<Void>> jobSchedulings =
-                    jobs.stream().map(job -> scheduleJob(job.getID().get(), job, true));
+            final Set<JobKey> jobKeys =
+                    jobs.stream().map(job -> getJobKey(job.getID().get())).collect(Collectors.toSet());
+            final Stream<Future<Void>> jobSchedulings = jobs.stream().filter(job -> !isScheduled(job))
+                    .map(job -> scheduleJob(job.getID().get(), job, true));
+
+            try {
+                int staleJobCount = 0;
+
+                for (final JobKey key : myScheduler.getJobKeys(GroupMatcher.anyJobGroup())) {
+                    if (!jobKeys.contains(key) && myScheduler.deleteJob(key)) {
+                        staleJobCount += 1;
+                    }
+                }
+
+                LOGGER.debug(MessageCodes.PRL_071, staleJobCount);
+            } catch (final SchedulerException details) {
+                return Future.failedFuture(details);
+            }
 
             return CompositeFuture.all(jobSchedulings.collect(Collectors.toList()));
         }).mapEmpty();
     }
 
+    /**
+     * Gets the properties of the underlying scheduler.
+     * <p>
+     * The JDBC job store, if enabled, uses the same database as the application, with the tables that Quartz's
+     * {@code tables_postgres.sql} creates. It's clustered, so that each run fires on only one node.
+     *
+     * @param aConfig A configuration
+     * @return The scheduler properties
+     */
+    static Properties getSchedulerProperties(final JsonObject aConfig) {
+        final Properties properties = new Properties();
+
+        properties.setProperty(StdSchedulerFactory.PROP_SCHED_INSTANCE_NAME, SCHEDULER_NAME);
+        properties.setProperty(StdSchedulerFactory.PROP_SCHED_INSTANCE_ID,
+                StdSchedulerFactory.AUTO_GENERATE_INSTANCE_ID);
+        properties.setProperty(StdSchedulerFactory.PROP_THREAD_POOL_CLASS, "org.quartz.simpl.SimpleThreadPool");
+        properties.setProperty("org.quartz.threadPool.threadCount",
+                Integer.toString(Math.max(1, Config.getSchedulerThreadCount(aConfig))));
+
+        if (Config.isSchedulerJdbcJobStoreEnabled(aConfig)) {
+            final PgConnectOptions connectOptions = PgConnectOptions.fromEnv();
+
+            properties.setProperty(StdSchedulerFactory.PROP_JOB_STORE_CLASS,
+                    "org.quartz.impl.jdbcjobstore.JobStoreTX");
+            properties.setProperty("org.quartz.jobStore.driverDelegateClass",
+                    "org.quartz.impl.jdbcjobstore.PostgreSQLDelegate");
+            properties.setProperty("org.quartz.jobStore.dataSource", DATA_SOURCE_NAME);
+            properties.setProperty("org.quartz.jobStore.tablePrefix", "QRTZ_");
+            properties.setProperty("org.quartz.jobStore.useProperties", Boolean.TRUE.toString());
+            properties.setProperty("org.quartz.jobStore.isClustered", Boolean.TRUE.toString());
+            properties.setProperty(DATA_SOURCE_PREFIX + ".driver", "org.postgresql.Driver");
+            properties.setProperty(DATA_SOURCE_PREFIX + ".URL", StringUtils.format("jdbc:postgresql://{}:{}/{}",
+                    connectOptions.getHost(), connectOptions.getPort(), connectOptions.getDatabase()));
+            properties.setProperty(DATA_SOURCE_PREFIX + ".user", connectOptions.getUser());
+            properties.setProperty(DATA_SOURCE_PREFIX + ".password", connectOptions.getPassword());
+            properties.setProperty(DATA_SOURCE_PREFIX + ".maxConnections",
+                    Integer.toString(Math.max(1, Config.getSchedulerThreadCount(aConfig)) + 2));
+        } else {
+            properties.setProperty(StdSchedulerFactory.PROP_JOB_STORE_CLASS, "org.quartz.simpl.RAMJobStore");
+        }
+
+        return properties;
+    }
+
+    /**
+     * Gets the offset (in seconds) by which a job's scheduled runs are shifted.
+     * <p>
+     * The offset is derived from the job ID, so that it's the same on every node and across restarts, and so that jobs
+     * with the same cron expression are spread out across the window.
+     *
+     * @param aJobID A job ID
+     * @param aJitterWindow The window (in seconds) within which the job's runs are spread out
+     * @return The job's schedule offset
+     */
+    static int getJitterOffset(final int aJobID, final int aJitterWindow) {
+        if (aJitterWindow <= 0) {
+            return 0;
+        }
+
+        // Fibonacci hashing spreads out consecutive job IDs
+        return Math.floorMod(aJobID * 0x9E3779B9, Math.min(aJitterWindow, MAX_JITTER_WINDOW));
+    }
+
+    /**
+     * Shifts a cron expression later by an offset.
+     * <p>
+     * Only a seconds field that is a single number is shifted, carrying into a minutes field that is a single number,
+     * and from there into an hours field that is a single number. Other cron expressions (e.g. ones that fire every
+     * few seconds) are returned unchanged, since spreading them out wouldn't help.
+     * <p>
+     * A run is never moved earlier, or by more than the offset. Where the carry into the hours can't be made (past
+     * 23:59:59, or into an hours field like {@code *} or {@code 8-9}), the run is moved to the last second of its hour
+     * instead. If the minutes field isn't a single number (e.g. {@code *} or {@code 0/30}), only the seconds are
+     * shifted, by the offset modulo 60 and at most to the last second of the minute; so such jobs are only spread out
+     * within a minute, whatever their jitter window.
+     *
+     * @param aCronExpression A cron expression
+     * @param anOffset An offset (in seconds)
+     * @return The shifted cron expression
+     */
+    static CronExpression getJitteredCronExpression(final CronExpression aCronExpression, final int anOffset) {
+        final String[] fields = aCronExpression.getCronExpression().trim().split("\\s+");
+        final int seconds;
+
+        if (anOffset == 0 || !SINGLE_VALUE_FIELD.matcher(fields[0]).matches()) {
+            return aCronExpression;
+        }
+
+        seconds = Integer.parseInt(fields[0]) + anOffset;
+
+        if (SINGLE_VALUE_FIELD.matcher(fields[1]).matches()) {
+            final int minutes = Integer.parseInt(fields[1]) + seconds / 60;
+
+            if (minutes < 60) {
+                fields[0] = Integer.toString(seconds % 60);
+                fields[1] = Integer.toString(minutes % 60);
+            } else if (SINGLE_VALUE_FIELD.matcher(fields[2]).matches() && Integer.parseInt(fields[2]) < 23) {
+                fields[0] = Integer.toString(seconds % 60);
+                fields[1] = Integer.toString(minutes % 60);
+                fields[2] = Integer.toString(Integer.parseInt(fields[2]) + 1);
+            } else {
+                // Wrapping around within the hour would move the run earlier
+                fields[0] = LAST_VALUE;
+                fields[1] = LAST_VALUE;
+            }
+        } else {
+            fields[0] = Integer.toString(Math.min(Integer.parseInt(fields[0]) + anOffset % 60, 59));
+        }
+
+        try {
+            final CronExpression jitteredCronExpression = new CronExpression(String.join(" ", fields));
+
+            jitteredCronExpression.setTimeZone(aCronExpression.getTimeZone());
+
+            return jitteredCronExpression;
+        } catch (final ParseException details) {
+            // Shifting numbers within their valid ranges can't make an expression invalid, but just in case
+            return aCronExpression;
+        }
+    }
+
+    /**
+     * @param aJobID A job ID
+     * @param aJob A job
+     * @return The cron expression that the job's trigger uses, which reflects any schedule jitter
+     */
+    private CronExpression getEffectiveCronExpression(final int aJobID, final Job aJob) {
+        final int jitterWindow = aJob.getScheduleJitterWindow().orElse(myDefaultJitterWindow);
+
+        return getJitteredCronExpression(aJob.getScheduleCronExpression(), getJitterOffset(aJobID, jitterWindow));
+    }
+
+    /**
+     * @param aJob A job
+     * @return Whether the scheduler already has the job with the same schedule
+     */
+    private boolean isScheduled(final Job aJob) {
+        final int jobID = aJob.getID().get();
+
+        try {
+            final Trigger trigger = myScheduler.getTrigger(getTriggerKey(jobID));
+
+            return trigger instanceof CronTrigger && ((CronTrigger) trigger).getCronExpression()
+                    .equals(getEffectiveCronExpression(jobID, aJob).getCronExpression());
+        } catch (final SchedulerException details) {
+            return false;
+        }
+    }
+
+    /**
+     * @param aJobID A job ID
+     * @return The key of the job in the scheduler
+     */
+    private static JobKey getJobKey(final int aJobID) {
+        return new JobKey(Integer.toString(aJobID));
+    }
+
+    /**
+     * @param aJobID A job ID
+     * @return The key of the job's trigger in the scheduler
+     */
+    private static TriggerKey getTriggerKey(final int aJobID) {
+        return new TriggerKey(Integer.toString(aJobID));
+    }
+
     /**
      * @param aJobID A job ID
      * @param aJob A job
@@ -145,12 +450,15 @@ public final class HarvestJobSchedulerServiceImpl implements HarvestJobScheduler
      * @return A Future that succeeds if the job was added to, or updated in, the scheduler
      */
     private Future<Void> scheduleJob(final int aJobID, final Job aJob, final boolean aReplaceIfExists) {
-        final JobKey key = new JobKey(Integer.toString(aJobID));
-        final JobDetail jobDetail = JobBuilder.newJob(RunHarvest.class).withIdentity(key)
-                .usingJobData(ENCODED_JOB_JSON, Job.withID(aJob, aJobID).toJson().encode()).build();
-        final CronScheduleBuilder scheduleBuilder = CronScheduleBuilder.cronSchedule(aJob.getScheduleCronExpression());
-        final CronTrigger trigger =
-                TriggerBuilder.newTrigger().withSchedule(scheduleBuilder).startNow().endAt(null).build();
+        final JobKey key = getJobKey(aJobID);
+        // The job's key is all that RunHarvest needs, since it looks up the latest state of the job when it runs
+        final JobDetail jobDetail = JobBuilder.newJob(RunHarvest.class).withIdentity(key).build();
+        // Runs that were missed (while the application was down, or all threads were busy) are run once, right away
+        final CronScheduleBuilder scheduleBuilder =
+                CronScheduleBuilder.cronSchedule(getEffectiveCronExpression(aJobID, aJob))
+                        .withMisfireHandlingInstructionFireAndProceed();
+        final CronTrigger trigger = TriggerBuilder.newTrigger().withIdentity(getTriggerKey(aJobID))
+                .withSchedule(scheduleBuilder).startNow().endAt(null).build();
 
         try {
             myScheduler.scheduleJob(jobDetail, Set.of(trigger), aReplaceIfExists);
@@ -167,7 +475,7 @@ public final class HarvestJobSchedulerServiceImpl implements HarvestJobScheduler
      * @return A Future that succeeds if the job was removed from the scheduler
      */
     private Future<Void> unscheduleJob(final Integer aJobID) {
-        final JobKey key = new JobKey(Integer.toString(aJobID));
+        final JobKey key = getJobKey(aJobID);
 
         try {
             if (myScheduler.deleteJob(key)) {
@@ -185,7 +493,20 @@ public final class HarvestJobSchedulerServiceImpl implements HarvestJobScheduler
     /**
      * Runs a harvest job, updates application state with the result, then publishes its result (or resulting error) to
      * the event bus addresses {@link JOB_RESULT_ADDRESS} and {@link ERROR_ADDRESS}, respectively.
+     * <p>
+     * If the harvest run queue is enabled, the run is enqueued for a harvest worker instead. Every node's scheduler
+     * enqueues the same run, identified by its job and scheduled fire time, but it is only enqueued once.
+     * <p>
+     * The scheduler thread waits for the harvest to finish, so that the scheduler's thread count bounds the number of
+     * harvests that run at once (e.g. when missed runs are caught up on at startup).
+     * <p>
+     * A job never has two runs at once: Quartz doesn't execute a job while it's already executing, on any node of a
+     * clustered scheduler, so a run that is triggered while the job is running is deferred until the current run
+     * finishes; if that takes longer than the scheduler's misfire threshold, the trigger misfires, and the runs that it
+     * missed are run once (see {@link HarvestTriggerListener}). If the harvest run queue is enabled, overlapping runs
+     * are coalesced by the queue instead.
      */
+    @DisallowConcurrentExecution
     public static final class RunHarvest implements org.quartz.Job {
 
         /**
@@ -199,25 +520,61 @@ public final class HarvestJobSchedulerServiceImpl implements HarvestJobScheduler
         @Override
         public void execute(final JobExecutionContext aContext) throws JobExecutionException {
             try {
-                // Decode the Job
-                final JobDetail jobDetail = aContext.getJobDetail();
-                final String encodedJobJSON = jobDetail.getJobDataMap().getString(ENCODED_JOB_JSON);
-                final Job job = new Job(new JsonObject(encodedJobJSON));
-
                 // Get references to Vert.x resources
                 final SchedulerContext schedulerContext = aContext.getScheduler().getContext();
                 final HarvestService harvestService = (HarvestService) schedulerContext.get(HARVEST_SERVICE);
-                final EventBus eventBus = (EventBus) schedulerContext.get(VERTX_EVENT_BUS);
-
-                // Do the work and publish the result
-                harvestService.run(job).onSuccess(jobResult -> {
-                    eventBus.publish(JOB_RESULT_ADDRESS, jobResult.toJson());
-                }).onFailure(details -> {
-                    eventBus.publish(ERROR_ADDRESS, details.getMessage());
-                });
+                final HarvestScheduleStoreService harvestScheduleStoreService =
+                        (HarvestScheduleStoreService) schedulerContext.get(HARVEST_SCHEDULE_STORE_SERVICE);
+                final Vertx vertx = (Vertx) schedulerContext.get(VERTX);
+                final HarvestRunQueue harvestRunQueue = (HarvestRunQueue) schedulerContext.get(HARVEST_RUN_QUEUE);
+                final int jobID = Integer.parseInt(aContext.getJobDetail().getKey().getName());
+
+                if (harvestRunQueue != null) {
+                    final OffsetDateTime dueAt =
+                            OffsetDateTime.ofInstant(aContext.getScheduledFireTime().toInstant(), ZoneOffset.UTC);
+
+                    harvestRunQueue.enqueue(jobID, dueAt).onFailure(details -> {
+                        LOGGER.error(MessageCodes.PRL_070, jobID, dueAt, details.getMessage());
+                    }).otherwiseEmpty().toCompletionStage().toCompletableFuture().join();
+
+                    return;
+                }
+
+                runHarvest(jobID, vertx, harvestScheduleStoreService, harvestService).otherwiseEmpty()
+                        .toCompletionStage().toCompletableFuture().join();
             } catch (final SchedulerException details) {
                 LOGGER.error(details.getMessage());
             }
         }
+
+        /**
+         * Runs a harvest job with its latest state (the job data in the scheduler may be stale, if it was restored from
+         * the JDBC job store), then publishes the result.
+         * <p>
+         * The run is traced from a Vert.x context (the one that Vert.x keeps for the scheduler thread), since the trace
+         * context is only propagated with the service proxy calls and event bus messages that are sent from one.
+         *
+         * @param aJobID A job ID
+         * @param aVertx A Vert.x instance
+         * @param aHarvestScheduleStoreService A harvest schedule store service
+         * @param aHarvestService A harvest service
+         * @return A Future that completes when the harvest has finished
+         */
+        private static Future<JobResult> runHarvest(final int aJobID, final Vertx aVertx,
+                final HarvestScheduleStoreService aHarvestScheduleStoreService, final HarvestService aHarvestService) {
+            final EventBus eventBus = aVertx.eventBus();
+            final SpanBuilder span = Tracing.spanBuilder(RUN_HARVEST_SPAN).setAttribute(Tracing.JOB_ID, (long) aJobID);
+            final Promise<JobResult> promise = Promise.promise();
+
+            aVertx.getOrCreateContext().runOnContext(ignored -> {
+                // The result is published while the run's span is current, so that its consumers are traced too
+                Tracing.trace(span, runSpan -> aHarvestScheduleStoreService.getJob(aJobID).compose(aHarvestService::run)
+                        .onSuccess(jobResult -> eventBus.publish(JOB_RESULT_ADDRESS, jobResult.toJson()))
+                        .onFailure(details -> eventBus.publish(ERROR_ADDRESS, details.getMessage())))
+                        .onComplete(promise);
+            });
+
+            return promise.future();
+        }
     }
 }
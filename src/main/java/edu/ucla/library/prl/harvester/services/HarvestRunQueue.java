@@ -0,0 +1,302 @@
+
+package edu.ucla.library.prl.harvester.services;
+
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.util.Map;
+import java.util.Optional;
+
+import io.vavr.Tuple;
+import io.vavr.Tuple2;
+
+import io.vertx.core.Future;
+import io.vertx.sqlclient.Pool;
+import io.vertx.sqlclient.Row;
+import io.vertx.sqlclient.RowSet;
+import io.vertx.sqlclient.SqlConnection;
+import io.vertx.sqlclient.templates.SqlTemplate;
+
+/**
+ * A queue of harvest runs, stored in the database so that it can be shared by any number of nodes.
+ * <p>
+ * Every node's scheduler enqueues each run of a job when it becomes due; since a run is identified by its job and due
+ * time, a run is only enqueued once no matter how many nodes enqueue it. Workers lease runs with
+ * {@code FOR UPDATE SKIP LOCKED}, so that no two workers lease the same run, and renew their lease with heartbeats
+ * while the run is in progress. If a worker dies, its lease expires and another worker picks the run up, up to a
+ * maximum number of attempts. A job has at most one run waiting to be leased, and no two runs of a job are leased at
+ * once, so runs that overlap are coalesced.
+ * <p>
+ * Since a check for another run of the same job can't see a run that a concurrent transaction is inserting or leasing,
+ * enqueuing and leasing a run of a job are serialized by a transaction-level advisory lock on the job's ID.
+ * <p>
+ * Completed and abandoned runs are kept for a while, and then purged (see {@link #purgeCompletedRuns(Duration)}).
+ */
+public final class HarvestRunQueue {
+
+    /**
+     * The query that takes the advisory lock on a job's runs, until the end of the transaction.
+     */
+    private static final String LOCK_JOB = """
+        SELECT pg_advisory_xact_lock(hashtext('public.harvestruns'), #{jobID})
+        """;
+
+    /**
+     * The insert query for runs, which does nothing if the run is already in the queue, or if another run of the job is
+     * waiting to be leased (so that runs that become due while a job is backed up are coalesced into one).
+     */
+    private static final String ENQUEUE = """
+        INSERT INTO public.harvestruns (jobID, dueAt)
+        SELECT #{jobID}::INT, #{dueAt}::TIMESTAMPTZ
+        WHERE NOT EXISTS (
+            SELECT 1
+            FROM public.harvestruns
+            WHERE jobID = #{jobID} AND completedAt IS NULL AND leaseExpiresAt IS NULL
+        )
+        ON CONFLICT (jobID, dueAt) DO NOTHING
+        """;
+
+    /**
+     * The query that finds (and locks) the earliest due run that isn't leased or completed, skipping runs of jobs that
+     * already have a run in progress.
+     */
+    private static final String FIND_DUE_RUN = """
+        SELECT id, jobID AS "jobID"
+        FROM public.harvestruns AS run
+        WHERE completedAt IS NULL AND dueAt <= now() AND attempts < #{maxAttempts}
+            AND (leaseExpiresAt IS NULL OR leaseExpiresAt < now())
+            AND NOT EXISTS (
+                SELECT 1
+                FROM public.harvestruns AS other
+                WHERE other.jobID = run.jobID AND other.id <> run.id AND other.completedAt IS NULL
+                    AND other.leaseExpiresAt >= now()
+            )
+        ORDER BY dueAt
+        LIMIT 1
+        FOR UPDATE SKIP LOCKED
+        """;
+
+    /**
+     * The query that leases a run that was found to be due, unless another run of its job was leased in the meantime.
+     */
+    private static final String LEASE = """
+        UPDATE public.harvestruns AS run
+        SET leasedBy = #{workerID}, leaseExpiresAt = now() + make_interval(secs => #{leaseSeconds}),
+            attempts = attempts + 1
+        WHERE id = #{id} AND NOT EXISTS (
+            SELECT 1
+            FROM public.harvestruns AS other
+            WHERE other.jobID = run.jobID AND other.id <> run.id AND other.completedAt IS NULL
+                AND other.leaseExpiresAt >= now()
+        )
+        RETURNING id, jobID AS "jobID"
+        """;
+
+    /**
+     * The query that renews the lease on a run.
+     */
+    private static final String HEARTBEAT = """
+        UPDATE public.harvestruns
+        SET leaseExpiresAt = now() + make_interval(secs => #{leaseSeconds})
+        WHERE id = #{id} AND leasedBy = #{workerID} AND completedAt IS NULL
+        """;
+
+    /**
+     * The query that marks a leased run as completed.
+     */
+    private static final String COMPLETE = """
+        UPDATE public.harvestruns
+        SET completedAt = now(), succeeded = #{succeeded}
+        WHERE id = #{id} AND leasedBy = #{workerID} AND completedAt IS NULL
+        """;
+
+    /**
+     * The query that gives up on runs whose every attempt has expired.
+     */
+    private static final String ABANDON = """
+        UPDATE public.harvestruns
+        SET completedAt = now(), succeeded = false
+        WHERE completedAt IS NULL AND attempts >= #{maxAttempts} AND leaseExpiresAt < now()
+        """;
+
+    /**
+     * The query that deletes runs that were completed (or abandoned) before the retention period.
+     */
+    private static final String PURGE = """
+        DELETE FROM public.harvestruns
+        WHERE completedAt < now() - make_interval(secs => #{retentionSeconds})
+        """;
+
+    /**
+     * The number of times a run may be leased before it's abandoned.
+     */
+    private static final int MAX_ATTEMPTS = 3;
+
+    /**
+     * The name of the run ID template parameter.
+     */
+    private static final String ID = "id";
+
+    /**
+     * The name of the job ID template parameter.
+     */
+    private static final String JOB_ID = "jobID";
+
+    /**
+     * The name of the worker ID template parameter.
+     */
+    private static final String WORKER_ID = "workerID";
+
+    /**
+     * The name of the lease duration template parameter.
+     */
+    private static final String LEASE_SECONDS = "leaseSeconds";
+
+    /**
+     * The name of the max attempts template parameter.
+     */
+    private static final String MAX_ATTEMPTS_PARAM = "maxAttempts";
+
+    /**
+     * The underlying database connection pool.
+     */
+    private final Pool myDbConnectionPool;
+
+    /**
+     * Creates a queue backed by the given database.
+     *
+     * @param aDbConnectionPool A database connection pool
+     */
+    public HarvestRunQueue(final Pool aDbConnectionPool) {
+        myDbConnectionPool = aDbConnectionPool;
+    }
+
+    /**
+     * Enqueues a run of a harvest job, unless it's already in the queue or another run of the job is waiting.
+     *
+     * @param aJobID The ID of the job
+     * @param aDueAt The time when the run became due
+     * @return A Future that resolves to whether the run was enqueued by this call
+     */
+    public Future<Boolean> enqueue(final int aJobID, final OffsetDateTime aDueAt) {
+        return myDbConnectionPool.withTransaction(connection -> {
+            return lockJob(connection, aJobID).compose(nil -> {
+                return SqlTemplate.forUpdate(connection, ENQUEUE).execute(Map.of(JOB_ID, aJobID, "dueAt", aDueAt));
+            });
+        }).map(insert -> insert.rowCount() == 1);
+    }
+
+    /**
+     * Leases the earliest due run in the queue.
+     *
+     * @param aWorkerID The ID of the worker that the lease is for
+     * @param aLeaseDuration How long the lease lasts unless it's renewed
+     * @return A Future that resolves to a 2-tuple containing the ID of the run and the ID of its job, or to an empty
+     *         Optional if there's nothing to do
+     */
+    public Future<Optional<Tuple2<Long, Integer>>> lease(final String aWorkerID, final Duration aLeaseDuration) {
+        return myDbConnectionPool.withTransaction(connection -> {
+            return SqlTemplate.forQuery(connection, FIND_DUE_RUN).execute(Map.of(MAX_ATTEMPTS_PARAM, MAX_ATTEMPTS))
+                    .map(HarvestRunQueue::getLeasedRun).compose(dueRun -> {
+                        if (dueRun.isEmpty()) {
+                            return Future.succeededFuture(Optional.<Tuple2<Long, Integer>>empty());
+                        }
+
+                        // Once the job is locked, this statement sees any lease that a concurrent transaction made
+                        return lockJob(connection, dueRun.get()._2()).compose(nil -> {
+                            return SqlTemplate.forQuery(connection, LEASE).execute(Map.of(ID, dueRun.get()._1(),
+                                    WORKER_ID, aWorkerID, LEASE_SECONDS, getSeconds(aLeaseDuration)));
+                        }).map(HarvestRunQueue::getLeasedRun);
+                    });
+        });
+    }
+
+    /**
+     * Renews the lease on a run.
+     *
+     * @param aRunID The ID of the run
+     * @param aWorkerID The ID of the worker that holds the lease
+     * @param aLeaseDuration How long the renewed lease lasts
+     * @return A Future that resolves to whether the worker still holds the lease
+     */
+    public Future<Boolean> heartbeat(final long aRunID, final String aWorkerID, final Duration aLeaseDuration) {
+        return myDbConnectionPool.withConnection(connection -> {
+            return SqlTemplate.forUpdate(connection, HEARTBEAT)
+                    .execute(Map.of(ID, aRunID, WORKER_ID, aWorkerID, LEASE_SECONDS, getSeconds(aLeaseDuration)));
+        }).map(update -> update.rowCount() == 1);
+    }
+
+    /**
+     * Marks a leased run as completed.
+     *
+     * @param aRunID The ID of the run
+     * @param aWorkerID The ID of the worker that holds the lease
+     * @param aSucceeded Whether the run succeeded
+     * @return A Future that resolves to whether the worker still held the lease
+     */
+    public Future<Boolean> complete(final long aRunID, final String aWorkerID, final boolean aSucceeded) {
+        return myDbConnectionPool.withConnection(connection -> {
+            return SqlTemplate.forUpdate(connection, COMPLETE)
+                    .execute(Map.of(ID, aRunID, WORKER_ID, aWorkerID, "succeeded", aSucceeded));
+        }).map(update -> update.rowCount() == 1);
+    }
+
+    /**
+     * Gives up on runs that have been leased the maximum number of times without being completed.
+     *
+     * @return A Future that resolves to the number of runs that were abandoned
+     */
+    public Future<Integer> abandonExpiredRuns() {
+        return myDbConnectionPool.withConnection(connection -> {
+            return SqlTemplate.forUpdate(connection, ABANDON).execute(Map.of(MAX_ATTEMPTS_PARAM, MAX_ATTEMPTS));
+        }).map(update -> update.rowCount());
+    }
+
+    /**
+     * Deletes the runs that were completed (or abandoned) more than a retention period ago, so that the queue doesn't
+     * grow with every run. The retention period must be longer than a run can take to be enqueued after it became due,
+     * since a deleted run would be enqueued again by a node that enqueues it late.
+     *
+     * @param aRetention How long completed runs are kept
+     * @return A Future that resolves to the number of runs that were deleted
+     */
+    public Future<Integer> purgeCompletedRuns(final Duration aRetention) {
+        return myDbConnectionPool.withConnection(connection -> {
+            return SqlTemplate.forUpdate(connection, PURGE).execute(Map.of("retentionSeconds", getSeconds(aRetention)));
+        }).map(delete -> delete.rowCount());
+    }
+
+    /**
+     * Takes the advisory lock on a job's runs, which is held until the end of the transaction.
+     *
+     * @param aConnection A database connection, in a transaction
+     * @param aJobID The ID of the job
+     * @return A Future that succeeds once the lock is held
+     */
+    private static Future<Void> lockJob(final SqlConnection aConnection, final int aJobID) {
+        return SqlTemplate.forQuery(aConnection, LOCK_JOB).execute(Map.of(JOB_ID, aJobID)).mapEmpty();
+    }
+
+    /**
+     * @param aRows The rows returned by the lease query (or the query that finds a due run)
+     * @return A 2-tuple containing the ID of the leased run and the ID of its job, if a run was leased (or found)
+     */
+    private static Optional<Tuple2<Long, Integer>> getLeasedRun(final RowSet<Row> aRows) {
+        final Row row;
+
+        if (aRows.size() == 0) {
+            return Optional.empty();
+        }
+
+        row = aRows.iterator().next();
+
+        return Optional.of(Tuple.of(row.getLong(ID), row.getInteger(JOB_ID)));
+    }
+
+    /**
+     * @param aDuration A duration
+     * @return The duration in (fractional) seconds
+     */
+    private static double getSeconds(final Duration aDuration) {
+        return aDuration.toMillis() / 1000.0;
+    }
+}
@@ -0,0 +1,228 @@
+
+package edu.ucla.library.prl.harvester.services;
+
+import java.time.Duration;
+import java.util.UUID;
+
+import edu.ucla.library.prl.harvester.MessageCodes;
+import edu.ucla.library.prl.harvester.Tracing;
+
+import info.freelibrary.util.Logger;
+import info.freelibrary.util.LoggerFactory;
+
+import io.opentelemetry.api.common.AttributeKey;
+import io.opentelemetry.api.trace.SpanBuilder;
+
+import io.vertx.core.Future;
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonObject;
+
+/**
+ * Runs the harvests in a {@link HarvestRunQueue}, one at a time.
+ * <p>
+ * Job results and errors are published to the same event bus addresses as when the scheduler runs harvests itself
+ * (see {@link HarvestJobSchedulerService#JOB_RESULT_ADDRESS} and {@link HarvestJobSchedulerService#ERROR_ADDRESS}).
+ */
+public final class HarvestRunWorker {
+
+    /**
+     * A logger.
+     */
+    private static final Logger LOGGER = LoggerFactory.getLogger(HarvestRunWorker.class, MessageCodes.BUNDLE);
+
+    /**
+     * How often to check the queue for due runs, while idle (in milliseconds).
+     */
+    private static final long POLL_INTERVAL = 5000;
+
+    /**
+     * How long a lease lasts unless it's renewed.
+     */
+    private static final Duration LEASE_DURATION = Duration.ofMinutes(1);
+
+    /**
+     * How often to renew the lease on the run in progress (in milliseconds).
+     */
+    private static final long HEARTBEAT_INTERVAL = LEASE_DURATION.toMillis() / 3;
+
+    /**
+     * How long completed (and abandoned) runs are kept in the queue before they're purged.
+     */
+    private static final Duration RUN_RETENTION = Duration.ofDays(7);
+
+    /**
+     * How often to purge completed runs from the queue (in milliseconds).
+     */
+    private static final long PURGE_INTERVAL = Duration.ofHours(1).toMillis();
+
+    /**
+     * The name of the span of a queued harvest run.
+     */
+    private static final String RUN_HARVEST_SPAN = "HarvestRunWorker.run";
+
+    /**
+     * The attribute for the ID of a queued harvest run.
+     */
+    private static final AttributeKey<Long> RUN_ID = AttributeKey.longKey("prl.run.id");
+
+    /**
+     * A Vert.x instance.
+     */
+    private final Vertx myVertx;
+
+    /**
+     * The queue to take runs from.
+     */
+    private final HarvestRunQueue myQueue;
+
+    /**
+     * A proxy to the harvest service, for running jobs.
+     */
+    private final HarvestService myHarvestService;
+
+    /**
+     * A proxy to the harvest schedule store service, for looking up jobs.
+     */
+    private final HarvestScheduleStoreService myHarvestScheduleStoreService;
+
+    /**
+     * The unique ID of this worker.
+     */
+    private final String myWorkerID = UUID.randomUUID().toString();
+
+    /**
+     * The ID of the polling timer.
+     */
+    private long myTimerID;
+
+    /**
+     * Whether a run is currently being leased or run.
+     */
+    private boolean myIsBusy;
+
+    /**
+     * The time that completed runs were last purged from the queue (in milliseconds since the epoch).
+     */
+    private long myLastPurgeTime;
+
+    /**
+     * Creates a worker.
+     *
+     * @param aVertx A Vert.x instance
+     * @param aQueue The queue to take runs from
+     * @param aConfig A configuration
+     */
+    public HarvestRunWorker(final Vertx aVertx, final HarvestRunQueue aQueue, final JsonObject aConfig) {
+        myVertx = aVertx;
+        myQueue = aQueue;
+        myHarvestService = HarvestService.createProxy(aVertx, aConfig);
+        myHarvestScheduleStoreService = HarvestScheduleStoreService.createProxy(aVertx);
+    }
+
+    /**
+     * Starts taking runs from the queue.
+     */
+    public void start() {
+        myTimerID = myVertx.setPeriodic(POLL_INTERVAL, timerID -> poll());
+    }
+
+    /**
+     * Stops taking runs from the queue; a run in progress is completed, or else its lease expires.
+     */
+    public void stop() {
+        myVertx.cancelTimer(myTimerID);
+    }
+
+    /**
+     * Leases and runs the next due run, and keeps going until there are none left.
+     */
+    private void poll() {
+        if (myIsBusy) {
+            return;
+        }
+
+        myIsBusy = true;
+
+        myQueue.abandonExpiredRuns().compose(abandonedCount -> {
+            if (abandonedCount > 0) {
+                LOGGER.warn(MessageCodes.PRL_066, abandonedCount);
+            }
+
+            return purgeCompletedRuns();
+        }).compose(nil -> myQueue.lease(myWorkerID, LEASE_DURATION)).compose(leasedRun -> {
+            if (leasedRun.isEmpty()) {
+                return Future.succeededFuture(false);
+            }
+
+            return run(leasedRun.get()._1(), leasedRun.get()._2()).map(true);
+        }).onComplete(result -> {
+            myIsBusy = false;
+
+            if (result.failed()) {
+                LOGGER.error(MessageCodes.PRL_067, result.cause().getMessage());
+            } else if (result.result()) {
+                // There may be more due runs waiting
+                poll();
+            }
+        });
+    }
+
+    /**
+     * Purges the runs that were completed before the retention period from the queue, unless that was done recently.
+     *
+     * @return A Future that succeeds once the runs have been purged
+     */
+    private Future<Void> purgeCompletedRuns() {
+        final long now = System.currentTimeMillis();
+
+        if (now - myLastPurgeTime < PURGE_INTERVAL) {
+            return Future.succeededFuture();
+        }
+
+        myLastPurgeTime = now;
+
+        return myQueue.purgeCompletedRuns(RUN_RETENTION).onSuccess(purgedCount -> {
+            if (purgedCount > 0) {
+                LOGGER.debug(MessageCodes.PRL_107, purgedCount, RUN_RETENTION.toDays());
+            }
+        }).mapEmpty();
+    }
+
+    /**
+     * Runs a leased harvest run, renewing the lease until it's done.
+     *
+     * @param aRunID The ID of the run
+     * @param aJobID The ID of the run's job
+     * @return A Future that succeeds once the run has been marked as completed
+     */
+    private Future<Void> run(final long aRunID, final int aJobID) {
+        final SpanBuilder span = Tracing.spanBuilder(RUN_HARVEST_SPAN).setAttribute(Tracing.JOB_ID, (long) aJobID)
+                .setAttribute(RUN_ID, aRunID);
+        final long heartbeatTimerID = myVertx.setPeriodic(HEARTBEAT_INTERVAL, timerID -> {
+            myQueue.heartbeat(aRunID, myWorkerID, LEASE_DURATION).onSuccess(isLeaseHeld -> {
+                if (!isLeaseHeld) {
+                    // Another worker may have leased the run (or another run of the job), so this one must stop
+                    LOGGER.warn(MessageCodes.PRL_068, aRunID, aJobID);
+                    myVertx.cancelTimer(timerID);
+                    myVertx.eventBus().publish(HarvestService.CANCEL_ADDRESS, aJobID);
+                }
+            });
+        });
+
+        LOGGER.info(MessageCodes.PRL_069, aRunID, aJobID, myWorkerID);
+
+        // The result is published while the run's span is current, so that its consumers are traced too
+        return Tracing.trace(span, runSpan -> myHarvestScheduleStoreService.getJob(aJobID)
+                .compose(myHarvestService::run).compose(jobResult -> {
+                    myVertx.eventBus().publish(HarvestJobSchedulerService.JOB_RESULT_ADDRESS, jobResult.toJson());
+                    return Future.succeededFuture(true);
+                }, details -> {
+                    myVertx.eventBus().publish(HarvestJobSchedulerService.ERROR_ADDRESS, details.getMessage());
+                    return Future.succeededFuture(false);
+                })).compose(succeeded -> {
+            myVertx.cancelTimer(heartbeatTimerID);
+
+            return myQueue.complete(aRunID, myWorkerID, succeeded);
+        }).onFailure(details -> myVertx.cancelTimer(heartbeatTimerID)).mapEmpty();
+    }
+}
@@ -2,10 +2,12 @@
 package edu.ucla.library.prl.harvester.services;
 
 import java.util.List;
+import java.util.function.Function;
 
 import edu.ucla.library.prl.harvester.Config;
 import edu.ucla.library.prl.harvester.Institution;
 import edu.ucla.library.prl.harvester.Job;
+import edu.ucla.library.prl.harvester.JobResult;
 
 import io.vertx.codegen.annotations.GenIgnore;
 import io.vertx.codegen.annotations.ProxyClose;
@@ -13,7 +15,9 @@ import io.vertx.codegen.annotations.ProxyGen;
 import io.vertx.codegen.annotations.VertxGen;
 import io.vertx.core.Future;
 import io.vertx.core.Vertx;
+import io.vertx.core.buffer.Buffer;
 import io.vertx.core.json.JsonObject;
+import io.vertx.core.streams.WriteStream;
 import io.vertx.pgclient.PgConnectOptions;
 import io.vertx.pgclient.PgPool;
 import io.vertx.serviceproxy.ServiceException;
@@ -44,6 +48,20 @@ public interface HarvestScheduleStoreService {
         return new HarvestScheduleStoreServiceImpl(aVertx, aDbConnectionPool);
     }
 
+    /**
+     * Creates an instance of the service, which caches institutions and jobs if the configuration says to.
+     *
+     * @param aVertx A Vert.x instance
+     * @param aDbConnectionPool A database connection pool
+     * @param aConfig A configuration
+     * @return The service instance
+     */
+    @GenIgnore
+    static HarvestScheduleStoreService create(final Vertx aVertx, final Pool aDbConnectionPool,
+            final JsonObject aConfig) {
+        return new HarvestScheduleStoreServiceImpl(aVertx, aDbConnectionPool, aConfig);
+    }
+
     /**
      * Creates an instance of the service proxy.
      *
@@ -70,6 +88,16 @@ public interface HarvestScheduleStoreService {
      */
     Future<List<Institution>> listInstitutions();
 
+    /**
+     * Gets a page of institutions, ordered by ID.
+     *
+     * @param anAfterId The ID that the IDs of the institutions must be greater than (i.e. the ID of the last
+     *        institution on the previous page, or zero for the first page)
+     * @param aLimit The max number of institutions to get
+     * @return A Future that succeeds with a list of institutions (if any)
+     */
+    Future<List<Institution>> listInstitutionsAfter(int anAfterId, int aLimit);
+
     /**
      * Adds a list of institutions.
      *
@@ -95,6 +123,15 @@ public interface HarvestScheduleStoreService {
      */
     Future<Void> removeInstitution(Integer anInstitutionId);
 
+    /**
+     * Removes an institution and all of its harvest jobs at once.
+     *
+     * @param anInstitutionId The unique local ID for the institution
+     * @return A Future that succeeds, with the list of the IDs of the removed harvest jobs, if the institution was
+     *         removed
+     */
+    Future<List<Integer>> removeInstitutionCascade(int anInstitutionId);
+
     /**
      * Gets a harvest job.
      *
@@ -111,6 +148,25 @@ public interface HarvestScheduleStoreService {
      */
     Future<List<Job>> listJobs();
 
+    /**
+     * Gets a page of harvest jobs, ordered by ID.
+     *
+     * @param anAfterId The ID that the IDs of the jobs must be greater than (i.e. the ID of the last job on the
+     *        previous page, or zero for the first page)
+     * @param aLimit The max number of jobs to get
+     * @return A Future that succeeds with a list of harvest jobs (if any)
+     */
+    Future<List<Job>> listJobsAfter(int anAfterId, int aLimit);
+
+    /**
+     * Gets the list of the harvest jobs of an institution.
+     *
+     * @param anInstitutionId The unique local ID for the institution
+     * @return A Future that succeeds with a list of the institution's harvest jobs (if any); these jobs must each have
+     *         a {@link Job#ID} key
+     */
+    Future<List<Job>> listJobsByInstitution(int anInstitutionId);
+
     /**
      * Adds a list of harvest jobs.
      *
@@ -136,6 +192,15 @@ public interface HarvestScheduleStoreService {
      */
     Future<Void> removeJob(int aJobId);
 
+    /**
+     * Sets the last successful run of each of the given jobs to the start time of its job result, unless the job's last
+     * successful run is already at or after that time.
+     *
+     * @param aJobResults The results of successful job runs
+     * @return A Future that succeeds if the update was successful (whether or not any job was changed)
+     */
+    Future<Void> updateLastSuccessfulRuns(List<JobResult> aJobResults);
+
     /**
      * Closes the underlying resources used by this service.
      *
@@ -144,6 +209,39 @@ public interface HarvestScheduleStoreService {
     @ProxyClose
     Future<Void> close();
 
+    /**
+     * Streams all institutions to a write stream as a JSON array, reading them from the database as they're written
+     * instead of all at once. Since the rows don't pass through the event bus, this can't be done via service proxies.
+     *
+     * @param aDbConnectionPool A database connection pool
+     * @param aWriteStream A write stream (e.g. a chunked HTTP response)
+     * @param aCancellation A Future that fails if the write stream is closed or fails before the whole array has been
+     *        written, which stops the rows from being read
+     * @return A Future that succeeds once the whole array has been written (but the write stream hasn't been ended)
+     */
+    @GenIgnore
+    static Future<Void> streamInstitutions(final Pool aDbConnectionPool, final WriteStream<Buffer> aWriteStream,
+            final Future<Void> aCancellation) {
+        return HarvestScheduleStoreServiceImpl.streamInstitutions(aDbConnectionPool, aWriteStream, aCancellation);
+    }
+
+    /**
+     * Streams all harvest jobs to a write stream as a JSON array, reading them from the database as they're written
+     * instead of all at once. Since the rows don't pass through the event bus, this can't be done via service proxies.
+     *
+     * @param aDbConnectionPool A database connection pool
+     * @param aToJson A function that gets the JSON representation of a job
+     * @param aWriteStream A write stream (e.g. a chunked HTTP response)
+     * @param aCancellation A Future that fails if the write stream is closed or fails before the whole array has been
+     *        written, which stops the rows from being read
+     * @return A Future that succeeds once the whole array has been written (but the write stream hasn't been ended)
+     */
+    @GenIgnore
+    static Future<Void> streamJobs(final Pool aDbConnectionPool, final Function<Job, JsonObject> aToJson,
+            final WriteStream<Buffer> aWriteStream, final Future<Void> aCancellation) {
+        return HarvestScheduleStoreServiceImpl.streamJobs(aDbConnectionPool, aToJson, aWriteStream, aCancellation);
+    }
+
     /**
      * @param aVertx A Vert.x instance
      * @param aConfig A configuration
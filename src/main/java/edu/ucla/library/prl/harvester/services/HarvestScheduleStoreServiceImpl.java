@@ -4,24 +4,38 @@ package edu.ucla.library.prl.harvester.services;
 import info.freelibrary.util.Logger;
 import info.freelibrary.util.LoggerFactory;
 
+import java.time.OffsetDateTime;
+import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
 
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
 
+import edu.ucla.library.prl.harvester.Config;
 import edu.ucla.library.prl.harvester.Institution;
 import edu.ucla.library.prl.harvester.Job;
 import edu.ucla.library.prl.harvester.JobResult;
 import edu.ucla.library.prl.harvester.MessageCodes;
 
 import io.vertx.core.Future;
+import io.vertx.core.Promise;
 import io.vertx.core.Vertx;
+import io.vertx.core.buffer.Buffer;
 import io.vertx.core.eventbus.MessageConsumer;
 import io.vertx.core.json.JsonObject;
 import io.vertx.core.json.jackson.DatabindCodec;
+import io.vertx.core.streams.WriteStream;
+import io.vertx.pgclient.PgConnectOptions;
+import io.vertx.pgclient.pubsub.PgChannel;
+import io.vertx.pgclient.pubsub.PgSubscriber;
+import io.vertx.sqlclient.Row;
 import io.vertx.sqlclient.RowIterator;
 import io.vertx.sqlclient.RowSet;
+import io.vertx.sqlclient.RowStream;
 import io.vertx.sqlclient.Pool;
 import io.vertx.sqlclient.SqlResult;
 import io.vertx.sqlclient.templates.RowMapper;
@@ -30,6 +44,11 @@ import io.vertx.sqlclient.templates.TupleMapper;
 
 /**
  * The implementation of {@link HarvestScheduleStoreService}.
+ * <p>
+ * If it's configured with a cache size, institutions and jobs are cached by ID. The cache is invalidated by this
+ * service's own writes, and by the notifications that the database sends on {@link #CHANGES_CHANNEL} whenever an
+ * institution or job is updated or deleted (by any node). The cache is only used while this service is listening for
+ * those notifications.
  */
 public class HarvestScheduleStoreServiceImpl implements HarvestScheduleStoreService {
 
@@ -56,14 +75,50 @@ public class HarvestScheduleStoreServiceImpl implements HarvestScheduleStoreServ
     private static final TupleMapper<Integer> ID_TO_TUPLE = TupleMapper.mapper(id -> Map.of("id", id));
 
     /**
-     * A row mapper for {@link Institution}.
+     * A row mapper for {@link Institution}, which trusts the values that were validated when they were stored.
      */
-    private static final RowMapper<Institution> INST_FROM_ROW = row -> new Institution(row.toJson());
+    private static final RowMapper<Institution> INST_FROM_ROW = Institution::fromRow;
 
     /**
-     * A row mapper for {@link Job}.
+     * A row mapper for {@link Job}, which trusts the values that were validated when they were stored.
      */
-    private static final RowMapper<Job> JOB_FROM_ROW = row -> new Job(row.toJson());
+    private static final RowMapper<Job> JOB_FROM_ROW = Job::fromRow;
+
+    /**
+     * The database notification channel for changes to institutions and jobs; each payload is the name of the changed
+     * table and the ID of the changed row, separated by a colon.
+     */
+    private static final String CHANGES_CHANNEL = "prl_store_changes";
+
+    /**
+     * The name of the institutions table, as it appears in change notifications.
+     */
+    private static final String INSTITUTIONS_TABLE = "institutions";
+
+    /**
+     * The name of the jobs table, as it appears in change notifications.
+     */
+    private static final String JOBS_TABLE = "harvestjobs";
+
+    /**
+     * How long to wait before reconnecting, after losing the connection that listens for changes (in milliseconds).
+     */
+    private static final long CHANGES_RECONNECT_INTERVAL = 1000;
+
+    /**
+     * How long to collect job results before recording them all at once (in milliseconds).
+     */
+    private static final long JOB_RESULTS_FLUSH_DELAY = 250;
+
+    /**
+     * The max number of jobs whose job results are collected before they're recorded, regardless of the delay.
+     */
+    private static final int JOB_RESULTS_MAX_BATCH_SIZE = 500;
+
+    /**
+     * The number of rows to fetch at a time when streaming a list of institutions or jobs.
+     */
+    private static final int STREAM_FETCH_SIZE = 100;
 
     /**
      * The select-one query for institutions.
@@ -92,11 +147,37 @@ public class HarvestScheduleStoreServiceImpl implements HarvestScheduleStoreServ
         ORDER BY name
         """;
 
+    /**
+     * The select query for a page of institutions, ordered by ID.
+     */
+    private static final String LIST_INSTS_PAGE = """
+        SELECT id, name, description, location, email, phone, webContact AS "webContact", website
+        FROM public.institutions
+        WHERE id > #{after}
+        ORDER BY id
+        LIMIT #{limit}
+        """;
+
     /**
      * The delete query for an institution.
      */
     private static final String DEL_INST = "DELETE FROM public.institutions WHERE id = #{id}";
 
+    /**
+     * The delete query for an institution and all of its jobs, which returns a row for each deleted job (or a single
+     * row with a null job ID, if the institution had no jobs), or no rows if there's no such institution. Being a
+     * single statement, it's atomic.
+     */
+    private static final String DEL_INST_CASCADE = """
+        WITH deletedJobs AS (
+            DELETE FROM public.harvestjobs WHERE institutionID = #{id} RETURNING id
+        ), deletedInstitution AS (
+            DELETE FROM public.institutions WHERE id = #{id} RETURNING id
+        )
+        SELECT deletedJobs.id AS "jobID"
+        FROM deletedInstitution LEFT JOIN deletedJobs ON TRUE
+        """;
+
     /**
      * The update query for an institution.
      */
@@ -114,7 +195,7 @@ public class HarvestScheduleStoreServiceImpl implements HarvestScheduleStoreServ
         SELECT
             id, institutionID AS "institutionID", repositoryBaseURL AS "repositoryBaseURL",
             metadataPrefix AS "metadataPrefix", sets, lastSuccessfulRun AS "lastSuccessfulRun",
-            scheduleCronExpression AS "scheduleCronExpression"
+            scheduleCronExpression AS "scheduleCronExpression", scheduleJitterWindow AS "scheduleJitterWindow"
         FROM public.harvestjobs
         WHERE id = #{id}
         """;
@@ -124,16 +205,17 @@ public class HarvestScheduleStoreServiceImpl implements HarvestScheduleStoreServ
      */
     private static final String ADD_JOBS = """
         INSERT INTO public.harvestjobs (
-            institutionID, repositoryBaseURL, metadataPrefix, sets, lastSuccessfulRun, scheduleCronExpression
+            institutionID, repositoryBaseURL, metadataPrefix, sets, lastSuccessfulRun, scheduleCronExpression,
+            scheduleJitterWindow
         )
         VALUES (
             #{institutionID}, #{repositoryBaseURL}, #{metadataPrefix}, #{sets}, #{lastSuccessfulRun},
-            #{scheduleCronExpression}
+            #{scheduleCronExpression}, #{scheduleJitterWindow}
         )
         RETURNING
             id, institutionID AS "institutionID", repositoryBaseURL AS "repositoryBaseURL",
             metadataPrefix AS "metadataPrefix", sets, lastSuccessfulRun AS "lastSuccessfulRun",
-            scheduleCronExpression AS "scheduleCronExpression"
+            scheduleCronExpression AS "scheduleCronExpression", scheduleJitterWindow AS "scheduleJitterWindow"
         """;
 
     /**
@@ -143,11 +225,38 @@ public class HarvestScheduleStoreServiceImpl implements HarvestScheduleStoreServ
         SELECT
             id, institutionID AS "institutionID", repositoryBaseURL AS "repositoryBaseURL",
             metadataPrefix AS "metadataPrefix", sets, lastSuccessfulRun AS "lastSuccessfulRun",
-            scheduleCronExpression AS "scheduleCronExpression"
+            scheduleCronExpression AS "scheduleCronExpression", scheduleJitterWindow AS "scheduleJitterWindow"
         FROM public.harvestjobs
         ORDER BY "institutionID"
         """;
 
+    /**
+     * The select query for a page of jobs, ordered by ID.
+     */
+    private static final String LIST_JOBS_PAGE = """
+        SELECT
+            id, institutionID AS "institutionID", repositoryBaseURL AS "repositoryBaseURL",
+            metadataPrefix AS "metadataPrefix", sets, lastSuccessfulRun AS "lastSuccessfulRun",
+            scheduleCronExpression AS "scheduleCronExpression", scheduleJitterWindow AS "scheduleJitterWindow"
+        FROM public.harvestjobs
+        WHERE id > #{after}
+        ORDER BY id
+        LIMIT #{limit}
+        """;
+
+    /**
+     * The select-all query for the jobs of an institution.
+     */
+    private static final String LIST_INST_JOBS = """
+        SELECT
+            id, institutionID AS "institutionID", repositoryBaseURL AS "repositoryBaseURL",
+            metadataPrefix AS "metadataPrefix", sets, lastSuccessfulRun AS "lastSuccessfulRun",
+            scheduleCronExpression AS "scheduleCronExpression", scheduleJitterWindow AS "scheduleJitterWindow"
+        FROM public.harvestjobs
+        WHERE institutionID = #{id}
+        ORDER BY id
+        """;
+
     /**
      * The delete query for a job.
      */
@@ -160,10 +269,26 @@ public class HarvestScheduleStoreServiceImpl implements HarvestScheduleStoreServ
         UPDATE public.harvestjobs
         SET
         repositoryBaseURL = #{repositoryBaseURL}, sets = #{sets}, lastSuccessfulRun = #{lastSuccessfulRun},
-            scheduleCronExpression = #{scheduleCronExpression}
+            scheduleCronExpression = #{scheduleCronExpression}, scheduleJitterWindow = #{scheduleJitterWindow}
         WHERE id = #{id} AND institutionID = #{institutionID}
         """;
 
+    /**
+     * The update query for the last successful runs of jobs, which never moves a job's last successful run backwards
+     * (and so doesn't write anything for the job results that other nodes have already recorded).
+     */
+    private static final String UPDATE_LAST_SUCCESSFUL_RUNS = """
+        UPDATE public.harvestjobs
+        SET lastSuccessfulRun = results.startTime
+        FROM unnest(#{jobIDs}::INT[], #{startTimes}::TIMESTAMPTZ[]) AS results (jobID, startTime)
+        WHERE id = results.jobID AND (lastSuccessfulRun IS NULL OR lastSuccessfulRun < results.startTime)
+        """;
+
+    /**
+     * A Vert.x instance.
+     */
+    private final Vertx myVertx;
+
     /**
      * The underlying database connection pool.
      */
@@ -174,30 +299,173 @@ public class HarvestScheduleStoreServiceImpl implements HarvestScheduleStoreServ
      */
     private final MessageConsumer<JsonObject> myJobResultHandler;
 
+    /**
+     * The cache of institutions.
+     */
+    private final StoreCache<Institution> myInstitutionCache;
+
+    /**
+     * The cache of jobs.
+     */
+    private final StoreCache<Job> myJobCache;
+
+    /**
+     * The subscriber to change notifications, which is only present if caching is enabled.
+     */
+    private final Optional<PgSubscriber> myChangesSubscriber;
+
+    /**
+     * The job results that haven't been recorded yet, with only the latest one for each job; it's only accessed on
+     * the context that the job result handler was registered on.
+     */
+    private final Map<Integer, JobResult> myPendingJobResults = new HashMap<>();
+
+    /**
+     * The ID of the timer that records the pending job results, if one is set.
+     */
+    private Optional<Long> myJobResultsFlushTimerID = Optional.empty();
+
     // See: https://vertx.io/docs/vertx-sql-client-templates/java/#_mapping_with_jackson_databind
     static {
         DatabindCodec.mapper().registerModule(new JavaTimeModule());
     }
 
     HarvestScheduleStoreServiceImpl(final Vertx aVertx, final Pool aDbConnectionPool) {
+        this(aVertx, aDbConnectionPool, new JsonObject().put(Config.STORE_CACHE_SIZE, 0));
+    }
+
+    HarvestScheduleStoreServiceImpl(final Vertx aVertx, final Pool aDbConnectionPool, final JsonObject aConfig) {
+        final int cacheSize = Config.getStoreCacheSize(aConfig);
+
+        myVertx = aVertx;
         myDbConnectionPool = aDbConnectionPool;
+        myInstitutionCache = new StoreCache<>(cacheSize);
+        myJobCache = new StoreCache<>(cacheSize);
+
+        if (cacheSize > 0) {
+            myChangesSubscriber = Optional.of(listenForChanges(aVertx));
+        } else {
+            myChangesSubscriber = Optional.empty();
+        }
 
         // Listen for completed jobs and update the database with the start time of the job's last successful run
         myJobResultHandler = aVertx.eventBus().consumer(HarvestJobSchedulerService.JOB_RESULT_ADDRESS, message -> {
-            final JobResult jobResult = new JobResult(message.body());
-            final int jobID = jobResult.getJobID();
+            addPendingJobResult(new JobResult(message.body()));
+        });
+    }
+
+    /**
+     * Holds on to a job result until the pending job results are recorded, so that a burst of them (e.g. from a wave
+     * of scheduled jobs) is recorded with a single statement.
+     *
+     * @param aJobResult A job result
+     */
+    private void addPendingJobResult(final JobResult aJobResult) {
+        myPendingJobResults.merge(aJobResult.getJobID(), aJobResult, (pending, latest) -> {
+            return pending.getStartTime().isAfter(latest.getStartTime()) ? pending : latest;
+        });
 
-            getJob(jobID).compose(job -> {
-                final Job withNewLastSuccessfulTime = new Job(job.getInstitutionID(), job.getRepositoryBaseURL(),
-                        job.getSets(), job.getScheduleCronExpression(), jobResult.getStartTime());
+        if (myPendingJobResults.size() >= JOB_RESULTS_MAX_BATCH_SIZE) {
+            flushPendingJobResults();
+        } else if (myJobResultsFlushTimerID.isEmpty()) {
+            myJobResultsFlushTimerID = Optional.of(myVertx.setTimer(JOB_RESULTS_FLUSH_DELAY, timerID -> {
+                myJobResultsFlushTimerID = Optional.empty();
+                flushPendingJobResults();
+            }));
+        }
+    }
 
-                return updateJob(jobID, withNewLastSuccessfulTime);
-            });
+    /**
+     * Records the pending job results.
+     *
+     * @return A Future that succeeds once the pending job results have been recorded (failures are logged)
+     */
+    private Future<Void> flushPendingJobResults() {
+        final List<JobResult> jobResults = List.copyOf(myPendingJobResults.values());
+
+        myJobResultsFlushTimerID.ifPresent(myVertx::cancelTimer);
+        myJobResultsFlushTimerID = Optional.empty();
+        myPendingJobResults.clear();
+
+        if (jobResults.isEmpty()) {
+            return Future.succeededFuture();
+        }
+
+        return updateLastSuccessfulRuns(jobResults).recover(details -> {
+            LOGGER.error(MessageCodes.PRL_076, jobResults.size(), details.getMessage());
+            return Future.succeededFuture();
         });
     }
 
+    /**
+     * Listens for changes to institutions and jobs, and enables the caches while doing so.
+     *
+     * @param aVertx A Vert.x instance
+     * @return The subscriber to change notifications
+     */
+    private PgSubscriber listenForChanges(final Vertx aVertx) {
+        final PgSubscriber subscriber = PgSubscriber.subscriber(aVertx, PgConnectOptions.fromEnv());
+        final PgChannel channel = subscriber.channel(CHANGES_CHANNEL);
+
+        // Changes may have been missed while not listening, so the caches start out empty whenever listening resumes
+        channel.subscribeHandler(nil -> setCachesEnabled(true));
+        channel.endHandler(nil -> setCachesEnabled(false));
+        channel.handler(this::handleChange);
+
+        // The reconnect policy is consulted whenever the connection is lost, so stop using the caches until then
+        subscriber.reconnectPolicy(retries -> {
+            setCachesEnabled(false);
+            return CHANGES_RECONNECT_INTERVAL;
+        }).connect().onFailure(details -> {
+            LOGGER.warn(MessageCodes.PRL_075, details.getMessage());
+        });
+
+        return subscriber;
+    }
+
+    /**
+     * @param anIsEnabled Whether the caches should be used
+     */
+    private void setCachesEnabled(final boolean anIsEnabled) {
+        myInstitutionCache.setEnabled(anIsEnabled);
+        myJobCache.setEnabled(anIsEnabled);
+    }
+
+    /**
+     * Invalidates the cached institution or job that a change notification is about.
+     *
+     * @param aPayload The payload of a change notification
+     */
+    private void handleChange(final String aPayload) {
+        final String[] tableAndID = aPayload.split(":", 2);
+
+        try {
+            final int id = Integer.parseInt(tableAndID[1]);
+
+            if (INSTITUTIONS_TABLE.equals(tableAndID[0])) {
+                myInstitutionCache.invalidate(id);
+            } else if (JOBS_TABLE.equals(tableAndID[0])) {
+                myJobCache.invalidate(id);
+            }
+        } catch (final NumberFormatException | ArrayIndexOutOfBoundsException details) {
+            // Don't know what changed, so assume that anything might have
+            myInstitutionCache.invalidateAll();
+            myJobCache.invalidateAll();
+        }
+    }
+
     @Override
     public Future<Institution> getInstitution(final Integer anInstitutionId) {
+        return myInstitutionCache.get(anInstitutionId, () -> selectInstitution(anInstitutionId));
+    }
+
+    /**
+     * Gets an institution from the database.
+     *
+     * @param anInstitutionId The ID of the institution
+     * @return A Future that resolves to the institution
+     */
+    private Future<Institution> selectInstitution(final Integer anInstitutionId) {
         final Future<RowSet<Institution>> queryExecution = myDbConnectionPool.withConnection(connection -> {
             return SqlTemplate.forQuery(connection, GET_INST).mapFrom(ID_TO_TUPLE).mapTo(INST_FROM_ROW)
                     .execute(anInstitutionId);
@@ -237,6 +505,19 @@ public class HarvestScheduleStoreServiceImpl implements HarvestScheduleStoreServ
         }).map(HarvestScheduleStoreServiceImpl::<Institution>mergeResults);
     }
 
+    @Override
+    public Future<List<Institution>> listInstitutionsAfter(final int anAfterId, final int aLimit) {
+        final Future<RowSet<Institution>> queryExecution = myDbConnectionPool.withConnection(connection -> {
+            return SqlTemplate.forQuery(connection, LIST_INSTS_PAGE).mapTo(INST_FROM_ROW)
+                    .execute(Map.of("after", anAfterId, "limit", aLimit));
+        });
+
+        return queryExecution.recover(error -> {
+            return Future
+                    .failedFuture(new HarvestScheduleStoreServiceException(Error.INTERNAL_ERROR, error.getMessage()));
+        }).map(HarvestScheduleStoreServiceImpl::<Institution>mergeResults);
+    }
+
     @Override
     public Future<List<Institution>> addInstitutions(final List<Institution> anInstitutions) {
         final Future<RowSet<Institution>> queryExecution;
@@ -266,7 +547,7 @@ public class HarvestScheduleStoreServiceImpl implements HarvestScheduleStoreServ
             final Institution institutionWithID = Institution.withID(anInstitution, anInstitutionId);
 
             return SqlTemplate.forUpdate(connection, UPDATE_INST).mapFrom(INST_TO_TUPLE).execute(institutionWithID);
-        });
+        }).onComplete(update -> myInstitutionCache.invalidate(anInstitutionId));
 
         return updateExecution.recover(error -> {
             return Future
@@ -284,7 +565,7 @@ public class HarvestScheduleStoreServiceImpl implements HarvestScheduleStoreServ
     public Future<Void> removeInstitution(final Integer anInstitutionId) {
         final Future<SqlResult<Void>> updateExecution = myDbConnectionPool.withConnection(connection -> {
             return SqlTemplate.forUpdate(connection, DEL_INST).mapFrom(ID_TO_TUPLE).execute(anInstitutionId);
-        });
+        }).onComplete(delete -> myInstitutionCache.invalidate(anInstitutionId));
 
         return updateExecution.recover(error -> {
             return Future
@@ -298,8 +579,48 @@ public class HarvestScheduleStoreServiceImpl implements HarvestScheduleStoreServ
         });
     }
 
+    @Override
+    public Future<List<Integer>> removeInstitutionCascade(final int anInstitutionId) {
+        final Future<RowSet<Row>> deleteExecution = myDbConnectionPool.withConnection(connection -> {
+            return SqlTemplate.forQuery(connection, DEL_INST_CASCADE).mapFrom(ID_TO_TUPLE).execute(anInstitutionId);
+        }).onComplete(delete -> myInstitutionCache.invalidate(anInstitutionId));
+
+        return deleteExecution.recover(error -> {
+            return Future
+                    .failedFuture(new HarvestScheduleStoreServiceException(Error.INTERNAL_ERROR, error.getMessage()));
+        }).compose(delete -> {
+            final List<Integer> jobIDs = new LinkedList<>();
+
+            if (delete.rowCount() == 0) {
+                return Future.failedFuture(new HarvestScheduleStoreServiceException(Error.NOT_FOUND,
+                        LOGGER.getMessage(MessageCodes.PRL_019, anInstitutionId)));
+            }
+
+            for (final Row row : delete) {
+                final Integer jobID = row.getInteger("jobID");
+
+                if (jobID != null) {
+                    myJobCache.invalidate(jobID);
+                    jobIDs.add(jobID);
+                }
+            }
+
+            return Future.succeededFuture(jobIDs);
+        });
+    }
+
     @Override
     public Future<Job> getJob(final int aJobId) {
+        return myJobCache.get(aJobId, () -> selectJob(aJobId));
+    }
+
+    /**
+     * Gets a job from the database.
+     *
+     * @param aJobId The ID of the job
+     * @return A Future that resolves to the job
+     */
+    private Future<Job> selectJob(final int aJobId) {
         final Future<RowSet<Job>> queryExecution = myDbConnectionPool.withConnection(connection -> {
             return SqlTemplate.forQuery(connection, GET_JOB).mapFrom(ID_TO_TUPLE).mapTo(JOB_FROM_ROW).execute(aJobId);
         });
@@ -328,6 +649,32 @@ public class HarvestScheduleStoreServiceImpl implements HarvestScheduleStoreServ
         }).map(HarvestScheduleStoreServiceImpl::<Job>mergeResults);
     }
 
+    @Override
+    public Future<List<Job>> listJobsAfter(final int anAfterId, final int aLimit) {
+        final Future<RowSet<Job>> queryExecution = myDbConnectionPool.withConnection(connection -> {
+            return SqlTemplate.forQuery(connection, LIST_JOBS_PAGE).mapTo(JOB_FROM_ROW)
+                    .execute(Map.of("after", anAfterId, "limit", aLimit));
+        });
+
+        return queryExecution.recover(error -> {
+            return Future
+                    .failedFuture(new HarvestScheduleStoreServiceException(Error.INTERNAL_ERROR, error.getMessage()));
+        }).map(HarvestScheduleStoreServiceImpl::<Job>mergeResults);
+    }
+
+    @Override
+    public Future<List<Job>> listJobsByInstitution(final int anInstitutionId) {
+        final Future<RowSet<Job>> queryExecution = myDbConnectionPool.withConnection(connection -> {
+            return SqlTemplate.forQuery(connection, LIST_INST_JOBS).mapFrom(ID_TO_TUPLE).mapTo(JOB_FROM_ROW)
+                    .execute(anInstitutionId);
+        });
+
+        return queryExecution.recover(error -> {
+            return Future
+                    .failedFuture(new HarvestScheduleStoreServiceException(Error.INTERNAL_ERROR, error.getMessage()));
+        }).map(HarvestScheduleStoreServiceImpl::<Job>mergeResults);
+    }
+
     @Override
     public Future<List<Job>> addJobs(final List<Job> aJobs) {
         final Future<RowSet<Job>> queryExecution;
@@ -356,7 +703,7 @@ public class HarvestScheduleStoreServiceImpl implements HarvestScheduleStoreServ
             final Job jobWithID = Job.withID(aJob, aJobId);
 
             return SqlTemplate.forUpdate(connection, UPDATE_JOB).mapFrom(JOB_TO_TUPLE).execute(jobWithID);
-        });
+        }).onComplete(update -> myJobCache.invalidate(aJobId));
 
         return updateExecution.recover(error -> {
             return Future
@@ -374,7 +721,7 @@ public class HarvestScheduleStoreServiceImpl implements HarvestScheduleStoreServ
     public Future<Void> removeJob(final int aJobId) {
         final Future<SqlResult<Void>> updateExecution = myDbConnectionPool.withConnection(connection -> {
             return SqlTemplate.forUpdate(connection, DEL_JOB).mapFrom(ID_TO_TUPLE).execute(aJobId);
-        });
+        }).onComplete(delete -> myJobCache.invalidate(aJobId));
 
         return updateExecution.recover(error -> {
             return Future
@@ -388,9 +735,123 @@ public class HarvestScheduleStoreServiceImpl implements HarvestScheduleStoreServ
         });
     }
 
+    @Override
+    public Future<Void> updateLastSuccessfulRuns(final List<JobResult> aJobResults) {
+        final Integer[] jobIDs = new Integer[aJobResults.size()];
+        final OffsetDateTime[] startTimes = new OffsetDateTime[aJobResults.size()];
+        final Future<SqlResult<Void>> updateExecution;
+
+        for (int index = 0; index < jobIDs.length; index++) {
+            jobIDs[index] = aJobResults.get(index).getJobID();
+            startTimes[index] = aJobResults.get(index).getStartTime();
+        }
+
+        updateExecution = myDbConnectionPool.withConnection(connection -> {
+            return SqlTemplate.forUpdate(connection, UPDATE_LAST_SUCCESSFUL_RUNS)
+                    .execute(Map.of("jobIDs", jobIDs, "startTimes", startTimes));
+        }).onComplete(update -> {
+            for (final Integer jobID : jobIDs) {
+                myJobCache.invalidate(jobID);
+            }
+        });
+
+        return updateExecution.recover(error -> {
+            return Future
+                    .failedFuture(new HarvestScheduleStoreServiceException(Error.INTERNAL_ERROR, error.getMessage()));
+        }).mapEmpty();
+    }
+
     @Override
     public Future<Void> close() {
-        return myJobResultHandler.unregister();
+        myChangesSubscriber.ifPresent(PgSubscriber::close);
+
+        return myJobResultHandler.unregister().compose(nil -> flushPendingJobResults());
+    }
+
+    /**
+     * Streams all institutions to a write stream as a JSON array, reading them with a database cursor.
+     *
+     * @param aDbConnectionPool A database connection pool
+     * @param aWriteStream The write stream
+     * @param aCancellation A Future that fails if the write stream is closed or fails before the whole array has been
+     *        written
+     * @return A Future that succeeds once the whole array has been written (but the write stream hasn't been ended)
+     */
+    static Future<Void> streamInstitutions(final Pool aDbConnectionPool, final WriteStream<Buffer> aWriteStream,
+            final Future<Void> aCancellation) {
+        return stream(aDbConnectionPool, LIST_INSTS, INST_FROM_ROW, Institution::toJson, aWriteStream, aCancellation);
+    }
+
+    /**
+     * Streams all jobs to a write stream as a JSON array, reading them with a database cursor.
+     *
+     * @param aDbConnectionPool A database connection pool
+     * @param aToJson A function that gets the JSON representation of a job
+     * @param aWriteStream The write stream
+     * @param aCancellation A Future that fails if the write stream is closed or fails before the whole array has been
+     *        written
+     * @return A Future that succeeds once the whole array has been written (but the write stream hasn't been ended)
+     */
+    static Future<Void> streamJobs(final Pool aDbConnectionPool, final Function<Job, JsonObject> aToJson,
+            final WriteStream<Buffer> aWriteStream, final Future<Void> aCancellation) {
+        return stream(aDbConnectionPool, LIST_JOBS, JOB_FROM_ROW, aToJson, aWriteStream, aCancellation);
+    }
+
+    /**
+     * Streams the rows of a query to a write stream as a JSON array, reading them with a database cursor so that only
+     * a few of them are held in memory at once. Nothing is written unless the query can be run.
+     * <p>
+     * If the stream is cancelled (e.g. because the client has disconnected while the rows were paused), the cursor is
+     * closed and the transaction is rolled back, so that its connection is returned to the pool.
+     *
+     * @param <U> The type that each row is mapped to
+     * @param aDbConnectionPool A database connection pool
+     * @param aQuery A query without parameters
+     * @param aRowMapper A row mapper
+     * @param aToJson A function that gets the JSON representation of a mapped row
+     * @param aWriteStream The write stream
+     * @param aCancellation A Future that fails if the write stream is closed or fails before the whole array has been
+     *        written
+     * @return A Future that succeeds once the whole array has been written (but the write stream hasn't been ended)
+     */
+    @SuppressWarnings("PMD.ExcessiveParameterList")
+    private static <U> Future<Void> stream(final Pool aDbConnectionPool, final String aQuery,
+            final RowMapper<U> aRowMapper, final Function<U, JsonObject> aToJson,
+            final WriteStream<Buffer> aWriteStream, final Future<Void> aCancellation) {
+        // Postgres cursors only live as long as the transaction that they're opened in
+        return aDbConnectionPool.withTransaction(connection -> connection.prepare(aQuery).compose(statement -> {
+            final Promise<Void> promise = Promise.promise();
+            final RowStream<Row> rows = statement.createStream(STREAM_FETCH_SIZE);
+            final AtomicBoolean isFirst = new AtomicBoolean(true);
+
+            aCancellation.onFailure(details -> {
+                if (!promise.future().isComplete()) {
+                    rows.close();
+                    promise.tryFail(details);
+                }
+            });
+
+            aWriteStream.write(Buffer.buffer("["));
+
+            rows.exceptionHandler(promise::tryFail).endHandler(nil -> {
+                aWriteStream.write(Buffer.buffer("]")).onComplete(promise);
+            }).handler(row -> {
+                final Buffer element = aToJson.apply(aRowMapper.map(row)).toBuffer();
+
+                aWriteStream.write(isFirst.getAndSet(false) ? element : Buffer.buffer(",").appendBuffer(element));
+
+                // Stop reading rows until the client catches up
+                if (aWriteStream.writeQueueFull()) {
+                    rows.pause();
+                    aWriteStream.drainHandler(drained -> rows.resume());
+                }
+            });
+
+            return promise.future();
+        })).recover(error -> {
+            return Future
+                    .failedFuture(new HarvestScheduleStoreServiceException(Error.INTERNAL_ERROR, error.getMessage()));
+        });
     }
 
     /**
@@ -26,6 +26,12 @@ public interface HarvestService {
      */
     String ADDRESS = HarvestService.class.getName();
 
+    /**
+     * The event bus address that the ID of a job is published to, to stop its harvest in progress on this Vert.x
+     * instance (if there is one).
+     */
+    String CANCEL_ADDRESS = ADDRESS + ".cancel";
+
     /**
      * Creates an instance of the service.
      *
@@ -38,7 +44,8 @@ public interface HarvestService {
     }
 
     /**
-     * Creates an instance of the service proxy.
+     * Creates an instance of the service proxy. Calls to a service on the same Vert.x instance that was registered with
+     * {@link LocalHarvestServiceProxy#register(Vertx, HarvestService)} skip the JSON encoding of jobs and job results.
      *
      * @param aVertx A Vert.x instance
      * @param aConfig A configuration
@@ -46,9 +53,11 @@ public interface HarvestService {
      */
     static HarvestService createProxy(final Vertx aVertx, final JsonObject aConfig) {
         final long timeout = aConfig.getLong(Config.HARVEST_TIMEOUT, DeliveryOptions.DEFAULT_TIMEOUT);
+        final DeliveryOptions options = new DeliveryOptions().setSendTimeout(timeout);
+        final HarvestService proxy =
+                new ServiceProxyBuilder(aVertx).setAddress(ADDRESS).setOptions(options).build(HarvestService.class);
 
-        return new ServiceProxyBuilder(aVertx).setAddress(ADDRESS)
-                .setOptions(new DeliveryOptions().setSendTimeout(timeout)).build(HarvestService.class);
+        return new LocalHarvestServiceProxy(aVertx, proxy, options);
     }
 
     /**
@@ -59,6 +68,31 @@ public interface HarvestService {
      */
     Future<JobResult> run(Job aJob);
 
+    /**
+     * Re-maps and re-indexes the records of a harvest job from its archived OAI-PMH responses, replaying each archived
+     * run in order, without contacting the OAI-PMH repository.
+     * <p>
+     * This requires the {@link Config#OAIPMH_ARCHIVE_DIR} to be configured.
+     *
+     * @param aJob The harvest job to reindex; this job must have a {@link Job#ID} key
+     * @return A Future that succeeds if the reindex succeeded
+     */
+    Future<JobResult> reindex(Job aJob);
+
+    /**
+     * Like {@link #reindex(Job)}, but into the standby Solr core that's being rebuilt (see
+     * {@link Config#SOLR_REBUILD_CORE_URL}) instead of into the live Solr core. Nothing is committed, so that the
+     * rebuild can be committed once every job has been reindexed; the thumbnails of the records are patched in the
+     * standby core too, before this succeeds.
+     * <p>
+     * This requires both the {@link Config#OAIPMH_ARCHIVE_DIR} and the {@link Config#SOLR_REBUILD_CORE_URL} to be
+     * configured.
+     *
+     * @param aJob The harvest job to reindex; this job must have a {@link Job#ID} key
+     * @return A Future that succeeds if the reindex succeeded
+     */
+    Future<JobResult> rebuild(Job aJob);
+
     /**
      * Closes the underlying resources used by this service.
      *
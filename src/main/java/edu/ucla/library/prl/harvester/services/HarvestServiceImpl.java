@@ -1,19 +1,34 @@
 
 package edu.ucla.library.prl.harvester.services;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
 import java.time.OffsetDateTime;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.concurrent.CompletionException;
 import java.util.concurrent.CompletionStage;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
-import org.apache.solr.client.solrj.response.UpdateResponse;
+import org.apache.commons.collections4.ListUtils;
+import org.apache.solr.client.solrj.SolrQuery;
+import org.apache.solr.client.solrj.response.QueryResponse;
+import org.apache.solr.common.SolrDocument;
 import org.apache.solr.common.SolrInputDocument;
 
 import org.dspace.xoai.model.oaipmh.Header;
@@ -21,26 +36,36 @@ import org.dspace.xoai.model.oaipmh.Record;
 import org.dspace.xoai.model.oaipmh.Set;
 
 import edu.ucla.library.prl.harvester.Config;
+import edu.ucla.library.prl.harvester.HostLatencies;
 import edu.ucla.library.prl.harvester.Institution;
 import edu.ucla.library.prl.harvester.Job;
 import edu.ucla.library.prl.harvester.JobResult;
 import edu.ucla.library.prl.harvester.MessageCodes;
+import edu.ucla.library.prl.harvester.OaipmhArchive;
+import edu.ucla.library.prl.harvester.OaipmhClientOptions;
 import edu.ucla.library.prl.harvester.OaipmhUtils;
+import edu.ucla.library.prl.harvester.Tracing;
 
 import info.freelibrary.util.IllegalArgumentI18nException;
 import info.freelibrary.util.Logger;
 import info.freelibrary.util.LoggerFactory;
 
-import io.ino.solrs.JavaAsyncSolrClient;
-import io.ino.solrs.RetryPolicy;
+
+import io.opentelemetry.api.common.AttributeKey;
+import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.api.trace.SpanBuilder;
 
 import io.vavr.Tuple;
 import io.vavr.Tuple2;
+import io.vavr.Tuple3;
 
 import io.vertx.core.CompositeFuture;
 import io.vertx.core.Future;
 import io.vertx.core.Promise;
 import io.vertx.core.Vertx;
+import io.vertx.core.VertxException;
+import io.vertx.core.eventbus.MessageConsumer;
+import io.vertx.core.json.DecodeException;
 import io.vertx.core.json.JsonObject;
 import io.vertx.ext.web.client.WebClient;
 import io.vertx.ext.web.client.WebClientOptions;
@@ -58,19 +83,65 @@ public class HarvestServiceImpl implements HarvestService {
     private static final Logger LOGGER = LoggerFactory.getLogger(HarvestServiceImpl.class, MessageCodes.BUNDLE);
 
     /**
-     * A Vert.x instance.
+     * The maximum number of record identifiers to include in a single Solr query for stored content hashes.
      */
-    private final Vertx myVertx;
+    private static final int MAX_HASH_LOOKUP_SIZE = 50;
+
+    /**
+     * The name of the Solr field that uniquely identifies a document.
+     */
+    private static final String ID = "id";
+
+    /**
+     * How often (in milliseconds) the recent latencies of outgoing HTTP requests are saved.
+     */
+    private static final long HOST_LATENCIES_SAVE_INTERVAL = 60_000;
+
+    /**
+     * The key in the host latencies file for the latencies of OAI-PMH requests.
+     */
+    private static final String OAIPMH_PAGES = "oaipmhPages";
 
     /**
-     * The HTTP timeout to use with the internal OAI-PMH client.
+     * The key in the host latencies file for the latencies of thumbnail checks.
      */
-    private final int myOaipmhClientHttpTimeout;
+    private static final String THUMBNAIL_CHECKS = "thumbnailChecks";
 
     /**
-     * The User-Agent HTTP request header to use for outgoing requests.
+     * The name of the span of a harvest.
      */
-    private final String myHarvesterUserAgent;
+    private static final String HARVEST_SPAN = "harvest";
+
+    /**
+     * The name of the span of hashing the content of a batch of records.
+     */
+    private static final String HASH_RECORDS_SPAN = "hash records";
+
+    /**
+     * The name of the span of mapping a batch of records to Solr documents.
+     */
+    private static final String MAP_RECORDS_SPAN = "map records";
+
+    /**
+     * The attribute for the number of deleted records that a harvest found.
+     */
+    private static final AttributeKey<Long> DELETED_RECORD_COUNT = AttributeKey.longKey("prl.record.deleted_count");
+
+    /**
+     * The attribute for the number of unchanged records that a harvest skipped.
+     */
+    private static final AttributeKey<Long> UNCHANGED_RECORD_COUNT =
+            AttributeKey.longKey("prl.record.unchanged_count");
+
+    /**
+     * A Vert.x instance.
+     */
+    private final Vertx myVertx;
+
+    /**
+     * The options to use with the internal OAI-PMH client.
+     */
+    private final OaipmhClientOptions myOaipmhClientOptions;
 
     /**
      * An HTTP client for verifying thumbnail image URLs.
@@ -78,20 +149,96 @@ public class HarvestServiceImpl implements HarvestService {
     private final WebClient myWebClient;
 
     /**
-     * A client for sending transformed metadata records to Solr.
+     * A classifier of thumbnail URLs, which learns from past checks which ones don't need to be checked.
+     */
+    private final ThumbnailUrlClassifier myThumbnailUrlClassifier;
+
+    /**
+     * A verifier that checks possible thumbnail URLs in the background.
+     */
+    private final ThumbnailVerifier myThumbnailVerifier;
+
+    /**
+     * The optional verifier that checks the possible thumbnail URLs of the records that are rebuilt into the standby
+     * Solr core, and patches them there.
+     */
+    private final Optional<ThumbnailVerifier> myRebuildThumbnailVerifier;
+
+    /**
+     * The gate that keeps harvests and reindexes from writing to the live Solr core while the index is rebuilt.
+     */
+    private final RebuildGate myRebuildGate;
+
+    /**
+     * The gateway for sending transformed metadata records to Solr.
+     */
+    private final SolrGateway mySolrGateway;
+
+    /**
+     * The optional gateway for rebuilding the standby Solr core, which isn't serving reads.
      */
-    private final JavaAsyncSolrClient mySolrClient;
+    private final Optional<SolrGateway> myRebuildSolrGateway;
 
     /**
      * The max batch size for Solr update queries.
      */
     private final int myMaxBatchSize;
 
+    /**
+     * A pool for mapping the records in a batch in parallel.
+     */
+    private final ForkJoinPool myMappingPool;
+
     /**
      * A proxy to the harvest schedule store service, for retrieving institution names.
      */
     private final HarvestScheduleStoreService myHarvestScheduleStoreService;
 
+    /**
+     * The optional durable queue that Solr updates are written to, instead of being sent to Solr directly.
+     */
+    private final Optional<SolrUpdateQueue> myUpdateQueue;
+
+    /**
+     * The optional indexer that drains the Solr update queue.
+     */
+    private final Optional<SolrUpdateQueueIndexer> myUpdateQueueIndexer;
+
+    /**
+     * The optional archive of fetched OAI-PMH response pages.
+     */
+    private final Optional<OaipmhArchive> myArchive;
+
+    /**
+     * The recent latencies of OAI-PMH requests, from which their timeouts are derived.
+     */
+    private final HostLatencies myOaipmhLatencies;
+
+    /**
+     * The recent latencies of thumbnail checks, from which their timeouts are derived.
+     */
+    private final HostLatencies myThumbnailLatencies;
+
+    /**
+     * The optional file that the recent latencies of outgoing HTTP requests are saved to.
+     */
+    private final Optional<Path> myHostLatenciesFile;
+
+    /**
+     * The ID of the timer that saves the recent latencies of outgoing HTTP requests.
+     */
+    private final long myHostLatenciesTimerID;
+
+    /**
+     * The flag that stops each harvest in progress, by job ID; a job has at most one harvest in progress.
+     */
+    private final Map<Integer, AtomicBoolean> myHarvestCancellations = new ConcurrentHashMap<>();
+
+    /**
+     * The consumer of requests to stop harvests in progress.
+     */
+    private final MessageConsumer<Integer> myCancelConsumer;
+
     /**
      * Creates an instance of the service.
      *
@@ -102,22 +249,73 @@ public class HarvestServiceImpl implements HarvestService {
         final String userAgent = Config.getHarvesterUserAgent(aConfig);
 
         myVertx = aVertx;
-        myHarvesterUserAgent = userAgent;
-        myOaipmhClientHttpTimeout = Config.getOaipmhClientHttpTimeout(aConfig);
+        myOaipmhLatencies = Config.getHostLatencies(aConfig);
+        myThumbnailLatencies = Config.getHostLatencies(aConfig);
+        myHostLatenciesFile = Config.getHostLatenciesFile(aConfig);
+        myHostLatenciesFile.ifPresent(this::loadHostLatencies);
+        myOaipmhClientOptions = Config.getOaipmhClientOptions(aConfig).setHostLatencies(myOaipmhLatencies);
         myWebClient = WebClient.create(aVertx, new WebClientOptions().setUserAgent(userAgent));
-        mySolrClient = JavaAsyncSolrClient.builder(aConfig.getString(Config.SOLR_CORE_URL))
-                .withRetryPolicy(RetryPolicy.AtMost(Config.getSolrUpdateRetryCount(aConfig))).build();
+        mySolrGateway = SolrGateway.getShared(aVertx, aConfig);
+        myRebuildSolrGateway = SolrGateway.getSharedForRebuilds(aVertx, aConfig);
         myMaxBatchSize = Config.getSolrUpdateMaxBatchSize(aConfig);
+        myMappingPool = new ForkJoinPool(Config.getRecordMappingParallelism(aConfig));
         myHarvestScheduleStoreService = HarvestScheduleStoreService.createProxy(aVertx);
+        myArchive = Config.getOaipmhArchive(aConfig);
+        myUpdateQueue = Config.getSolrUpdateQueueDir(aConfig).map(dir -> {
+            try {
+                return new SolrUpdateQueue(dir);
+            } catch (final IOException details) {
+                throw new UncheckedIOException(details);
+            }
+        });
+        myUpdateQueueIndexer = myUpdateQueue
+                .map(queue -> new SolrUpdateQueueIndexer(aVertx, queue, mySolrGateway, myMaxBatchSize));
+        myUpdateQueueIndexer.ifPresent(SolrUpdateQueueIndexer::start);
+        myThumbnailUrlClassifier = new ThumbnailUrlClassifier();
+        myThumbnailVerifier = new ThumbnailVerifier(aVertx, myWebClient, myThumbnailUrlClassifier,
+                myThumbnailLatencies, Config.getThumbnailVerificationRate(aConfig), this::updateThumbnails);
+        myThumbnailVerifier.start();
+        myRebuildThumbnailVerifier = myRebuildSolrGateway.map(gateway -> {
+            return new ThumbnailVerifier(aVertx, myWebClient, myThumbnailUrlClassifier, myThumbnailLatencies,
+                    Config.getThumbnailVerificationRate(aConfig), this::updateRebuildThumbnails);
+        });
+        myRebuildThumbnailVerifier.ifPresent(ThumbnailVerifier::start);
+        myRebuildGate = RebuildGate.getShared(aVertx);
+        myCancelConsumer = aVertx.eventBus().<Integer>localConsumer(CANCEL_ADDRESS, message -> {
+            Optional.ofNullable(myHarvestCancellations.get(message.body())).ifPresent(flag -> flag.set(true));
+        });
+        myHostLatenciesTimerID = myHostLatenciesFile.isPresent()
+                ? aVertx.setPeriodic(HOST_LATENCIES_SAVE_INTERVAL, timerID -> saveHostLatencies())
+                : -1;
     }
 
     @Override
     public Future<JobResult> run(final Job aJob) {
+        final SpanBuilder span = Tracing.spanBuilder(HARVEST_SPAN)
+                .setAttribute(Tracing.INSTITUTION_ID, (long) aJob.getInstitutionID())
+                .setAttribute(Tracing.BASE_URL, aJob.getRepositoryBaseURL().toString());
+
+        aJob.getID().ifPresent(jobID -> span.setAttribute(Tracing.JOB_ID, (long) jobID));
+
+        return Tracing.trace(span, harvestSpan -> harvest(aJob).onSuccess(result -> {
+            harvestSpan.setAttribute(Tracing.RECORD_COUNT, (long) result.getRecordCount());
+            harvestSpan.setAttribute(DELETED_RECORD_COUNT, (long) result.getDeletedRecordCount());
+            harvestSpan.setAttribute(UNCHANGED_RECORD_COUNT, (long) result.getUnchangedRecordCount());
+        }));
+    }
+
+    /**
+     * Runs a harvest job.
+     *
+     * @param aJob A job
+     * @return A Future that resolves to the job's result
+     */
+    private Future<JobResult> harvest(final Job aJob) {
         final URL baseURL = aJob.getRepositoryBaseURL();
         final int institutionID = aJob.getInstitutionID();
-        final Future<List<Set>> listSets =
-                OaipmhUtils.listSets(myVertx, baseURL, myOaipmhClientHttpTimeout, myHarvesterUserAgent);
-        final Future<Institution> getInstitution = myHarvestScheduleStoreService.getInstitution(institutionID);
+        final AtomicBoolean cancellation = new AtomicBoolean();
+        final Future<List<Set>> listSets;
+        final Future<Institution> getInstitution;
         final int jobID;
 
         if (aJob.getID().isEmpty()) {
@@ -127,6 +325,23 @@ public class HarvestServiceImpl implements HarvestService {
 
         jobID = aJob.getID().get();
 
+        if (myHarvestCancellations.putIfAbsent(jobID, cancellation) != null) {
+            LOGGER.warn(MessageCodes.PRL_104, jobID);
+            return Future.failedFuture(new ServiceException(hashCode(), LOGGER.getMessage(MessageCodes.PRL_104,
+                    jobID)));
+        }
+
+        if (!myRebuildGate.tryEnter()) {
+            myHarvestCancellations.remove(jobID, cancellation);
+            LOGGER.warn(MessageCodes.PRL_101, jobID);
+            return Future.failedFuture(new ServiceException(hashCode(), LOGGER.getMessage(MessageCodes.PRL_101,
+                    jobID)));
+        }
+
+        // Only ask the repository and the database once we know the harvest is going ahead
+        listSets = OaipmhUtils.listSets(myVertx, baseURL, myOaipmhClientOptions);
+        getInstitution = myHarvestScheduleStoreService.getInstitution(institutionID);
+
         return CompositeFuture.all(listSets, getInstitution).compose(results -> {
             final List<Set> sets = results.resultAt(0);
             final Institution institution = results.resultAt(1);
@@ -136,7 +351,7 @@ public class HarvestServiceImpl implements HarvestService {
 
             final List<String> targetSets;
             final OffsetDateTime startTime;
-            final Future<Iterator<Record>> harvest;
+            final Future<Tuple3<Integer, Integer, Integer>> harvest;
 
             if (!aJob.getSets().isEmpty()) {
                 // Harvest only the specified sets
@@ -151,22 +366,24 @@ public class HarvestServiceImpl implements HarvestService {
             LOGGER.debug(MessageCodes.PRL_008, aJob.toJson());
 
             // TODO: de-duplicate list of records (based on identifier; some sets may contain the same record)
-            harvest = OaipmhUtils.listRecords(myVertx, baseURL, targetSets, aJob.getMetadataPrefix(),
-                    aJob.getLastSuccessfulRun(), myOaipmhClientHttpTimeout, myHarvesterUserAgent);
-
-            return harvest.compose(records -> {
-                final Promise<Tuple2<Integer, Integer>> promise = Promise.promise();
-
-                myVertx.executeBlocking(execution -> {
-                    updateSolrInBatches(records, institutionName, baseURL, setNameLookup, myMaxBatchSize)
-                            .onSuccess(execution::complete).onFailure(execution::fail);
-                }, false, promise);
+            harvest = getHarvestFrom(aJob, startTime).compose(from -> {
+                return createArchiveRun(jobID, startTime, setNameLookup, from.isEmpty()).compose(archiveRunDir -> {
+                    return OaipmhUtils.listRecords(myVertx, baseURL, targetSets, aJob.getMetadataPrefix(), from,
+                            myOaipmhClientOptions, archiveRunDir).compose(records -> {
+                                return updateSolr(stopOnCancel(records, cancellation, jobID), institutionID,
+                                        institutionName, baseURL, setNameLookup, IndexMode.HARVEST);
+                            }).compose(recordCounts -> {
+                                return completeArchiveRun(jobID, archiveRunDir).map(recordCounts);
+                            });
+                });
+            });
 
-                return promise.future();
-            }).map(docAndDeletedRecordCounts -> {
-                final int docCount = docAndDeletedRecordCounts._1();
-                final int deletedRecordCount = docAndDeletedRecordCounts._2();
-                final JobResult result = new JobResult(jobID, startTime, docCount, deletedRecordCount);
+            return harvest.map(recordCounts -> {
+                final int docCount = recordCounts._1();
+                final int deletedRecordCount = recordCounts._2();
+                final int unchangedRecordCount = recordCounts._3();
+                final JobResult result =
+                        new JobResult(jobID, startTime, docCount, deletedRecordCount, unchangedRecordCount);
 
                 LOGGER.debug(MessageCodes.PRL_049, jobID, result.toJson());
 
@@ -177,36 +394,328 @@ public class HarvestServiceImpl implements HarvestService {
 
             LOGGER.error(MessageCodes.PRL_050, jobID, errorMsg);
 
-            // TODO: consider retrying on failure
+            // Transient failures were already retried, page by page, by the OAI-PMH client
+            return Future.failedFuture(new ServiceException(hashCode(), errorMsg));
+        }).onComplete(result -> {
+            myHarvestCancellations.remove(jobID, cancellation);
+            myRebuildGate.exit();
+        });
+    }
+
+    /**
+     * Wraps a stream of harvested records so that the harvest stops, without fetching any more records, once it's
+     * cancelled (see {@link HarvestService#CANCEL_ADDRESS}).
+     *
+     * @param aRecords A stream of harvested records
+     * @param aCancellation The flag that's set once the harvest is cancelled
+     * @param aJobID The ID of the job that's being harvested
+     * @return The wrapped stream, which throws a {@link CompletionException} once the harvest is cancelled
+     */
+    private static Iterator<Record> stopOnCancel(final Iterator<Record> aRecords, final AtomicBoolean aCancellation,
+            final int aJobID) {
+        return new Iterator<>() {
+
+            @Override
+            public boolean hasNext() {
+                if (aCancellation.get()) {
+                    throw new CompletionException(
+                            new VertxException(LOGGER.getMessage(MessageCodes.PRL_105, aJobID), true));
+                }
+
+                return aRecords.hasNext();
+            }
+
+            @Override
+            public Record next() {
+                return aRecords.next();
+            }
+        };
+    }
+
+    @Override
+    public Future<JobResult> reindex(final Job aJob) {
+        return reindex(aJob, IndexMode.REINDEX);
+    }
+
+    @Override
+    public Future<JobResult> rebuild(final Job aJob) {
+        if (myRebuildSolrGateway.isEmpty()) {
+            return Future.failedFuture(new ServiceException(hashCode(), LOGGER.getMessage(MessageCodes.PRL_080)));
+        }
+
+        // The rebuilt core mustn't be swapped in before the thumbnails of the job's records have been patched in it
+        return reindex(aJob, IndexMode.REBUILD)
+                .compose(result -> myRebuildThumbnailVerifier.get().whenIdle().map(result));
+    }
+
+    /**
+     * Re-maps and re-indexes the records of a harvest job from its archived OAI-PMH responses.
+     *
+     * @param aJob The harvest job to reindex
+     * @param aMode Either {@link IndexMode#REINDEX} or {@link IndexMode#REBUILD}
+     * @return A Future that succeeds if the reindex succeeded
+     */
+    private Future<JobResult> reindex(final Job aJob, final IndexMode aMode) {
+        final URL baseURL = aJob.getRepositoryBaseURL();
+        final int jobID;
+
+        if (aJob.getID().isEmpty()) {
+            return Future
+                    .failedFuture(new IllegalArgumentI18nException(MessageCodes.BUNDLE, MessageCodes.PRL_002, Job.ID));
+        }
+
+        if (myArchive.isEmpty()) {
+            return Future.failedFuture(new ServiceException(hashCode(), LOGGER.getMessage(MessageCodes.PRL_054)));
+        }
+
+        jobID = aJob.getID().get();
+
+        if (aMode == IndexMode.REINDEX && !myRebuildGate.tryEnter()) {
+            LOGGER.warn(MessageCodes.PRL_101, jobID);
+            return Future.failedFuture(new ServiceException(hashCode(), LOGGER.getMessage(MessageCodes.PRL_101,
+                    jobID)));
+        }
+
+        return myHarvestScheduleStoreService.getInstitution(aJob.getInstitutionID()).compose(institution -> {
+            final OffsetDateTime startTime = OffsetDateTime.now();
+
+            return myVertx.<List<Path>>executeBlocking(execution -> {
+                try {
+                    execution.complete(myArchive.get().listRuns(jobID));
+                } catch (final IOException details) {
+                    execution.fail(details);
+                }
+            }, false).compose(runDirs -> {
+                Future<Tuple3<Integer, Integer, Integer>> replay = Future.succeededFuture(Tuple.of(0, 0, 0));
+
+                LOGGER.info(MessageCodes.PRL_053, jobID, runDirs.size());
+
+                // Later runs may update or delete records from earlier runs, so the runs must be replayed in order
+                for (final Path runDir : runDirs) {
+                    replay = replay.compose(counts -> {
+                        return reindexRun(runDir, aJob.getInstitutionID(), institution.getName(), baseURL,
+                                aJob.getMetadataPrefix(), aMode)
+                                .map(runCounts -> Tuple.of(counts._1() + runCounts._1(), counts._2() + runCounts._2(),
+                                        counts._3() + runCounts._3()));
+                    });
+                }
+
+                return replay;
+            }).map(recordCounts -> {
+                final JobResult result = new JobResult(jobID, startTime, recordCounts._1(), recordCounts._2(),
+                        recordCounts._3());
+
+                LOGGER.info(MessageCodes.PRL_055, jobID, result.toJson());
+
+                return result;
+            });
+        }).recover(details -> {
+            final String errorMsg = details.getMessage();
+
+            LOGGER.error(MessageCodes.PRL_056, jobID, errorMsg);
+
             return Future.failedFuture(new ServiceException(hashCode(), errorMsg));
+        }).onComplete(result -> {
+            if (aMode == IndexMode.REINDEX) {
+                myRebuildGate.exit();
+            }
+        });
+    }
+
+    /**
+     * Gets the time that a run of a harvest job should harvest the records changed since: its last successful run,
+     * unless it's due to be harvested in full so that its archive can be pruned.
+     *
+     * @param aJob A harvest job
+     * @param aStartTime The time when the run was started
+     * @return A Future that resolves to the optional time; if it's empty, all records are harvested
+     */
+    private Future<Optional<OffsetDateTime>> getHarvestFrom(final Job aJob, final OffsetDateTime aStartTime) {
+        final int jobID = aJob.getID().get();
+
+        if (myArchive.isEmpty() || aJob.getLastSuccessfulRun().isEmpty()) {
+            return Future.succeededFuture(aJob.getLastSuccessfulRun());
+        }
+
+        return myVertx.<Optional<OffsetDateTime>>executeBlocking(execution -> {
+            try {
+                if (myArchive.get().isFullRunDue(jobID, aStartTime)) {
+                    LOGGER.info(MessageCodes.PRL_097, jobID);
+                    execution.complete(Optional.empty());
+                } else {
+                    execution.complete(aJob.getLastSuccessfulRun());
+                }
+            } catch (final IOException details) {
+                execution.fail(details);
+            }
+        }, false);
+    }
+
+    /**
+     * Creates the archive directory for a run of a harvest job, if the archive is configured.
+     *
+     * @param aJobID The ID of the job
+     * @param aStartTime The time when the run was started
+     * @param aSetNameLookup A lookup table that maps setSpec to setName
+     * @param anIsFull Whether the run harvests all records, instead of only those changed since the last run
+     * @return A Future that resolves to the optional run directory; if it couldn't be created, the run isn't archived
+     */
+    private Future<Optional<Path>> createArchiveRun(final int aJobID, final OffsetDateTime aStartTime,
+            final Map<String, String> aSetNameLookup, final boolean anIsFull) {
+        if (myArchive.isEmpty()) {
+            return Future.succeededFuture(Optional.empty());
+        }
+
+        return myVertx.<Optional<Path>>executeBlocking(execution -> {
+            try {
+                execution.complete(
+                        Optional.of(myArchive.get().createRun(aJobID, aStartTime, aSetNameLookup, anIsFull)));
+            } catch (final IOException details) {
+                LOGGER.warn(MessageCodes.PRL_057, aJobID, details.getMessage());
+                execution.complete(Optional.empty());
+            }
+        }, false);
+    }
+
+    /**
+     * Marks the archived run of a harvest job as complete, once the harvest has succeeded, and then prunes the job's
+     * runs that will never be replayed. Neither affects the outcome of the harvest.
+     *
+     * @param aJobID The ID of the job
+     * @param anArchiveRunDir The optional archive directory of the run
+     * @return A Future that succeeds once the run has been marked and the archive pruned (or not)
+     */
+    private Future<Void> completeArchiveRun(final int aJobID, final Optional<Path> anArchiveRunDir) {
+        if (anArchiveRunDir.isEmpty()) {
+            return Future.succeededFuture();
+        }
+
+        return myVertx.executeBlocking(execution -> {
+            try {
+                final List<Path> prunedRunDirs;
+
+                OaipmhArchive.completeRun(anArchiveRunDir.get());
+                prunedRunDirs = myArchive.get().pruneRuns(aJobID);
+
+                if (!prunedRunDirs.isEmpty()) {
+                    LOGGER.info(MessageCodes.PRL_099, prunedRunDirs.size(), aJobID);
+                }
+            } catch (final IOException details) {
+                LOGGER.warn(MessageCodes.PRL_098, aJobID, details.getMessage());
+            }
+
+            execution.complete();
+        }, false);
+    }
+
+    /**
+     * Re-maps and re-indexes the records of one archived run of a harvest job.
+     * <p>
+     * The sets of the run are processed concurrently on worker threads.
+     *
+     * @param aRunDir The archive directory of the run
+     * @param anInstitutionID The ID of the associated institution
+     * @param anInstitutionName The name of the associated institution
+     * @param aBaseURL An OAI-PMH repository base URL
+     * @param aMetadataPrefix The OAI-PMH metadata prefix
+     * @param aMode Either {@link IndexMode#REINDEX} or {@link IndexMode#REBUILD}
+     * @return A Future that resolves to a 3-tuple of record counts (see {@link #updateSolrInBatches})
+     */
+    @SuppressWarnings("PMD.ExcessiveParameterList")
+    private Future<Tuple3<Integer, Integer, Integer>> reindexRun(final Path aRunDir, final int anInstitutionID,
+            final String anInstitutionName, final URL aBaseURL, final String aMetadataPrefix, final IndexMode aMode) {
+        return myVertx.<Tuple2<Map<String, String>, Map<String, Path>>>executeBlocking(execution -> {
+            try {
+                execution.complete(
+                        Tuple.of(OaipmhArchive.getSetNameLookup(aRunDir), OaipmhArchive.listSets(aRunDir)));
+            } catch (final IOException details) {
+                execution.fail(details);
+            }
+        }, false).compose(run -> {
+            final Map<String, String> setNameLookup = run._1();
+            @SuppressWarnings("rawtypes")
+            final List<Future> setReindexes = new ArrayList<>(run._2().size());
+
+            for (final Path setDir : run._2().values()) {
+                setReindexes.add(OaipmhUtils.listArchivedRecords(myVertx, setDir, aMetadataPrefix)
+                        .compose(records -> updateSolr(records, anInstitutionID, anInstitutionName, aBaseURL,
+                                setNameLookup, aMode)));
+            }
+
+            return CompositeFuture.all(setReindexes).map(results -> {
+                final List<Tuple3<Integer, Integer, Integer>> setCounts = results.list();
+
+                int recordCount = 0;
+                int deletedRecordCount = 0;
+                int unchangedRecordCount = 0;
+
+                for (final Tuple3<Integer, Integer, Integer> counts : setCounts) {
+                    recordCount += counts._1();
+                    deletedRecordCount += counts._2();
+                    unchangedRecordCount += counts._3();
+                }
+
+                return Tuple.of(recordCount, deletedRecordCount, unchangedRecordCount);
+            });
         });
     }
 
+    /**
+     * Consumes a stream of OAI-PMH records on a worker thread, updating Solr accordingly.
+     *
+     * @param aRecords A set of records
+     * @param anInstitutionID The ID of the associated institution
+     * @param anInstitutionName The name of the associated institution
+     * @param aBaseURL An OAI-PMH repository base URL
+     * @param aSetNameLookup A lookup table that maps setSpec to setName
+     * @param aMode The indexing mode
+     * @return A Future that resolves to a 3-tuple of record counts (see {@link #updateSolrInBatches})
+     */
+    @SuppressWarnings("PMD.ExcessiveParameterList")
+    private Future<Tuple3<Integer, Integer, Integer>> updateSolr(final Iterator<Record> aRecords,
+            final int anInstitutionID, final String anInstitutionName, final URL aBaseURL,
+            final Map<String, String> aSetNameLookup, final IndexMode aMode) {
+        final Promise<Tuple3<Integer, Integer, Integer>> promise = Promise.promise();
+
+        myVertx.executeBlocking(execution -> {
+            updateSolrInBatches(aRecords, anInstitutionID, anInstitutionName, aBaseURL, aSetNameLookup,
+                    myMaxBatchSize, aMode).onSuccess(execution::complete).onFailure(execution::fail);
+        }, false, promise);
+
+        return promise.future();
+    }
+
     /**
      * Performs Solr update queries while consuming the stream of OAI-PMH records in batches.
      * <p>
+     * Records whose content hash matches the one stored in Solr from a previous harvest may be skipped.
+     * <p>
      * This is a potentially long-running function, so it should be run on a worker thread.
      *
      * @param aRecords A set of records
+     * @param anInstitutionID The ID of the associated institution
      * @param anInstitutionName The name of the associated institution
      * @param aBaseURL An OAI-PMH repository base URL
      * @param aSetNameLookup A lookup table that maps setSpec to setName
      * @param aMaxBatchSize The maximum number of records to handle per Solr query
-     * @return A Future that resolves to a 2-tuple containing: the number of Solr documents added or updated, and the
-     *         number of Solr documents deleted
+     * @param aMode The indexing mode
+     * @return A Future that resolves to a 3-tuple containing: the number of Solr documents added or updated, the number
+     *         of Solr documents deleted, and the number of records skipped because they were unchanged
      */
-    private Future<Tuple2<Integer, Integer>> updateSolrInBatches(final Iterator<Record> aRecords,
-            final String anInstitutionName, final URL aBaseURL, final Map<String, String> aSetNameLookup,
-            final int aMaxBatchSize) {
-        @SuppressWarnings("rawtypes")
-        final List<Future> recordMappingsBatch = new ArrayList<>(aMaxBatchSize);
+    @SuppressWarnings("PMD.ExcessiveParameterList")
+    private Future<Tuple3<Integer, Integer, Integer>> updateSolrInBatches(final Iterator<Record> aRecords,
+            final int anInstitutionID, final String anInstitutionName, final URL aBaseURL,
+            final Map<String, String> aSetNameLookup, final int aMaxBatchSize, final IndexMode aMode) {
+        final List<Record> recordsBatch = new ArrayList<>(aMaxBatchSize);
         final List<String> deletedRecordIdsBatch = new ArrayList<>(aMaxBatchSize);
 
         final int newRecordCount;
         final int deletedRecordCount;
+        final int unchangedRecordCount;
 
         int runningNewRecordCount = 0;
         int runningDeletedRecordCount = 0;
+        int runningUnchangedRecordCount = 0;
 
         try {
             while (aRecords.hasNext()) {
@@ -214,19 +723,21 @@ public class HarvestServiceImpl implements HarvestService {
                 final Header header = record.getHeader();
 
                 if (!header.isDeleted()) {
-                    recordMappingsBatch.add(HarvestServiceUtils.getSolrDocument(record, anInstitutionName, aBaseURL,
-                            aSetNameLookup, myWebClient));
+                    recordsBatch.add(record);
+
+                    if (recordsBatch.size() == aMaxBatchSize) {
+                        final int addedCount = addChangedRecords(recordsBatch, anInstitutionID,
+                                anInstitutionName, aBaseURL, aSetNameLookup, aMode);
 
-                    if (recordMappingsBatch.size() == aMaxBatchSize) {
-                        addDocs(HarvestServiceUtils.unwrapAll(recordMappingsBatch));
-                        runningNewRecordCount += recordMappingsBatch.size();
-                        recordMappingsBatch.clear();
+                        runningNewRecordCount += addedCount;
+                        runningUnchangedRecordCount += recordsBatch.size() - addedCount;
+                        recordsBatch.clear();
                     }
                 } else {
                     deletedRecordIdsBatch.add(header.getIdentifier());
 
                     if (deletedRecordIdsBatch.size() == aMaxBatchSize) {
-                        deleteByIds(deletedRecordIdsBatch);
+                        deleteByIds(deletedRecordIdsBatch, aMode);
                         runningDeletedRecordCount += deletedRecordIdsBatch.size();
                         deletedRecordIdsBatch.clear();
                     }
@@ -235,74 +746,438 @@ public class HarvestServiceImpl implements HarvestService {
 
             // Handle the final batches (if any)
 
-            if (!recordMappingsBatch.isEmpty()) {
-                addDocs(HarvestServiceUtils.unwrapAll(recordMappingsBatch));
-                runningNewRecordCount += recordMappingsBatch.size();
-                recordMappingsBatch.clear();
+            if (!recordsBatch.isEmpty()) {
+                final int addedCount = addChangedRecords(recordsBatch, anInstitutionID, anInstitutionName,
+                        aBaseURL, aSetNameLookup, aMode);
+
+                runningNewRecordCount += addedCount;
+                runningUnchangedRecordCount += recordsBatch.size() - addedCount;
+                recordsBatch.clear();
             }
 
             if (!deletedRecordIdsBatch.isEmpty()) {
-                deleteByIds(deletedRecordIdsBatch);
+                deleteByIds(deletedRecordIdsBatch, aMode);
                 runningDeletedRecordCount += deletedRecordIdsBatch.size();
                 deletedRecordIdsBatch.clear();
             }
         } catch (final CompletionException details) {
+            if (isQueued(aMode)) {
+                // Nothing has been sent to Solr directly, and whatever has been queued is still valid
+                return Future.failedFuture(details.getCause());
+            }
+
             // Issuing a rollback is potentially problematic in the event that another harvest job is in progress (since
             // Solr doesn't support simultaneous transactions), but the likelihood of such an error occuring seems slim
-            return Future.fromCompletionStage(mySolrClient.rollback())
+            return Future.fromCompletionStage(getSolrGateway(aMode).rollback())
                     .compose(result -> Future.failedFuture(details.getCause()));
         } catch (final InterruptedException details) {
-            return Future.fromCompletionStage(mySolrClient.rollback()).compose(result -> Future.failedFuture(details));
+            if (isQueued(aMode)) {
+                return Future.failedFuture(details);
+            }
+
+            return Future.fromCompletionStage(getSolrGateway(aMode).rollback())
+                    .compose(result -> Future.failedFuture(details));
         }
 
         // Get some final variables for the lambda below
 
         newRecordCount = runningNewRecordCount;
         deletedRecordCount = runningDeletedRecordCount;
+        unchangedRecordCount = runningUnchangedRecordCount;
+
+        if (isQueued(aMode) || aMode == IndexMode.REBUILD) {
+            // The indexer commits the updates once it has sent them to Solr; a rebuild is committed once it's done
+            return Future.succeededFuture(Tuple.of(newRecordCount, deletedRecordCount, unchangedRecordCount));
+        }
 
-        return Future.fromCompletionStage(mySolrClient.commit())
-                .map(response -> Tuple.of(newRecordCount, deletedRecordCount));
+        return Future.fromCompletionStage(mySolrGateway.commit())
+                .map(response -> Tuple.of(newRecordCount, deletedRecordCount, unchangedRecordCount));
     }
 
     /**
-     * Synchronous wrapper around {@link JavaAsyncSolrClient#addDocs(java.util.Collection)}.
+     * Maps the records in a batch whose content has changed since the last harvest, and adds them to Solr.
+     * <p>
+     * Hashing and mapping are done in parallel across the records of the batch. Records whose possible thumbnail URLs
+     * need to be checked are submitted to the thumbnail verifier once they've been added.
      *
-     * @param aDocs A list of Solr documents to add (possibly empty)
-     * @return The result of performing the Solr update
+     * @param aRecordsBatch A batch of (non-deleted) records
+     * @param anInstitutionID The ID of the associated institution
+     * @param anInstitutionName The name of the associated institution
+     * @param aBaseURL An OAI-PMH repository base URL
+     * @param aSetNameLookup A lookup table that maps setSpec to setName
+     * @param aMode The indexing mode; unless it's {@link IndexMode#HARVEST}, every record in the batch is considered
+     *        changed
+     * @return The number of records that were added or updated
+     * @throws InterruptedException If the calling thread is interrupted
+     */
+    @SuppressWarnings("PMD.ExcessiveParameterList")
+    private int addChangedRecords(final List<Record> aRecordsBatch, final int anInstitutionID,
+            final String anInstitutionName, final URL aBaseURL, final Map<String, String> aSetNameLookup,
+            final IndexMode aMode) throws InterruptedException {
+        final Map<String, String> storedHashes = aMode == IndexMode.HARVEST ? getStoredRecordHashes(
+                aRecordsBatch.stream().map(record -> record.getHeader().getIdentifier()).toList()) : Map.of();
+        final List<String> recordHashes = mapInParallel(HASH_RECORDS_SPAN, aRecordsBatch, record -> HarvestServiceUtils
+                .getRecordHash(record, anInstitutionID, anInstitutionName, aSetNameLookup));
+        final List<Tuple2<Record, String>> changedRecords = new ArrayList<>(aRecordsBatch.size());
+        final List<Tuple2<SolrInputDocument, List<URL>>> recordMappingsBatch;
+        final List<SolrInputDocument> docs;
+        final List<ThumbnailVerifier.Check> thumbnailChecks = new ArrayList<>();
+
+        for (int index = 0; index < aRecordsBatch.size(); index++) {
+            final Record record = aRecordsBatch.get(index);
+            final String recordHash = recordHashes.get(index);
+
+            if (!recordHash.equals(storedHashes.get(record.getHeader().getIdentifier()))) {
+                changedRecords.add(Tuple.of(record, recordHash));
+            }
+        }
+
+        recordMappingsBatch = mapInParallel(MAP_RECORDS_SPAN, changedRecords, recordAndHash -> HarvestServiceUtils
+                .getSolrDocument(recordAndHash._1(), anInstitutionID, anInstitutionName, aBaseURL, aSetNameLookup,
+                        myThumbnailUrlClassifier));
+        docs = new ArrayList<>(recordMappingsBatch.size());
+
+        for (int index = 0; index < recordMappingsBatch.size(); index++) {
+            final Record record = changedRecords.get(index)._1();
+            final String recordHash = changedRecords.get(index)._2();
+            final SolrInputDocument doc = recordMappingsBatch.get(index)._1();
+            final List<URL> possibleThumbnailUrls = recordMappingsBatch.get(index)._2();
+
+            if (possibleThumbnailUrls.isEmpty()) {
+                doc.setField(HarvestServiceUtils.RECORD_HASH, recordHash);
+            } else {
+                // The content hash is set once the thumbnail check is done, so that an unfinished check is retried
+                thumbnailChecks.add(new ThumbnailVerifier.Check(doc, possibleThumbnailUrls, recordHash,
+                        thumbnailURL -> HarvestServiceUtils.getSolrDocument(record, anInstitutionID,
+                                anInstitutionName, aBaseURL, aSetNameLookup, Optional.of(thumbnailURL))));
+            }
+
+            docs.add(doc);
+        }
+
+        if (!docs.isEmpty()) {
+            final ThumbnailVerifier thumbnailVerifier = getThumbnailVerifier(aMode);
+
+            addDocs(docs, aMode);
+            thumbnailVerifier.supersede(docs.stream().map(doc -> doc.getFieldValue(ID)).toList());
+            thumbnailChecks.forEach(thumbnailVerifier::submit);
+        }
+
+        return docs.size();
+    }
+
+    /**
+     * Sends the atomic updates that result from thumbnail checks to Solr and commits them, or sends them to the Solr
+     * update queue if it's configured (whose indexer commits them once it's drained).
+     * <p>
+     * The updates are committed on each flush of the verifier, rather than left for the final commit of a harvest that
+     * is in progress, since that commit may already have happened by the time they're sent. The commit also applies to
+     * the updates of any harvest that is in progress, just as Solr's own periodic hard commits do.
+     *
+     * @param anUpdates A list of atomic updates
+     * @return A Future that succeeds once the updates have been sent (and committed)
+     */
+    private Future<Void> updateThumbnails(final List<SolrInputDocument> anUpdates) {
+        return myVertx.executeBlocking(execution -> {
+            try {
+                addDocs(anUpdates, IndexMode.HARVEST);
+
+                if (myUpdateQueue.isEmpty()) {
+                    await(mySolrGateway.commit());
+                }
+
+                execution.complete();
+            } catch (final InterruptedException | CompletionException details) {
+                execution.fail(details instanceof CompletionException ? details.getCause() : details);
+            }
+        }, false);
+    }
+
+    /**
+     * Sends the atomic updates that result from thumbnail checks of rebuilt records to the standby Solr core, where
+     * they're left for the rebuild's final commit.
+     *
+     * @param anUpdates A list of atomic updates
+     * @return A Future that succeeds once the updates have been sent
+     */
+    private Future<Void> updateRebuildThumbnails(final List<SolrInputDocument> anUpdates) {
+        return myVertx.executeBlocking(execution -> {
+            try {
+                addDocs(anUpdates, IndexMode.REBUILD);
+                execution.complete();
+            } catch (final InterruptedException | CompletionException details) {
+                execution.fail(details instanceof CompletionException ? details.getCause() : details);
+            }
+        }, false);
+    }
+
+    /**
+     * Applies a function to each element of a batch on the mapping pool, preserving the order of the batch.
+     *
+     * @param <T> The type of the batch elements
+     * @param <R> The type of the results
+     * @param aSpanName The name of the span that traces the batch
+     * @param aBatch A batch
+     * @param aMapper A function to apply to each element
+     * @return The list of results, in batch order
+     * @throws InterruptedException If the calling thread is interrupted
+     * @throws CompletionException If the function throws an exception
+     */
+    private <T, R> List<R> mapInParallel(final String aSpanName, final List<T> aBatch, final Function<T, R> aMapper)
+            throws InterruptedException {
+        final Span span;
+        final List<R> results;
+
+        if (aBatch.isEmpty()) {
+            return List.of();
+        }
+
+        span = Tracing.spanBuilder(aSpanName).setAttribute(Tracing.RECORD_COUNT, (long) aBatch.size()).startSpan();
+
+        try {
+            // A parallel stream started from within a ForkJoinPool runs its tasks in that pool
+            results = myMappingPool.submit(() -> aBatch.parallelStream().map(aMapper).toList()).get();
+        } catch (final ExecutionException details) {
+            Tracing.end(span, details.getCause());
+            throw new CompletionException(details.getCause());
+        } catch (final InterruptedException details) {
+            Tracing.end(span, details);
+            throw details;
+        }
+
+        span.end();
+
+        return results;
+    }
+
+    /**
+     * Looks up the content hashes stored in Solr for the given record identifiers.
+     * <p>
+     * Identifiers that contain a comma can't be expressed in a terms query, so they are always treated as changed.
+     *
+     * @param aRecordIDs A list of record identifiers
+     * @return A map from record identifier to stored content hash, for each of the records that have one
      * @throws InterruptedException If the calling thread is interrupted
      */
-    private UpdateResponse addDocs(final List<SolrInputDocument> aDocs) throws InterruptedException {
-        final CompletionStage<UpdateResponse> add = mySolrClient.addDocs(aDocs);
-        final CountDownLatch addQueryCompletion = new CountDownLatch(1);
+    private Map<String, String> getStoredRecordHashes(final List<String> aRecordIDs) throws InterruptedException {
+        final List<String> queryableIDs = aRecordIDs.stream().filter(id -> !id.contains(",")).toList();
+        final Map<String, String> storedHashes = new HashMap<>(queryableIDs.size());
+        @SuppressWarnings("rawtypes")
+        final List<Future> lookups = new ArrayList<>();
+
+        for (final List<String> chunk : ListUtils.partition(queryableIDs, MAX_HASH_LOOKUP_SIZE)) {
+            final SolrQuery query = new SolrQuery("{!terms f=id}" + String.join(",", chunk));
+
+            query.setFields("id", HarvestServiceUtils.RECORD_HASH);
+            query.setRows(chunk.size());
 
-        add.thenRun(addQueryCompletion::countDown);
-        addQueryCompletion.await();
+            lookups.add(Future.fromCompletionStage(mySolrGateway.query(query)));
+        }
+
+        try {
+            for (final QueryResponse response : HarvestServiceUtils.<QueryResponse>unwrapAll(lookups)) {
+                for (final SolrDocument doc : response.getResults()) {
+                    final Object recordHash = doc.getFirstValue(HarvestServiceUtils.RECORD_HASH);
 
-        return add.toCompletableFuture().join();
+                    if (recordHash != null) {
+                        storedHashes.put(doc.getFirstValue("id").toString(), recordHash.toString());
+                    }
+                }
+            }
+        } catch (final CompletionException details) {
+            if (myUpdateQueue.isEmpty()) {
+                throw details;
+            }
+
+            // With the update queue, harvests shouldn't depend on Solr being available
+            LOGGER.warn(MessageCodes.PRL_062, details.getCause().getMessage());
+
+            return Map.of();
+        }
+
+        return storedHashes;
+    }
+
+    /**
+     * Synchronous wrapper around {@link SolrGateway#addDocs(java.util.Collection)}, or around appending to
+     * the Solr update queue if it's configured.
+     *
+     * @param aDocs A list of Solr documents to add (possibly empty)
+     * @param aMode The indexing mode
+     * @throws InterruptedException If the calling thread is interrupted
+     * @throws CompletionException If the update failed
+     */
+    private void addDocs(final List<SolrInputDocument> aDocs, final IndexMode aMode) throws InterruptedException {
+        if (isQueued(aMode)) {
+            appendToQueue(aDocs, List.of());
+        } else {
+            await(getSolrGateway(aMode).addDocs(aDocs));
+        }
     }
 
     /**
-     * Synchronous wrapper around {@link JavaAsyncSolrClient#deleteByIds(List)}.
+     * Synchronous wrapper around {@link SolrGateway#deleteByIds(List)}, or around appending to the Solr
+     * update queue if it's configured.
      *
      * @param aDeletedRecordIDs A list of record identifiers that have been deleted (possibly empty)
-     * @return The result of performing the Solr update
+     * @param aMode The indexing mode
+     * @throws InterruptedException If the calling thread is interrupted
+     * @throws CompletionException If the update failed
+     */
+    private void deleteByIds(final List<String> aDeletedRecordIDs, final IndexMode aMode)
+            throws InterruptedException {
+        if (isQueued(aMode)) {
+            appendToQueue(List.of(), aDeletedRecordIDs);
+        } else {
+            await(getSolrGateway(aMode).deleteByIds(aDeletedRecordIDs));
+        }
+
+        getThumbnailVerifier(aMode).supersede(aDeletedRecordIDs);
+    }
+
+    /**
+     * @param aMode The indexing mode
+     * @return Whether updates are written to the Solr update queue, instead of being sent to Solr directly; a rebuild
+     *         is always sent directly
+     */
+    private boolean isQueued(final IndexMode aMode) {
+        return myUpdateQueue.isPresent() && aMode != IndexMode.REBUILD;
+    }
+
+    /**
+     * @param aMode The indexing mode
+     * @return The gateway to the Solr core that updates are sent to
+     */
+    private SolrGateway getSolrGateway(final IndexMode aMode) {
+        return aMode == IndexMode.REBUILD ? myRebuildSolrGateway.get() : mySolrGateway;
+    }
+
+    /**
+     * @param aMode The indexing mode
+     * @return The verifier that patches the thumbnails of records in the Solr core that updates are sent to
+     */
+    private ThumbnailVerifier getThumbnailVerifier(final IndexMode aMode) {
+        return aMode == IndexMode.REBUILD ? myRebuildThumbnailVerifier.get() : myThumbnailVerifier;
+    }
+
+    /**
+     * Appends updates to the Solr update queue.
+     *
+     * @param aDocs A list of Solr documents to add
+     * @param aDeletedRecordIDs A list of record identifiers that have been deleted
+     * @throws CompletionException If the updates could not be written
+     */
+    private void appendToQueue(final List<SolrInputDocument> aDocs, final List<String> aDeletedRecordIDs) {
+        try {
+            myUpdateQueue.get().append(aDocs, aDeletedRecordIDs);
+        } catch (final IOException details) {
+            throw new CompletionException(details);
+        }
+    }
+
+    /**
+     * Waits for a Solr request to complete.
+     *
+     * @param <T> The type of the response
+     * @param aRequest A Solr request
+     * @return The response
      * @throws InterruptedException If the calling thread is interrupted
+     * @throws CompletionException If the request failed
      */
-    private UpdateResponse deleteByIds(final List<String> aDeletedRecordIDs) throws InterruptedException {
-        final CompletionStage<UpdateResponse> delete = mySolrClient.deleteByIds(aDeletedRecordIDs);
-        final CountDownLatch deleteQueryCompletion = new CountDownLatch(1);
+    private static <T> T await(final CompletionStage<T> aRequest) throws InterruptedException {
+        final CountDownLatch completion = new CountDownLatch(1);
 
-        delete.thenRun(deleteQueryCompletion::countDown);
-        deleteQueryCompletion.await();
+        aRequest.whenComplete((result, error) -> completion.countDown());
+        completion.await();
 
-        return delete.toCompletableFuture().join();
+        return aRequest.toCompletableFuture().join();
+    }
+
+    /**
+     * Loads the recent latencies of outgoing HTTP requests that were saved before a restart; a file that's missing or
+     * can't be read is ignored, since the latencies are relearned.
+     *
+     * @param aFile The host latencies file
+     */
+    private void loadHostLatencies(final Path aFile) {
+        final JsonObject latencies;
+
+        if (!Files.exists(aFile)) {
+            return;
+        }
+
+        try {
+            latencies = new JsonObject(Files.readString(aFile));
+        } catch (final IOException | DecodeException details) {
+            LOGGER.warn(MessageCodes.PRL_091, aFile, details.getMessage());
+            return;
+        }
+
+        myOaipmhLatencies.load(latencies.getJsonObject(OAIPMH_PAGES, new JsonObject()));
+        myThumbnailLatencies.load(latencies.getJsonObject(THUMBNAIL_CHECKS, new JsonObject()));
+    }
+
+    /**
+     * Saves the recent latencies of outgoing HTTP requests, so that they survive a restart.
+     *
+     * @return A Future that succeeds once the latencies are saved, or once saving them has failed
+     */
+    private Future<Void> saveHostLatencies() {
+        if (myHostLatenciesFile.isEmpty()) {
+            return Future.succeededFuture();
+        }
+
+        return myVertx.<Void>executeBlocking(execution -> {
+            final Path file = myHostLatenciesFile.get();
+            final Path tmpFile = file.resolveSibling(file.getFileName() + ".tmp");
+            final JsonObject latencies = new JsonObject().put(OAIPMH_PAGES, myOaipmhLatencies.toJson())
+                    .put(THUMBNAIL_CHECKS, myThumbnailLatencies.toJson());
+
+            try {
+                Files.writeString(tmpFile, latencies.encode());
+                Files.move(tmpFile, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (final IOException details) {
+                LOGGER.warn(MessageCodes.PRL_092, file, details.getMessage());
+            }
+
+            execution.complete();
+        }, false);
     }
 
     @Override
     public Future<Void> close() {
+        myUpdateQueueIndexer.ifPresent(SolrUpdateQueueIndexer::stop);
+        myThumbnailVerifier.stop();
+        myRebuildThumbnailVerifier.ifPresent(ThumbnailVerifier::stop);
+        myCancelConsumer.unregister();
+        myVertx.cancelTimer(myHostLatenciesTimerID);
         myWebClient.close();
-        mySolrClient.shutdown();
+        mySolrGateway.close();
+        myRebuildSolrGateway.ifPresent(SolrGateway::close);
+        myMappingPool.shutdown();
+
+        return saveHostLatencies().compose(saved -> myHarvestScheduleStoreService.close());
+    }
+
+    /**
+     * The ways that records are indexed.
+     */
+    private enum IndexMode {
+
+        /**
+         * Harvesting into the live Solr core; records whose content hasn't changed since they were indexed are skipped.
+         */
+        HARVEST,
+
+        /**
+         * Reindexing archived records into the live Solr core; every record is indexed.
+         */
+        REINDEX,
 
-        return myHarvestScheduleStoreService.close();
+        /**
+         * Reindexing archived records into the standby Solr core; every record is indexed, directly and without
+         * commits, since the core isn't serving reads.
+         */
+        REBUILD
     }
 }
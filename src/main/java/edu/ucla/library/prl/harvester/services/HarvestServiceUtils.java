@@ -8,7 +8,11 @@ import java.net.MalformedURLException;
 import java.net.URL;
 import java.net.URLEncoder;
 import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.text.Normalizer;
 import java.util.ArrayList;
+import java.util.HexFormat;
 import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
@@ -19,6 +23,8 @@ import java.util.Set;
 import java.util.Map.Entry;
 import java.util.concurrent.CompletionStage;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.regex.Pattern;
 import java.util.stream.Collector;
 import java.util.stream.Collectors;
@@ -29,11 +35,16 @@ import org.apache.solr.common.SolrInputDocument;
 import org.dspace.xoai.model.oaipmh.Record;
 import org.dspace.xoai.model.xoai.Element;
 
+import edu.ucla.library.prl.harvester.Constants;
+import edu.ucla.library.prl.harvester.HostLatencies;
 import edu.ucla.library.prl.harvester.MessageCodes;
 
 import info.freelibrary.util.Logger;
 import info.freelibrary.util.LoggerFactory;
 
+import io.vavr.Tuple;
+import io.vavr.Tuple2;
+
 import io.vertx.core.CompositeFuture;
 import io.vertx.core.Future;
 import io.vertx.core.http.HttpHeaders;
@@ -51,6 +62,37 @@ final class HarvestServiceUtils {
      */
     private static final Logger LOGGER = LoggerFactory.getLogger(HarvestServiceUtils.class, MessageCodes.BUNDLE);
 
+    /**
+     * The name of the Solr field that stores the ID of a record's institution.
+     */
+    static final String INSTITUTION_ID = "institution_id";
+
+    /**
+     * The name of the Solr field that stores the name of a record's institution.
+     */
+    static final String INSTITUTION_NAME = "institutionName";
+
+    /**
+     * The name of the Solr field that stores a record's content hash.
+     */
+    static final String RECORD_HASH = "record_hash";
+
+    /**
+     * The version of the record-to-document mapping; bump this whenever {@link #getSolrDocument} changes the way it
+     * maps record content, so that every record gets re-indexed on its next harvest.
+     */
+    private static final String RECORD_HASH_VERSION = "2";
+
+    /**
+     * The algorithm used to compute record content hashes.
+     */
+    private static final String RECORD_HASH_ALGORITHM = "SHA-256";
+
+    /**
+     * A pattern matching runs of whitespace.
+     */
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
     /**
      * dc:date
      */
@@ -97,8 +139,8 @@ final class HarvestServiceUtils {
     /**
      * A Collector that partitions a list of URLs by whether or not they have the filetype extension for an image.
      */
-    private static final Collector<URL, ?, Map<Boolean, List<URL>>> IMAGE_URL_PARTITIONER = Collectors
-            .partitioningBy(url -> url.getPath().toLowerCase(Locale.ENGLISH).matches(IMAGE_FILETYPE_EXTENSION));
+    private static final Collector<URL, ?, Map<Boolean, List<URL>>> IMAGE_URL_PARTITIONER =
+            Collectors.partitioningBy(HarvestServiceUtils::hasImageFiletypeExtension);
 
     /**
      * Private constructor for utility class to prohibit instantiation.
@@ -106,36 +148,84 @@ final class HarvestServiceUtils {
     private HarvestServiceUtils() {
     }
 
+    /**
+     * Transforms an OAI-PMH record into a PRL Solr document, without waiting for thumbnail URLs to be checked.
+     * <p>
+     * If one of the record's possible thumbnail URLs has the filetype extension for an image, or has a template that
+     * is known to serve images, it's used as the thumbnail. Otherwise, the document has no thumbnail for now, and the
+     * possible thumbnail URLs that aren't known not to serve images are returned so that they can be checked later on
+     * (see {@link ThumbnailVerifier}).
+     *
+     * @param aRecord A Dublin Core record
+     * @param anInstitutionID The ID of the associated institution
+     * @param anInstitutionName The name of the associated institution
+     * @param aBaseURL An OAI-PMH repository base URL
+     * @param aSetNameLookup A lookup table that maps setSpec to setName
+     * @param aClassifier A classifier of thumbnail URLs, based on past checks
+     * @return A 2-tuple containing the record transformed to a Solr document, and the list of possible thumbnail URLs
+     *         that still need to be checked (possibly empty)
+     */
+    @SuppressWarnings("PMD.ExcessiveParameterList")
+    static Tuple2<SolrInputDocument, List<URL>> getSolrDocument(final Record aRecord, final int anInstitutionID,
+            final String anInstitutionName, final URL aBaseURL, final Map<String, String> aSetNameLookup,
+            final ThumbnailUrlClassifier aClassifier) {
+        final Map<Boolean, List<URL>> partitionedUrls =
+                getPossibleThumbnailUrls(aRecord).stream().collect(IMAGE_URL_PARTITIONER);
+        final List<URL> urlsWithImageFiletypeExtension = partitionedUrls.get(true);
+        final List<URL> urlsToCheck = new ArrayList<>();
+
+        if (!urlsWithImageFiletypeExtension.isEmpty()) {
+            // No need to check any of the URLs if one of them has an image filetype extension
+            return Tuple.of(getSolrDocument(aRecord, anInstitutionID, anInstitutionName, aBaseURL, aSetNameLookup,
+                    Optional.of(urlsWithImageFiletypeExtension.get(0))), List.of());
+        }
+
+        for (final URL url : partitionedUrls.get(false)) {
+            final Optional<Boolean> isImage = aClassifier.classify(url);
+
+            if (isImage.isEmpty()) {
+                urlsToCheck.add(url);
+            } else if (isImage.get()) {
+                return Tuple.of(getSolrDocument(aRecord, anInstitutionID, anInstitutionName, aBaseURL, aSetNameLookup,
+                        Optional.of(url)), List.of());
+            }
+        }
+
+        return Tuple.of(getSolrDocument(aRecord, anInstitutionID, anInstitutionName, aBaseURL, aSetNameLookup,
+                Optional.empty()), urlsToCheck);
+    }
+
     /**
      * Transforms an OAI-PMH record into a PRL Solr document.
      * <p>
      * This mapper takes a very permissive stance on the contents of a record. There are no required elements.
      *
      * @param aRecord A Dublin Core record
+     * @param anInstitutionID The ID of the associated institution
      * @param anInstitutionName The name of the associated institution
      * @param aBaseURL An OAI-PMH repository base URL
      * @param aSetNameLookup A lookup table that maps setSpec to setName
-     * @param aWebClient An HTTP client for checking thumbnail URLs
+     * @param aThumbnailURL The optional thumbnail URL, which must be the value of one of the record's elements
      * @return The record transformed to a Solr document
      */
     @SuppressWarnings({ "PMD.AvoidLiteralsInIfCondition", "PMD.CognitiveComplexity", "PMD.EmptyCatchBlock",
         "PMD.ExcessiveMethodLength", "PMD.NPathComplexity" })
-    static Future<SolrInputDocument> getSolrDocument(final Record aRecord, final String anInstitutionName,
-            final URL aBaseURL, final Map<String, String> aSetNameLookup, final WebClient aWebClient) {
+    static SolrInputDocument getSolrDocument(final Record aRecord, final int anInstitutionID,
+            final String anInstitutionName, final URL aBaseURL, final Map<String, String> aSetNameLookup,
+            final Optional<URL> aThumbnailURL) {
         final SolrInputDocument doc = new SolrInputDocument();
         final Map<String, List<String>> dcElementsMap = new HashMap<>();
         final String recordIdentifier = aRecord.getHeader().getIdentifier();
         // PRL requires data providers to define sets in order to participate, so at least one setSpec must be present
         final List<String> setSpecs = aRecord.getHeader().getSetSpecs();
-        // Get an iterator over the elements inside the top-level "dc" element
-        final List<Element> allElementsWithAValue = aRecord.getMetadata().getValue().getElements().get(0).getElements()
-                .parallelStream().filter(e -> getValueOfFirstField(e) != null).toList();
-
-        final List<URL> possibleThumbnailUrls = new LinkedList<>();
+        final List<Element> allElementsWithAValue = getElementsWithAValue(aRecord);
+        final List<URL> possibleItemUrls = new LinkedList<>();
         final List<String> setNames = new ArrayList<>(setSpecs.size());
+        final List<String> stringifiedItemUrls;
 
         doc.setField("id", recordIdentifier);
-        doc.setField("institutionName", anInstitutionName);
+        doc.setField(INSTITUTION_ID, anInstitutionID);
+        doc.setField(INSTITUTION_NAME, anInstitutionName);
 
         for (final String setSpec : setSpecs) {
             setNames.add(aSetNameLookup.get(setSpec));
@@ -144,107 +234,188 @@ final class HarvestServiceUtils {
         doc.setField("collectionName", setNames);
         doc.setField("set_spec", setSpecs);
 
+        if (aThumbnailURL.isPresent()) {
+            LOGGER.debug(MessageCodes.PRL_018, recordIdentifier, aThumbnailURL.get());
+
+            doc.setField("thumbnail_url", aThumbnailURL.get().toString());
+        }
+
         for (final Element element : allElementsWithAValue) {
             final String name = element.getName();
             final String value = getValueOfFirstField(element);
+            final boolean valueIsNotThumbnailURL =
+                    aThumbnailURL.map(url -> !url.toString().equals(value)).orElse(true);
 
-            if (THUMBNAIL_URL_FIELDS.contains(name)) {
+            // Skip over the thumbnail URL
+            if (ITEM_URL_FIELD_PATTERN.matcher(name).matches() && valueIsNotThumbnailURL) {
                 try {
-                    possibleThumbnailUrls.add(new URL(value));
+                    possibleItemUrls.add(new URL(value));
                 } catch (final MalformedURLException details) {
                     // No worries, it's just not a URL
                 }
             }
         }
 
-        return findImageURL(possibleThumbnailUrls, aWebClient).map(thumbnailURL -> {
-            final List<URL> possibleItemUrls = new LinkedList<>();
-            final List<String> stringifiedItemUrls;
+        possibleItemUrls.sort((url1, url2) -> {
+            // The higher-scoring URL should be placed first
+            // If url1 scores higher than url2, put url1 first (negative return value); otherwise, url2 first
+            // (positive)
+            return scoreURL(url2, recordIdentifier, aBaseURL) - scoreURL(url1, recordIdentifier, aBaseURL);
+        });
 
-            if (thumbnailURL.isPresent()) {
-                LOGGER.debug(MessageCodes.PRL_018, recordIdentifier, thumbnailURL.get());
+        // SolrInputDocument wants strings
+        stringifiedItemUrls = unwrapUrls(possibleItemUrls);
 
-                doc.setField("thumbnail_url", thumbnailURL.get().toString());
-            }
+        if (!stringifiedItemUrls.isEmpty()) {
+            // The URL with the highest score is probably the canonical item URL
+            doc.setField("external_link", stringifiedItemUrls.get(0).toString());
+        }
+        if (stringifiedItemUrls.size() > 1) {
+            // All other URLs go in this field
+            doc.setField("alternate_external_link", stringifiedItemUrls.subList(1, stringifiedItemUrls.size()));
+        }
 
-            for (final Element element : allElementsWithAValue) {
-                final String name = element.getName();
-                final String value = getValueOfFirstField(element);
-                final boolean valueIsNotThumbnailURL =
-                        thumbnailURL.map(url -> !url.toString().equals(value)).orElse(true);
-
-                // Skip over the thumbnail URL
-                if (ITEM_URL_FIELD_PATTERN.matcher(name).matches() && valueIsNotThumbnailURL) {
-                    try {
-                        possibleItemUrls.add(new URL(value));
-                    } catch (final MalformedURLException details) {
-                        // No worries, it's just not a URL
-                    }
+        for (final Element element : allElementsWithAValue) {
+            final String name = element.getName();
+            final String value = getValueOfFirstField(element);
+            final boolean valueIsNotThumbnailURL =
+                    aThumbnailURL.map(url -> !url.toString().equals(value)).orElse(true);
+
+            // Skip over the item URLs and thumbnail URL
+            if (DC_ELEMENTS.contains(name) && valueIsNotThumbnailURL && !stringifiedItemUrls.contains(value)) {
+                if (dcElementsMap.containsKey(name)) {
+                    dcElementsMap.get(name).add(value);
+                } else {
+                    // First instance of element
+                    final List<String> elements = new LinkedList<>();
+
+                    elements.add(value);
+                    dcElementsMap.put(name, elements);
                 }
             }
+        }
 
-            possibleItemUrls.sort((url1, url2) -> {
-                // The higher-scoring URL should be placed first
-                // If url1 scores higher than url2, put url1 first (negative return value); otherwise, url2 first
-                // (positive)
-                return scoreURL(url2, recordIdentifier, aBaseURL) - scoreURL(url1, recordIdentifier, aBaseURL);
-            });
+        // Now that we know which values are item URLs and thumbnail URLs, we can avoid them
+        for (final Entry<String, List<String>> entry : dcElementsMap.entrySet()) {
+            doc.setField(entry.getKey() + "_keyword", entry.getValue());
 
-            // SolrInputDocument wants strings
-            stringifiedItemUrls = unwrapUrls(possibleItemUrls);
+            switch (entry.getKey()) {
+                case DC_DATE:
+                    final List<Integer> decades = DateUtils.getDecadesAscending(entry.getValue());
 
-            if (!stringifiedItemUrls.isEmpty()) {
-                // The URL with the highest score is probably the canonical item URL
-                doc.setField("external_link", stringifiedItemUrls.get(0).toString());
-            }
-            if (stringifiedItemUrls.size() > 1) {
-                // All other URLs go in this field
-                doc.setField("alternate_external_link", stringifiedItemUrls.subList(1, stringifiedItemUrls.size()));
+                    if (!decades.isEmpty()) {
+                        doc.setField("decade", decades);
+                        doc.setField("sort_decade", decades.get(0));
+                    }
+                    break;
+                case DC_TITLE:
+                    doc.setField("first_title", entry.getValue().get(0));
+                    break;
+                default:
+                    break;
             }
+        }
 
-            for (final Element element : allElementsWithAValue) {
-                final String name = element.getName();
-                final String value = getValueOfFirstField(element);
-                final boolean valueIsNotThumbnailURL =
-                        thumbnailURL.map(url -> !url.toString().equals(value)).orElse(true);
+        return doc;
+    }
 
-                // Skip over the item URLs and thumbnail URL
-                if (DC_ELEMENTS.contains(name) && valueIsNotThumbnailURL && !stringifiedItemUrls.contains(value)) {
-                    if (dcElementsMap.containsKey(name)) {
-                        dcElementsMap.get(name).add(value);
-                    } else {
-                        // First instance of element
-                        final List<String> elements = new LinkedList<>();
+    /**
+     * @param aRecord A Dublin Core record
+     * @return The values of the record's elements that we expect may contain a thumbnail URL, and that are URLs
+     */
+    @SuppressWarnings("PMD.EmptyCatchBlock")
+    private static List<URL> getPossibleThumbnailUrls(final Record aRecord) {
+        final List<URL> possibleThumbnailUrls = new LinkedList<>();
 
-                        elements.add(value);
-                        dcElementsMap.put(name, elements);
-                    }
+        for (final Element element : getElementsWithAValue(aRecord)) {
+            if (THUMBNAIL_URL_FIELDS.contains(element.getName())) {
+                try {
+                    possibleThumbnailUrls.add(new URL(getValueOfFirstField(element)));
+                } catch (final MalformedURLException details) {
+                    // No worries, it's just not a URL
                 }
             }
+        }
 
-            // Now that we know which values are item URLs and thumbnail URLs, we can avoid them
-            for (final Entry<String, List<String>> entry : dcElementsMap.entrySet()) {
-                doc.setField(entry.getKey() + "_keyword", entry.getValue());
-
-                switch (entry.getKey()) {
-                    case DC_DATE:
-                        final List<Integer> decades = DateUtils.getDecadesAscending(entry.getValue());
-
-                        if (!decades.isEmpty()) {
-                            doc.setField("decade", decades);
-                            doc.setField("sort_decade", decades.get(0));
-                        }
-                        break;
-                    case DC_TITLE:
-                        doc.setField("first_title", entry.getValue().get(0));
-                        break;
-                    default:
-                        break;
-                }
+        return possibleThumbnailUrls;
+    }
+
+    /**
+     * @param aRecord A Dublin Core record
+     * @return The elements inside the record's top-level "dc" element that have a value
+     */
+    private static List<Element> getElementsWithAValue(final Record aRecord) {
+        return aRecord.getMetadata().getValue().getElements().get(0).getElements().stream()
+                .filter(e -> getValueOfFirstField(e) != null).toList();
+    }
+
+    /**
+     * Computes a hash of everything in a record that {@link #getSolrDocument} uses to build a Solr document.
+     * <p>
+     * Two records with the same hash map to the same Solr document (modulo thumbnail URL verification), so a record
+     * whose hash matches the one stored alongside its Solr document doesn't need to be re-indexed.
+     *
+     * @param aRecord A Dublin Core record
+     * @param anInstitutionID The ID of the associated institution
+     * @param anInstitutionName The name of the associated institution
+     * @param aSetNameLookup A lookup table that maps setSpec to setName
+     * @return The hex-encoded content hash of the record
+     */
+    static String getRecordHash(final Record aRecord, final int anInstitutionID, final String anInstitutionName,
+            final Map<String, String> aSetNameLookup) {
+        final List<String> setSpecs = aRecord.getHeader().getSetSpecs();
+        final List<String> parts = new ArrayList<>();
+
+        parts.add(RECORD_HASH_VERSION);
+        parts.add(Integer.toString(anInstitutionID));
+        parts.add(anInstitutionName);
+
+        for (final String setSpec : setSpecs) {
+            parts.add(setSpec);
+            parts.add(aSetNameLookup.get(setSpec));
+        }
+
+        // Element order is significant (e.g. the first title is used for sorting), so it is preserved here
+        for (final Element element : aRecord.getMetadata().getValue().getElements().get(0).getElements()) {
+            final String value = getValueOfFirstField(element);
+
+            if (value != null) {
+                parts.add(element.getName());
+                parts.add(value);
             }
+        }
 
-            return doc;
-        });
+        return hash(parts);
+    }
+
+    /**
+     * Hashes a list of strings, ignoring differences in Unicode normalization form and insignificant whitespace.
+     *
+     * @param aParts The strings to hash
+     * @return The hex-encoded hash
+     */
+    static String hash(final List<String> aParts) {
+        final MessageDigest digest;
+
+        try {
+            digest = MessageDigest.getInstance(RECORD_HASH_ALGORITHM);
+        } catch (final NoSuchAlgorithmException details) {
+            // Every implementation of the Java platform is required to support SHA-256
+            throw new IllegalStateException(details);
+        }
+
+        for (final String part : aParts) {
+            if (part != null) {
+                final String normalized = Normalizer.normalize(part, Normalizer.Form.NFC);
+
+                digest.update(WHITESPACE.matcher(normalized).replaceAll(" ").strip().getBytes(StandardCharsets.UTF_8));
+            }
+
+            // Separate the parts so that e.g. ["ab", "c"] and ["a", "bc"] hash differently
+            digest.update((byte) 0);
+        }
+
+        return HexFormat.of().formatHex(digest.digest());
     }
 
     /**
@@ -317,6 +488,14 @@ final class HarvestServiceUtils {
                 !components[2].equals(EMPTY);
     }
 
+    /**
+     * @param aURL A URL
+     * @return Whether the URL's path has the filetype extension for an image
+     */
+    private static boolean hasImageFiletypeExtension(final URL aURL) {
+        return aURL.getPath().toLowerCase(Locale.ENGLISH).matches(IMAGE_FILETYPE_EXTENSION);
+    }
+
     /**
      * Finds an image URL, if any, out of the provided list of URLs.
      *
@@ -325,6 +504,27 @@ final class HarvestServiceUtils {
      * @return The optional image URL
      */
     static Future<Optional<URL>> findImageURL(final List<URL> aPossibleImageUrls, final WebClient aWebClient) {
+        return findImageURL(aPossibleImageUrls, aWebClient, new ThumbnailUrlClassifier(),
+                new HostLatencies(Constants.DEFAULT_OAIPMH_CLIENT_HTTP_TIMEOUT, Constants.DEFAULT_HTTP_TIMEOUT_FLOOR,
+                        Constants.DEFAULT_HTTP_TIMEOUT_CEILING));
+    }
+
+    /**
+     * Finds an image URL, if any, out of the provided list of URLs.
+     * <p>
+     * URLs that the classifier knows about aren't checked with an HTTP request; the results of the checks that are
+     * made are recorded with the classifier, and their latencies with the host latencies that their timeouts are
+     * derived from. Only successful (2xx) responses teach the classifier anything; an error response or a timeout
+     * leaves it unknown whether the URL serves an image.
+     *
+     * @param aPossibleImageUrls The list of URLs to try
+     * @param aWebClient An HTTP client for checking URLs
+     * @param aClassifier A classifier of thumbnail URLs, based on past checks
+     * @param aHostLatencies The recent latencies of thumbnail checks
+     * @return The optional image URL
+     */
+    static Future<Optional<URL>> findImageURL(final List<URL> aPossibleImageUrls, final WebClient aWebClient,
+            final ThumbnailUrlClassifier aClassifier, final HostLatencies aHostLatencies) {
         final Map<Boolean, List<URL>> partitionedUrls = aPossibleImageUrls.stream().collect(IMAGE_URL_PARTITIONER);
         final List<URL> urlsWithImageFiletypeExtension = partitionedUrls.get(true);
 
@@ -332,16 +532,43 @@ final class HarvestServiceUtils {
             // No need to send HEAD request if any of the URLs have an image filetype extension
             return Future.succeededFuture(Optional.of(urlsWithImageFiletypeExtension.get(0)));
         } else {
-            // None of the URLs have an image filetype extension, so check Content-Type of HEAD response
-            final Stream<Future<URL>> contentTypeChecks = partitionedUrls.get(false).stream().map(url -> {
-                final HttpRequest<?> headRequest = aWebClient.headAbs(url.toString());
+            final List<URL> urlsToCheck = new ArrayList<>();
 
-                return headRequest.send().compose(response -> {
+            for (final URL url : partitionedUrls.get(false)) {
+                final Optional<Boolean> isImage = aClassifier.classify(url);
+
+                if (isImage.isEmpty()) {
+                    urlsToCheck.add(url);
+                } else if (isImage.get()) {
+                    // No need to send HEAD request if past checks of similar URLs have all found images
+                    return Future.succeededFuture(Optional.of(url));
+                }
+            }
+
+            // Check Content-Type of HEAD response for the rest of the URLs
+            final Stream<Future<URL>> contentTypeChecks = urlsToCheck.stream().map(url -> {
+                final long timeout = aHostLatencies.getTimeout(url);
+                final HttpRequest<?> headRequest = aWebClient.headAbs(url.toString()).timeout(timeout);
+                final long startTime = System.nanoTime();
+
+                return headRequest.send().onFailure(details -> {
+                    if (details instanceof TimeoutException) {
+                        aHostLatencies.record(url, timeout);
+                    }
+                }).compose(response -> {
                     final String contentType = response.getHeader(HttpHeaders.CONTENT_TYPE.toString());
+                    final boolean isImage = contentType != null && contentType.contains("image");
 
                     LOGGER.trace(MessageCodes.PRL_017, headRequest.method(), url, response.statusCode(), contentType);
 
-                    if (contentType.contains("image")) {
+                    aHostLatencies.record(url, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime));
+
+                    // An error page (e.g. from an overloaded server) says nothing about what the URL serves
+                    if (response.statusCode() >= 200 && response.statusCode() < 300) {
+                        aClassifier.record(url, isImage);
+                    }
+
+                    if (isImage) {
                         return Future.succeededFuture(url);
                     } else {
                         return Future.failedFuture("not an image URL");
@@ -376,7 +603,8 @@ final class HarvestServiceUtils {
                 CompositeFuture.all(aListOfFutures).map(CompositeFuture::<T>list).toCompletionStage();
         final CountDownLatch completion = new CountDownLatch(1);
 
-        unwrap.thenRun(completion::countDown);
+        // Count down on failure too, so that the failure is rethrown below rather than blocking forever
+        unwrap.whenComplete((result, error) -> completion.countDown());
         completion.await();
 
         return unwrap.toCompletableFuture().join();
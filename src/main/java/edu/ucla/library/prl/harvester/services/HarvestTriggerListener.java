@@ -0,0 +1,59 @@
+
+package edu.ucla.library.prl.harvester.services;
+
+import org.quartz.JobExecutionContext;
+import org.quartz.Trigger;
+import org.quartz.listeners.TriggerListenerSupport;
+
+import edu.ucla.library.prl.harvester.MessageCodes;
+import edu.ucla.library.prl.harvester.Metrics;
+
+import info.freelibrary.util.Logger;
+import info.freelibrary.util.LoggerFactory;
+
+/**
+ * Counts the scheduled harvest runs that didn't start on time.
+ * <p>
+ * Quartz doesn't execute a job while it's already executing (see {@link HarvestJobSchedulerServiceImpl.RunHarvest}),
+ * so a trigger that fires while its job is running is blocked until the run finishes. If it's released within the
+ * scheduler's misfire threshold, it starts late; otherwise it misfires, and all the runs that it missed are run once,
+ * right away. Either may also happen when all of the scheduler's threads are busy.
+ */
+final class HarvestTriggerListener extends TriggerListenerSupport {
+
+    /**
+     * The logger for the listener.
+     */
+    private static final Logger LOGGER = LoggerFactory.getLogger(HarvestTriggerListener.class, MessageCodes.BUNDLE);
+
+    /**
+     * The name of the listener.
+     */
+    private static final String NAME = HarvestTriggerListener.class.getSimpleName();
+
+    /**
+     * How late a run may start (in milliseconds) before it's counted as delayed.
+     */
+    private static final long DELAY_THRESHOLD = 1000;
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public void triggerFired(final Trigger aTrigger, final JobExecutionContext aContext) {
+        final long delay = aContext.getFireTime().getTime() - aContext.getScheduledFireTime().getTime();
+
+        if (delay > DELAY_THRESHOLD) {
+            Metrics.increment(Metrics.HARVEST_TRIGGERS_DELAYED);
+            LOGGER.info(MessageCodes.PRL_072, aTrigger.getJobKey().getName(), delay);
+        }
+    }
+
+    @Override
+    public void triggerMisfired(final Trigger aTrigger) {
+        Metrics.increment(Metrics.HARVEST_TRIGGERS_MISFIRED);
+        LOGGER.info(MessageCodes.PRL_073, aTrigger.getJobKey().getName(), aTrigger.getNextFireTime());
+    }
+}
@@ -0,0 +1,158 @@
+package edu.ucla.library.prl.harvester.services;
+
+import edu.ucla.library.prl.harvester.Job;
+import edu.ucla.library.prl.harvester.JobResult;
+import edu.ucla.library.prl.harvester.LocalMessageCodec;
+
+import info.freelibrary.util.StringUtils;
+
+import io.vertx.core.Future;
+import io.vertx.core.Vertx;
+import io.vertx.core.eventbus.DeliveryOptions;
+import io.vertx.core.eventbus.EventBus;
+import io.vertx.core.eventbus.Message;
+import io.vertx.core.eventbus.MessageConsumer;
+import io.vertx.core.eventbus.ReplyException;
+import io.vertx.core.eventbus.ReplyFailure;
+import io.vertx.serviceproxy.HelperUtils;
+
+/**
+ * A harvest service proxy that passes jobs and job results to a harvest service on the same Vert.x instance as they
+ * are, instead of encoding them to JSON and parsing them again (which re-validates their cron expressions, URLs, etc.)
+ * like the generated service proxy does.
+ * <p>
+ * If no harvest service has been registered for local calls (see {@link #register(Vertx, HarvestService)}), calls go
+ * through the generated service proxy instead.
+ */
+public final class LocalHarvestServiceProxy implements HarvestService {
+
+    /**
+     * The event bus address that the service is registered on, for local calls.
+     */
+    static final String LOCAL_ADDRESS = StringUtils.format("{}.local", ADDRESS);
+
+    /**
+     * The message header that holds the name of the called method.
+     */
+    private static final String ACTION = "action";
+
+    /**
+     * The name of the run method.
+     */
+    private static final String RUN = "run";
+
+    /**
+     * The name of the reindex method.
+     */
+    private static final String REINDEX = "reindex";
+
+    /**
+     * The name of the rebuild method.
+     */
+    private static final String REBUILD = "rebuild";
+
+    /**
+     * The event bus.
+     */
+    private final EventBus myEventBus;
+
+    /**
+     * The generated service proxy, for when there's no harvest service registered for local calls.
+     */
+    private final HarvestService myProxy;
+
+    /**
+     * The delivery options for local calls.
+     */
+    private final DeliveryOptions myDeliveryOptions;
+
+    /**
+     * Creates a local harvest service proxy.
+     *
+     * @param aVertx A Vert.x instance
+     * @param aProxy The generated service proxy
+     * @param aDeliveryOptions The delivery options of the generated service proxy
+     */
+    LocalHarvestServiceProxy(final Vertx aVertx, final HarvestService aProxy, final DeliveryOptions aDeliveryOptions) {
+        LocalMessageCodec.registerAll(aVertx.eventBus());
+
+        myEventBus = aVertx.eventBus();
+        myProxy = aProxy;
+        myDeliveryOptions = new DeliveryOptions(aDeliveryOptions).setLocalOnly(true);
+    }
+
+    /**
+     * Registers a harvest service for local calls. It should also be registered with a
+     * {@link io.vertx.serviceproxy.ServiceBinder}, which handles its closing.
+     *
+     * @param aVertx A Vert.x instance
+     * @param aService A harvest service
+     * @return The message consumer for local calls, which unregisters the service when it's unregistered
+     */
+    public static MessageConsumer<Job> register(final Vertx aVertx, final HarvestService aService) {
+        LocalMessageCodec.registerAll(aVertx.eventBus());
+
+        return aVertx.eventBus().<Job>localConsumer(LOCAL_ADDRESS, message -> {
+            final Future<JobResult> call;
+
+            if (REINDEX.equals(message.headers().get(ACTION))) {
+                call = aService.reindex(message.body());
+            } else if (REBUILD.equals(message.headers().get(ACTION))) {
+                call = aService.rebuild(message.body());
+            } else {
+                call = aService.run(message.body());
+            }
+
+            // Fail the same way that the generated service proxy does, so callers see the same ServiceException
+            call.onSuccess(message::reply).onFailure(details -> HelperUtils.manageFailure(message, details, false));
+        });
+    }
+
+    @Override
+    public Future<JobResult> run(final Job aJob) {
+        return request(RUN, aJob).recover(details -> {
+            return isUnregistered(details) ? myProxy.run(aJob) : Future.failedFuture(details);
+        });
+    }
+
+    @Override
+    public Future<JobResult> reindex(final Job aJob) {
+        return request(REINDEX, aJob).recover(details -> {
+            return isUnregistered(details) ? myProxy.reindex(aJob) : Future.failedFuture(details);
+        });
+    }
+
+    @Override
+    public Future<JobResult> rebuild(final Job aJob) {
+        return request(REBUILD, aJob).recover(details -> {
+            return isUnregistered(details) ? myProxy.rebuild(aJob) : Future.failedFuture(details);
+        });
+    }
+
+    @Override
+    public Future<Void> close() {
+        return myProxy.close();
+    }
+
+    /**
+     * Calls a method of the harvest service that's registered for local calls.
+     *
+     * @param anAction The name of the method
+     * @param aJob The job argument
+     * @return A Future that resolves to the result of the call
+     */
+    private Future<JobResult> request(final String anAction, final Job aJob) {
+        final DeliveryOptions options = new DeliveryOptions(myDeliveryOptions).addHeader(ACTION, anAction);
+
+        return myEventBus.<JobResult>request(LOCAL_ADDRESS, aJob, options).map(Message::body);
+    }
+
+    /**
+     * @param aFailure The failure of a local call
+     * @return Whether the call failed because no harvest service is registered for local calls
+     */
+    private static boolean isUnregistered(final Throwable aFailure) {
+        return aFailure instanceof ReplyException &&
+                ((ReplyException) aFailure).failureType() == ReplyFailure.NO_HANDLERS;
+    }
+}
@@ -0,0 +1,132 @@
+package edu.ucla.library.prl.harvester.services;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+
+import io.vertx.core.Vertx;
+import io.vertx.core.shareddata.LocalMap;
+import io.vertx.core.shareddata.Shareable;
+
+/**
+ * Keeps the live Solr core from being written to while the Solr index is rebuilt, since the writes would be lost once
+ * the rebuilt core is swapped in: a harvest's records would never be harvested again, since the next harvest of its
+ * job only asks for the records changed since then, and the records deleted by an admin would come back.
+ * <p>
+ * Harvests, reindexes and admin writes each {@link #tryEnter()} the gate before they start, and {@link #exit()} it
+ * once they're done. A rebuild {@link #close()}s the gate, so that writes are turned away instead, and waits for the
+ * writes that already entered to finish before it starts; it {@link #open()}s the gate again once it's done. The gate
+ * is shared by everything on a Vert.x instance (see {@link #getShared(Vertx)}), but not with other nodes, so rebuilds
+ * are only allowed when harvests can't run on other nodes.
+ */
+public final class RebuildGate implements Shareable {
+
+    /**
+     * The name of the Vert.x local map that holds the shared gate, which is also its key.
+     */
+    private static final String SHARED_GATE = RebuildGate.class.getName();
+
+    /**
+     * The futures that complete once the writes in progress have finished.
+     */
+    private final List<CompletableFuture<Void>> myDrains = new ArrayList<>();
+
+    /**
+     * The number of writes in progress.
+     */
+    private int myWriteCount;
+
+    /**
+     * Whether writes are being turned away.
+     */
+    private boolean myIsClosed;
+
+    /**
+     * Creates a gate; see {@link #getShared(Vertx)}.
+     */
+    private RebuildGate() {
+        // This is intentionally left empty
+    }
+
+    /**
+     * Gets the gate that's shared by everything on a Vert.x instance, creating it if this is its first user.
+     *
+     * @param aVertx A Vert.x instance
+     * @return The shared gate
+     */
+    public static RebuildGate getShared(final Vertx aVertx) {
+        final LocalMap<String, RebuildGate> gates = aVertx.sharedData().getLocalMap(SHARED_GATE);
+
+        return gates.computeIfAbsent(SHARED_GATE, key -> new RebuildGate());
+    }
+
+    /**
+     * Enters the gate before writing to the live Solr core, unless a rebuild is in progress. If this returns true,
+     * {@link #exit()} must be called once the write is done.
+     *
+     * @return Whether the write may go ahead
+     */
+    public synchronized boolean tryEnter() {
+        if (myIsClosed) {
+            return false;
+        }
+
+        myWriteCount += 1;
+
+        return true;
+    }
+
+    /**
+     * Exits the gate once a write to the live Solr core is done.
+     */
+    public void exit() {
+        final List<CompletableFuture<Void>> drains;
+
+        synchronized (this) {
+            myWriteCount -= 1;
+
+            if (myWriteCount > 0 || myDrains.isEmpty()) {
+                return;
+            }
+
+            drains = new ArrayList<>(myDrains);
+            myDrains.clear();
+        }
+
+        drains.forEach(drain -> drain.complete(null));
+    }
+
+    /**
+     * Closes the gate for a rebuild, so that writes to the live Solr core are turned away until it's opened again.
+     *
+     * @return A CompletionStage that completes once the writes in progress have finished
+     */
+    public synchronized CompletionStage<Void> close() {
+        final CompletableFuture<Void> drain = new CompletableFuture<>();
+
+        myIsClosed = true;
+
+        if (myWriteCount == 0) {
+            drain.complete(null);
+        } else {
+            myDrains.add(drain);
+        }
+
+        return drain;
+    }
+
+    /**
+     * Opens the gate once a rebuild is done.
+     */
+    public synchronized void open() {
+        myIsClosed = false;
+    }
+
+    /**
+     * @return The number of writes to the live Solr core in progress
+     */
+    public synchronized int getWriteCount() {
+        return myWriteCount;
+    }
+}
@@ -0,0 +1,140 @@
+package edu.ucla.library.prl.harvester.services;
+
+import org.apache.http.HttpStatus;
+
+import info.freelibrary.util.Logger;
+import info.freelibrary.util.LoggerFactory;
+
+import edu.ucla.library.prl.harvester.MessageCodes;
+
+import io.vertx.core.Future;
+import io.vertx.core.VertxException;
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.web.client.WebClient;
+
+/**
+ * Administers the Solr cores that the application writes to, via the Solr CoreAdmin and Config APIs.
+ */
+public final class SolrCores {
+
+    /**
+     * A logger.
+     */
+    private static final Logger LOGGER = LoggerFactory.getLogger(SolrCores.class, MessageCodes.BUNDLE);
+
+    /**
+     * The name of the user-defined property that sets a core's RAM buffer size (in megabytes); see solrconfig.xml.
+     */
+    public static final String RAM_BUFFER_SIZE_PROPERTY = "prl.ramBufferSizeMB";
+
+    /**
+     * The path of the CoreAdmin API, relative to the Solr base URL.
+     */
+    private static final String CORE_ADMIN_PATH = "/admin/cores";
+
+    /**
+     * The path of the Config API, relative to a Solr core URL.
+     */
+    private static final String CONFIG_PATH = "/config";
+
+    /**
+     * Private constructor for utility class.
+     */
+    private SolrCores() {
+        // This is intentionally left empty
+    }
+
+    /**
+     * Swaps the names of two Solr cores on the same Solr node, so that the requests sent to either core's URL go to
+     * the other core from then on.
+     *
+     * @param aWebClient A web client
+     * @param aCoreURL The URL of a Solr core
+     * @param anOtherCoreURL The URL of the other Solr core
+     * @return A Future that succeeds once the cores have been swapped
+     */
+    public static Future<Void> swap(final WebClient aWebClient, final String aCoreURL, final String anOtherCoreURL) {
+        final String coreURL = trimTrailingSlashes(aCoreURL);
+        final int nameIndex = coreURL.lastIndexOf('/');
+        final String coreAdminURL = coreURL.substring(0, nameIndex) + CORE_ADMIN_PATH;
+
+        return aWebClient.getAbs(coreAdminURL).addQueryParam("action", "SWAP")
+                .addQueryParam("core", coreURL.substring(nameIndex + 1))
+                .addQueryParam("other", getName(anOtherCoreURL)).send().compose(response -> {
+                    if (response.statusCode() != HttpStatus.SC_OK) {
+                        return Future.failedFuture(new VertxException(
+                                LOGGER.getMessage(MessageCodes.PRL_086, response.statusCode(), response.bodyAsString()),
+                                true));
+                    }
+
+                    return Future.succeededFuture();
+                });
+    }
+
+    /**
+     * Sets a user-defined property of a Solr core, via the Solr Config API, which reloads the core. The property is
+     * kept in the core's config overlay, so it moves with the core if it's swapped.
+     *
+     * @param aWebClient A web client
+     * @param aCoreURL The URL of a Solr core
+     * @param aName The name of the property
+     * @param aValue The value of the property
+     * @return A Future that succeeds once the property has been set
+     */
+    public static Future<Void> setUserProperty(final WebClient aWebClient, final String aCoreURL, final String aName,
+            final Object aValue) {
+        return updateConfig(aWebClient, aCoreURL,
+                new JsonObject().put("set-user-property", new JsonObject().put(aName, aValue)));
+    }
+
+    /**
+     * Removes a user-defined property of a Solr core, via the Solr Config API, which reloads the core.
+     *
+     * @param aWebClient A web client
+     * @param aCoreURL The URL of a Solr core
+     * @param aName The name of the property
+     * @return A Future that succeeds once the property has been removed
+     */
+    public static Future<Void> unsetUserProperty(final WebClient aWebClient, final String aCoreURL,
+            final String aName) {
+        return updateConfig(aWebClient, aCoreURL, new JsonObject().put("unset-user-property", aName));
+    }
+
+    /**
+     * @param aWebClient A web client
+     * @param aCoreURL The URL of a Solr core
+     * @param aCommand A Config API command
+     * @return A Future that succeeds once the command has been applied
+     */
+    private static Future<Void> updateConfig(final WebClient aWebClient, final String aCoreURL,
+            final JsonObject aCommand) {
+        final String coreURL = trimTrailingSlashes(aCoreURL);
+
+        return aWebClient.postAbs(coreURL + CONFIG_PATH).sendJsonObject(aCommand).compose(response -> {
+            if (response.statusCode() != HttpStatus.SC_OK) {
+                return Future.failedFuture(new VertxException(LOGGER.getMessage(MessageCodes.PRL_109, getName(coreURL),
+                        response.statusCode(), response.bodyAsString()), true));
+            }
+
+            return Future.succeededFuture();
+        });
+    }
+
+    /**
+     * @param aCoreURL The URL of a Solr core
+     * @return The name of the Solr core
+     */
+    private static String getName(final String aCoreURL) {
+        final String coreURL = trimTrailingSlashes(aCoreURL);
+
+        return coreURL.substring(coreURL.lastIndexOf('/') + 1);
+    }
+
+    /**
+     * @param aURL A URL
+     * @return The URL without any trailing slashes
+     */
+    private static String trimTrailingSlashes(final String aURL) {
+        return aURL.replaceAll("/+$", "");
+    }
+}
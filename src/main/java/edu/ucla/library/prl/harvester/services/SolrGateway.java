@@ -0,0 +1,444 @@
+package edu.ucla.library.prl.harvester.services;
+
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import org.apache.solr.client.solrj.SolrQuery;
+import org.apache.solr.client.solrj.SolrQuery.ORDER;
+import org.apache.solr.client.solrj.response.QueryResponse;
+import org.apache.solr.client.solrj.response.UpdateResponse;
+import org.apache.solr.common.SolrDocumentList;
+import org.apache.solr.common.SolrInputDocument;
+import org.apache.solr.common.params.CursorMarkParams;
+
+import info.freelibrary.util.Logger;
+import info.freelibrary.util.LoggerFactory;
+
+import edu.ucla.library.prl.harvester.Config;
+import edu.ucla.library.prl.harvester.MessageCodes;
+import edu.ucla.library.prl.harvester.Metrics;
+import edu.ucla.library.prl.harvester.Tracing;
+
+import io.ino.solrs.JavaAsyncSolrClient;
+import io.ino.solrs.RoundRobinLB;
+import io.ino.solrs.StaticSolrServers;
+
+import io.opentelemetry.api.common.AttributeKey;
+import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.api.trace.SpanKind;
+
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonObject;
+import io.vertx.core.shareddata.LocalMap;
+import io.vertx.core.shareddata.Shareable;
+
+/**
+ * The application's single way of talking to Solr, which is shared by everything on a Vert.x instance that sends
+ * requests to the same Solr replicas (see {@link #getShared(Vertx, JsonObject)}).
+ * <p>
+ * It owns the connection pools to Solr, balances queries across the replicas of the Solr core, retries failed
+ * requests with exponential backoff (each retried query going to the next replica), and counts requests, errors,
+ * retries and request time in {@link Metrics}.
+ * <p>
+ * Updates, commits and rollbacks all go to the one Solr core URL instead of being balanced across the replicas, so that
+ * a commit or rollback applies to the same core as the updates that preceded it.
+ */
+public final class SolrGateway implements Shareable {
+
+    /**
+     * The name of the Vert.x local map that holds the shared gateways.
+     */
+    private static final String SHARED_GATEWAYS = SolrGateway.class.getName();
+
+    /**
+     * A logger.
+     */
+    private static final Logger LOGGER = LoggerFactory.getLogger(SolrGateway.class, MessageCodes.BUNDLE);
+
+    /**
+     * The delay before the first retry of a failed request (in milliseconds); it doubles with each retry.
+     */
+    private static final long RETRY_BASE_DELAY = 100;
+
+    /**
+     * The max delay before a retry of a failed request (in milliseconds).
+     */
+    private static final long RETRY_MAX_DELAY = 5000;
+
+    /**
+     * The Solr document field that uniquely identifies a document.
+     */
+    private static final String ID = "id";
+
+    /**
+     * The atomic update modifier that sets the value of a field.
+     */
+    private static final String SET = "set";
+
+    /**
+     * The max number of batched updates of the documents that match a query that have been sent to Solr but not yet
+     * heard back about.
+     */
+    private static final int MAX_UPDATES_IN_FLIGHT = 4;
+
+    /**
+     * The prefix of the names of the spans of Solr requests, which are followed by the kind of request.
+     */
+    private static final String SPAN_PREFIX = "solr ";
+
+    /**
+     * The attribute for the comma-separated URLs of the Solr core (followed by its replicas) that requests may be sent
+     * to.
+     */
+    private static final AttributeKey<String> CORE_URLS = AttributeKey.stringKey("prl.solr.core_urls");
+
+    /**
+     * The attribute for the number of retries of a Solr request.
+     */
+    private static final AttributeKey<Long> RETRY_COUNT = AttributeKey.longKey("prl.retry.count");
+
+    /**
+     * A Vert.x instance.
+     */
+    private final Vertx myVertx;
+
+    /**
+     * The key of this gateway in the local map of shared gateways.
+     */
+    private final String myKey;
+
+    /**
+     * The underlying Solr client for queries, which are balanced across the replicas.
+     */
+    private final JavaAsyncSolrClient myQueryClient;
+
+    /**
+     * The underlying Solr client for updates, commits and rollbacks, which all go to the Solr core URL; it's the same
+     * as the query client if no replicas are configured.
+     */
+    private final JavaAsyncSolrClient myUpdateClient;
+
+    /**
+     * The max number of times to retry a failed request.
+     */
+    private final int myRetryCount;
+
+    /**
+     * The max number of the documents that match a query to update at once.
+     */
+    private final int myPageSize;
+
+    /**
+     * The number of users of this gateway that haven't closed it yet.
+     */
+    private int myReferenceCount;
+
+    /**
+     * Creates a Solr gateway.
+     *
+     * @param aVertx A Vert.x instance
+     * @param aKey The key of the gateway in the local map of shared gateways
+     * @param aConfig A configuration
+     */
+    private SolrGateway(final Vertx aVertx, final String aKey, final JsonObject aConfig) {
+        final List<String> coreURLs = Config.getSolrCoreURLs(aConfig);
+        final String coreURL = aConfig.getString(Config.SOLR_CORE_URL);
+
+        myVertx = aVertx;
+        myKey = aKey;
+        myQueryClient = JavaAsyncSolrClient.builder(RoundRobinLB.create(StaticSolrServers.create(coreURLs))).build();
+        myUpdateClient = coreURLs.equals(List.of(coreURL)) ? myQueryClient : JavaAsyncSolrClient.create(coreURL);
+        myRetryCount = Config.getSolrUpdateRetryCount(aConfig);
+        myPageSize = Config.getSolrUpdateMaxBatchSize(aConfig);
+
+        LOGGER.debug(MessageCodes.PRL_077, coreURLs, coreURL);
+    }
+
+    /**
+     * Gets the Solr gateway for the configured Solr core and its replicas, creating it if this is its first user. Each
+     * user should {@link #close()} it once they're done with it.
+     *
+     * @param aVertx A Vert.x instance
+     * @param aConfig A configuration
+     * @return The shared Solr gateway
+     */
+    public static SolrGateway getShared(final Vertx aVertx, final JsonObject aConfig) {
+        final LocalMap<String, SolrGateway> gateways = aVertx.sharedData().getLocalMap(SHARED_GATEWAYS);
+        final String key = String.join(",", aConfig.getString(Config.SOLR_CORE_URL),
+                String.join(",", Config.getSolrCoreURLs(aConfig)));
+
+        synchronized (SolrGateway.class) {
+            final SolrGateway gateway = gateways.computeIfAbsent(key, url -> new SolrGateway(aVertx, key, aConfig));
+
+            gateway.myReferenceCount += 1;
+
+            return gateway;
+        }
+    }
+
+    /**
+     * Gets the Solr gateway for the standby core that rebuilds are written to, if one is configured. Each user should
+     * {@link #close()} it once they're done with it.
+     *
+     * @param aVertx A Vert.x instance
+     * @param aConfig A configuration
+     * @return The shared Solr gateway for rebuilds, if the standby core is configured
+     */
+    public static Optional<SolrGateway> getSharedForRebuilds(final Vertx aVertx, final JsonObject aConfig) {
+        return Config.getSolrRebuildCoreURL(aConfig).map(url -> getShared(aVertx,
+                aConfig.copy().put(Config.SOLR_CORE_URL, url).put(Config.SOLR_CORE_REPLICA_URLS, url)));
+    }
+
+    /**
+     * Adds documents.
+     *
+     * @param aDocs The documents to add
+     * @return The result of the update
+     */
+    public CompletionStage<UpdateResponse> addDocs(final Collection<SolrInputDocument> aDocs) {
+        return send("add", () -> myUpdateClient.addDocs(aDocs));
+    }
+
+    /**
+     * Deletes documents by ID.
+     *
+     * @param anIDs The IDs of the documents to delete
+     * @return The result of the update
+     */
+    public CompletionStage<UpdateResponse> deleteByIds(final List<String> anIDs) {
+        return send("delete", () -> myUpdateClient.deleteByIds(anIDs));
+    }
+
+    /**
+     * Deletes all documents. Since it's a delete by query, it should only be used on a core that isn't serving reads
+     * or taking other updates.
+     *
+     * @return The result of the update
+     */
+    public CompletionStage<UpdateResponse> deleteAll() {
+        return send("delete", () -> myUpdateClient.deleteByQuery("*:*"));
+    }
+
+    /**
+     * Deletes the documents that match a query, and then commits.
+     * <p>
+     * Unlike a delete by query, this doesn't block the other updates that Solr is handling (e.g. those of running
+     * harvests): the IDs of the matching documents are paged through with a cursor, and each page is deleted by ID,
+     * with a bounded number of deletes in flight. Progress is logged after each page.
+     *
+     * @param aQuery A query
+     * @return The number of documents that were deleted
+     */
+    public CompletionStage<Long> deleteMatching(final String aQuery) {
+        return updateMatching(aQuery, ids -> {
+            Metrics.add(Metrics.SOLR_DOCS_DELETED, ids.size());
+
+            return deleteByIds(ids);
+        });
+    }
+
+    /**
+     * Sets a field of the documents that match a query with atomic updates, and then commits.
+     * <p>
+     * Like {@link #deleteMatching(String)}, the matching documents are paged through with a cursor, and updated in
+     * batches.
+     *
+     * @param aQuery A query
+     * @param aField The name of the field
+     * @param aValue The new value of the field
+     * @return The number of documents that were updated
+     */
+    public CompletionStage<Long> setFieldOfMatching(final String aQuery, final String aField, final Object aValue) {
+        return updateMatching(aQuery, ids -> addDocs(ids.stream().map(id -> {
+            final SolrInputDocument update = new SolrInputDocument();
+
+            update.setField(ID, id);
+            update.setField(aField, Collections.singletonMap(SET, aValue));
+
+            return update;
+        }).toList()));
+    }
+
+    /**
+     * Commits the pending updates.
+     *
+     * @return The result of the commit
+     */
+    public CompletionStage<UpdateResponse> commit() {
+        return send("commit", myUpdateClient::commit);
+    }
+
+    /**
+     * Rolls back the pending updates.
+     *
+     * @return The result of the rollback
+     */
+    public CompletionStage<UpdateResponse> rollback() {
+        return send("rollback", myUpdateClient::rollback);
+    }
+
+    /**
+     * Queries documents, on whichever replica is next in turn.
+     *
+     * @param aQuery A query
+     * @return The query response
+     */
+    public CompletionStage<QueryResponse> query(final SolrQuery aQuery) {
+        return send("query", () -> myQueryClient.query(aQuery));
+    }
+
+    /**
+     * Releases this gateway; once all of its users have released it, its connections are closed.
+     */
+    public void close() {
+        synchronized (SolrGateway.class) {
+            myReferenceCount -= 1;
+
+            if (myReferenceCount == 0) {
+                myVertx.sharedData().<String, SolrGateway>getLocalMap(SHARED_GATEWAYS).remove(myKey);
+                myQueryClient.shutdown();
+
+                if (myUpdateClient != myQueryClient) {
+                    myUpdateClient.shutdown();
+                }
+            }
+        }
+    }
+
+    /**
+     * Updates the documents that match a query, page by page, and then commits.
+     *
+     * @param aQuery A query
+     * @param aPageUpdate A function that sends the update of a page, given the IDs of its documents
+     * @return The number of documents that were updated
+     */
+    private CompletionStage<Long> updateMatching(final String aQuery,
+            final Function<List<String>, CompletionStage<UpdateResponse>> aPageUpdate) {
+        final CompletableFuture<Long> update = new CompletableFuture<>();
+
+        updatePage(aQuery, aPageUpdate, CursorMarkParams.CURSOR_MARK_START, new ArrayDeque<>(), 0, update);
+
+        return update.thenCompose(updatedCount -> commit().thenApply(result -> updatedCount));
+    }
+
+    /**
+     * Updates the next page of the documents that match a query.
+     *
+     * @param aQuery A query
+     * @param aPageUpdate A function that sends the update of a page, given the IDs of its documents
+     * @param aCursorMark The cursor mark of the page
+     * @param anInFlight The updates that have been sent but may not have completed yet, oldest first
+     * @param anUpdatedCount The number of documents on the previous pages
+     * @param anUpdate The update, which is completed once the last page has been updated
+     */
+    @SuppressWarnings("PMD.ExcessiveParameterList")
+    private void updatePage(final String aQuery,
+            final Function<List<String>, CompletionStage<UpdateResponse>> aPageUpdate, final String aCursorMark,
+            final Deque<CompletionStage<UpdateResponse>> anInFlight, final long anUpdatedCount,
+            final CompletableFuture<Long> anUpdate) {
+        final CompletionStage<?> capacity = anInFlight.size() < MAX_UPDATES_IN_FLIGHT
+                ? CompletableFuture.completedFuture(null) : anInFlight.removeFirst();
+        final SolrQuery query = new SolrQuery(aQuery);
+
+        query.setFields(ID);
+        query.setSort(ID, ORDER.asc);
+        query.setRows(myPageSize);
+        query.set(CursorMarkParams.CURSOR_MARK_PARAM, aCursorMark);
+
+        capacity.thenCompose(ready -> query(query)).whenComplete((response, error) -> {
+            if (error != null) {
+                anUpdate.completeExceptionally(error);
+            } else {
+                final SolrDocumentList docs = response.getResults();
+                final List<String> ids = docs.stream().map(doc -> doc.getFirstValue(ID).toString()).toList();
+                final String nextCursorMark = response.getNextCursorMark();
+                final long updatedCount = anUpdatedCount + ids.size();
+
+                if (!ids.isEmpty()) {
+                    anInFlight.addLast(aPageUpdate.apply(ids));
+                }
+
+                LOGGER.debug(MessageCodes.PRL_079, updatedCount, docs.getNumFound(), aQuery);
+
+                if (ids.isEmpty() || aCursorMark.equals(nextCursorMark)) {
+                    CompletableFuture.allOf(anInFlight.stream().map(CompletionStage::toCompletableFuture)
+                            .toArray(CompletableFuture[]::new)).whenComplete((result, updateError) -> {
+                                if (updateError != null) {
+                                    anUpdate.completeExceptionally(updateError);
+                                } else {
+                                    anUpdate.complete(updatedCount);
+                                }
+                            });
+                } else {
+                    updatePage(aQuery, aPageUpdate, nextCursorMark, anInFlight, updatedCount, anUpdate);
+                }
+            }
+        });
+    }
+
+    /**
+     * Sends a request, retrying it with exponential backoff if it fails. The request (including its retries) is traced
+     * with a span.
+     *
+     * @param <T> The type of the response
+     * @param aKind The kind of request, for the name of its span
+     * @param aRequest A function that sends the request
+     * @return The response
+     */
+    private <T> CompletionStage<T> send(final String aKind, final Supplier<CompletionStage<T>> aRequest) {
+        final CompletableFuture<T> response = new CompletableFuture<>();
+        final Span span = Tracing.spanBuilder(SPAN_PREFIX + aKind).setSpanKind(SpanKind.CLIENT)
+                .setAttribute(CORE_URLS, myKey).startSpan();
+
+        attempt(aRequest, 0, response, span);
+
+        return response;
+    }
+
+    /**
+     * Makes an attempt at sending a request.
+     *
+     * @param <T> The type of the response
+     * @param aRequest A function that sends the request
+     * @param anAttempt The number of attempts made before this one
+     * @param aResponse The response, which this attempt completes unless it fails and can be retried
+     * @param aSpan The span of the request, which is ended once the response is complete
+     */
+    private <T> void attempt(final Supplier<CompletionStage<T>> aRequest, final int anAttempt,
+            final CompletableFuture<T> aResponse, final Span aSpan) {
+        final long startTime = System.nanoTime();
+
+        Metrics.increment(Metrics.SOLR_REQUESTS);
+
+        aRequest.get().whenComplete((result, error) -> {
+            Metrics.add(Metrics.SOLR_REQUEST_TIME, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime));
+
+            if (error == null) {
+                aSpan.setAttribute(RETRY_COUNT, (long) anAttempt);
+                aSpan.end();
+                aResponse.complete(result);
+            } else if (anAttempt < myRetryCount) {
+                final long delay = Math.min(RETRY_BASE_DELAY << Math.min(anAttempt, 16), RETRY_MAX_DELAY);
+
+                Metrics.increment(Metrics.SOLR_REQUEST_RETRIES);
+                LOGGER.debug(MessageCodes.PRL_078, anAttempt + 1, delay, error.getMessage());
+
+                myVertx.setTimer(delay, timerID -> attempt(aRequest, anAttempt + 1, aResponse, aSpan));
+            } else {
+                Metrics.increment(Metrics.SOLR_REQUEST_ERRORS);
+                aSpan.setAttribute(RETRY_COUNT, (long) anAttempt);
+                Tracing.end(aSpan, error);
+                aResponse.completeExceptionally(error);
+            }
+        });
+    }
+}
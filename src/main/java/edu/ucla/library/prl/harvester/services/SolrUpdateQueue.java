@@ -0,0 +1,433 @@
+
+package edu.ucla.library.prl.harvester.services;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+import org.apache.solr.common.SolrInputDocument;
+
+import edu.ucla.library.prl.harvester.MessageCodes;
+
+import info.freelibrary.util.Logger;
+import info.freelibrary.util.LoggerFactory;
+
+import io.vavr.Tuple;
+import io.vavr.Tuple2;
+
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+
+/**
+ * A durable, append-only queue of Solr updates, stored on local disk in memory-mapped segment files.
+ * <p>
+ * Harvests append documents and deletes to the queue, and a single consumer (see {@link SolrUpdateQueueIndexer})
+ * drains it into Solr. The consumer's position is checkpointed only after Solr has accepted the updates, so nothing is
+ * lost if Solr is unavailable or the application restarts; updates may however be applied more than once, which is
+ * harmless since they are idempotent.
+ * <p>
+ * Each entry is laid out as: a 4-byte payload length, a 4-byte CRC-32 of the type and payload, a 1-byte type, and the
+ * UTF-8 payload. A zero length marks the end of a segment's entries, and an entry with a bad checksum (i.e. one that
+ * was torn by a crash) is treated the same way.
+ */
+final class SolrUpdateQueue {
+
+    /**
+     * A logger.
+     */
+    private static final Logger LOGGER = LoggerFactory.getLogger(SolrUpdateQueue.class, MessageCodes.BUNDLE);
+
+    /**
+     * The size of each segment file.
+     */
+    private static final int SEGMENT_SIZE = 64 * 1024 * 1024;
+
+    /**
+     * The size of an entry header.
+     */
+    private static final int HEADER_SIZE = Integer.BYTES + Integer.BYTES + Byte.BYTES;
+
+    /**
+     * The format of segment file names; these sort lexicographically in the order they were created.
+     */
+    private static final String SEGMENT_FILE_NAME = "segment-%020d.log";
+
+    /**
+     * The pattern of segment file names.
+     */
+    private static final Pattern SEGMENT_FILE_PATTERN = Pattern.compile("segment-(\\d{20})\\.log");
+
+    /**
+     * The name of the file that stores the consumer's position.
+     */
+    private static final String CHECKPOINT_FILE_NAME = "checkpoint";
+
+    /**
+     * The type of entry that adds a document.
+     */
+    static final byte ADD = 1;
+
+    /**
+     * The type of entry that deletes a document by ID.
+     */
+    static final byte DELETE = 2;
+
+    /**
+     * The directory that contains the segment files.
+     */
+    private final Path myDir;
+
+    /**
+     * The number of the segment that is being appended to.
+     */
+    private long myWriteSegment;
+
+    /**
+     * The buffer of the segment that is being appended to.
+     */
+    private MappedByteBuffer myWriteBuffer;
+
+    /**
+     * The offset in the write segment at which the next entry will be appended.
+     */
+    private int myWriteOffset;
+
+    /**
+     * The consumer's checkpointed position, as a 2-tuple of segment number and offset.
+     */
+    private Tuple2<Long, Integer> myReadPosition;
+
+    /**
+     * Opens a queue, recovering its state from disk if it already exists.
+     *
+     * @param aDir The directory that contains the segment files
+     * @throws IOException If the queue could not be opened
+     */
+    SolrUpdateQueue(final Path aDir) throws IOException {
+        final List<Long> segments;
+
+        myDir = Files.createDirectories(aDir);
+        segments = listSegments();
+
+        myWriteSegment = segments.isEmpty() ? 0 : segments.get(segments.size() - 1);
+        myWriteBuffer = map(myWriteSegment, MapMode.READ_WRITE);
+        myWriteOffset = findEnd(myWriteBuffer);
+        myReadPosition = readCheckpoint().orElse(Tuple.of(segments.isEmpty() ? 0 : segments.get(0), 0));
+
+        // Make sure that any torn entry at the end isn't mistaken for a valid one later on
+        terminate();
+    }
+
+    /**
+     * Appends documents to add and IDs to delete, in that order, and syncs them to disk.
+     *
+     * @param aDocs A list of documents to add
+     * @param aDeletedIDs A list of document IDs to delete
+     * @throws IOException If the entries could not be written
+     */
+    synchronized void append(final List<SolrInputDocument> aDocs, final List<String> aDeletedIDs)
+            throws IOException {
+        for (final SolrInputDocument doc : aDocs) {
+            append(ADD, toJson(doc).encode());
+        }
+
+        for (final String id : aDeletedIDs) {
+            append(DELETE, id);
+        }
+
+        myWriteBuffer.force();
+    }
+
+    /**
+     * Reads entries from the consumer's position, without advancing it.
+     *
+     * @param aMaxCount The maximum number of entries to read
+     * @return A 2-tuple of the entries (as 2-tuples of type and payload), and the position following the last of them
+     * @throws IOException If the entries could not be read
+     */
+    synchronized Tuple2<List<Tuple2<Byte, String>>, Tuple2<Long, Integer>> peek(final int aMaxCount)
+            throws IOException {
+        final List<Tuple2<Byte, String>> entries = new ArrayList<>();
+        long segment = myReadPosition._1();
+        int offset = myReadPosition._2();
+        ByteBuffer buffer = segment == myWriteSegment ? myWriteBuffer.duplicate() : map(segment, MapMode.READ_ONLY);
+
+        while (entries.size() < aMaxCount) {
+            final int limit = segment == myWriteSegment ? myWriteOffset : buffer.capacity();
+            final Optional<Tuple2<Byte, String>> entry = readEntry(buffer, offset, limit);
+
+            if (entry.isPresent()) {
+                entries.add(entry.get());
+                offset += HEADER_SIZE + entry.get()._2().getBytes(StandardCharsets.UTF_8).length;
+            } else if (segment < myWriteSegment) {
+                // The rest of this segment is unused, so move on to the next one
+                segment = nextSegment(segment);
+                offset = 0;
+                buffer = segment == myWriteSegment ? myWriteBuffer.duplicate() : map(segment, MapMode.READ_ONLY);
+            } else {
+                break;
+            }
+        }
+
+        return Tuple.of(entries, Tuple.of(segment, offset));
+    }
+
+    /**
+     * Advances the consumer's position, and deletes the segments that have been fully consumed.
+     *
+     * @param aPosition The new position, as returned by {@link #peek(int)}
+     * @throws IOException If the position could not be saved
+     */
+    synchronized void acknowledge(final Tuple2<Long, Integer> aPosition) throws IOException {
+        final Path checkpoint = myDir.resolve(CHECKPOINT_FILE_NAME);
+        final Path tmpCheckpoint = myDir.resolve(CHECKPOINT_FILE_NAME + ".tmp");
+
+        Files.writeString(tmpCheckpoint, aPosition._1() + " " + aPosition._2(), StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.SYNC);
+        Files.move(tmpCheckpoint, checkpoint, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+
+        myReadPosition = aPosition;
+
+        for (final long segment : listSegments()) {
+            if (segment < aPosition._1()) {
+                Files.deleteIfExists(getSegmentFile(segment));
+            }
+        }
+    }
+
+    /**
+     * @return Whether there are no entries left to consume
+     */
+    synchronized boolean isEmpty() {
+        return myReadPosition._1() == myWriteSegment && myReadPosition._2() >= myWriteOffset;
+    }
+
+    /**
+     * Serializes a Solr document.
+     *
+     * @param aDoc A Solr document
+     * @return The document as a JSON object that maps field names to arrays of values
+     */
+    static JsonObject toJson(final SolrInputDocument aDoc) {
+        final JsonObject json = new JsonObject();
+
+        for (final String fieldName : aDoc.getFieldNames()) {
+            final Collection<Object> values = aDoc.getFieldValues(fieldName);
+
+            json.put(fieldName, new JsonArray(values == null ? List.of() : new ArrayList<>(values)));
+        }
+
+        return json;
+    }
+
+    /**
+     * Deserializes a Solr document.
+     *
+     * @param aJson A JSON object produced by {@link #toJson(SolrInputDocument)}
+     * @return The Solr document
+     */
+    static SolrInputDocument toSolrDocument(final JsonObject aJson) {
+        final SolrInputDocument doc = new SolrInputDocument();
+
+        for (final String fieldName : aJson.fieldNames()) {
+            for (final Object value : aJson.getJsonArray(fieldName)) {
+                // Atomic updates are expressed as maps, such as {"set": value}
+                doc.addField(fieldName, value instanceof JsonObject json ? json.getMap() : value);
+            }
+        }
+
+        return doc;
+    }
+
+    /**
+     * Appends an entry, moving on to a new segment if the current one is full.
+     *
+     * @param aType The entry type
+     * @param aPayload The entry payload
+     * @throws IOException If the entry could not be written
+     */
+    private void append(final byte aType, final String aPayload) throws IOException {
+        final byte[] payload = aPayload.getBytes(StandardCharsets.UTF_8);
+        final int entrySize = HEADER_SIZE + payload.length;
+
+        if (entrySize + Integer.BYTES > SEGMENT_SIZE) {
+            throw new IOException(LOGGER.getMessage(MessageCodes.PRL_059, entrySize));
+        }
+
+        if (myWriteOffset + entrySize + Integer.BYTES > SEGMENT_SIZE) {
+            myWriteBuffer.force();
+            myWriteSegment += 1;
+            myWriteBuffer = map(myWriteSegment, MapMode.READ_WRITE);
+            myWriteOffset = 0;
+        }
+
+        // Write the length last; entries that weren't completely written out before a crash fail their checksum
+        myWriteBuffer.put(myWriteOffset + HEADER_SIZE, payload);
+        myWriteBuffer.put(myWriteOffset + Integer.BYTES * 2, aType);
+        myWriteBuffer.putInt(myWriteOffset + Integer.BYTES, checksum(aType, payload));
+        myWriteBuffer.putInt(myWriteOffset, payload.length);
+
+        myWriteOffset += entrySize;
+
+        terminate();
+    }
+
+    /**
+     * Writes an end marker at the current write offset.
+     */
+    private void terminate() {
+        if (myWriteOffset + Integer.BYTES <= SEGMENT_SIZE) {
+            myWriteBuffer.putInt(myWriteOffset, 0);
+        }
+    }
+
+    /**
+     * Reads the entry at an offset of a segment buffer.
+     *
+     * @param aBuffer A segment buffer
+     * @param anOffset An offset
+     * @param aLimit The offset past which entries must not be read
+     * @return The optional entry, which is empty if there isn't a valid one at the offset
+     */
+    private static Optional<Tuple2<Byte, String>> readEntry(final ByteBuffer aBuffer, final int anOffset,
+            final int aLimit) {
+        final int length;
+        final byte type;
+        final byte[] payload;
+
+        if (anOffset + HEADER_SIZE > aLimit) {
+            return Optional.empty();
+        }
+
+        length = aBuffer.getInt(anOffset);
+
+        if (length <= 0 || anOffset + HEADER_SIZE + length > aLimit) {
+            return Optional.empty();
+        }
+
+        type = aBuffer.get(anOffset + Integer.BYTES * 2);
+        payload = new byte[length];
+        aBuffer.get(anOffset + HEADER_SIZE, payload);
+
+        if (aBuffer.getInt(anOffset + Integer.BYTES) != checksum(type, payload)) {
+            return Optional.empty();
+        }
+
+        return Optional.of(Tuple.of(type, new String(payload, StandardCharsets.UTF_8)));
+    }
+
+    /**
+     * Finds the offset following the last valid entry of a segment.
+     *
+     * @param aBuffer A segment buffer
+     * @return The end offset
+     */
+    private static int findEnd(final ByteBuffer aBuffer) {
+        int offset = 0;
+        Optional<Tuple2<Byte, String>> entry = readEntry(aBuffer, offset, aBuffer.capacity());
+
+        while (entry.isPresent()) {
+            offset += HEADER_SIZE + entry.get()._2().getBytes(StandardCharsets.UTF_8).length;
+            entry = readEntry(aBuffer, offset, aBuffer.capacity());
+        }
+
+        return offset;
+    }
+
+    /**
+     * @param aType An entry type
+     * @param aPayload An entry payload
+     * @return The checksum of the entry
+     */
+    private static int checksum(final byte aType, final byte[] aPayload) {
+        final CRC32 crc = new CRC32();
+
+        crc.update(aType);
+        crc.update(aPayload);
+
+        return (int) crc.getValue();
+    }
+
+    /**
+     * Maps a segment file into memory, creating it if necessary.
+     *
+     * @param aSegment A segment number
+     * @param aMode The mapping mode
+     * @return The segment buffer
+     * @throws IOException If the segment could not be mapped
+     */
+    private MappedByteBuffer map(final long aSegment, final MapMode aMode) throws IOException {
+        final Path segmentFile = getSegmentFile(aSegment);
+
+        if (aMode == MapMode.READ_ONLY) {
+            try (FileChannel channel = FileChannel.open(segmentFile, StandardOpenOption.READ)) {
+                return channel.map(aMode, 0, channel.size());
+            }
+        }
+
+        try (FileChannel channel = FileChannel.open(segmentFile, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE)) {
+            // The mapping remains valid after the channel is closed
+            return channel.map(aMode, 0, SEGMENT_SIZE);
+        }
+    }
+
+    /**
+     * @param aSegment A segment number
+     * @return The number of the segment that follows it
+     * @throws IOException If the segment files could not be listed
+     */
+    private long nextSegment(final long aSegment) throws IOException {
+        return listSegments().stream().filter(segment -> segment > aSegment).findFirst().orElse(myWriteSegment);
+    }
+
+    /**
+     * @return The numbers of the existing segments, in ascending order
+     * @throws IOException If the segment files could not be listed
+     */
+    private List<Long> listSegments() throws IOException {
+        try (Stream<Path> files = Files.list(myDir)) {
+            return files.map(file -> SEGMENT_FILE_PATTERN.matcher(file.getFileName().toString()))
+                    .filter(Matcher::matches).map(matcher -> Long.parseLong(matcher.group(1))).sorted().toList();
+        }
+    }
+
+    /**
+     * @param aSegment A segment number
+     * @return The segment file
+     */
+    private Path getSegmentFile(final long aSegment) {
+        return myDir.resolve(String.format(SEGMENT_FILE_NAME, aSegment));
+    }
+
+    /**
+     * @return The consumer's checkpointed position, if there is one
+     * @throws IOException If the checkpoint could not be read
+     */
+    private Optional<Tuple2<Long, Integer>> readCheckpoint() throws IOException {
+        final Path checkpoint = myDir.resolve(CHECKPOINT_FILE_NAME);
+
+        if (Files.exists(checkpoint)) {
+            final String[] position = Files.readString(checkpoint).strip().split(" ");
+
+            return Optional.of(Tuple.of(Long.parseLong(position[0]), Integer.parseInt(position[1])));
+        }
+
+        return Optional.empty();
+    }
+}
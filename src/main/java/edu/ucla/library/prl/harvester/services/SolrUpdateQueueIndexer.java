@@ -0,0 +1,231 @@
+
+package edu.ucla.library.prl.harvester.services;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.CountDownLatch;
+
+import org.apache.solr.common.SolrInputDocument;
+
+import edu.ucla.library.prl.harvester.MessageCodes;
+
+import info.freelibrary.util.Logger;
+import info.freelibrary.util.LoggerFactory;
+
+import io.vavr.Tuple2;
+
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonObject;
+
+/**
+ * Drains a {@link SolrUpdateQueue} into Solr, independently of the harvests that fill it.
+ * <p>
+ * If Solr rejects an update or can't be reached, the indexer backs off exponentially and tries again later from the
+ * same position, so updates are never lost or reordered.
+ * <p>
+ * Entries are acknowledged as soon as Solr has accepted them (Solr's update log keeps them across a Solr restart), and
+ * the updates are committed once the queue has been drained, instead of after every batch.
+ */
+final class SolrUpdateQueueIndexer {
+
+    /**
+     * A logger.
+     */
+    private static final Logger LOGGER = LoggerFactory.getLogger(SolrUpdateQueueIndexer.class, MessageCodes.BUNDLE);
+
+    /**
+     * How often to check the queue for new entries (in milliseconds).
+     */
+    private static final long POLL_INTERVAL = 1000;
+
+    /**
+     * The longest time to wait before retrying after a failure (in milliseconds).
+     */
+    private static final long MAX_BACKOFF = 5 * 60 * 1000;
+
+    /**
+     * A Vert.x instance.
+     */
+    private final Vertx myVertx;
+
+    /**
+     * The queue to drain.
+     */
+    private final SolrUpdateQueue myQueue;
+
+    /**
+     * The gateway for sending updates to Solr.
+     */
+    private final SolrGateway mySolrGateway;
+
+    /**
+     * The maximum number of queue entries to send to Solr at once.
+     */
+    private final int myMaxBatchSize;
+
+    /**
+     * The ID of the polling timer.
+     */
+    private long myTimerID;
+
+    /**
+     * Whether the queue is currently being drained.
+     */
+    private boolean myIsDraining;
+
+    /**
+     * Whether updates have been sent to Solr since the last commit.
+     */
+    private boolean myHasUncommittedUpdates;
+
+    /**
+     * The current backoff (in milliseconds), which is zero unless the last attempt failed.
+     */
+    private long myBackoff;
+
+    /**
+     * The earliest time at which the next attempt may be made (in milliseconds since the epoch).
+     */
+    private long myNextAttempt;
+
+    /**
+     * Creates an indexer.
+     *
+     * @param aVertx A Vert.x instance
+     * @param aQueue The queue to drain
+     * @param aSolrGateway The gateway for sending updates to Solr
+     * @param aMaxBatchSize The maximum number of queue entries to send to Solr at once
+     */
+    SolrUpdateQueueIndexer(final Vertx aVertx, final SolrUpdateQueue aQueue, final SolrGateway aSolrGateway,
+            final int aMaxBatchSize) {
+        myVertx = aVertx;
+        myQueue = aQueue;
+        mySolrGateway = aSolrGateway;
+        myMaxBatchSize = aMaxBatchSize;
+    }
+
+    /**
+     * Starts draining the queue periodically.
+     */
+    void start() {
+        myTimerID = myVertx.setPeriodic(POLL_INTERVAL, timerID -> poll());
+    }
+
+    /**
+     * Stops draining the queue; anything left in it is drained after the next start.
+     */
+    void stop() {
+        myVertx.cancelTimer(myTimerID);
+    }
+
+    /**
+     * Drains the queue on a worker thread, unless it's already being drained or we're backing off. A queue that has
+     * been drained is still polled until its updates have been committed.
+     */
+    private void poll() {
+        if (myIsDraining || System.currentTimeMillis() < myNextAttempt ||
+                myQueue.isEmpty() && !myHasUncommittedUpdates) {
+            return;
+        }
+
+        myIsDraining = true;
+
+        myVertx.<Integer>executeBlocking(execution -> {
+            try {
+                execution.complete(drain());
+            } catch (final IOException | InterruptedException | CompletionException details) {
+                execution.fail(details instanceof CompletionException ? details.getCause() : details);
+            }
+        }, true).onSuccess(count -> {
+            myBackoff = 0;
+            LOGGER.debug(MessageCodes.PRL_060, count);
+        }).onFailure(details -> {
+            myBackoff = Math.min(MAX_BACKOFF, Math.max(POLL_INTERVAL, myBackoff * 2));
+            myNextAttempt = System.currentTimeMillis() + myBackoff;
+            LOGGER.warn(MessageCodes.PRL_061, details.getMessage(), myBackoff);
+        }).onComplete(result -> {
+            myIsDraining = false;
+        });
+    }
+
+    /**
+     * Sends all of the entries in the queue to Solr, acknowledging each batch once Solr has accepted it, and then
+     * commits them.
+     *
+     * @return The number of entries sent
+     * @throws IOException If the queue could not be read
+     * @throws InterruptedException If the calling thread is interrupted
+     */
+    private int drain() throws IOException, InterruptedException {
+        int count = 0;
+
+        while (true) {
+            final Tuple2<List<Tuple2<Byte, String>>, Tuple2<Long, Integer>> batch = myQueue.peek(myMaxBatchSize);
+            final List<Tuple2<Byte, String>> entries = batch._1();
+            final List<SolrInputDocument> docs = new ArrayList<>();
+            final List<String> deletedIDs = new ArrayList<>();
+
+            if (entries.isEmpty()) {
+                if (myHasUncommittedUpdates) {
+                    await(mySolrGateway.commit());
+                    myHasUncommittedUpdates = false;
+                }
+
+                return count;
+            }
+
+            // Preserve the order of adds and deletes by sending each run of same-typed entries separately
+            for (final Tuple2<Byte, String> entry : entries) {
+                if (entry._1() == SolrUpdateQueue.ADD) {
+                    if (!deletedIDs.isEmpty()) {
+                        await(mySolrGateway.deleteByIds(deletedIDs));
+                        deletedIDs.clear();
+                    }
+
+                    docs.add(SolrUpdateQueue.toSolrDocument(new JsonObject(entry._2())));
+                } else {
+                    if (!docs.isEmpty()) {
+                        await(mySolrGateway.addDocs(docs));
+                        docs.clear();
+                    }
+
+                    deletedIDs.add(entry._2());
+                }
+            }
+
+            if (!docs.isEmpty()) {
+                await(mySolrGateway.addDocs(docs));
+            }
+
+            if (!deletedIDs.isEmpty()) {
+                await(mySolrGateway.deleteByIds(deletedIDs));
+            }
+
+            myQueue.acknowledge(batch._2());
+            myHasUncommittedUpdates = true;
+
+            count += entries.size();
+        }
+    }
+
+    /**
+     * Waits for a Solr request to complete.
+     *
+     * @param <T> The type of the response
+     * @param aRequest A Solr request
+     * @return The response
+     * @throws InterruptedException If the calling thread is interrupted
+     * @throws CompletionException If the request failed
+     */
+    private static <T> T await(final CompletionStage<T> aRequest) throws InterruptedException {
+        final CountDownLatch completion = new CountDownLatch(1);
+
+        aRequest.whenComplete((result, error) -> completion.countDown());
+        completion.await();
+
+        return aRequest.toCompletableFuture().join();
+    }
+}
@@ -0,0 +1,150 @@
+package edu.ucla.library.prl.harvester.services;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+
+import edu.ucla.library.prl.harvester.Metrics;
+
+import io.vertx.core.Future;
+
+/**
+ * A bounded, least-recently-used, read-through cache of the objects in the harvest schedule store, by ID.
+ * <p>
+ * The cache is disabled until it's told that it can trust its invalidations (i.e. once the store is listening for
+ * changes made by other nodes). A value that was loaded while its key was being invalidated is not cached, so that a
+ * read that races with a write can't put a stale value back. This class is thread-safe.
+ *
+ * @param <V> The type of the cached objects
+ */
+final class StoreCache<V> {
+
+    /**
+     * The cached objects, in least-recently-used order.
+     */
+    private final LruMap<V> myEntries;
+
+    /**
+     * The number of invalidations so far, used to discard values that were loaded while an invalidation happened.
+     */
+    private long myGeneration;
+
+    /**
+     * Whether the cache is in use.
+     */
+    private boolean myIsEnabled;
+
+    /**
+     * Creates a cache.
+     *
+     * @param aMaxSize The max number of objects to cache
+     */
+    StoreCache(final int aMaxSize) {
+        myEntries = new LruMap<>(aMaxSize);
+    }
+
+    /**
+     * Gets an object from the cache, or else loads it.
+     *
+     * @param anID The ID of the object
+     * @param aLoader A function that loads the object
+     * @return A Future that resolves to the object
+     */
+    Future<V> get(final int anID, final Supplier<Future<V>> aLoader) {
+        final long generation;
+
+        synchronized (this) {
+            final V cached = myIsEnabled ? myEntries.get(anID) : null;
+
+            if (cached != null) {
+                Metrics.increment(Metrics.STORE_CACHE_HITS);
+
+                return Future.succeededFuture(cached);
+            }
+
+            generation = myIsEnabled ? myGeneration : -1;
+        }
+
+        if (generation < 0) {
+            return aLoader.get();
+        }
+
+        Metrics.increment(Metrics.STORE_CACHE_MISSES);
+
+        return aLoader.get().onSuccess(value -> put(anID, value, generation));
+    }
+
+    /**
+     * Removes an object from the cache.
+     *
+     * @param anID The ID of the object
+     */
+    synchronized void invalidate(final int anID) {
+        myGeneration += 1;
+        myEntries.remove(anID);
+    }
+
+    /**
+     * Removes all objects from the cache.
+     */
+    synchronized void invalidateAll() {
+        myGeneration += 1;
+        myEntries.clear();
+    }
+
+    /**
+     * Starts or stops using the cache; either way, it's emptied.
+     *
+     * @param anIsEnabled Whether the cache should be used
+     */
+    synchronized void setEnabled(final boolean anIsEnabled) {
+        invalidateAll();
+        myIsEnabled = anIsEnabled;
+    }
+
+    /**
+     * Caches a loaded object, unless the cache has been invalidated since the load began.
+     *
+     * @param anID The ID of the object
+     * @param aValue The object
+     * @param aGeneration The generation of the cache when the load began
+     */
+    private synchronized void put(final int anID, final V aValue, final long aGeneration) {
+        if (myIsEnabled && myGeneration == aGeneration) {
+            myEntries.put(anID, aValue);
+        }
+    }
+
+    /**
+     * A map that evicts its least-recently-used entry when it's full.
+     *
+     * @param <V> The type of the values
+     */
+    private static final class LruMap<V> extends LinkedHashMap<Integer, V> {
+
+        /**
+         * The <code>serialVersionUID</code> for this class.
+         */
+        private static final long serialVersionUID = -4419346315298573621L;
+
+        /**
+         * The max number of entries.
+         */
+        private final int myMaxSize;
+
+        /**
+         * Creates a map.
+         *
+         * @param aMaxSize The max number of entries
+         */
+        LruMap(final int aMaxSize) {
+            super(16, 0.75f, true);
+            myMaxSize = aMaxSize;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(final Map.Entry<Integer, V> anEldest) {
+            return size() > myMaxSize;
+        }
+    }
+}
@@ -0,0 +1,197 @@
+
+package edu.ucla.library.prl.harvester.services;
+
+import java.net.URL;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * Learns which URL path templates reliably do or don't serve images, from the results of past thumbnail URL checks.
+ * <p>
+ * Many data providers serve thumbnails from extensionless but very regular paths (e.g. {@code /thumbnail/1234} or
+ * IIIF Image API URLs), and item pages from equally regular ones. URLs are reduced to a template by replacing their
+ * identifier-like path segments with placeholders, so that e.g. {@code http://example.edu/thumbnail/1234} and
+ * {@code http://example.edu/thumbnail/5678} share a template. Since templates include the host, what is learned
+ * applies per host.
+ * <p>
+ * Once enough consecutive checks of a template's URLs have agreed, URLs with that template are classified without
+ * an HTTP request. Every so often, a classified URL is checked anyway, so that a change in a provider's URL scheme
+ * is noticed. This class is thread-safe.
+ */
+final class ThumbnailUrlClassifier {
+
+    /**
+     * The number of consecutive agreeing checks after which a template is considered reliable.
+     */
+    static final int CONFIDENCE_THRESHOLD = 10;
+
+    /**
+     * One out of this many URLs with a reliable template is checked anyway.
+     */
+    static final int RESAMPLE_INTERVAL = 100;
+
+    /**
+     * The maximum number of templates to keep track of.
+     */
+    private static final int MAX_TEMPLATES = 10_000;
+
+    /**
+     * The placeholder for a path segment that is a number, or a list of numbers (as in IIIF region and size segments).
+     */
+    private static final String NUMBER_PLACEHOLDER = "{n}";
+
+    /**
+     * The placeholder for a path segment that looks like an identifier.
+     */
+    private static final String ID_PLACEHOLDER = "{id}";
+
+    /**
+     * A pattern matching path segments that consist of numbers and the separators used between them.
+     */
+    private static final Pattern NUMERIC_SEGMENT = Pattern.compile("(?:pct:)?[\\d.,:!^-]+");
+
+    /**
+     * A pattern matching path segments that contain a digit.
+     */
+    private static final Pattern SEGMENT_WITH_DIGIT = Pattern.compile(".*\\d.*");
+
+    /**
+     * The minimum length of a path segment that contains a digit for it to be considered an identifier; shorter ones
+     * are more likely to be fixed parts of the path, like API versions.
+     */
+    private static final int MIN_ID_LENGTH = 4;
+
+    /**
+     * What has been learned about each template.
+     */
+    private final Map<String, TemplateStats> myTemplates = new ConcurrentHashMap<>();
+
+    /**
+     * Classifies a URL according to the results of past checks of URLs with the same template.
+     *
+     * @param aURL A possible thumbnail URL
+     * @return Whether the URL serves an image, or an empty Optional if it needs to be checked
+     */
+    Optional<Boolean> classify(final URL aURL) {
+        final TemplateStats stats = myTemplates.get(getTemplate(aURL));
+
+        return stats == null ? Optional.empty() : stats.classify();
+    }
+
+    /**
+     * Records the result of checking a URL.
+     *
+     * @param aURL A possible thumbnail URL
+     * @param anIsImage Whether the URL serves an image
+     */
+    void record(final URL aURL, final boolean anIsImage) {
+        final String template = getTemplate(aURL);
+        final TemplateStats stats;
+
+        if (myTemplates.size() >= MAX_TEMPLATES && !myTemplates.containsKey(template)) {
+            // Don't learn anything new about hosts with unusually varied URLs
+            return;
+        }
+
+        stats = myTemplates.computeIfAbsent(template, key -> new TemplateStats());
+        stats.record(anIsImage);
+    }
+
+    /**
+     * Reduces a URL to its template, by replacing its identifier-like path segments with placeholders and dropping its
+     * query parameter values.
+     *
+     * @param aURL A URL
+     * @return The template of the URL
+     */
+    static String getTemplate(final URL aURL) {
+        final String path = Arrays.stream(aURL.getPath().split("/", -1))
+                .map(ThumbnailUrlClassifier::getSegmentTemplate).collect(Collectors.joining("/"));
+        final StringBuilder template = new StringBuilder(aURL.getProtocol()).append("://")
+                .append(aURL.getAuthority().toLowerCase(Locale.ROOT)).append(path);
+
+        if (aURL.getQuery() != null) {
+            template.append('?').append(Arrays.stream(aURL.getQuery().split("&")).map(param -> param.split("=", 2)[0])
+                    .sorted().collect(Collectors.joining("&")));
+        }
+
+        return template.toString();
+    }
+
+    /**
+     * @param aSegment A URL path segment
+     * @return The template of the segment
+     */
+    private static String getSegmentTemplate(final String aSegment) {
+        if (NUMERIC_SEGMENT.matcher(aSegment).matches()) {
+            return NUMBER_PLACEHOLDER;
+        }
+
+        if (aSegment.length() >= MIN_ID_LENGTH && SEGMENT_WITH_DIGIT.matcher(aSegment).matches()) {
+            return ID_PLACEHOLDER;
+        }
+
+        return aSegment;
+    }
+
+    /**
+     * What has been learned about a template.
+     */
+    private static final class TemplateStats {
+
+        /**
+         * The result of the latest check.
+         */
+        private boolean myIsImage;
+
+        /**
+         * The number of consecutive checks that have agreed with the latest one.
+         */
+        private int myStreak;
+
+        /**
+         * The number of URLs that have been classified since the template became reliable.
+         */
+        private long myClassifiedCount;
+
+        /**
+         * Classifies a URL with this template.
+         *
+         * @return Whether the URL serves an image, or an empty Optional if it needs to be checked
+         */
+        synchronized Optional<Boolean> classify() {
+            if (myStreak < CONFIDENCE_THRESHOLD) {
+                return Optional.empty();
+            }
+
+            myClassifiedCount += 1;
+
+            if (myClassifiedCount % RESAMPLE_INTERVAL == 0) {
+                // Re-sample, to catch changes
+                return Optional.empty();
+            }
+
+            return Optional.of(myIsImage);
+        }
+
+        /**
+         * Records the result of checking a URL with this template.
+         *
+         * @param anIsImage Whether the URL serves an image
+         */
+        synchronized void record(final boolean anIsImage) {
+            if (myStreak > 0 && myIsImage == anIsImage) {
+                myStreak = Math.min(myStreak + 1, CONFIDENCE_THRESHOLD);
+            } else {
+                myIsImage = anIsImage;
+                myStreak = 1;
+                myClassifiedCount = 0;
+            }
+        }
+    }
+}
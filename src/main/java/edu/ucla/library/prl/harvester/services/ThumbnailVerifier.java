@@ -0,0 +1,491 @@
+
+package edu.ucla.library.prl.harvester.services;
+
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import org.apache.solr.common.SolrInputDocument;
+import org.apache.solr.common.SolrInputField;
+import org.apache.solr.common.params.CommonParams;
+
+import edu.ucla.library.prl.harvester.HostLatencies;
+import edu.ucla.library.prl.harvester.MessageCodes;
+import edu.ucla.library.prl.harvester.Tracing;
+
+import info.freelibrary.util.Logger;
+import info.freelibrary.util.LoggerFactory;
+
+import io.opentelemetry.api.common.AttributeKey;
+import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.context.Context;
+import io.opentelemetry.context.Scope;
+
+import io.vavr.Tuple;
+import io.vavr.Tuple2;
+
+import io.vertx.core.Future;
+import io.vertx.core.Promise;
+import io.vertx.core.Vertx;
+import io.vertx.ext.web.client.WebClient;
+
+/**
+ * Checks possible thumbnail URLs in the background, and patches the Solr documents of the records they came from
+ * with atomic updates.
+ * <p>
+ * Records are indexed without waiting for their possible thumbnail URLs to be checked (see
+ * {@link HarvestServiceUtils#getSolrDocument(org.dspace.xoai.model.oaipmh.Record, int, String, URL,
+ * java.util.Map, ThumbnailUrlClassifier)}), so
+ * that slow image servers don't hold up harvests. Until a record's check is done, its Solr document has no content
+ * hash, so if the check is dropped or its update fails, the record is simply re-mapped and checked again on its next
+ * harvest.
+ * <p>
+ * The rate of HTTP requests is limited, so that image servers aren't flooded with requests during large harvests.
+ * <p>
+ * Only the latest check of a record is applied: a check is dropped once its record is re-indexed or deleted by a
+ * later harvest. The atomic updates also require the record's Solr document to exist, so that a record deleted after
+ * its update was sent isn't re-created as a partial document.
+ */
+final class ThumbnailVerifier {
+
+    /**
+     * A logger.
+     */
+    private static final Logger LOGGER = LoggerFactory.getLogger(ThumbnailVerifier.class, MessageCodes.BUNDLE);
+
+    /**
+     * How often to start new checks (in milliseconds).
+     */
+    private static final long TICK_INTERVAL = 100;
+
+    /**
+     * How often to send the results of finished checks to Solr (in milliseconds).
+     */
+    private static final long FLUSH_INTERVAL = 5000;
+
+    /**
+     * The maximum number of checks that may be waiting to start.
+     */
+    private static final int MAX_PENDING_CHECKS = 10_000;
+
+    /**
+     * The maximum number of checks that may be in progress at once.
+     */
+    private static final int MAX_ACTIVE_CHECKS = 64;
+
+    /**
+     * The atomic update modifier that replaces the value of a field.
+     */
+    private static final String SET = "set";
+
+    /**
+     * The name of the Solr field that uniquely identifies a document.
+     */
+    private static final String ID = "id";
+
+    /**
+     * The optimistic concurrency version that requires a Solr document to exist, whatever its actual version.
+     */
+    private static final long MUST_EXIST = 1L;
+
+    /**
+     * The name of the span of a thumbnail check.
+     */
+    private static final String CHECK_SPAN = "check thumbnail URLs";
+
+    /**
+     * The attribute for the number of possible thumbnail URLs that a check has.
+     */
+    private static final AttributeKey<Long> URL_COUNT = AttributeKey.longKey("prl.thumbnail.url_count");
+
+    /**
+     * The attribute for whether a check found a thumbnail.
+     */
+    private static final AttributeKey<Boolean> FOUND = AttributeKey.booleanKey("prl.thumbnail.found");
+
+    /**
+     * A Vert.x instance.
+     */
+    private final Vertx myVertx;
+
+    /**
+     * An HTTP client for checking thumbnail URLs.
+     */
+    private final WebClient myWebClient;
+
+    /**
+     * A classifier of thumbnail URLs, which learns from the checks.
+     */
+    private final ThumbnailUrlClassifier myClassifier;
+
+    /**
+     * The recent latencies of thumbnail checks, from which their timeouts are derived.
+     */
+    private final HostLatencies myHostLatencies;
+
+    /**
+     * The maximum number of HTTP requests to send per second.
+     */
+    private final int myRate;
+
+    /**
+     * A function that sends a list of atomic updates to Solr.
+     */
+    private final Function<List<SolrInputDocument>, Future<Void>> myUpdater;
+
+    /**
+     * The checks that are waiting to start; this is accessed from other threads.
+     */
+    private final Queue<Check> myPendingChecks = new ConcurrentLinkedQueue<>();
+
+    /**
+     * The latest unapplied check of each record, by Solr document ID; this is accessed from other threads.
+     */
+    private final Map<Object, Check> myLatestChecks = new ConcurrentHashMap<>();
+
+    /**
+     * The number of checks that are waiting to start.
+     */
+    private final AtomicInteger myPendingCheckCount = new AtomicInteger();
+
+    /**
+     * The checks that have finished since the last flush, with their atomic updates.
+     */
+    private final List<Tuple2<Check, SolrInputDocument>> myUpdates = new ArrayList<>();
+
+    /**
+     * The promises to complete once every submitted check has been applied (or dropped).
+     */
+    private final Queue<Promise<Void>> myIdlePromises = new ConcurrentLinkedQueue<>();
+
+    /**
+     * The number of checks that are in progress.
+     */
+    private int myActiveCheckCount;
+
+    /**
+     * The number of HTTP requests that may be sent right now.
+     */
+    private double myPermits;
+
+    /**
+     * Whether updates are currently being sent to Solr.
+     */
+    private boolean myIsFlushing;
+
+    /**
+     * The ID of the timer that starts new checks.
+     */
+    private long myTickTimerID;
+
+    /**
+     * The ID of the timer that sends updates to Solr.
+     */
+    private long myFlushTimerID;
+
+    /**
+     * Creates a verifier.
+     *
+     * @param aVertx A Vert.x instance
+     * @param aWebClient An HTTP client for checking thumbnail URLs
+     * @param aClassifier A classifier of thumbnail URLs, which learns from the checks
+     * @param aHostLatencies The recent latencies of thumbnail checks, which learn from the checks
+     * @param aRate The maximum number of HTTP requests to send per second
+     * @param anUpdater A function that sends a list of atomic updates to Solr
+     */
+    ThumbnailVerifier(final Vertx aVertx, final WebClient aWebClient, final ThumbnailUrlClassifier aClassifier,
+            final HostLatencies aHostLatencies, final int aRate,
+            final Function<List<SolrInputDocument>, Future<Void>> anUpdater) {
+        myVertx = aVertx;
+        myWebClient = aWebClient;
+        myClassifier = aClassifier;
+        myHostLatencies = aHostLatencies;
+        myRate = Math.max(1, aRate);
+        myUpdater = anUpdater;
+    }
+
+    /**
+     * Starts checking submitted thumbnail URLs periodically.
+     */
+    void start() {
+        myTickTimerID = myVertx.setPeriodic(TICK_INTERVAL, timerID -> tick());
+        myFlushTimerID = myVertx.setPeriodic(FLUSH_INTERVAL, timerID -> flush());
+    }
+
+    /**
+     * Stops checking thumbnail URLs.
+     */
+    void stop() {
+        myVertx.cancelTimer(myTickTimerID);
+        myVertx.cancelTimer(myFlushTimerID);
+    }
+
+    /**
+     * Submits the possible thumbnail URLs of a record for checking. This method may be called from any thread.
+     * <p>
+     * The record's Solr document must already have been sent to Solr (or to the Solr update queue), so that the atomic
+     * update that follows the check can't be overwritten by it.
+     *
+     * @param aCheck A thumbnail check
+     */
+    void submit(final Check aCheck) {
+        final Object id = aCheck.myProvisionalDoc.getFieldValue(ID);
+
+        // An earlier check of the same record is superseded, whether or not this one is dropped
+        myLatestChecks.put(id, aCheck);
+
+        if (myPendingCheckCount.incrementAndGet() > MAX_PENDING_CHECKS) {
+            myPendingCheckCount.decrementAndGet();
+            myLatestChecks.remove(id, aCheck);
+            LOGGER.warn(MessageCodes.PRL_063, id);
+        } else {
+            myPendingChecks.add(aCheck);
+        }
+    }
+
+    /**
+     * Drops the unapplied checks of records that have been re-indexed or deleted since they were submitted. This method
+     * may be called from any thread.
+     * <p>
+     * It must be called once the records' new Solr documents (or deletions) have been sent to Solr (or to the Solr
+     * update queue), and before any new checks of the records are submitted.
+     *
+     * @param anIDs The Solr document IDs of the records
+     */
+    void supersede(final Collection<?> anIDs) {
+        anIDs.forEach(myLatestChecks::remove);
+    }
+
+    /**
+     * Waits for every check that has been submitted so far to be applied (or dropped). This method may be called from
+     * any thread.
+     *
+     * @return A Future that succeeds once there are no checks left to apply
+     */
+    Future<Void> whenIdle() {
+        final Promise<Void> promise = Promise.promise();
+
+        myIdlePromises.add(promise);
+
+        return promise.future();
+    }
+
+    /**
+     * Starts as many pending checks as the rate limit allows.
+     */
+    @SuppressWarnings("PMD.AssignmentInOperand")
+    private void tick() {
+        Check check;
+
+        myPermits = Math.min(myRate, myPermits + myRate * TICK_INTERVAL / 1000.0);
+
+        // A check with more URLs than the rate may start once the permits are full, leaving a debt to be paid off
+        while (myActiveCheckCount < MAX_ACTIVE_CHECKS && (check = myPendingChecks.peek()) != null &&
+                myPermits >= Math.min(check.myPossibleThumbnailUrls.size(), myRate)) {
+            myPendingChecks.poll();
+            myPendingCheckCount.decrementAndGet();
+
+            if (isLatest(check)) {
+                myPermits -= check.myPossibleThumbnailUrls.size();
+                verify(check);
+            }
+        }
+    }
+
+    /**
+     * Checks the possible thumbnail URLs of a record, and queues up the resulting atomic update.
+     *
+     * @param aCheck A thumbnail check
+     */
+    private void verify(final Check aCheck) {
+        // The check is traced as part of the harvest that submitted it, even though it runs afterward
+        final Span span = Tracing.spanBuilder(CHECK_SPAN).setParent(aCheck.myTraceContext)
+                .setAttribute(URL_COUNT, (long) aCheck.myPossibleThumbnailUrls.size()).startSpan();
+        final Future<Optional<URL>> findImageURL;
+
+        myActiveCheckCount += 1;
+
+        try (Scope scope = Tracing.makeCurrent(span)) {
+            findImageURL = HarvestServiceUtils.findImageURL(aCheck.myPossibleThumbnailUrls, myWebClient,
+                    myClassifier, myHostLatencies);
+        }
+
+        findImageURL.onComplete(result -> {
+            final SolrInputDocument verifiedDoc;
+
+            myActiveCheckCount -= 1;
+
+            if (result.succeeded() && result.result().isPresent()) {
+                verifiedDoc = aCheck.myMapper.apply(result.result().get());
+            } else {
+                verifiedDoc = aCheck.myProvisionalDoc;
+            }
+
+            myUpdates.add(Tuple.of(aCheck, getUpdate(aCheck.myProvisionalDoc, verifiedDoc, aCheck.myRecordHash)));
+
+            span.setAttribute(FOUND, result.succeeded() && result.result().isPresent());
+            Tracing.end(span, result.cause());
+        });
+    }
+
+    /**
+     * Sends the atomic updates for the checks that have finished to Solr, unless the previous flush is still going. If
+     * there are no checks left to apply, those waiting for that are let go.
+     */
+    private void flush() {
+        final List<SolrInputDocument> updates = new ArrayList<>(myUpdates.size());
+
+        if (myIsFlushing) {
+            return;
+        }
+
+        if (myUpdates.isEmpty()) {
+            if (myActiveCheckCount == 0 && myPendingCheckCount.get() == 0) {
+                myIdlePromises.removeIf(Promise::tryComplete);
+            }
+
+            return;
+        }
+
+        for (final Tuple2<Check, SolrInputDocument> checkAndUpdate : myUpdates) {
+            // Records that have been re-indexed or deleted while they were being checked are left alone
+            if (myLatestChecks.remove(checkAndUpdate._2().getFieldValue(ID), checkAndUpdate._1())) {
+                updates.add(checkAndUpdate._2());
+            }
+        }
+
+        myUpdates.clear();
+
+        if (updates.isEmpty()) {
+            return;
+        }
+
+        myIsFlushing = true;
+
+        myUpdater.apply(updates).onSuccess(result -> {
+            LOGGER.debug(MessageCodes.PRL_064, updates.size());
+        }).onFailure(details -> {
+            // The records have no content hash in Solr, so they'll be checked again on their next harvest
+            LOGGER.warn(MessageCodes.PRL_065, updates.size(), details.getMessage());
+        }).onComplete(result -> {
+            myIsFlushing = false;
+        });
+    }
+
+    /**
+     * @param aCheck A thumbnail check
+     * @return Whether the check is still the latest one of its record
+     */
+    private boolean isLatest(final Check aCheck) {
+        return myLatestChecks.get(aCheck.myProvisionalDoc.getFieldValue(ID)) == aCheck;
+    }
+
+    /**
+     * Gets the atomic update that turns a record's provisional Solr document into its verified one.
+     * <p>
+     * Only the fields that differ are set; choosing a thumbnail URL removes it from the item URL and keyword fields,
+     * so those may change too. The record's content hash is always set, to mark the record as fully indexed. The update
+     * is only applied if the record's Solr document exists; otherwise, Solr skips it as a version conflict.
+     *
+     * @param aProvisionalDoc The Solr document that was indexed before the check
+     * @param aVerifiedDoc The Solr document that reflects the result of the check
+     * @param aRecordHash The record's content hash
+     * @return The atomic update
+     */
+    static SolrInputDocument getUpdate(final SolrInputDocument aProvisionalDoc, final SolrInputDocument aVerifiedDoc,
+            final String aRecordHash) {
+        final SolrInputDocument update = new SolrInputDocument();
+        final Set<String> fieldNames = new LinkedHashSet<>(aProvisionalDoc.getFieldNames());
+
+        fieldNames.addAll(aVerifiedDoc.getFieldNames());
+        fieldNames.remove(ID);
+
+        update.setField(ID, aVerifiedDoc.getFieldValue(ID));
+
+        for (final String fieldName : fieldNames) {
+            final SolrInputField verifiedField = aVerifiedDoc.getField(fieldName);
+
+            if (!Objects.equals(getValues(aProvisionalDoc, fieldName), getValues(aVerifiedDoc, fieldName))) {
+                // Setting a field to null removes it
+                update.setField(fieldName,
+                        Collections.singletonMap(SET, verifiedField == null ? null : verifiedField.getValue()));
+            }
+        }
+
+        update.setField(HarvestServiceUtils.RECORD_HASH, Collections.singletonMap(SET, aRecordHash));
+        update.setField(CommonParams.VERSION_FIELD, MUST_EXIST);
+
+        return update;
+    }
+
+    /**
+     * @param aDoc A Solr document
+     * @param aFieldName The name of a field
+     * @return The values of the field in a comparable form, or null if the document doesn't have the field
+     */
+    private static List<Object> getValues(final SolrInputDocument aDoc, final String aFieldName) {
+        final Collection<Object> values = aDoc.getFieldValues(aFieldName);
+
+        return values == null ? null : new ArrayList<>(values);
+    }
+
+    /**
+     * The possible thumbnail URLs of a record that need to be checked, along with what's needed to patch its Solr
+     * document afterward.
+     */
+    static final class Check {
+
+        /**
+         * The Solr document that was indexed without a thumbnail.
+         */
+        private final SolrInputDocument myProvisionalDoc;
+
+        /**
+         * The possible thumbnail URLs to check.
+         */
+        private final List<URL> myPossibleThumbnailUrls;
+
+        /**
+         * The record's content hash.
+         */
+        private final String myRecordHash;
+
+        /**
+         * A function that maps the record to a Solr document with the given thumbnail URL.
+         */
+        private final Function<URL, SolrInputDocument> myMapper;
+
+        /**
+         * The trace context of the harvest that submitted the check.
+         */
+        private final Context myTraceContext = Context.current();
+
+        /**
+         * Creates a thumbnail check.
+         *
+         * @param aProvisionalDoc The Solr document that was indexed without a thumbnail
+         * @param aPossibleThumbnailUrls The possible thumbnail URLs to check
+         * @param aRecordHash The record's content hash
+         * @param aMapper A function that maps the record to a Solr document with the given thumbnail URL
+         */
+        Check(final SolrInputDocument aProvisionalDoc, final List<URL> aPossibleThumbnailUrls,
+                final String aRecordHash, final Function<URL, SolrInputDocument> aMapper) {
+            myProvisionalDoc = aProvisionalDoc;
+            myPossibleThumbnailUrls = aPossibleThumbnailUrls;
+            myRecordHash = aRecordHash;
+            myMapper = aMapper;
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package edu.ucla.library.prl.harvester.verticles;
+
+import edu.ucla.library.prl.harvester.services.HarvestRunQueue;
+import edu.ucla.library.prl.harvester.services.HarvestRunWorker;
+import edu.ucla.library.prl.harvester.services.HarvestScheduleStoreService;
+
+import io.vertx.core.AbstractVerticle;
+import io.vertx.core.Promise;
+import io.vertx.sqlclient.Pool;
+
+/**
+ * A verticle that runs the harvests in the shared harvest run queue.
+ * <p>
+ * Any number of instances may be deployed, on any number of nodes; each one runs one harvest at a time.
+ */
+public class HarvestWorkerVerticle extends AbstractVerticle {
+
+    /**
+     * A database client.
+     */
+    private Pool myDbConnectionPool;
+
+    /**
+     * The worker that takes runs from the queue.
+     */
+    private HarvestRunWorker myWorker;
+
+    @Override
+    public void start(final Promise<Void> aPromise) {
+        myDbConnectionPool = HarvestScheduleStoreService.getConnectionPool(vertx, config());
+        myWorker = new HarvestRunWorker(vertx, new HarvestRunQueue(myDbConnectionPool), config());
+        myWorker.start();
+
+        aPromise.complete();
+    }
+
+    @Override
+    public void stop(final Promise<Void> aPromise) {
+        myWorker.stop();
+        myDbConnectionPool.close().onComplete(aPromise);
+    }
+}
@@ -13,6 +13,7 @@ import info.freelibrary.util.LoggerFactory;
 import info.freelibrary.util.StringUtils;
 
 import edu.ucla.library.prl.harvester.Config;
+import edu.ucla.library.prl.harvester.Job;
 import edu.ucla.library.prl.harvester.MessageCodes;
 import edu.ucla.library.prl.harvester.Op;
 import edu.ucla.library.prl.harvester.Paths;
@@ -24,7 +25,10 @@ import edu.ucla.library.prl.harvester.handlers.GetJobHandler;
 import edu.ucla.library.prl.harvester.handlers.InformativeBadRequestHandler;
 import edu.ucla.library.prl.harvester.handlers.ListInstitutionsHandler;
 import edu.ucla.library.prl.harvester.handlers.ListJobsHandler;
+import edu.ucla.library.prl.harvester.handlers.RebuildGateHandler;
+import edu.ucla.library.prl.harvester.handlers.RebuildHandler;
 import edu.ucla.library.prl.harvester.handlers.RemoveInstitutionHandler;
+import edu.ucla.library.prl.harvester.handlers.ReindexHandler;
 import edu.ucla.library.prl.harvester.handlers.RemoveJobHandler;
 import edu.ucla.library.prl.harvester.handlers.ServiceExceptionHandler;
 import edu.ucla.library.prl.harvester.handlers.SimpleRedirectHandler;
@@ -34,12 +38,14 @@ import edu.ucla.library.prl.harvester.handlers.UpdateJobHandler;
 import edu.ucla.library.prl.harvester.services.HarvestJobSchedulerService;
 import edu.ucla.library.prl.harvester.services.HarvestScheduleStoreService;
 import edu.ucla.library.prl.harvester.services.HarvestService;
+import edu.ucla.library.prl.harvester.services.LocalHarvestServiceProxy;
 
 import io.vavr.Tuple;
 import io.vavr.Tuple3;
 
 import io.vertx.core.AbstractVerticle;
 import io.vertx.core.CompositeFuture;
+import io.vertx.core.DeploymentOptions;
 import io.vertx.core.Future;
 import io.vertx.core.Promise;
 import io.vertx.core.eventbus.MessageConsumer;
@@ -81,7 +87,7 @@ public class MainVerticle extends AbstractVerticle {
     /**
      * The collection of deployed event bus services.
      */
-    private Set<MessageConsumer<JsonObject>> myEventBusServices;
+    private Set<MessageConsumer<?>> myEventBusServices;
 
     @Override
     public void start(final Promise<Void> aPromise) {
@@ -114,13 +120,14 @@ public class MainVerticle extends AbstractVerticle {
      * @param aConfig A configuration
      * @return A Future that resolves to all the resources
      */
-    private Future<Tuple3<Pool, Set<MessageConsumer<JsonObject>>, HttpServer>>
+    private Future<Tuple3<Pool, Set<MessageConsumer<?>>, HttpServer>>
             createResources(final JsonObject aConfig) {
         final Pool dbConnectionPool = HarvestScheduleStoreService.getConnectionPool(vertx, aConfig);
 
         return createEventBusServices(aConfig, dbConnectionPool).compose(services -> {
-            final Future<HttpServer> serverCreation =
-                    createRouter(aConfig).compose(router -> createHttpServer(aConfig, router));
+            final Future<HttpServer> serverCreation = deployHarvestWorkers(aConfig)
+                    .compose(nil -> createRouter(aConfig, dbConnectionPool))
+                    .compose(router -> createHttpServer(aConfig, router));
 
             return serverCreation.map(server -> Tuple.of(dbConnectionPool, services, server));
         });
@@ -133,50 +140,84 @@ public class MainVerticle extends AbstractVerticle {
      * @param aPool A connection pool
      * @return A Future that resolves to the event bus services
      */
-    private Future<Set<MessageConsumer<JsonObject>>> createEventBusServices(final JsonObject aConfig,
+    private Future<Set<MessageConsumer<?>>> createEventBusServices(final JsonObject aConfig,
             final Pool aPool) {
         final ServiceBinder serviceBinder = new ServiceBinder(vertx);
-        final MessageConsumer<JsonObject> harvestService = serviceBinder.setAddress(HarvestService.ADDRESS)
-                .register(HarvestService.class, HarvestService.create(vertx, aConfig));
+        final HarvestService harvestServiceImpl = HarvestService.create(vertx, aConfig);
+        final MessageConsumer<JsonObject> harvestService =
+                serviceBinder.setAddress(HarvestService.ADDRESS).register(HarvestService.class, harvestServiceImpl);
+        // Harvest service proxies on this Vert.x instance pass jobs to it without encoding them
+        final MessageConsumer<Job> localHarvestService = LocalHarvestServiceProxy.register(vertx, harvestServiceImpl);
         final MessageConsumer<JsonObject> scheduleStoreService =
                 serviceBinder.setAddress(HarvestScheduleStoreService.ADDRESS)
-                        .register(HarvestScheduleStoreService.class, HarvestScheduleStoreService.create(vertx, aPool));
+                        .register(HarvestScheduleStoreService.class,
+                                HarvestScheduleStoreService.create(vertx, aPool, aConfig));
 
         return HarvestJobSchedulerService.create(vertx, aConfig).map(service -> {
             final MessageConsumer<JsonObject> schedulerService = serviceBinder
                     .setAddress(HarvestJobSchedulerService.ADDRESS).register(HarvestJobSchedulerService.class, service);
 
-            return Set.of(harvestService, schedulerService, scheduleStoreService);
+            return Set.of(harvestService, localHarvestService, schedulerService, scheduleStoreService);
         });
     }
 
+    /**
+     * Deploys the harvest workers, if the harvest run queue is enabled. Being child deployments, they're undeployed
+     * along with this verticle.
+     *
+     * @param aConfig A configuration
+     * @return A Future that succeeds once the harvest workers have been deployed
+     */
+    private Future<Void> deployHarvestWorkers(final JsonObject aConfig) {
+        final int workerCount = Config.getHarvestWorkerCount(aConfig);
+
+        if (!Config.isHarvestRunQueueEnabled(aConfig) || workerCount < 1) {
+            return Future.succeededFuture();
+        }
+
+        return vertx.deployVerticle(HarvestWorkerVerticle::new,
+                new DeploymentOptions().setConfig(aConfig).setInstances(workerCount)).mapEmpty();
+    }
+
     /**
      * Creates the HTTP request router.
      *
      * @param aConfig A configuration
+     * @param aPool A connection pool, for handlers that stream from the database
      * @return A Future that resolves to the HTTP request router
      */
-    private Future<Router> createRouter(final JsonObject aConfig) {
+    private Future<Router> createRouter(final JsonObject aConfig, final Pool aPool) {
         // Load the OpenAPI specification
         return RouterBuilder.create(vertx, "openapi.yaml").map(routeBuilder -> {
+            // Requests that write to the live Solr core are turned away while the index is being rebuilt
+            final RebuildGateHandler rebuildGateHandler = new RebuildGateHandler(vertx);
             final Router router;
 
             // Associate handlers with operation IDs from the OpenAPI spec
             routeBuilder.operation(Op.getStatus.name()).handler(new StatusHandler());
 
             // Institution operations
-            routeBuilder.operation(Op.addInstitutions.name()).handler(new AddInstitutionsHandler(vertx, aConfig));
+            routeBuilder.operation(Op.addInstitutions.name()).handler(rebuildGateHandler)
+                    .handler(new AddInstitutionsHandler(vertx, aConfig));
             routeBuilder.operation(Op.getInstitution.name()).handler(new GetInstitutionHandler(vertx, aConfig));
-            routeBuilder.operation(Op.listInstitutions.name()).handler(new ListInstitutionsHandler(vertx, aConfig));
-            routeBuilder.operation(Op.removeInstitution.name()).handler(new RemoveInstitutionHandler(vertx, aConfig));
-            routeBuilder.operation(Op.updateInstitution.name()).handler(new UpdateInstitutionHandler(vertx, aConfig));
+            routeBuilder.operation(Op.listInstitutions.name())
+                    .handler(new ListInstitutionsHandler(vertx, aConfig, aPool));
+            routeBuilder.operation(Op.removeInstitution.name()).handler(rebuildGateHandler)
+                    .handler(new RemoveInstitutionHandler(vertx, aConfig));
+            routeBuilder.operation(Op.updateInstitution.name()).handler(rebuildGateHandler)
+                    .handler(new UpdateInstitutionHandler(vertx, aConfig));
 
             // Job operations
             routeBuilder.operation(Op.addJobs.name()).handler(new AddJobsHandler(vertx, aConfig));
             routeBuilder.operation(Op.getJob.name()).handler(new GetJobHandler(vertx, aConfig));
-            routeBuilder.operation(Op.listJobs.name()).handler(new ListJobsHandler(vertx, aConfig));
-            routeBuilder.operation(Op.removeJob.name()).handler(new RemoveJobHandler(vertx, aConfig));
-            routeBuilder.operation(Op.updateJob.name()).handler(new UpdateJobHandler(vertx, aConfig));
+            routeBuilder.operation(Op.listJobs.name()).handler(new ListJobsHandler(vertx, aConfig, aPool));
+            routeBuilder.operation(Op.removeJob.name()).handler(rebuildGateHandler)
+                    .handler(new RemoveJobHandler(vertx, aConfig));
+            routeBuilder.operation(Op.updateJob.name()).handler(rebuildGateHandler)
+                    .handler(new UpdateJobHandler(vertx, aConfig));
+            routeBuilder.operation(Op.reindex.name()).handler(rebuildGateHandler)
+                    .handler(new ReindexHandler(vertx, aConfig));
+            routeBuilder.operation(Op.rebuild.name()).handler(new RebuildHandler(vertx, aConfig));
 
             // Administrative interface
             routeBuilder.operation(Op.getAdmin.name()).handler(StaticHandler.create());
@@ -5,11 +5,17 @@
 
 precreate-core prl && \
 
+# A standby core for rebuilds, which is swapped with the live core once a rebuild is done
+precreate-core prl_rebuild && \
+
 # See: https://solr.apache.org/guide/solr/9_0/indexing-guide/tokenizers.html#icu-tokenizer
 mkdir /var/solr/data/lib && \
 ln -s -t /var/solr/data/lib \
     /opt/solr/modules/analysis-extras/lib/{solr-analysis-extras-*.jar,icu4j-*.jar,lucene-analysis-icu-*.jar} && \
 
+# Both cores get the same config, since a core's config moves with it when the cores are swapped; the bulk-load
+# settings of a rebuild are applied to the standby core through the Config API, and removed before the swap
 cp /root/{managed-schema.xml,solrconfig.xml} /var/solr/data/prl/conf/ && \
+cp /root/{managed-schema.xml,solrconfig.xml} /var/solr/data/prl_rebuild/conf/ && \
 
 solr-foreground
@@ -0,0 +1,69 @@
+package edu.ucla.library.prl.harvester;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.api.trace.Tracer;
+import io.opentelemetry.context.Context;
+import io.opentelemetry.sdk.trace.SdkTracerProvider;
+import io.opentelemetry.sdk.trace.export.SimpleSpanProcessor;
+
+import io.vertx.core.json.JsonObject;
+
+/**
+ * Tests {@link FileSpanExporter}.
+ */
+public class FileSpanExporterTest {
+
+    /**
+     * A temporary directory for the traces file.
+     */
+    @TempDir
+    Path myTempDir;
+
+    /**
+     * Tests that finished spans are appended to the file as JSON, one per line, with their parents, attributes and
+     * errors.
+     *
+     * @throws IOException If the traces file can't be written or read
+     */
+    @Test
+    void testExport() throws IOException {
+        final Path tracesFile = myTempDir.resolve("traces.jsonl");
+        final SdkTracerProvider tracerProvider = SdkTracerProvider.builder()
+                .addSpanProcessor(SimpleSpanProcessor.create(new FileSpanExporter(tracesFile))).build();
+        final Tracer tracer = tracerProvider.get(FileSpanExporterTest.class.getName());
+        final Span harvest = tracer.spanBuilder("harvest").setAttribute(Tracing.JOB_ID, 1L).startSpan();
+        final Span solrRequest = tracer.spanBuilder("solr add").setParent(Context.root().with(harvest)).startSpan();
+        final List<JsonObject> spans;
+        final JsonObject harvestJson;
+        final JsonObject solrRequestJson;
+
+        Tracing.end(solrRequest, new IOException("Connection refused"));
+        harvest.end();
+        tracerProvider.close();
+
+        spans = Files.readAllLines(tracesFile).stream().map(JsonObject::new).toList();
+        solrRequestJson = spans.get(0);
+        harvestJson = spans.get(1);
+
+        assertEquals(2, spans.size());
+        assertEquals("harvest", harvestJson.getString("name"));
+        assertEquals(1L, harvestJson.getJsonObject("attributes").getLong(Tracing.JOB_ID.getKey()));
+        assertFalse(harvestJson.containsKey("parentSpanId"));
+
+        assertEquals(harvestJson.getString("traceId"), solrRequestJson.getString("traceId"));
+        assertEquals(harvestJson.getString("spanId"), solrRequestJson.getString("parentSpanId"));
+        assertEquals("ERROR", solrRequestJson.getString("status"));
+        assertEquals("exception", solrRequestJson.getJsonArray("events").getJsonObject(0).getString("name"));
+    }
+}
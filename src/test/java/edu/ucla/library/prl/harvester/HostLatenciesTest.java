@@ -0,0 +1,121 @@
+package edu.ucla.library.prl.harvester;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.net.MalformedURLException;
+import java.net.URL;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import io.vertx.core.json.JsonObject;
+
+/**
+ * Tests {@link HostLatencies}.
+ */
+public class HostLatenciesTest {
+
+    /**
+     * The timeout (in milliseconds) for hosts without enough recent latencies.
+     */
+    private static final long DEFAULT_TIMEOUT = 60_000;
+
+    /**
+     * The min timeout (in milliseconds).
+     */
+    private static final long FLOOR = 1000;
+
+    /**
+     * The max timeout (in milliseconds).
+     */
+    private static final long CEILING = 120_000;
+
+    /**
+     * An example URL.
+     */
+    private URL myURL;
+
+    /**
+     * The host latencies under test.
+     */
+    private HostLatencies myHostLatencies;
+
+    /**
+     * Sets up the test.
+     *
+     * @throws MalformedURLException If the example URL is malformed
+     */
+    @BeforeEach
+    void setUp() throws MalformedURLException {
+        myURL = new URL("http://Example.edu/provider");
+        myHostLatencies = new HostLatencies(DEFAULT_TIMEOUT, FLOOR, CEILING);
+    }
+
+    /**
+     * Tests that the default timeout is used until a host has enough recent latencies.
+     *
+     * @throws MalformedURLException If the example URL is malformed
+     */
+    @Test
+    void testDefaultTimeout() throws MalformedURLException {
+        record(myURL, 500, HostLatencies.MIN_SAMPLE_COUNT - 1);
+        assertEquals(DEFAULT_TIMEOUT, myHostLatencies.getTimeout(myURL));
+
+        // Latencies are kept by host, not by URL
+        record(new URL("http://example.edu/thumbnails/1.jpg"), 500, 1);
+        assertEquals(1500, myHostLatencies.getTimeout(myURL));
+        assertEquals(DEFAULT_TIMEOUT, myHostLatencies.getTimeout(new URL("http://example.org/provider")));
+    }
+
+    /**
+     * Tests that the timeout is a multiple of the 99th percentile latency, within the floor and the ceiling.
+     */
+    @Test
+    void testTimeout() {
+        record(myURL, 100, HostLatencies.MIN_SAMPLE_COUNT);
+        assertEquals(FLOOR, myHostLatencies.getTimeout(myURL));
+
+        record(myURL, 2000, HostLatencies.WINDOW_SIZE);
+        assertEquals(6000, myHostLatencies.getTimeout(myURL));
+
+        // A host that slows down to the point of timing out gets longer timeouts, up to the ceiling
+        record(myURL, 6000, 2);
+        assertEquals(18_000, myHostLatencies.getTimeout(myURL));
+        record(myURL, CEILING, HostLatencies.WINDOW_SIZE);
+        assertEquals(CEILING, myHostLatencies.getTimeout(myURL));
+    }
+
+    /**
+     * Tests that the latencies that are saved as JSON can be loaded again, and that only the recent ones are kept.
+     */
+    @Test
+    void testLoad() {
+        final JsonObject json;
+
+        for (int latency = 1; latency <= HostLatencies.WINDOW_SIZE + 1; latency++) {
+            myHostLatencies.record(myURL, latency);
+        }
+
+        json = myHostLatencies.toJson();
+
+        assertEquals(HostLatencies.WINDOW_SIZE, json.getJsonArray("example.edu").size());
+        assertEquals(2L, json.getJsonArray("example.edu").getLong(0));
+        assertEquals(json, new HostLatencies(DEFAULT_TIMEOUT, FLOOR, CEILING).load(json).toJson());
+
+        // Values that aren't lists of latencies are ignored
+        assertEquals(json, myHostLatencies.load(new JsonObject().put("example.org", "not an array")).toJson());
+    }
+
+    /**
+     * Records a number of requests with the same latency.
+     *
+     * @param aURL The URL of the requests
+     * @param aLatency The latency (in milliseconds)
+     * @param aCount The number of requests
+     */
+    private void record(final URL aURL, final long aLatency, final int aCount) {
+        for (int index = 0; index < aCount; index++) {
+            myHostLatencies.record(aURL, aLatency);
+        }
+    }
+}
@@ -206,6 +206,53 @@ public class InstitutionRequestsFT extends AuthorizedFIT {
         }).onFailure(aContext::failNow);
     }
 
+    /**
+     * Tests that {@link Op#listInstitutions} retrieves the same institutions when they're paged or streamed.
+     *
+     * @param aVertx A Vert.x instance
+     * @param aContext A test context
+     */
+    @Test
+    void testListPagedAndStreamed(final Vertx aVertx, final VertxTestContext aContext) {
+        final JsonArray institutions = new JsonArray();
+
+        try {
+            for (int index = 0; index < 3; index++) {
+                institutions.add(TestUtils.getRandomInstitution().toJson());
+            }
+        } catch (final AddressException | MalformedURLException | NumberParseException details) {
+            aContext.failNow(details);
+            return;
+        }
+
+        myWebClient.post(INSTITUTIONS).expect(ResponsePredicate.SC_CREATED).sendJson(institutions).compose(added -> {
+            final Set<Institution> addedInstitutions = institutionsFromJsonArray(added.bodyAsJsonArray());
+            final Future<HttpResponse<Buffer>> firstPage = myWebClient.get(INSTITUTIONS)
+                    .addQueryParam(Param.limit.name(), "2").expect(ResponsePredicate.SC_OK).send();
+
+            return firstPage.compose(first -> {
+                final JsonArray firstPageItems = first.bodyAsJsonArray();
+                final String lastID = firstPageItems.getJsonObject(1).getInteger(Institution.ID).toString();
+
+                return myWebClient.get(INSTITUTIONS).addQueryParam(Param.after.name(), lastID)
+                        .addQueryParam(Param.limit.name(), "2").expect(ResponsePredicate.SC_OK).send()
+                        .map(second -> firstPageItems.copy().addAll(second.bodyAsJsonArray()));
+            }).compose(pagedItems -> {
+                return myWebClient.get(INSTITUTIONS).addQueryParam(Param.stream.name(), "true")
+                        .expect(ResponsePredicate.SC_OK).expect(ResponsePredicate.JSON).send().map(streamed -> {
+                            aContext.verify(() -> {
+                                assertEquals(3, pagedItems.size());
+                                assertEquals(addedInstitutions, institutionsFromJsonArray(pagedItems));
+                                assertEquals(addedInstitutions,
+                                        institutionsFromJsonArray(streamed.bodyAsJsonArray()));
+                            });
+
+                            return null;
+                        });
+            });
+        }).onSuccess(nil -> aContext.completeNow()).onFailure(aContext::failNow);
+    }
+
     /**
      * Tests that {@link Op#getInstitution} after {@link Op#addInstitutions} retrieves the same data that was sent.
      *
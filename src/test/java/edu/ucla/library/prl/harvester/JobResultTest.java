@@ -41,14 +41,16 @@ public class JobResultTest {
         final OffsetDateTime exampleStartTime = OffsetDateTime.parse("2000-01-01T00:00Z");
         final int exampleRecordCount = 10;
         final int exampleDeletedRecordCount = 0;
+        final int exampleUnchangedRecordCount = 5;
 
-        final JobResult jobResult =
-                new JobResult(exampleJobID, exampleStartTime, exampleRecordCount, exampleDeletedRecordCount);
+        final JobResult jobResult = new JobResult(exampleJobID, exampleStartTime, exampleRecordCount,
+                exampleDeletedRecordCount, exampleUnchangedRecordCount);
         final JsonObject json = new JsonObject() //
                 .put(JobResult.JOB_ID, exampleJobID) //
                 .put(JobResult.START_TIME, exampleStartTime.toString()) //
                 .put(JobResult.RECORD_COUNT, exampleRecordCount) //
-                .put(JobResult.DELETED_RECORD_COUNT, exampleDeletedRecordCount);
+                .put(JobResult.DELETED_RECORD_COUNT, exampleDeletedRecordCount) //
+                .put(JobResult.UNCHANGED_RECORD_COUNT, exampleUnchangedRecordCount);
         final JobResult jobResultFromJson = new JobResult(json);
 
         // If the JSON representations are equal, then serialization works
@@ -59,6 +61,7 @@ public class JobResultTest {
         assertEquals(jobResult.getStartTime(), jobResultFromJson.getStartTime());
         assertEquals(jobResult.getRecordCount(), jobResultFromJson.getRecordCount());
         assertEquals(jobResult.getDeletedRecordCount(), jobResultFromJson.getDeletedRecordCount());
+        assertEquals(jobResult.getUnchangedRecordCount(), jobResultFromJson.getUnchangedRecordCount());
 
         assertEquals(jobResult, jobResultFromJson);
         assertEquals(jobResult.hashCode(), jobResultFromJson.hashCode());
@@ -71,17 +74,20 @@ public class JobResultTest {
      * @param aStartTime The time when the job was started
      * @param aRecordCount The number of records harvested by the job
      * @param aDeletedRecordCount The number of records removed by the job
+     * @param anUnchangedRecordCount The number of records skipped by the job because they hadn't changed
      * @param anErrorClass The class of error that we expect instantiation with the above arguments to throw
      */
     @ParameterizedTest
     @MethodSource
     void testJobResultInvalidJsonRepresentation(final Integer aJobID, final String aStartTime,
-            final Integer aRecordCount, final Integer aDeletedRecordCount, final Class<Exception> anErrorClass) {
+            final Integer aRecordCount, final Integer aDeletedRecordCount, final Integer anUnchangedRecordCount,
+            final Class<Exception> anErrorClass) {
         final JsonObject json = new JsonObject() //
                 .put(JobResult.JOB_ID, aJobID) //
                 .put(JobResult.START_TIME, aStartTime) //
                 .put(JobResult.RECORD_COUNT, aRecordCount) //
-                .put(JobResult.DELETED_RECORD_COUNT, aDeletedRecordCount);
+                .put(JobResult.DELETED_RECORD_COUNT, aDeletedRecordCount) //
+                .put(JobResult.UNCHANGED_RECORD_COUNT, anUnchangedRecordCount);
         final Exception error = assertThrows(InvalidJobResultJsonException.class, () -> new JobResult(json));
 
         if (error.getCause() != null) {
@@ -100,13 +106,15 @@ public class JobResultTest {
         final String invalidTimestamp = LocalDate.of(2020, 1, 1).toString(); // Missing time component
 
         return Stream.of( //
-                Arguments.of(0, validTimestamp, 5, 0, null), //
-                Arguments.of(1, null, 10, 5, null), //
-                Arguments.of(2, invalidTimestamp, 50, 10, DateTimeParseException.class), //
-                Arguments.of(3, validTimestamp, null, 50, null), //
-                Arguments.of(4, validTimestamp, -1, 100, null), //
-                Arguments.of(5, validTimestamp, 100, null, null), //
-                Arguments.of(6, validTimestamp, 500, -1, null));
+                Arguments.of(0, validTimestamp, 5, 0, 0, null), //
+                Arguments.of(1, null, 10, 5, 0, null), //
+                Arguments.of(2, invalidTimestamp, 50, 10, 0, DateTimeParseException.class), //
+                Arguments.of(3, validTimestamp, null, 50, 0, null), //
+                Arguments.of(4, validTimestamp, -1, 100, 0, null), //
+                Arguments.of(5, validTimestamp, 100, null, 0, null), //
+                Arguments.of(6, validTimestamp, 500, -1, 0, null), //
+                Arguments.of(7, validTimestamp, 500, 0, null, null), //
+                Arguments.of(8, validTimestamp, 500, 0, -1, null));
     }
 
     /**
@@ -114,7 +122,7 @@ public class JobResultTest {
      */
     @Test
     void testJobResultNullArguments() {
-        assertThrows(NullPointerException.class, () -> new JobResult(1, null, 10, 0));
+        assertThrows(NullPointerException.class, () -> new JobResult(1, null, 10, 0, 0));
     }
 
     /**
@@ -229,6 +229,25 @@ public class JobTest {
                 Arguments.of(3, null, validSets, null, validTimestamp));
     }
 
+    /**
+     * Tests that a {@link Job}'s optional schedule jitter window survives serialization, and must be non-negative.
+     *
+     * @throws MalformedURLException
+     * @throws ParseException
+     */
+    @Test
+    void testJobScheduleJitterWindow() throws MalformedURLException, ParseException {
+        final Job job = new Job(1, new URL("http://example.com/4/oai"), List.of(), new CronExpression("0 0 2 * * ?"),
+                null, 600);
+        final JsonObject json = job.toJson();
+
+        assertEquals(600, json.getInteger(Job.SCHEDULE_JITTER_WINDOW));
+        assertEquals(job, new Job(json));
+        assertEquals(Optional.empty(),
+                new Job(json.copy().putNull(Job.SCHEDULE_JITTER_WINDOW)).getScheduleJitterWindow());
+        assertThrows(InvalidJobJsonException.class, () -> new Job(json.copy().put(Job.SCHEDULE_JITTER_WINDOW, -1)));
+    }
+
     /**
      * Tests that passing a null {@link JsonObject} throws a {@link NullPointerException}.
      */
@@ -0,0 +1,251 @@
+package edu.ucla.library.prl.harvester;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import org.dspace.xoai.serviceprovider.client.OAIClient;
+import org.dspace.xoai.serviceprovider.exceptions.HttpException;
+import org.dspace.xoai.serviceprovider.exceptions.OAIRequestException;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Tests {@link OaipmhArchive}, {@link ArchivingOAIClient}, and {@link ArchivedOAIClient}.
+ */
+public class OaipmhArchiveTest {
+
+    /**
+     * A temporary directory for the archive.
+     */
+    @TempDir
+    Path myTempDir;
+
+    /**
+     * Tests that runs are listed in chronological order, along with the information needed to replay them.
+     *
+     * @throws IOException If the archive could not be read or written
+     */
+    @Test
+    void testListRuns() throws IOException {
+        final OaipmhArchive archive = new OaipmhArchive(myTempDir);
+        final OffsetDateTime firstRunStart = OffsetDateTime.parse("2023-01-01T00:00:00-08:00");
+        final Map<String, String> setNameLookup = Map.of("set:1", "Set One");
+        final Path secondRun = archive.createRun(1, firstRunStart.plusDays(1), setNameLookup, false);
+        final Path firstRun = archive.createRun(1, firstRunStart, setNameLookup, true);
+
+        OaipmhArchive.completeRun(firstRun);
+        OaipmhArchive.completeRun(secondRun);
+
+        assertEquals(List.of(firstRun, secondRun), archive.listRuns(1));
+        assertEquals(setNameLookup, OaipmhArchive.getSetNameLookup(firstRun));
+        assertTrue(archive.listRuns(2).isEmpty());
+    }
+
+    /**
+     * Tests that runs that weren't marked as complete aren't listed, and that runs before the latest full run aren't
+     * listed either.
+     *
+     * @throws IOException If the archive could not be read or written
+     */
+    @Test
+    void testListCompleteRunsSinceFullRun() throws IOException {
+        final OaipmhArchive archive = new OaipmhArchive(myTempDir);
+        final OffsetDateTime start = OffsetDateTime.parse("2023-01-01T00:00:00Z");
+        final Path firstRun = archive.createRun(1, start, Map.of(), true);
+        final Path failedRun = archive.createRun(1, start.plusDays(1), Map.of(), false);
+        final Path fullRun = archive.createRun(1, start.plusDays(2), Map.of(), true);
+        final Path lastRun = archive.createRun(1, start.plusDays(3), Map.of(), false);
+
+        OaipmhArchive.completeRun(firstRun);
+        OaipmhArchive.completeRun(lastRun);
+
+        assertEquals(List.of(firstRun, lastRun), archive.listRuns(1));
+
+        OaipmhArchive.completeRun(fullRun);
+
+        assertEquals(List.of(fullRun, lastRun), archive.listRuns(1));
+        assertTrue(Files.exists(failedRun));
+    }
+
+    /**
+     * Tests that pruning deletes the failed runs and the runs superseded by the latest complete full run, but keeps a
+     * run that may still be in progress.
+     *
+     * @throws IOException If the archive could not be read or written
+     */
+    @Test
+    void testPruneRuns() throws IOException {
+        final OaipmhArchive archive = new OaipmhArchive(myTempDir);
+        final OffsetDateTime start = OffsetDateTime.parse("2023-01-01T00:00:00Z");
+        final Path firstRun = archive.createRun(1, start, Map.of(), true);
+        final Path failedRun = archive.createRun(1, start.plusDays(1), Map.of(), false);
+        final Path fullRun = archive.createRun(1, start.plusDays(2), Map.of(), true);
+        final Path lastRun = archive.createRun(1, start.plusDays(3), Map.of(), false);
+        final Path currentRun = archive.createRun(1, start.plusDays(4), Map.of(), false);
+
+        OaipmhArchive.completeRun(firstRun);
+        OaipmhArchive.completeRun(fullRun);
+        OaipmhArchive.completeRun(lastRun);
+
+        assertEquals(List.of(firstRun, failedRun), archive.pruneRuns(1));
+        assertFalse(Files.exists(firstRun));
+        assertFalse(Files.exists(failedRun));
+        assertTrue(Files.exists(currentRun));
+        assertEquals(List.of(fullRun, lastRun), archive.listRuns(1));
+        assertTrue(archive.pruneRuns(1).isEmpty());
+    }
+
+    /**
+     * Tests that a full run is due only once the latest complete full run is older than the configured interval.
+     *
+     * @throws IOException If the archive could not be read or written
+     */
+    @Test
+    void testIsFullRunDue() throws IOException {
+        final OaipmhArchive archive = new OaipmhArchive(myTempDir, Duration.ofDays(30));
+        final OffsetDateTime start = OffsetDateTime.parse("2023-01-01T00:00:00Z");
+
+        assertTrue(archive.isFullRunDue(1, start));
+
+        OaipmhArchive.completeRun(archive.createRun(1, start, Map.of(), true));
+        OaipmhArchive.completeRun(archive.createRun(1, start.plusDays(20), Map.of(), false));
+
+        assertFalse(archive.isFullRunDue(1, start.plusDays(29)));
+        assertTrue(archive.isFullRunDue(1, start.plusDays(31)));
+        assertFalse(new OaipmhArchive(myTempDir).isFullRunDue(1, start.plusDays(31)));
+    }
+
+    /**
+     * Tests that a run that was archived before runs were marked complete, which may have failed partway through,
+     * isn't replayed, that its job is due to be harvested in full, and that it's pruned once that has happened.
+     *
+     * @throws IOException If the archive could not be read or written
+     */
+    @Test
+    void testLegacyRunIsNotReplayed() throws IOException {
+        final OaipmhArchive archive = new OaipmhArchive(myTempDir);
+        final OffsetDateTime start = OffsetDateTime.parse("2023-01-01T00:00:00Z");
+        final Path legacyRun = archive.createRun(1, start, Map.of("set:1", "Set One"), false);
+        final Path fullRun;
+
+        // Legacy manifests only had the set names, and nothing marked the runs that succeeded
+        Files.writeString(legacyRun.resolve("run.json"), "{\"setNames\":{\"set:1\":\"Set One\"}}");
+        Files.createDirectories(OaipmhArchive.getSetDir(legacyRun, "set:1"));
+        Files.writeString(OaipmhArchive.getSetDir(legacyRun, "set:1").resolve("page-00001.xml.gz"), "");
+
+        assertTrue(archive.listRuns(1).isEmpty());
+        assertTrue(archive.isFullRunDue(1, start.plusDays(1)));
+
+        fullRun = archive.createRun(1, start.plusDays(1), Map.of("set:1", "Set One"), true);
+        OaipmhArchive.completeRun(fullRun);
+
+        assertFalse(archive.isFullRunDue(1, start.plusDays(2)));
+        assertEquals(List.of(legacyRun), archive.pruneRuns(1));
+        assertEquals(List.of(fullRun), archive.listRuns(1));
+    }
+
+    /**
+     * Tests that archived pages are replayed in the order they were fetched.
+     *
+     * @throws IOException If the archive could not be read or written
+     * @throws OAIRequestException If a page could not be fetched
+     */
+    @Test
+    void testReplayPages() throws IOException, OAIRequestException {
+        final OaipmhArchive archive = new OaipmhArchive(myTempDir);
+        final Path runDir = archive.createRun(1, OffsetDateTime.now(), Map.of("set:1", "Set One"), true);
+        final Path setDir = OaipmhArchive.getSetDir(runDir, "set:1");
+        final Iterator<String> pages = List.of("<page>1</page>", "<page>2</page>").iterator();
+        final OAIClient source = params -> new ByteArrayInputStream(pages.next().getBytes(StandardCharsets.UTF_8));
+        final OAIClient archivingClient = new ArchivingOAIClient(source, setDir);
+        final OAIClient archivedClient;
+
+        // The archiving client passes the pages through unchanged
+        assertArrayEquals(getBytes("<page>1</page>"), readAll(archivingClient));
+        assertArrayEquals(getBytes("<page>2</page>"), readAll(archivingClient));
+
+        assertEquals(Map.of("set:1", setDir), OaipmhArchive.listSets(runDir));
+
+        archivedClient = new ArchivedOAIClient(setDir);
+
+        assertArrayEquals(getBytes("<page>1</page>"), readAll(archivedClient));
+        assertArrayEquals(getBytes("<page>2</page>"), readAll(archivedClient));
+        assertThrows(HttpException.class, () -> archivedClient.execute(null));
+    }
+
+    /**
+     * Tests that a page is archived even if it's closed before it's been read to the end, and that a page that fails to
+     * be read isn't archived.
+     *
+     * @throws IOException If the archive could not be read or written
+     * @throws OAIRequestException If a page could not be fetched
+     */
+    @Test
+    void testArchivePartlyReadPages() throws IOException, OAIRequestException {
+        final OaipmhArchive archive = new OaipmhArchive(myTempDir);
+        final Path runDir = archive.createRun(1, OffsetDateTime.now(), Map.of("set:1", "Set One"), true);
+        final Path setDir = OaipmhArchive.getSetDir(runDir, "set:1");
+        final Iterator<InputStream> pages = List.<InputStream>of(new ByteArrayInputStream(getBytes("<page>1</page>")),
+                new SequenceInputStream(new ByteArrayInputStream(getBytes("<page>")), new InputStream() {
+
+                    @Override
+                    public int read() throws IOException {
+                        throw new IOException("Connection reset");
+                    }
+                })).iterator();
+        final OAIClient archivingClient = new ArchivingOAIClient(params -> pages.next(), setDir);
+
+        try (InputStream page = archivingClient.execute(null)) {
+            assertEquals('<', page.read());
+        }
+
+        try (InputStream page = archivingClient.execute(null)) {
+            assertThrows(IOException.class, page::readAllBytes);
+        }
+
+        try (InputStream page = new ArchivedOAIClient(setDir).execute(null)) {
+            assertArrayEquals(getBytes("<page>1</page>"), page.readAllBytes());
+        }
+
+        try (Stream<Path> files = Files.list(setDir)) {
+            assertEquals(1, files.count());
+        }
+    }
+
+    /**
+     * @param aClient An OAI-PMH client
+     * @return The bytes of the next response page
+     * @throws IOException If the page could not be read
+     * @throws OAIRequestException If the page could not be fetched
+     */
+    private static byte[] readAll(final OAIClient aClient) throws IOException, OAIRequestException {
+        try (InputStream page = aClient.execute(null)) {
+            return page.readAllBytes();
+        }
+    }
+
+    /**
+     * @param aString A string
+     * @return Its UTF-8 bytes
+     */
+    private static byte[] getBytes(final String aString) {
+        return aString.getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,119 @@
+package edu.ucla.library.prl.harvester;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests {@link OaipmhCircuitBreaker}.
+ */
+public class OaipmhCircuitBreakerTest {
+
+    /**
+     * An example OAI-PMH repository base URL.
+     */
+    private static final String BASE_URL = "http://example.edu/provider";
+
+    /**
+     * The reset timeout of the circuit breakers under test (in milliseconds).
+     */
+    private static final long RESET_TIMEOUT = 1000;
+
+    /**
+     * The current time of the circuit breakers under test.
+     */
+    private AtomicLong myClock;
+
+    /**
+     * Resets the clock.
+     */
+    @BeforeEach
+    void setUp() {
+        myClock = new AtomicLong();
+    }
+
+    /**
+     * Tests that the breaker opens after the threshold of consecutive failures, and then rejects requests.
+     */
+    @Test
+    void testOpen() {
+        final OaipmhCircuitBreaker breaker = new OaipmhCircuitBreaker(BASE_URL, 3, RESET_TIMEOUT, myClock::get);
+
+        fail(breaker, 2);
+        assertDoesNotThrow(breaker::acquire);
+        breaker.recordSuccess();
+
+        // The count of consecutive failures starts over after a success
+        fail(breaker, 2);
+        assertEquals(OaipmhCircuitBreaker.State.CLOSED, breaker.getState());
+        fail(breaker, 1);
+        assertEquals(OaipmhCircuitBreaker.State.OPEN, breaker.getState());
+
+        myClock.addAndGet(RESET_TIMEOUT - 1);
+        assertThrows(OaipmhCircuitBreaker.OpenException.class, breaker::acquire);
+    }
+
+    /**
+     * Tests that a half-open breaker lets a single probe request through, and closes if it succeeds.
+     */
+    @Test
+    void testProbeSuccess() {
+        final OaipmhCircuitBreaker breaker = new OaipmhCircuitBreaker(BASE_URL, 1, RESET_TIMEOUT, myClock::get);
+
+        fail(breaker, 1);
+        myClock.addAndGet(RESET_TIMEOUT);
+
+        assertDoesNotThrow(breaker::acquire);
+        assertEquals(OaipmhCircuitBreaker.State.HALF_OPEN, breaker.getState());
+        assertThrows(OaipmhCircuitBreaker.OpenException.class, breaker::acquire);
+
+        breaker.recordSuccess();
+        assertEquals(OaipmhCircuitBreaker.State.CLOSED, breaker.getState());
+        assertDoesNotThrow(breaker::acquire);
+    }
+
+    /**
+     * Tests that a half-open breaker opens again if its probe request fails.
+     */
+    @Test
+    void testProbeFailure() {
+        final OaipmhCircuitBreaker breaker = new OaipmhCircuitBreaker(BASE_URL, 2, RESET_TIMEOUT, myClock::get);
+
+        fail(breaker, 2);
+        myClock.addAndGet(RESET_TIMEOUT);
+        assertDoesNotThrow(breaker::acquire);
+
+        breaker.recordFailure("Connection refused");
+        assertEquals(OaipmhCircuitBreaker.State.OPEN, breaker.getState());
+        assertThrows(OaipmhCircuitBreaker.OpenException.class, breaker::acquire);
+    }
+
+    /**
+     * Tests that a breaker with a threshold that isn't positive never opens.
+     */
+    @Test
+    void testDisabled() {
+        final OaipmhCircuitBreaker breaker = new OaipmhCircuitBreaker(BASE_URL, 0, RESET_TIMEOUT, myClock::get);
+
+        fail(breaker, 100);
+        assertEquals(OaipmhCircuitBreaker.State.CLOSED, breaker.getState());
+        assertDoesNotThrow(breaker::acquire);
+    }
+
+    /**
+     * Records a number of failed requests.
+     *
+     * @param aBreaker A circuit breaker
+     * @param aCount The number of failed requests
+     */
+    private static void fail(final OaipmhCircuitBreaker aBreaker, final int aCount) {
+        for (int index = 0; index < aCount; index++) {
+            aBreaker.recordFailure("Timed out");
+        }
+    }
+}
@@ -0,0 +1,257 @@
+package edu.ucla.library.prl.harvester;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.net.http.HttpTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Stream;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
+
+import org.dspace.xoai.model.oaipmh.Verb;
+import org.dspace.xoai.serviceprovider.exceptions.HttpException;
+import org.dspace.xoai.serviceprovider.parameters.Parameters;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.parallel.Execution;
+import org.junit.jupiter.api.parallel.ExecutionMode;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Tests {@link OaipmhHttpClient} and {@link OaipmhClientOptions}.
+ */
+@Execution(ExecutionMode.CONCURRENT)
+public class OaipmhHttpClientTest {
+
+    /**
+     * An example OAI-PMH response body.
+     */
+    private static final byte[] RESPONSE_BODY =
+            "<OAI-PMH><ListRecords><record/></ListRecords></OAI-PMH>".repeat(100).getBytes(StandardCharsets.UTF_8);
+
+    /**
+     * Tests that response bodies are decoded according to their content coding.
+     *
+     * @param anEncodedBody An encoded response body
+     * @param aContentEncoding The optional value of the Content-Encoding HTTP response header
+     * @throws IOException If the response body can't be read
+     */
+    @ParameterizedTest
+    @MethodSource
+    void testDecode(final byte[] anEncodedBody, final Optional<String> aContentEncoding) throws IOException {
+        try (InputStream body = OaipmhHttpClient.decode(new ByteArrayInputStream(anEncodedBody), aContentEncoding)) {
+            assertArrayEquals(RESPONSE_BODY, body.readAllBytes());
+        }
+    }
+
+    /**
+     * @return The arguments for the corresponding {@link ParameterizedTest}
+     * @throws IOException If the response body can't be encoded
+     */
+    static Stream<Arguments> testDecode() throws IOException {
+        final ByteArrayOutputStream gzip = new ByteArrayOutputStream();
+        final ByteArrayOutputStream zlib = new ByteArrayOutputStream();
+        final ByteArrayOutputStream rawDeflate = new ByteArrayOutputStream();
+        final Deflater rawDeflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+
+        try (OutputStream out = new GZIPOutputStream(gzip)) {
+            out.write(RESPONSE_BODY);
+        }
+
+        try (OutputStream out = new DeflaterOutputStream(zlib)) {
+            out.write(RESPONSE_BODY);
+        }
+
+        try (OutputStream out = new DeflaterOutputStream(rawDeflate, rawDeflater)) {
+            out.write(RESPONSE_BODY);
+        } finally {
+            rawDeflater.end();
+        }
+
+        return Stream.of( //
+                Arguments.of(RESPONSE_BODY, Optional.empty()), //
+                Arguments.of(RESPONSE_BODY, Optional.of("identity")), //
+                Arguments.of(gzip.toByteArray(), Optional.of("gzip")), //
+                Arguments.of(gzip.toByteArray(), Optional.of(" GZIP")), //
+                Arguments.of(zlib.toByteArray(), Optional.of("deflate")), //
+                Arguments.of(rawDeflate.toByteArray(), Optional.of("deflate")));
+    }
+
+    /**
+     * Tests that a response whose body stalls partway through fails once the body deadline has passed, instead of
+     * hanging.
+     *
+     * @throws IOException If the test server can't be started
+     * @throws HttpException If the response can't be fetched
+     */
+    @Test
+    void testBodyTimeout() throws IOException, HttpException {
+        final HttpServer server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        final OaipmhClientOptions options = new OaipmhClientOptions().setBodyTimeout(200);
+
+        server.createContext("/provider", exchange -> {
+            exchange.sendResponseHeaders(200, RESPONSE_BODY.length);
+            exchange.getResponseBody().write(RESPONSE_BODY, 0, 10);
+            exchange.getResponseBody().flush();
+
+            try {
+                Thread.sleep(10_000);
+            } catch (final InterruptedException details) {
+                Thread.currentThread().interrupt();
+            }
+
+            exchange.close();
+        });
+        server.start();
+
+        try {
+            final URL baseURL = new URL("http://localhost:" + server.getAddress().getPort() + "/provider");
+            final OaipmhHttpClient client = new OaipmhHttpClient(baseURL, options);
+            final long startTime = System.nanoTime();
+            final Parameters params = Parameters.parameters().withVerb(Verb.Type.Identify);
+
+            try (InputStream body = client.execute(params)) {
+                assertInstanceOf(HttpTimeoutException.class, assertThrows(IOException.class, body::readAllBytes));
+            }
+
+            assertTrue(Duration.ofNanos(System.nanoTime() - startTime).compareTo(Duration.ofSeconds(5)) < 0);
+        } finally {
+            server.stop(0);
+        }
+    }
+
+    /**
+     * Tests that a response whose compressed body is cut short counts as a failure of the repository, rather than a
+     * success.
+     *
+     * @throws IOException If the test server can't be started
+     * @throws HttpException If the response can't be fetched
+     */
+    @Test
+    void testTruncatedBodyIsFailure() throws IOException, HttpException {
+        final HttpServer server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        final OaipmhClientOptions options = new OaipmhClientOptions().setCircuitBreakerFailureThreshold(1);
+        final ByteArrayOutputStream gzip = new ByteArrayOutputStream();
+        final byte[] truncatedBody;
+
+        try (OutputStream out = new GZIPOutputStream(gzip)) {
+            out.write(RESPONSE_BODY);
+        }
+
+        truncatedBody = Arrays.copyOf(gzip.toByteArray(), gzip.size() / 2);
+
+        server.createContext("/provider", exchange -> {
+            exchange.getResponseHeaders().add("Content-Encoding", "gzip");
+            exchange.sendResponseHeaders(200, truncatedBody.length);
+            exchange.getResponseBody().write(truncatedBody);
+            exchange.close();
+        });
+        server.start();
+
+        try {
+            final URL baseURL = new URL("http://localhost:" + server.getAddress().getPort() + "/provider");
+            final OaipmhHttpClient client = new OaipmhHttpClient(baseURL, options);
+            final Parameters params = Parameters.parameters().withVerb(Verb.Type.Identify);
+
+            try (InputStream body = client.execute(params)) {
+                assertThrows(IOException.class, body::readAllBytes);
+            }
+
+            assertEquals(OaipmhCircuitBreaker.State.OPEN, OaipmhCircuitBreaker.get(baseURL, options).getState());
+        } finally {
+            server.stop(0);
+        }
+    }
+
+    /**
+     * Tests that a compressed response is returned before its body has been read, and that it only counts as a success
+     * of the repository once it's been read to the end.
+     *
+     * @throws IOException If the test server can't be started
+     * @throws HttpException If the response can't be fetched
+     */
+    @Test
+    void testSuccessIsRecordedAtEndOfBody() throws IOException, HttpException {
+        final HttpServer server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        final OaipmhClientOptions options =
+                new OaipmhClientOptions().setCircuitBreakerFailureThreshold(1).setCircuitBreakerResetTimeout(0);
+        final ByteArrayOutputStream gzip = new ByteArrayOutputStream();
+
+        try (OutputStream out = new GZIPOutputStream(gzip)) {
+            out.write(RESPONSE_BODY);
+        }
+
+        server.createContext("/provider", exchange -> {
+            exchange.getResponseHeaders().add("Content-Encoding", "gzip");
+            exchange.sendResponseHeaders(200, gzip.size());
+            exchange.getResponseBody().write(gzip.toByteArray());
+            exchange.close();
+        });
+        server.start();
+
+        try {
+            final URL baseURL = new URL("http://localhost:" + server.getAddress().getPort() + "/provider");
+            final OaipmhHttpClient client = new OaipmhHttpClient(baseURL, options);
+            final OaipmhCircuitBreaker breaker = OaipmhCircuitBreaker.get(baseURL, options);
+            final Parameters params = Parameters.parameters().withVerb(Verb.Type.Identify);
+
+            // Open the breaker, so that the next request is a probe whose outcome decides its state
+            breaker.recordFailure("Down");
+
+            try (InputStream body = client.execute(params)) {
+                assertEquals(OaipmhCircuitBreaker.State.HALF_OPEN, breaker.getState());
+                assertArrayEquals(RESPONSE_BODY, body.readAllBytes());
+                assertEquals(OaipmhCircuitBreaker.State.CLOSED, breaker.getState());
+            }
+        } finally {
+            server.stop(0);
+        }
+    }
+
+    /**
+     * Tests that compression can be disabled per host.
+     *
+     * @throws MalformedURLException If a test URL is malformed
+     */
+    @Test
+    void testCompressionDisabledHosts() throws MalformedURLException {
+        final OaipmhClientOptions options =
+                new OaipmhClientOptions().setCompressionDisabledHosts(Set.of("Example.edu"));
+
+        assertFalse(options.isCompressionEnabled(new URL("http://example.edu/provider")));
+        assertTrue(options.isCompressionEnabled(new URL("http://test.example.edu/provider")));
+    }
+
+    /**
+     * Tests that the delays asked for with the Retry-After HTTP response header are parsed.
+     */
+    @Test
+    void testParseRetryAfter() {
+        assertEquals(Optional.of(Duration.ofSeconds(120)), OaipmhHttpClient.parseRetryAfter(Optional.of(" 120")));
+        assertEquals(Optional.of(Duration.ZERO),
+                OaipmhHttpClient.parseRetryAfter(Optional.of("Wed, 21 Oct 2015 07:28:00 GMT")));
+        assertEquals(Optional.empty(), OaipmhHttpClient.parseRetryAfter(Optional.of("soon")));
+        assertEquals(Optional.empty(), OaipmhHttpClient.parseRetryAfter(Optional.empty()));
+    }
+}
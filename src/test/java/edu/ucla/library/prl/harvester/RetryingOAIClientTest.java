@@ -0,0 +1,195 @@
+package edu.ucla.library.prl.harvester;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.dspace.xoai.model.oaipmh.Verb;
+import org.dspace.xoai.serviceprovider.client.OAIClient;
+import org.dspace.xoai.serviceprovider.exceptions.HttpException;
+import org.dspace.xoai.serviceprovider.exceptions.OAIRequestException;
+import org.dspace.xoai.serviceprovider.parameters.Parameters;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests {@link RetryingOAIClient}.
+ */
+public class RetryingOAIClientTest {
+
+    /**
+     * An example OAI-PMH response body.
+     */
+    private static final byte[] RESPONSE_BODY =
+            "<OAI-PMH><ListRecords><record/></ListRecords></OAI-PMH>".getBytes(StandardCharsets.UTF_8);
+
+    /**
+     * An example OAI-PMH repository base URL.
+     */
+    private static final String BASE_URL = "http://example.edu/provider";
+
+    /**
+     * The parameters of a request for a page after the first.
+     */
+    private static final Parameters PARAMS =
+            Parameters.parameters().withVerb(Verb.Type.ListRecords).withResumptionToken("page-2");
+
+    /**
+     * Tests that a page that fails transiently is re-requested with the same parameters, using up the retry budget.
+     *
+     * @throws OAIRequestException If the page can't be fetched
+     * @throws IOException If the page can't be read
+     */
+    @Test
+    void testRetry() throws OAIRequestException, IOException {
+        final List<Parameters> requests = new ArrayList<>();
+        final AtomicInteger retryBudget = new AtomicInteger(10);
+        final OAIClient client = new RetryingOAIClient(failing(2, getStatusException(503), requests), BASE_URL,
+                retryBudget, 1);
+
+        try (InputStream page = client.execute(PARAMS)) {
+            assertArrayEquals(RESPONSE_BODY, page.readAllBytes());
+        }
+
+        assertEquals(3, requests.size());
+        requests.forEach(request -> assertSame(PARAMS, request));
+        assertEquals(8, retryBudget.get());
+    }
+
+    /**
+     * Tests that a connection that drops partway through a page is retried.
+     *
+     * @throws OAIRequestException If the page can't be fetched
+     * @throws IOException If the page can't be read
+     */
+    @Test
+    void testRetryPartialResponse() throws OAIRequestException, IOException {
+        final List<Parameters> requests = new ArrayList<>();
+        final AtomicInteger retryBudget = new AtomicInteger(10);
+        final OAIClient client = new RetryingOAIClient(params -> {
+            requests.add(params);
+
+            if (requests.size() == 1) {
+                return new InputStream() {
+
+                    @Override
+                    public int read() throws IOException {
+                        throw new IOException("Connection reset");
+                    }
+                };
+            }
+
+            return new ByteArrayInputStream(RESPONSE_BODY);
+        }, BASE_URL, retryBudget, 1);
+
+        try (InputStream page = client.execute(PARAMS)) {
+            assertArrayEquals(RESPONSE_BODY, page.readAllBytes());
+        }
+
+        assertEquals(2, requests.size());
+    }
+
+    /**
+     * Tests that client errors aren't retried.
+     */
+    @Test
+    void testClientErrorIsNotRetried() {
+        final List<Parameters> requests = new ArrayList<>();
+        final AtomicInteger retryBudget = new AtomicInteger(10);
+        final OAIClient client = new RetryingOAIClient(failing(1, getStatusException(404), requests), BASE_URL,
+                retryBudget, 1);
+
+        assertThrows(HttpException.class, () -> client.execute(PARAMS));
+        assertEquals(1, requests.size());
+        assertEquals(10, retryBudget.get());
+    }
+
+    /**
+     * Tests that retries stop once the retry budget is used up.
+     */
+    @Test
+    void testRetryBudget() {
+        final List<Parameters> requests = new ArrayList<>();
+        final OAIClient client = new RetryingOAIClient(failing(Integer.MAX_VALUE, new IOException("Timed out"),
+                requests), BASE_URL, new AtomicInteger(2), 1);
+
+        assertThrows(HttpException.class, () -> client.execute(PARAMS));
+        assertEquals(3, requests.size());
+    }
+
+    /**
+     * Tests that the delay that a repository asks for is honored, unless it's longer than the max delay.
+     */
+    @Test
+    void testRetryAfter() {
+        final IOException rateLimited = new OaipmhHttpClient.StatusException("Too Many Requests", 429,
+                Optional.of(Duration.ofSeconds(2)));
+
+        assertEquals(2000, getClient(5000).getDelay(rateLimited, 0));
+        assertEquals(-1, getClient(1000).getDelay(rateLimited, 0));
+    }
+
+    /**
+     * Tests that the delay grows exponentially with jitter, up to the max delay.
+     */
+    @Test
+    void testBackoff() {
+        final RetryingOAIClient client = getClient(5000);
+        final IOException timeout = new IOException("Timed out");
+        final long firstDelay = client.getDelay(timeout, 0);
+        final long thirdDelay = client.getDelay(timeout, 2);
+        final long lastDelay = client.getDelay(timeout, Integer.MAX_VALUE);
+
+        assertTrue(firstDelay >= 500 && firstDelay <= 1000, Long.toString(firstDelay));
+        assertTrue(thirdDelay >= 2000 && thirdDelay <= 4000, Long.toString(thirdDelay));
+        assertTrue(lastDelay >= 2500 && lastDelay <= 5000, Long.toString(lastDelay));
+    }
+
+    /**
+     * @param aMaxDelay The max delay (in milliseconds) before a request is retried
+     * @return A retrying client that never fetches anything
+     */
+    private static RetryingOAIClient getClient(final long aMaxDelay) {
+        return new RetryingOAIClient(params -> {
+            throw new UnsupportedOperationException();
+        }, BASE_URL, new AtomicInteger(10), aMaxDelay);
+    }
+
+    /**
+     * @param aStatusCode An HTTP status code
+     * @return The exception that's thrown when a repository responds with the status code
+     */
+    private static IOException getStatusException(final int aStatusCode) {
+        return new OaipmhHttpClient.StatusException(Integer.toString(aStatusCode), aStatusCode, Optional.empty());
+    }
+
+    /**
+     * @param aFailureCount The number of requests that fail before one succeeds
+     * @param aFailure The reason that the requests fail
+     * @param aRequests A list that the parameters of each request are added to
+     * @return A client that fails a number of times, and then returns {@link #RESPONSE_BODY}
+     */
+    private static OAIClient failing(final int aFailureCount, final IOException aFailure,
+            final List<Parameters> aRequests) {
+        return params -> {
+            aRequests.add(params);
+
+            if (aRequests.size() <= aFailureCount) {
+                throw new HttpException(aFailure);
+            }
+
+            return new ByteArrayInputStream(RESPONSE_BODY);
+        };
+    }
+}
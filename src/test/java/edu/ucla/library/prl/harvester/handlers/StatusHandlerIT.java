@@ -2,6 +2,7 @@
 package edu.ucla.library.prl.harvester.handlers;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
 
 import static info.freelibrary.util.Constants.INADDR_ANY;
 
@@ -14,6 +15,7 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import info.freelibrary.util.HTTP;
 
 import edu.ucla.library.prl.harvester.Config;
+import edu.ucla.library.prl.harvester.JsonKeys;
 import edu.ucla.library.prl.harvester.MediaType;
 
 import io.vertx.core.Vertx;
@@ -70,6 +72,8 @@ public class StatusHandlerIT {
             aContext.verify(() -> {
                 assertEquals(HTTP.OK, response.statusCode());
                 assertEquals(MediaType.APPLICATION_JSON.toString(), response.headers().get(HttpHeaders.CONTENT_TYPE));
+                assertNotNull(response.bodyAsJsonObject().getJsonObject(JsonKeys.METRICS));
+                assertNotNull(response.bodyAsJsonObject().getJsonObject(JsonKeys.PROVIDERS));
             }).completeNow();
         }).onFailure(aContext::failNow);
     }
@@ -0,0 +1,132 @@
+package edu.ucla.library.prl.harvester.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.text.ParseException;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.Properties;
+import java.util.Set;
+import java.util.TimeZone;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.quartz.CronExpression;
+import org.quartz.impl.StdSchedulerFactory;
+
+import edu.ucla.library.prl.harvester.Config;
+
+import io.vertx.core.json.JsonObject;
+
+/**
+ * Tests {@link HarvestJobSchedulerServiceImpl}.
+ */
+public class HarvestJobSchedulerServiceImplTest {
+
+    /**
+     * Tests that the scheduler keeps its state in memory by default.
+     */
+    @Test
+    void testGetSchedulerPropertiesDefault() {
+        final Properties properties = HarvestJobSchedulerServiceImpl.getSchedulerProperties(new JsonObject());
+
+        assertEquals("org.quartz.simpl.RAMJobStore", properties.getProperty(StdSchedulerFactory.PROP_JOB_STORE_CLASS));
+        assertEquals("10", properties.getProperty("org.quartz.threadPool.threadCount"));
+    }
+
+    /**
+     * Tests that the scheduler keeps its state in the database, if configured to.
+     */
+    @Test
+    void testGetSchedulerPropertiesJdbcJobStore() {
+        final JsonObject config = new JsonObject().put(Config.SCHEDULER_JDBC_JOB_STORE_ENABLED, true)
+                .put(Config.SCHEDULER_THREAD_COUNT, 2);
+        final Properties properties = HarvestJobSchedulerServiceImpl.getSchedulerProperties(config);
+
+        assertEquals("org.quartz.impl.jdbcjobstore.JobStoreTX",
+                properties.getProperty(StdSchedulerFactory.PROP_JOB_STORE_CLASS));
+        assertEquals("org.quartz.impl.jdbcjobstore.PostgreSQLDelegate",
+                properties.getProperty("org.quartz.jobStore.driverDelegateClass"));
+        assertEquals("true", properties.getProperty("org.quartz.jobStore.isClustered"));
+        assertEquals("2", properties.getProperty("org.quartz.threadPool.threadCount"));
+    }
+
+    /**
+     * Tests that jitter offsets are within the window, and that they spread out consecutive job IDs.
+     */
+    @Test
+    void testGetJitterOffset() {
+        final Set<Integer> offsets = new HashSet<>();
+
+        for (int jobID = 1; jobID <= 100; jobID++) {
+            final int offset = HarvestJobSchedulerServiceImpl.getJitterOffset(jobID, 600);
+
+            assertTrue(offset >= 0 && offset < 600);
+            assertEquals(offset, HarvestJobSchedulerServiceImpl.getJitterOffset(jobID, 600));
+            assertEquals(0, HarvestJobSchedulerServiceImpl.getJitterOffset(jobID, 0));
+
+            offsets.add(offset);
+        }
+
+        assertTrue(offsets.size() > 90);
+    }
+
+    /**
+     * Tests shifting cron expressions by an offset.
+     *
+     * @param aCronExpression A cron expression
+     * @param anOffset An offset (in seconds)
+     * @param anExpected The expected shifted cron expression
+     * @throws ParseException If a cron expression is invalid
+     */
+    @ParameterizedTest
+    @CsvSource({ "0 0 2 * * ?, 437, 17 7 2 * * ?", "30 59 2 * * ?, 45, 15 0 3 * * ?",
+        "30 59 23 * * ?, 45, 59 59 23 * * ?", "30 59 * * * ?, 45, 59 59 * * * ?",
+        "'30 50 8-9 * * ?', 3000, '59 59 8-9 * * ?'", "'0 0/30 8-9 5,20 * ?', 437, '17 0/30 8-9 5,20 * ?'",
+        "'50 0/30 8-9 5,20 * ?', 437, '59 0/30 8-9 5,20 * ?'", "0/10 * * * * ?, 437, 0/10 * * * * ?",
+        "0 5 4 ? * MON, 0, 0 5 4 ? * MON" })
+    void testGetJitteredCronExpression(final String aCronExpression, final int anOffset, final String anExpected)
+            throws ParseException {
+        assertEquals(anExpected, HarvestJobSchedulerServiceImpl
+                .getJitteredCronExpression(new CronExpression(aCronExpression), anOffset).getCronExpression());
+    }
+
+    /**
+     * Tests that shifting a cron expression moves its runs later, by no more than the offset, including when the shift
+     * wraps around the minute, hour or day.
+     *
+     * @param aCronExpression A cron expression
+     * @throws ParseException If a cron expression is invalid
+     */
+    @ParameterizedTest
+    @ValueSource(strings = { "0 0 2 * * ?", "30 59 2 * * ?", "30 59 23 * * ?", "30 59 23 ? * MON", "30 59 * * * ?",
+        "30 45 8-9 * * ?", "50 0/30 8-9 5,20 * ?", "30 * * * * ?" })
+    void testJitterOnlyDelaysRuns(final String aCronExpression) throws ParseException {
+        final CronExpression cronExpression = new CronExpression(aCronExpression);
+        final Date start = Date.from(Instant.parse("2023-01-01T00:00:00Z"));
+
+        cronExpression.setTimeZone(TimeZone.getTimeZone(ZoneOffset.UTC));
+
+        for (int offset = 1; offset < 3600; offset += 7) {
+            final CronExpression jitteredCronExpression =
+                    HarvestJobSchedulerServiceImpl.getJitteredCronExpression(cronExpression, offset);
+            Date run = cronExpression.getNextValidTimeAfter(start);
+
+            // Check a few days' worth of runs
+            for (int count = 0; count < 50; count++) {
+                final Date jitteredRun =
+                        jitteredCronExpression.getNextValidTimeAfter(new Date(run.getTime() - 1000));
+                final long shift = jitteredRun.getTime() - run.getTime();
+
+                assertTrue(shift >= 0 && shift <= offset * 1000L, aCronExpression + " + " + offset + "s: " + shift);
+
+                run = cronExpression.getNextValidTimeAfter(run);
+            }
+        }
+    }
+}
@@ -0,0 +1,299 @@
+package edu.ucla.library.prl.harvester.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.Optional;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.api.TestInstance.Lifecycle;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import edu.ucla.library.prl.harvester.Config;
+import edu.ucla.library.prl.harvester.utils.TestUtils;
+
+import io.vavr.Tuple2;
+
+import io.vertx.core.CompositeFuture;
+import io.vertx.core.Future;
+import io.vertx.core.Promise;
+import io.vertx.core.Vertx;
+import io.vertx.junit5.VertxExtension;
+import io.vertx.junit5.VertxTestContext;
+import io.vertx.sqlclient.Pool;
+
+/**
+ * Tests {@link HarvestRunQueue}, with two queue instances that stand in for two nodes.
+ */
+@ExtendWith(VertxExtension.class)
+@TestInstance(Lifecycle.PER_CLASS)
+public class HarvestRunQueueIT {
+
+    /**
+     * How long the test leases last.
+     */
+    private static final Duration LEASE_DURATION = Duration.ofMinutes(1);
+
+    /**
+     * How long to wait for a lease of a millisecond to expire (in milliseconds).
+     */
+    private static final long LEASE_EXPIRY_WAIT = 100;
+
+    /**
+     * The Vert.x instance of the second node.
+     */
+    private Vertx myOtherVertx;
+
+    /**
+     * The database connection pool of the first node.
+     */
+    private Pool myDbConnectionPool;
+
+    /**
+     * The database connection pool of the second node.
+     */
+    private Pool myOtherDbConnectionPool;
+
+    /**
+     * The queue of the first node.
+     */
+    private HarvestRunQueue myQueue;
+
+    /**
+     * The queue of the second node.
+     */
+    private HarvestRunQueue myOtherQueue;
+
+    /**
+     * The ID of the test job.
+     */
+    private int myJobID;
+
+    /**
+     * @param aVertx A Vert.x instance
+     * @param aContext A test context
+     */
+    @BeforeAll
+    public final void setUp(final Vertx aVertx, final VertxTestContext aContext) {
+        myOtherVertx = Vertx.vertx();
+
+        Config.getConfig(aVertx).compose(config -> {
+            final HarvestScheduleStoreService store;
+
+            myDbConnectionPool = HarvestScheduleStoreService.getConnectionPool(aVertx, config);
+            myOtherDbConnectionPool = HarvestScheduleStoreService.getConnectionPool(myOtherVertx, config);
+            myQueue = new HarvestRunQueue(myDbConnectionPool);
+            myOtherQueue = new HarvestRunQueue(myOtherDbConnectionPool);
+            store = HarvestScheduleStoreService.create(aVertx, myDbConnectionPool);
+
+            return TestUtils.wipeDatabase(myDbConnectionPool).compose(result -> {
+                try {
+                    return store.addInstitutions(List.of(TestUtils.getRandomInstitution()));
+                } catch (final Exception details) {
+                    return Future.failedFuture(details);
+                }
+            }).compose(institutions -> {
+                try {
+                    return store.addJobs(List.of(
+                            TestUtils.getRandomJob(TestUtils.unwrapInstitutionID(institutions.get(0)))));
+                } catch (final Exception details) {
+                    return Future.failedFuture(details);
+                }
+            }).onSuccess(jobs -> myJobID = TestUtils.unwrapJobID(jobs.get(0)));
+        }).onSuccess(result -> aContext.completeNow()).onFailure(aContext::failNow);
+    }
+
+    /**
+     * @param aVertx A Vert.x instance
+     * @param aContext A test context
+     */
+    @AfterAll
+    public final void tearDown(final Vertx aVertx, final VertxTestContext aContext) {
+        TestUtils.wipeDatabase(myDbConnectionPool).compose(result -> myDbConnectionPool.close())
+                .compose(result -> myOtherDbConnectionPool.close()).compose(result -> myOtherVertx.close())
+                .onSuccess(result -> aContext.completeNow()).onFailure(aContext::failNow);
+    }
+
+    /**
+     * Tests that a run enqueued by both nodes is only run once, by whichever node leases it first.
+     *
+     * @param aVertx A Vert.x instance
+     * @param aContext A test context
+     */
+    @Test
+    public final void testRunIsLeasedOnce(final Vertx aVertx, final VertxTestContext aContext) {
+        final OffsetDateTime dueAt = OffsetDateTime.now(ZoneOffset.UTC).minusMinutes(1).truncatedTo(ChronoUnit.SECONDS);
+
+        CompositeFuture.all(myQueue.enqueue(myJobID, dueAt), myOtherQueue.enqueue(myJobID, dueAt)).compose(enqueues -> {
+            final boolean first = enqueues.resultAt(0);
+            final boolean second = enqueues.resultAt(1);
+
+            aContext.verify(() -> assertTrue(first ^ second));
+
+            return CompositeFuture.all(myQueue.lease("worker1", LEASE_DURATION),
+                    myOtherQueue.lease("worker2", LEASE_DURATION));
+        }).compose(leases -> {
+            final Optional<Tuple2<Long, Integer>> first = leases.resultAt(0);
+            final Optional<Tuple2<Long, Integer>> second = leases.resultAt(1);
+            final Tuple2<Long, Integer> leasedRun = first.or(() -> second).get();
+            final String workerID = first.isPresent() ? "worker1" : "worker2";
+
+            aContext.verify(() -> {
+                assertTrue(first.isPresent() ^ second.isPresent());
+                assertEquals(myJobID, leasedRun._2());
+            });
+
+            return myOtherQueue.heartbeat(leasedRun._1(), "worker3", LEASE_DURATION).compose(isLeaseHeld -> {
+                aContext.verify(() -> assertFalse(isLeaseHeld));
+
+                return myQueue.heartbeat(leasedRun._1(), workerID, LEASE_DURATION);
+            }).compose(isLeaseHeld -> {
+                aContext.verify(() -> assertTrue(isLeaseHeld));
+
+                return myQueue.complete(leasedRun._1(), workerID, true);
+            });
+        }).compose(isCompleted -> {
+            aContext.verify(() -> assertTrue(isCompleted));
+
+            return myOtherQueue.lease("worker2", LEASE_DURATION);
+        }).onSuccess(lease -> {
+            aContext.verify(() -> assertTrue(lease.isEmpty()));
+            aContext.completeNow();
+        }).onFailure(aContext::failNow);
+    }
+
+    /**
+     * Tests that two runs of the same job aren't leased at once, even when two nodes lease them concurrently.
+     *
+     * @param aVertx A Vert.x instance
+     * @param aContext A test context
+     */
+    @Test
+    public final void testRunsOfJobAreLeasedOneAtATime(final Vertx aVertx, final VertxTestContext aContext) {
+        final OffsetDateTime dueAt = OffsetDateTime.now(ZoneOffset.UTC).minusHours(3).truncatedTo(ChronoUnit.SECONDS);
+
+        myQueue.enqueue(myJobID, dueAt).compose(isEnqueued -> {
+            return myQueue.lease("worker1", Duration.ofMillis(1));
+        }).compose(lease -> {
+            final Promise<Void> leaseExpiry = Promise.promise();
+
+            aContext.verify(() -> assertTrue(lease.isPresent()));
+            aVertx.setTimer(LEASE_EXPIRY_WAIT, timerID -> leaseExpiry.complete());
+
+            // Once the first run's lease has expired, a second run of the job can be enqueued
+            return leaseExpiry.future().compose(nil -> myOtherQueue.enqueue(myJobID, dueAt.plusHours(1)));
+        }).compose(isEnqueued -> {
+            aContext.verify(() -> assertTrue(isEnqueued));
+
+            return CompositeFuture.all(myQueue.lease("worker1", LEASE_DURATION),
+                    myOtherQueue.lease("worker2", LEASE_DURATION));
+        }).compose(leases -> {
+            final Optional<Tuple2<Long, Integer>> first = leases.resultAt(0);
+            final Optional<Tuple2<Long, Integer>> second = leases.resultAt(1);
+
+            aContext.verify(() -> assertTrue(first.isPresent() ^ second.isPresent()));
+
+            return first.isPresent() ? completeRuns(myQueue, "worker1", first.get()._1())
+                    : completeRuns(myOtherQueue, "worker2", second.get()._1());
+        }).onSuccess(nil -> aContext.completeNow()).onFailure(aContext::failNow);
+    }
+
+    /**
+     * Completes a leased run, and then leases and completes the runs that are left, so that the queue is empty.
+     *
+     * @param aQueue A queue
+     * @param aWorkerID The ID of the worker that holds the lease
+     * @param aRunID The ID of the leased run
+     * @return A Future that succeeds once the queue is empty
+     */
+    private static Future<Void> completeRuns(final HarvestRunQueue aQueue, final String aWorkerID,
+            final long aRunID) {
+        return aQueue.complete(aRunID, aWorkerID, true).compose(isCompleted -> {
+            return aQueue.lease(aWorkerID, LEASE_DURATION);
+        }).compose(lease -> {
+            if (lease.isEmpty()) {
+                return Future.succeededFuture();
+            }
+
+            return completeRuns(aQueue, aWorkerID, lease.get()._1());
+        });
+    }
+
+    /**
+     * Tests that completed runs are purged once they're older than the retention period, but not before.
+     *
+     * @param aVertx A Vert.x instance
+     * @param aContext A test context
+     */
+    @Test
+    public final void testCompletedRunsArePurged(final Vertx aVertx, final VertxTestContext aContext) {
+        final OffsetDateTime dueAt = OffsetDateTime.now(ZoneOffset.UTC).minusHours(5).truncatedTo(ChronoUnit.SECONDS);
+
+        myQueue.enqueue(myJobID, dueAt).compose(isEnqueued -> {
+            return myQueue.lease("worker1", LEASE_DURATION);
+        }).compose(lease -> {
+            aContext.verify(() -> assertTrue(lease.isPresent()));
+
+            return myQueue.complete(lease.get()._1(), "worker1", true);
+        }).compose(isCompleted -> {
+            return myQueue.purgeCompletedRuns(Duration.ofDays(1));
+        }).compose(purgedCount -> {
+            // The completed run is still there, so the same run can't be enqueued again
+            return myOtherQueue.enqueue(myJobID, dueAt);
+        }).compose(isEnqueued -> {
+            aContext.verify(() -> assertFalse(isEnqueued));
+
+            return myQueue.purgeCompletedRuns(Duration.ZERO);
+        }).compose(purgedCount -> {
+            aContext.verify(() -> assertTrue(purgedCount >= 1));
+
+            return myOtherQueue.enqueue(myJobID, dueAt);
+        }).compose(isEnqueued -> {
+            aContext.verify(() -> assertTrue(isEnqueued));
+
+            return myQueue.lease("worker1", LEASE_DURATION);
+        }).compose(lease -> completeRuns(myQueue, "worker1", lease.get()._1()))
+                .onSuccess(nil -> aContext.completeNow()).onFailure(aContext::failNow);
+    }
+
+    /**
+     * Tests that a run isn't enqueued while another run of the same job is waiting to be leased.
+     *
+     * @param aVertx A Vert.x instance
+     * @param aContext A test context
+     */
+    @Test
+    public final void testWaitingRunsAreCoalesced(final Vertx aVertx, final VertxTestContext aContext) {
+        final OffsetDateTime dueAt = OffsetDateTime.now(ZoneOffset.UTC).minusHours(1).truncatedTo(ChronoUnit.SECONDS);
+
+        myQueue.enqueue(myJobID, dueAt).compose(isEnqueued -> {
+            aContext.verify(() -> assertTrue(isEnqueued));
+
+            return myOtherQueue.enqueue(myJobID, dueAt.plusMinutes(1));
+        }).compose(isEnqueued -> {
+            aContext.verify(() -> assertFalse(isEnqueued));
+
+            return myQueue.lease("worker1", LEASE_DURATION);
+        }).compose(lease -> {
+            aContext.verify(() -> assertTrue(lease.isPresent()));
+
+            return myQueue.complete(lease.get()._1(), "worker1", true);
+        }).compose(isCompleted -> {
+            aContext.verify(() -> assertTrue(isCompleted));
+
+            return myQueue.lease("worker1", LEASE_DURATION);
+        }).onSuccess(lease -> {
+            aContext.verify(() -> assertTrue(lease.isEmpty()));
+            aContext.completeNow();
+        }).onFailure(aContext::failNow);
+    }
+}
@@ -7,6 +7,7 @@ import static org.junit.jupiter.api.Assertions.assertTrue;
 import edu.ucla.library.prl.harvester.Config;
 import edu.ucla.library.prl.harvester.Institution;
 import edu.ucla.library.prl.harvester.Job;
+import edu.ucla.library.prl.harvester.JobResult;
 import edu.ucla.library.prl.harvester.MessageCodes;
 import edu.ucla.library.prl.harvester.services.HarvestScheduleStoreService.Error;
 import edu.ucla.library.prl.harvester.services.HarvestScheduleStoreService.HarvestScheduleStoreServiceException;
@@ -344,6 +345,51 @@ public class HarvestScheduleStoreServiceIT {
         }).onFailure(aContext::failNow);
     }
 
+    /**
+     * Tests listing an institution's jobs, and then deleting the institution and its jobs from db.
+     *
+     * @param aVertx A Vert.x instance
+     * @param aContext A test context
+     */
+    @Test
+    public final void testDeleteInstitutionCascade(final Vertx aVertx, final VertxTestContext aContext)
+            throws AddressException, MalformedURLException, NumberParseException {
+        myScheduleStoreProxy.addInstitutions(List.of(TestUtils.getRandomInstitution())).compose(institutions -> {
+            final int institutionID = TestUtils.unwrapInstitutionID(institutions.get(0));
+
+            try {
+                final List<Job> toAdd =
+                        List.of(TestUtils.getRandomJob(institutionID), TestUtils.getRandomJob(institutionID));
+
+                return myScheduleStoreProxy.addJobs(toAdd).compose(jobs -> {
+                    final List<Integer> jobIDs = jobs.stream().map(TestUtils::unwrapJobID).sorted().toList();
+
+                    return myScheduleStoreProxy.listJobsByInstitution(institutionID).compose(listed -> {
+                        aContext.verify(() -> {
+                            assertEquals(jobIDs, listed.stream().map(TestUtils::unwrapJobID).toList());
+                        });
+
+                        return myScheduleStoreProxy.removeInstitutionCascade(institutionID);
+                    }).compose(removedJobIDs -> {
+                        aContext.verify(() -> {
+                            assertEquals(jobIDs, removedJobIDs.stream().sorted().toList());
+                        });
+
+                        return myScheduleStoreProxy.getJob(jobIDs.get(0));
+                    });
+                });
+            } catch (final MalformedURLException | ParseException details) {
+                return Future.failedFuture(details);
+            }
+        }).onSuccess(job -> {
+            aContext.failNow(LOGGER.getMessage(MessageCodes.PRL_014, job.getID().get()));
+        }).onFailure(details -> {
+            aContext.verify(() -> {
+                assertEquals(Error.NOT_FOUND.ordinal(), ((ServiceException) details).failureCode());
+            }).completeNow();
+        });
+    }
+
     /**
      * Tests updating institution in db.
      *
@@ -470,6 +516,31 @@ public class HarvestScheduleStoreServiceIT {
         }).onFailure(aContext::failNow);
     }
 
+    /**
+     * Tests listing jobs one page at a time.
+     *
+     * @param aVertx A Vert.x instance
+     * @param aContext A test context
+     */
+    @Test
+    public final void testListJobsAfter(final Vertx aVertx, final VertxTestContext aContext) {
+        myScheduleStoreProxy.listJobs().compose(jobs -> {
+            final List<Integer> jobIDs = jobs.stream().map(TestUtils::unwrapJobID).sorted().toList();
+
+            return myScheduleStoreProxy.listJobsAfter(jobIDs.get(0), 1).map(page -> {
+                aContext.verify(() -> {
+                    assertEquals(List.of(jobIDs.get(1)), page.stream().map(TestUtils::unwrapJobID).toList());
+                });
+
+                return jobIDs;
+            });
+        }).compose(jobIDs -> {
+            return myScheduleStoreProxy.listJobsAfter(jobIDs.get(jobIDs.size() - 1), 1);
+        }).onSuccess(page -> {
+            aContext.verify(() -> assertTrue(page.isEmpty())).completeNow();
+        }).onFailure(aContext::failNow);
+    }
+
     /**
      * Tests deleting job from db.
      *
@@ -500,6 +571,34 @@ public class HarvestScheduleStoreServiceIT {
         }).onFailure(aContext::failNow);
     }
 
+    /**
+     * Tests that updating the last successful run of a job never moves it backwards.
+     *
+     * @param aVertx A Vert.x instance
+     * @param aContext A test context
+     */
+    @Test
+    public final void testUpdateLastSuccessfulRuns(final Vertx aVertx, final VertxTestContext aContext)
+            throws AddressException, MalformedURLException, NumberParseException, ParseException {
+        final Job toAdd = TestUtils.getRandomJob(myTestInstitutionIDs.get(0));
+        final OffsetDateTime later = OffsetDateTime.now().withNano(0);
+        final OffsetDateTime earlier = later.minusDays(1);
+
+        myScheduleStoreProxy.addJobs(List.of(toAdd)).compose(jobs -> {
+            final int jobID = TestUtils.unwrapJobID(jobs.get(0));
+
+            return myScheduleStoreProxy.updateLastSuccessfulRuns(List.of(new JobResult(jobID, later, 1, 0, 0)))
+                    .compose(nil -> {
+                        return myScheduleStoreProxy
+                                .updateLastSuccessfulRuns(List.of(new JobResult(jobID, earlier, 1, 0, 0)));
+                    }).compose(nil -> myScheduleStoreProxy.getJob(jobID));
+        }).onSuccess(job -> {
+            aContext.verify(() -> {
+                assertTrue(job.getLastSuccessfulRun().get().isEqual(later));
+            }).completeNow();
+        }).onFailure(aContext::failNow);
+    }
+
     /**
      * Tests updating job in db.
      *
@@ -13,6 +13,7 @@ import java.util.stream.Stream;
 
 import javax.mail.internet.AddressException;
 
+import org.apache.solr.common.SolrDocument;
 import org.apache.solr.common.SolrDocumentList;
 
 import org.junit.jupiter.api.AfterAll;
@@ -178,6 +179,11 @@ public class HarvestServiceIT {
                 assertEquals(anExpectedRecordCount, jobResult.getRecordCount());
                 assertEquals(anExpectedRecordCount, queryResults.getNumFound());
                 assertEquals(anExpectedDeletedRecordCount, jobResult.getDeletedRecordCount());
+
+                // Check that the docs are keyed to their institution
+                for (final SolrDocument doc : queryResults) {
+                    assertEquals(myTestInstitutionID, doc.getFirstValue(HarvestServiceUtils.INSTITUTION_ID));
+                }
             }).completeNow();
         }).onFailure(aContext::failNow);
     }
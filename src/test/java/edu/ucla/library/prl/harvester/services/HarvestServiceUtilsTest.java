@@ -2,13 +2,16 @@
 package edu.ucla.library.prl.harvester.services;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
 
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Stream;
 
+import org.apache.http.HttpStatus;
 import org.junit.jupiter.api.AfterAll;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Test;
@@ -20,7 +23,12 @@ import org.junit.jupiter.params.provider.Arguments;
 import org.junit.jupiter.params.provider.CsvSource;
 import org.junit.jupiter.params.provider.MethodSource;
 
+import edu.ucla.library.prl.harvester.Constants;
+import edu.ucla.library.prl.harvester.HostLatencies;
+
+import io.vertx.core.Future;
 import io.vertx.core.Vertx;
+import io.vertx.core.http.HttpHeaders;
 import io.vertx.ext.web.client.WebClient;
 import io.vertx.junit5.VertxExtension;
 import io.vertx.junit5.VertxTestContext;
@@ -125,6 +133,71 @@ public class HarvestServiceUtilsTest {
                 Arguments.of(List.of(new URL("http://example.edu")), Optional.empty()));
     }
 
+    /**
+     * Tests that error responses to thumbnail checks don't teach the classifier anything, but successful ones do.
+     *
+     * @param aVertx A Vert.x instance
+     * @param aContext A test context
+     */
+    @Test
+    public void testErrorResponsesAreNotClassified(final Vertx aVertx, final VertxTestContext aContext) {
+        final ThumbnailUrlClassifier classifier = new ThumbnailUrlClassifier();
+        final HostLatencies latencies = new HostLatencies(Constants.DEFAULT_OAIPMH_CLIENT_HTTP_TIMEOUT,
+                Constants.DEFAULT_HTTP_TIMEOUT_FLOOR, Constants.DEFAULT_HTTP_TIMEOUT_CEILING);
+        final AtomicInteger statusCode = new AtomicInteger(HttpStatus.SC_SERVICE_UNAVAILABLE);
+
+        aVertx.createHttpServer().requestHandler(request -> {
+            request.response().putHeader(HttpHeaders.CONTENT_TYPE, "text/html").setStatusCode(statusCode.get()).end();
+        }).listen(0).onSuccess(server -> {
+            final String baseURL = "http://localhost:" + server.actualPort() + "/thumbnail/";
+
+            checkRepeatedly(baseURL, classifier, latencies).compose(url -> {
+                aContext.verify(() -> assertEquals(Optional.empty(), classifier.classify(url)));
+                statusCode.set(HttpStatus.SC_OK);
+
+                return checkRepeatedly(baseURL, classifier, latencies);
+            }).onSuccess(url -> {
+                aContext.verify(() -> assertEquals(Optional.of(false), classifier.classify(url)));
+                server.close().onComplete(result -> aContext.completeNow());
+            }).onFailure(aContext::failNow);
+        }).onFailure(aContext::failNow);
+    }
+
+    /**
+     * Checks enough URLs with the same template, one after another, for the classifier to classify the template if
+     * they all teach it the same thing.
+     *
+     * @param aBaseURL The base of the URLs
+     * @param aClassifier A classifier of thumbnail URLs
+     * @param aLatencies The recent latencies of thumbnail checks
+     * @return A Future that succeeds with another URL with the same template, once the checks are done
+     */
+    private Future<URL> checkRepeatedly(final String aBaseURL, final ThumbnailUrlClassifier aClassifier,
+            final HostLatencies aLatencies) {
+        Future<Optional<URL>> checks = Future.succeededFuture();
+
+        for (int count = 1; count <= ThumbnailUrlClassifier.CONFIDENCE_THRESHOLD; count++) {
+            final String url = aBaseURL + count;
+
+            checks = checks.compose(result -> HarvestServiceUtils.findImageURL(List.of(toURL(url)), myWebClient,
+                    aClassifier, aLatencies));
+        }
+
+        return checks.map(result -> toURL(aBaseURL + 0));
+    }
+
+    /**
+     * @param aURL A URL string
+     * @return The URL
+     */
+    private static URL toURL(final String aURL) {
+        try {
+            return new URL(aURL);
+        } catch (final MalformedURLException details) {
+            throw new IllegalArgumentException(details);
+        }
+    }
+
     /**
      * Tests {@link HarvestServiceUtils#findImageURL(List, WebClient)} with URLs that don't require checking with a
      * WebClient, since they have a filetype extension for an image.
@@ -146,6 +219,39 @@ public class HarvestServiceUtilsTest {
         }).onFailure(aContext::failNow);
     }
 
+    /**
+     * Tests that {@link HarvestServiceUtils#hash(List)} ignores insignificant differences in its input.
+     *
+     * @param aVertx A Vert.x instance
+     * @param aContext A test context
+     */
+    @Test
+    public void testHashIgnoresInsignificantDifferences(final Vertx aVertx, final VertxTestContext aContext) {
+        final String expected = HarvestServiceUtils.hash(List.of("title", "Caf\u00e9 photograph"));
+
+        aContext.verify(() -> {
+            // Decomposed Unicode and extra whitespace
+            assertEquals(expected, HarvestServiceUtils.hash(List.of(" title", "Cafe\u0301  photograph\n")));
+        }).completeNow();
+    }
+
+    /**
+     * Tests that {@link HarvestServiceUtils#hash(List)} detects significant differences in its input.
+     *
+     * @param aVertx A Vert.x instance
+     * @param aContext A test context
+     */
+    @Test
+    public void testHashDetectsSignificantDifferences(final Vertx aVertx, final VertxTestContext aContext) {
+        final String expected = HarvestServiceUtils.hash(List.of("title", "A photograph"));
+
+        aContext.verify(() -> {
+            assertNotEquals(expected, HarvestServiceUtils.hash(List.of("title", "A photograph", "date", "1900")));
+            assertNotEquals(expected, HarvestServiceUtils.hash(List.of("titleA", " photograph")));
+            assertNotEquals(expected, HarvestServiceUtils.hash(List.of("A photograph", "title")));
+        }).completeNow();
+    }
+
     /**
      * @param aVertx A Vert.x instance
      * @param aContext A test context
@@ -0,0 +1,127 @@
+
+package edu.ucla.library.prl.harvester.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Properties;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+import org.quartz.DisallowConcurrentExecution;
+import org.quartz.Job;
+import org.quartz.JobBuilder;
+import org.quartz.JobDetail;
+import org.quartz.JobExecutionContext;
+import org.quartz.JobExecutionException;
+import org.quartz.Scheduler;
+import org.quartz.SchedulerException;
+import org.quartz.TriggerBuilder;
+import org.quartz.impl.StdSchedulerFactory;
+
+import edu.ucla.library.prl.harvester.Metrics;
+
+/**
+ * Tests {@link HarvestTriggerListener}.
+ */
+public class HarvestTriggerListenerTest {
+
+    /**
+     * The {@link org.quartz.SchedulerContext} key for the latch that counts down as runs finish.
+     */
+    private static final String RUNS_LATCH = "runsLatch";
+
+    /**
+     * The {@link org.quartz.JobDataMap} key for how long a run takes (in milliseconds).
+     */
+    private static final String RUN_TIME = "runTime";
+
+    /**
+     * Tests that a trigger that's blocked by a run of its job for less than the misfire threshold is counted as
+     * delayed.
+     *
+     * @throws SchedulerException If the scheduler fails
+     * @throws InterruptedException If the test is interrupted
+     */
+    @Test
+    void testBlockedTriggerIsDelayed() throws SchedulerException, InterruptedException {
+        final long delayedCount = Metrics.get(Metrics.HARVEST_TRIGGERS_DELAYED);
+        final long misfiredCount = Metrics.get(Metrics.HARVEST_TRIGGERS_MISFIRED);
+
+        fireOverlappingTriggers(60_000, 1500);
+
+        assertEquals(delayedCount + 1, Metrics.get(Metrics.HARVEST_TRIGGERS_DELAYED));
+        assertEquals(misfiredCount, Metrics.get(Metrics.HARVEST_TRIGGERS_MISFIRED));
+    }
+
+    /**
+     * Tests that a trigger that's blocked by a run of its job for longer than the misfire threshold is counted as
+     * misfired, and still runs once.
+     *
+     * @throws SchedulerException If the scheduler fails
+     * @throws InterruptedException If the test is interrupted
+     */
+    @Test
+    void testLongBlockedTriggerMisfires() throws SchedulerException, InterruptedException {
+        final long misfiredCount = Metrics.get(Metrics.HARVEST_TRIGGERS_MISFIRED);
+
+        fireOverlappingTriggers(1000, 2500);
+
+        assertEquals(misfiredCount + 1, Metrics.get(Metrics.HARVEST_TRIGGERS_MISFIRED));
+    }
+
+    /**
+     * Fires two triggers of the same job at once, and waits for both of its runs to finish.
+     *
+     * @param aMisfireThreshold The scheduler's misfire threshold (in milliseconds)
+     * @param aRunTime How long each run takes (in milliseconds)
+     * @throws SchedulerException If the scheduler fails
+     * @throws InterruptedException If the test is interrupted
+     */
+    private static void fireOverlappingTriggers(final long aMisfireThreshold, final long aRunTime)
+            throws SchedulerException, InterruptedException {
+        final Properties properties = new Properties();
+        final CountDownLatch runsLatch = new CountDownLatch(2);
+        final JobDetail job = JobBuilder.newJob(SlowJob.class).usingJobData(RUN_TIME, aRunTime).storeDurably().build();
+        final Scheduler scheduler;
+
+        properties.setProperty(StdSchedulerFactory.PROP_SCHED_INSTANCE_NAME, UUID.randomUUID().toString());
+        properties.setProperty("org.quartz.threadPool.threadCount", "2");
+        properties.setProperty("org.quartz.jobStore.misfireThreshold", Long.toString(aMisfireThreshold));
+
+        scheduler = new StdSchedulerFactory(properties).getScheduler();
+        scheduler.getContext().put(RUNS_LATCH, runsLatch);
+        scheduler.getListenerManager().addTriggerListener(new HarvestTriggerListener());
+
+        try {
+            scheduler.start();
+            scheduler.addJob(job, false);
+            scheduler.scheduleJob(TriggerBuilder.newTrigger().forJob(job).startNow().build());
+            scheduler.scheduleJob(TriggerBuilder.newTrigger().forJob(job).startNow().build());
+
+            assertTrue(runsLatch.await(aRunTime * 2 + 5000, TimeUnit.MILLISECONDS));
+        } finally {
+            scheduler.shutdown(true);
+        }
+    }
+
+    /**
+     * A job that takes a while to run, and that Quartz doesn't run concurrently (like
+     * {@link HarvestJobSchedulerServiceImpl.RunHarvest}).
+     */
+    @DisallowConcurrentExecution
+    public static final class SlowJob implements Job {
+
+        @Override
+        public void execute(final JobExecutionContext aContext) throws JobExecutionException {
+            try {
+                Thread.sleep(aContext.getMergedJobDataMap().getLong(RUN_TIME));
+                ((CountDownLatch) aContext.getScheduler().getContext().get(RUNS_LATCH)).countDown();
+            } catch (final InterruptedException | SchedulerException details) {
+                throw new JobExecutionException(details);
+            }
+        }
+    }
+}
@@ -0,0 +1,168 @@
+package edu.ucla.library.prl.harvester.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.text.ParseException;
+import java.time.OffsetDateTime;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.quartz.CronExpression;
+
+import edu.ucla.library.prl.harvester.Job;
+import edu.ucla.library.prl.harvester.JobResult;
+
+import io.vertx.core.Future;
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonObject;
+import io.vertx.junit5.VertxExtension;
+import io.vertx.junit5.VertxTestContext;
+import io.vertx.serviceproxy.ServiceBinder;
+import io.vertx.serviceproxy.ServiceException;
+
+/**
+ * Tests {@link LocalHarvestServiceProxy}.
+ */
+@ExtendWith(VertxExtension.class)
+public class LocalHarvestServiceProxyTest {
+
+    /**
+     * The failure code of the harvest service's failed rebuilds.
+     */
+    private static final int FAILURE_CODE = 42;
+
+    /**
+     * The failure message of the harvest service's failed rebuilds.
+     */
+    private static final String FAILURE_MESSAGE = "Rebuild failed";
+
+    /**
+     * The job that the harvest service received.
+     */
+    private final AtomicReference<Job> myReceivedJob = new AtomicReference<>();
+
+    /**
+     * The job result that the harvest service returned.
+     */
+    private final AtomicReference<JobResult> myReturnedJobResult = new AtomicReference<>();
+
+    /**
+     * A harvest service that records what it receives and returns.
+     */
+    private final HarvestService myService = new HarvestService() {
+
+        @Override
+        public Future<JobResult> run(final Job aJob) {
+            final JobResult jobResult = new JobResult(aJob.getID().get(), OffsetDateTime.now(), 1, 0, 0);
+
+            myReceivedJob.set(aJob);
+            myReturnedJobResult.set(jobResult);
+
+            return Future.succeededFuture(jobResult);
+        }
+
+        @Override
+        public Future<JobResult> reindex(final Job aJob) {
+            return Future.failedFuture(new UnsupportedOperationException());
+        }
+
+        @Override
+        public Future<JobResult> rebuild(final Job aJob) {
+            return Future.failedFuture(new ServiceException(FAILURE_CODE, FAILURE_MESSAGE));
+        }
+
+        @Override
+        public Future<Void> close() {
+            return Future.succeededFuture();
+        }
+    };
+
+    /**
+     * The job to run.
+     */
+    private Job myJob;
+
+    /**
+     * @throws MalformedURLException If the test job's URL is invalid
+     * @throws ParseException If the test job's cron expression is invalid
+     */
+    @BeforeEach
+    public void setUp() throws MalformedURLException, ParseException {
+        myJob = Job.withID(new Job(1, new URL("http://example.com/oai"), List.of("set1"),
+                new CronExpression("0 0 2 * * ?"), null), 1);
+    }
+
+    /**
+     * Tests that a job and its result are passed as they are to and from a harvest service registered for local calls.
+     *
+     * @param aVertx A Vert.x instance
+     * @param aContext A test context
+     */
+    @Test
+    public void testLocalCall(final Vertx aVertx, final VertxTestContext aContext) {
+        new ServiceBinder(aVertx).setAddress(HarvestService.ADDRESS).register(HarvestService.class, myService);
+        LocalHarvestServiceProxy.register(aVertx, myService);
+
+        HarvestService.createProxy(aVertx, new JsonObject()).run(myJob).onSuccess(jobResult -> {
+            aContext.verify(() -> {
+                assertSame(myJob, myReceivedJob.get());
+                assertSame(myReturnedJobResult.get(), jobResult);
+            }).completeNow();
+        }).onFailure(aContext::failNow);
+    }
+
+    /**
+     * Tests that calls go through the generated service proxy if no harvest service is registered for local calls.
+     *
+     * @param aVertx A Vert.x instance
+     * @param aContext A test context
+     */
+    @Test
+    public void testFallbackCall(final Vertx aVertx, final VertxTestContext aContext) {
+        new ServiceBinder(aVertx).setAddress(HarvestService.ADDRESS).register(HarvestService.class, myService);
+
+        HarvestService.createProxy(aVertx, new JsonObject()).run(myJob).onSuccess(jobResult -> {
+            aContext.verify(() -> {
+                assertNotSame(myJob, myReceivedJob.get());
+                assertEquals(myJob, myReceivedJob.get());
+                assertEquals(myReturnedJobResult.get().toJson(), jobResult.toJson());
+            }).completeNow();
+        }).onFailure(aContext::failNow);
+    }
+
+    /**
+     * Tests that the failures of local calls are passed on as service exceptions, like those of remote calls.
+     *
+     * @param aVertx A Vert.x instance
+     * @param aContext A test context
+     */
+    @Test
+    public void testLocalCallFailure(final Vertx aVertx, final VertxTestContext aContext) {
+        final HarvestService proxy = HarvestService.createProxy(aVertx, new JsonObject());
+
+        LocalHarvestServiceProxy.register(aVertx, myService);
+
+        proxy.reindex(myJob).onSuccess(jobResult -> aContext.failNow(jobResult.toString())).recover(details -> {
+            aContext.verify(() -> {
+                assertEquals(-1, assertInstanceOf(ServiceException.class, details).failureCode());
+            });
+
+            return proxy.rebuild(myJob);
+        }).onSuccess(jobResult -> aContext.failNow(jobResult.toString())).onFailure(details -> {
+            aContext.verify(() -> {
+                final ServiceException serviceException = assertInstanceOf(ServiceException.class, details);
+
+                assertEquals(FAILURE_CODE, serviceException.failureCode());
+                assertEquals(FAILURE_MESSAGE, serviceException.getMessage());
+            }).completeNow();
+        });
+    }
+}
@@ -0,0 +1,67 @@
+package edu.ucla.library.prl.harvester.services;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.CompletionStage;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import io.vertx.core.Vertx;
+
+/**
+ * Tests {@link RebuildGate}.
+ */
+public class RebuildGateTest {
+
+    /**
+     * A Vert.x instance.
+     */
+    private Vertx myVertx;
+
+    /**
+     * Creates the Vert.x instance.
+     */
+    @BeforeEach
+    void setUp() {
+        myVertx = Vertx.vertx();
+    }
+
+    /**
+     * Closes the Vert.x instance.
+     */
+    @AfterEach
+    void tearDown() {
+        myVertx.close();
+    }
+
+    /**
+     * Tests that closing the gate turns writes away, and completes only once the writes in progress have exited.
+     */
+    @Test
+    void testCloseWaitsForWrites() {
+        final RebuildGate gate = RebuildGate.getShared(myVertx);
+        final CompletionStage<Void> drain;
+
+        assertSame(gate, RebuildGate.getShared(myVertx));
+        assertTrue(gate.tryEnter());
+        assertTrue(gate.tryEnter());
+
+        drain = gate.close();
+
+        assertFalse(gate.tryEnter());
+        gate.exit();
+        assertFalse(drain.toCompletableFuture().isDone());
+        gate.exit();
+        assertTrue(drain.toCompletableFuture().isDone());
+
+        gate.open();
+
+        assertTrue(gate.tryEnter());
+        gate.exit();
+        assertTrue(gate.close().toCompletableFuture().isDone());
+    }
+}
@@ -0,0 +1,148 @@
+package edu.ucla.library.prl.harvester.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+import org.apache.solr.client.solrj.SolrQuery;
+import org.apache.solr.common.SolrInputDocument;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.api.TestInstance.Lifecycle;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import edu.ucla.library.prl.harvester.Config;
+
+import io.ino.solrs.JavaAsyncSolrClient;
+
+import io.vertx.core.Future;
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.web.client.WebClient;
+import io.vertx.junit5.VertxExtension;
+import io.vertx.junit5.VertxTestContext;
+
+/**
+ * Tests {@link SolrCores}.
+ */
+@ExtendWith(VertxExtension.class)
+@TestInstance(Lifecycle.PER_CLASS)
+public class SolrCoresIT {
+
+    /**
+     * The ID of the test doc.
+     */
+    private static final String TEST_DOC_ID = "prl-harvester-solr-cores-test";
+
+    private JavaAsyncSolrClient mySolrClient;
+
+    private JavaAsyncSolrClient myRebuildSolrClient;
+
+    private WebClient myWebClient;
+
+    private String mySolrCoreURL;
+
+    private String myRebuildCoreURL;
+
+    /**
+     * @param aVertx A Vert.x instance
+     * @param aContext A test context
+     */
+    @BeforeAll
+    public void setUp(final Vertx aVertx, final VertxTestContext aContext) {
+        Config.getConfig(aVertx).onSuccess(config -> {
+            mySolrCoreURL = config.getString(Config.SOLR_CORE_URL);
+            myRebuildCoreURL = Config.getSolrRebuildCoreURL(config).get();
+            mySolrClient = JavaAsyncSolrClient.create(mySolrCoreURL);
+            myRebuildSolrClient = JavaAsyncSolrClient.create(myRebuildCoreURL);
+            myWebClient = WebClient.create(aVertx);
+
+            aContext.completeNow();
+        }).onFailure(aContext::failNow);
+    }
+
+    /**
+     * @param aVertx A Vert.x instance
+     * @param aContext A test context
+     */
+    @AfterAll
+    public void tearDown(final Vertx aVertx, final VertxTestContext aContext) {
+        Future.fromCompletionStage(myRebuildSolrClient.deleteById(TEST_DOC_ID)).compose(result -> {
+            return Future.fromCompletionStage(myRebuildSolrClient.commit());
+        }).onSuccess(result -> {
+            mySolrClient.shutdown();
+            myRebuildSolrClient.shutdown();
+            myWebClient.close();
+
+            aContext.completeNow();
+        }).onFailure(aContext::failNow);
+    }
+
+    /**
+     * Tests that a doc in the standby core is served from the live core's URL once the cores are swapped, and that
+     * swapping them again restores them.
+     *
+     * @param aVertx A Vert.x instance
+     * @param aContext A test context
+     */
+    @Test
+    public void testSwap(final Vertx aVertx, final VertxTestContext aContext) {
+        final SolrInputDocument doc = new SolrInputDocument();
+
+        doc.setField("id", TEST_DOC_ID);
+
+        Future.fromCompletionStage(myRebuildSolrClient.addDoc(doc)).compose(result -> {
+            return Future.fromCompletionStage(myRebuildSolrClient.commit());
+        }).compose(result -> SolrCores.swap(myWebClient, mySolrCoreURL, myRebuildCoreURL)).compose(nil -> {
+            return count(mySolrClient);
+        }).compose(count -> {
+            aContext.verify(() -> assertEquals(1, count.longValue()));
+
+            return SolrCores.swap(myWebClient, mySolrCoreURL, myRebuildCoreURL);
+        }).compose(nil -> count(mySolrClient)).onSuccess(count -> {
+            aContext.verify(() -> assertEquals(0, count.longValue())).completeNow();
+        }).onFailure(aContext::failNow);
+    }
+
+    /**
+     * Tests that a user-defined property can be set on a core, and then removed again.
+     *
+     * @param aVertx A Vert.x instance
+     * @param aContext A test context
+     */
+    @Test
+    public void testUserProperty(final Vertx aVertx, final VertxTestContext aContext) {
+        SolrCores.setUserProperty(myWebClient, myRebuildCoreURL, SolrCores.RAM_BUFFER_SIZE_PROPERTY, 256)
+                .compose(nil -> getUserProperties()).compose(userProperties -> {
+                    aContext.verify(() -> assertEquals(256, userProperties.getInteger(
+                            SolrCores.RAM_BUFFER_SIZE_PROPERTY)));
+
+                    return SolrCores.unsetUserProperty(myWebClient, myRebuildCoreURL,
+                            SolrCores.RAM_BUFFER_SIZE_PROPERTY);
+                }).compose(nil -> getUserProperties()).onSuccess(userProperties -> {
+                    aContext.verify(() -> assertFalse(userProperties.containsKey(SolrCores.RAM_BUFFER_SIZE_PROPERTY)))
+                            .completeNow();
+                }).onFailure(aContext::failNow);
+    }
+
+    /**
+     * @return A Future that succeeds with the user-defined properties of the standby core
+     */
+    private Future<JsonObject> getUserProperties() {
+        return myWebClient.getAbs(myRebuildCoreURL + "/config/overlay").send().map(response -> {
+            final JsonObject overlay = response.bodyAsJsonObject().getJsonObject("overlay", new JsonObject());
+
+            return overlay.getJsonObject("userProps", new JsonObject());
+        });
+    }
+
+    /**
+     * @param aSolrClient A Solr client
+     * @return A Future that succeeds with the number of test docs in the client's core
+     */
+    private static Future<Long> count(final JavaAsyncSolrClient aSolrClient) {
+        return Future.fromCompletionStage(aSolrClient.query(new SolrQuery("id:" + TEST_DOC_ID).setRows(0)))
+                .map(response -> response.getResults().getNumFound());
+    }
+}
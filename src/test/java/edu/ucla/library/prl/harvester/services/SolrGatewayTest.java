@@ -0,0 +1,70 @@
+package edu.ucla.library.prl.harvester.services;
+
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import edu.ucla.library.prl.harvester.Config;
+
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonObject;
+import io.vertx.junit5.VertxExtension;
+
+/**
+ * Tests {@link SolrGateway}.
+ */
+@ExtendWith(VertxExtension.class)
+public class SolrGatewayTest {
+
+    /**
+     * A configuration with two Solr replicas.
+     */
+    private static final JsonObject CONFIG = new JsonObject()
+            .put(Config.SOLR_CORE_URL, "http://localhost:8983/solr/prl")
+            .put(Config.SOLR_CORE_REPLICA_URLS, "http://solr1:8983/solr/prl, http://solr2:8983/solr/prl");
+
+    /**
+     * Tests that a gateway is shared by its users until they've all closed it.
+     *
+     * @param aVertx A Vert.x instance
+     */
+    @Test
+    public void testSharing(final Vertx aVertx) {
+        final SolrGateway first = SolrGateway.getShared(aVertx, CONFIG);
+        final SolrGateway second = SolrGateway.getShared(aVertx, CONFIG.copy());
+        final SolrGateway third;
+
+        assertSame(first, second);
+
+        first.close();
+        assertSame(second, SolrGateway.getShared(aVertx, CONFIG));
+
+        second.close();
+        second.close();
+
+        third = SolrGateway.getShared(aVertx, CONFIG);
+        assertNotSame(first, third);
+
+        third.close();
+    }
+
+    /**
+     * Tests that gateways that send updates to different Solr core URLs aren't shared, even if their replicas are the
+     * same.
+     *
+     * @param aVertx A Vert.x instance
+     */
+    @Test
+    public void testNotSharedAcrossCoreURLs(final Vertx aVertx) {
+        final SolrGateway first = SolrGateway.getShared(aVertx, CONFIG);
+        final SolrGateway second = SolrGateway.getShared(aVertx,
+                CONFIG.copy().put(Config.SOLR_CORE_URL, "http://solr1:8983/solr/prl"));
+
+        assertNotSame(first, second);
+
+        first.close();
+        second.close();
+    }
+}
@@ -0,0 +1,112 @@
+package edu.ucla.library.prl.harvester.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+
+import org.apache.solr.common.SolrInputDocument;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import io.vavr.Tuple;
+import io.vavr.Tuple2;
+
+/**
+ * Tests {@link SolrUpdateQueue}.
+ */
+public class SolrUpdateQueueTest {
+
+    /**
+     * A temporary directory for the queue.
+     */
+    @TempDir
+    Path myTempDir;
+
+    /**
+     * Tests that entries are read back in the order they were appended, and only acknowledged entries are consumed.
+     *
+     * @throws IOException If the queue could not be read or written
+     */
+    @Test
+    void testAppendPeekAcknowledge() throws IOException {
+        final SolrUpdateQueue queue = new SolrUpdateQueue(myTempDir);
+        final Tuple2<List<Tuple2<Byte, String>>, Tuple2<Long, Integer>> firstPeek;
+        final Tuple2<List<Tuple2<Byte, String>>, Tuple2<Long, Integer>> secondPeek;
+
+        assertTrue(queue.isEmpty());
+
+        queue.append(List.of(getDocument("oai:0:1"), getDocument("oai:0:2")), List.of("oai:0:3"));
+
+        firstPeek = queue.peek(2);
+
+        assertEquals(List.of(SolrUpdateQueue.ADD, SolrUpdateQueue.ADD),
+                firstPeek._1().stream().map(Tuple2::_1).toList());
+        // Peeking again without acknowledging gives the same entries
+        assertEquals(firstPeek, queue.peek(2));
+
+        queue.acknowledge(firstPeek._2());
+        secondPeek = queue.peek(2);
+
+        assertEquals(List.of(Tuple.of(SolrUpdateQueue.DELETE, "oai:0:3")), secondPeek._1());
+        assertFalse(queue.isEmpty());
+
+        queue.acknowledge(secondPeek._2());
+
+        assertTrue(queue.isEmpty());
+    }
+
+    /**
+     * Tests that a reopened queue resumes from the last acknowledged position.
+     *
+     * @throws IOException If the queue could not be read or written
+     */
+    @Test
+    void testRecovery() throws IOException {
+        final SolrUpdateQueue queue = new SolrUpdateQueue(myTempDir);
+        final SolrUpdateQueue reopenedQueue;
+
+        queue.append(List.of(getDocument("oai:0:1")), List.of("oai:0:2"));
+        queue.acknowledge(queue.peek(1)._2());
+
+        reopenedQueue = new SolrUpdateQueue(myTempDir);
+
+        assertEquals(List.of(Tuple.of(SolrUpdateQueue.DELETE, "oai:0:2")), reopenedQueue.peek(10)._1());
+
+        // Appending after recovery continues where the previous entries left off
+        reopenedQueue.append(List.of(), List.of("oai:0:3"));
+
+        assertEquals(2, reopenedQueue.peek(10)._1().size());
+    }
+
+    /**
+     * Tests that Solr documents survive serialization.
+     */
+    @Test
+    void testDocumentSerDe() {
+        final SolrInputDocument doc = getDocument("oai:0:1");
+        final SolrInputDocument docFromJson = SolrUpdateQueue.toSolrDocument(SolrUpdateQueue.toJson(doc));
+
+        assertEquals(doc.getFieldNames(), docFromJson.getFieldNames());
+        assertEquals(List.copyOf(doc.getFieldValues("collectionName")),
+                List.copyOf(docFromJson.getFieldValues("collectionName")));
+        assertEquals(doc.getFieldValue("sort_decade"), docFromJson.getFieldValue("sort_decade"));
+    }
+
+    /**
+     * @param anID A document ID
+     * @return A Solr document
+     */
+    private static SolrInputDocument getDocument(final String anID) {
+        final SolrInputDocument doc = new SolrInputDocument();
+
+        doc.setField("id", anID);
+        doc.setField("collectionName", List.of("Set One", "Set Two"));
+        doc.setField("sort_decade", 1900);
+
+        return doc;
+    }
+}
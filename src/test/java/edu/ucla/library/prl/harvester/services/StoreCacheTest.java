@@ -0,0 +1,111 @@
+package edu.ucla.library.prl.harvester.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import io.vertx.core.Future;
+import io.vertx.core.Promise;
+
+/**
+ * Tests {@link StoreCache}.
+ */
+public class StoreCacheTest {
+
+    /**
+     * The number of loads so far.
+     */
+    private AtomicInteger myLoadCount;
+
+    /**
+     * Resets the load count.
+     */
+    @BeforeEach
+    void setUp() {
+        myLoadCount = new AtomicInteger();
+    }
+
+    /**
+     * Tests that objects are only loaded once while cached, and that the least recently used object is evicted.
+     */
+    @Test
+    void testReadThroughAndEviction() {
+        final StoreCache<String> cache = new StoreCache<>(2);
+
+        cache.setEnabled(true);
+
+        assertEquals("1", get(cache, 1));
+        assertEquals("2", get(cache, 2));
+        assertEquals("1", get(cache, 1));
+        assertEquals(2, myLoadCount.get());
+
+        // Evicts 2, the least recently used
+        assertEquals("3", get(cache, 3));
+        assertEquals("1", get(cache, 1));
+        assertEquals(3, myLoadCount.get());
+        assertEquals("2", get(cache, 2));
+        assertEquals(4, myLoadCount.get());
+    }
+
+    /**
+     * Tests that invalidated objects are loaded again.
+     */
+    @Test
+    void testInvalidate() {
+        final StoreCache<String> cache = new StoreCache<>(10);
+
+        cache.setEnabled(true);
+
+        get(cache, 1);
+        get(cache, 2);
+        cache.invalidate(1);
+        get(cache, 1);
+        get(cache, 2);
+
+        assertEquals(3, myLoadCount.get());
+    }
+
+    /**
+     * Tests that an object that was loaded while it was being invalidated isn't cached.
+     */
+    @Test
+    void testInvalidateDuringLoad() {
+        final StoreCache<String> cache = new StoreCache<>(10);
+        final Promise<String> load = Promise.promise();
+
+        cache.setEnabled(true);
+        cache.get(1, () -> load.future());
+        cache.invalidate(1);
+        load.complete("stale");
+
+        assertEquals("1", get(cache, 1));
+    }
+
+    /**
+     * Tests that nothing is cached while the cache is disabled.
+     */
+    @Test
+    void testDisabled() {
+        final StoreCache<String> cache = new StoreCache<>(10);
+
+        get(cache, 1);
+        get(cache, 1);
+
+        assertEquals(2, myLoadCount.get());
+    }
+
+    /**
+     * @param aCache A cache
+     * @param anID An ID
+     * @return The cached or loaded object, which is the string form of the ID
+     */
+    private String get(final StoreCache<String> aCache, final int anID) {
+        return aCache.get(anID, () -> {
+            myLoadCount.incrementAndGet();
+            return Future.succeededFuture(Integer.toString(anID));
+        }).result();
+    }
+}
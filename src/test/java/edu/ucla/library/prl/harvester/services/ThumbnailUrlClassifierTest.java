@@ -0,0 +1,71 @@
+package edu.ucla.library.prl.harvester.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.util.Optional;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+/**
+ * Tests {@link ThumbnailUrlClassifier}.
+ */
+public class ThumbnailUrlClassifierTest {
+
+    /**
+     * Tests {@link ThumbnailUrlClassifier#getTemplate(URL)}.
+     *
+     * @param aURL A URL
+     * @param anExpectedTemplate The expected template of the URL
+     */
+    @ParameterizedTest
+    @CsvSource(delimiter = '|', value = { //
+        "http://Example.edu/thumbnail/1234|http://example.edu/thumbnail/{n}", //
+        "http://a.edu/iiif/2/ark%3A%2F1%2Fz1/full/200,/0/default|http://a.edu/iiif/{n}/{id}/full/{n}/{n}/default", //
+        "http://a.edu/getthumbnail/collection/p15799coll8/id/42|http://a.edu/getthumbnail/collection/{id}/id/{n}", //
+        "http://example.edu/v2/item/abc|http://example.edu/v2/item/abc", //
+        "http://example.edu/thumb?size=small&id=5|http://example.edu/thumb?id&size" //
+    })
+    void testGetTemplate(final URL aURL, final String anExpectedTemplate) {
+        assertEquals(anExpectedTemplate, ThumbnailUrlClassifier.getTemplate(aURL));
+    }
+
+    /**
+     * Tests that a template is classified once enough checks agree, that a disagreeing check resets what was learned,
+     * and that reliable templates are re-sampled periodically.
+     *
+     * @throws MalformedURLException If a test URL is malformed
+     */
+    @Test
+    void testClassify() throws MalformedURLException {
+        final ThumbnailUrlClassifier classifier = new ThumbnailUrlClassifier();
+        final URL url = new URL("http://example.edu/thumbnail/1");
+        int resampleCount = 0;
+
+        for (int count = 1; count < ThumbnailUrlClassifier.CONFIDENCE_THRESHOLD; count++) {
+            classifier.record(new URL("http://example.edu/thumbnail/" + count), true);
+        }
+
+        assertEquals(Optional.empty(), classifier.classify(url));
+
+        classifier.record(url, true);
+
+        assertEquals(Optional.of(true), classifier.classify(url));
+        assertEquals(Optional.empty(), classifier.classify(new URL("http://example.org/thumbnail/1")));
+
+        for (int count = 1; count < ThumbnailUrlClassifier.RESAMPLE_INTERVAL; count++) {
+            if (classifier.classify(url).isEmpty()) {
+                resampleCount += 1;
+            }
+        }
+
+        assertEquals(1, resampleCount);
+
+        classifier.record(url, false);
+
+        assertEquals(Optional.empty(), classifier.classify(url));
+    }
+}
@@ -0,0 +1,74 @@
+package edu.ucla.library.prl.harvester.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+import org.apache.solr.common.SolrInputDocument;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests {@link ThumbnailVerifier}.
+ */
+public class ThumbnailVerifierTest {
+
+    /**
+     * A possible thumbnail URL that turned out to be an image.
+     */
+    private static final String THUMBNAIL_URL = "http://example.edu/iiif/1/full/200,/0/default";
+
+    /**
+     * An item URL.
+     */
+    private static final String ITEM_URL = "http://example.edu/catalog/1";
+
+    /**
+     * Tests that the atomic update for a verified thumbnail sets only the fields that changed, plus the record hash, and
+     * requires the document to exist.
+     */
+    @Test
+    void testGetUpdate() {
+        final SolrInputDocument provisionalDoc = new SolrInputDocument();
+        final SolrInputDocument verifiedDoc = new SolrInputDocument();
+        final SolrInputDocument update;
+
+        provisionalDoc.setField("id", "oai:0:1");
+        provisionalDoc.setField("title_keyword", List.of("Title"));
+        provisionalDoc.setField("external_link", ITEM_URL);
+        provisionalDoc.setField("alternate_external_link", List.of(THUMBNAIL_URL));
+
+        verifiedDoc.setField("id", "oai:0:1");
+        verifiedDoc.setField("title_keyword", List.of("Title"));
+        verifiedDoc.setField("external_link", ITEM_URL);
+        verifiedDoc.setField("thumbnail_url", THUMBNAIL_URL);
+
+        update = ThumbnailVerifier.getUpdate(provisionalDoc, verifiedDoc, "hash");
+
+        assertEquals(Set.of("id", "thumbnail_url", "alternate_external_link", HarvestServiceUtils.RECORD_HASH,
+                "_version_"), Set.copyOf(update.getFieldNames()));
+        assertEquals("oai:0:1", update.getFieldValue("id"));
+        assertEquals(Collections.singletonMap("set", THUMBNAIL_URL), update.getFieldValue("thumbnail_url"));
+        assertEquals(Collections.singletonMap("set", null), update.getFieldValue("alternate_external_link"));
+        assertEquals(Collections.singletonMap("set", "hash"),
+                update.getFieldValue(HarvestServiceUtils.RECORD_HASH));
+        // The update is only applied if the document exists
+        assertEquals(1L, update.getFieldValue("_version_"));
+    }
+
+    /**
+     * Tests that an atomic update survives serialization in the Solr update queue.
+     */
+    @Test
+    void testUpdateSerDe() {
+        final SolrInputDocument provisionalDoc = new SolrInputDocument();
+        final SolrInputDocument update;
+
+        provisionalDoc.setField("id", "oai:0:1");
+        update = ThumbnailVerifier.getUpdate(provisionalDoc, provisionalDoc, "hash");
+
+        assertEquals(update.getFieldValue(HarvestServiceUtils.RECORD_HASH), SolrUpdateQueue
+                .toSolrDocument(SolrUpdateQueue.toJson(update)).getFieldValue(HarvestServiceUtils.RECORD_HASH));
+    }
+}
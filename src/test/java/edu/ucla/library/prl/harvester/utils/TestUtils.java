@@ -211,7 +211,8 @@ public final class TestUtils {
      */
     public static Future<SqlResult<Void>> wipeDatabase(final Pool aConnectionPool) {
         return aConnectionPool.withConnection(connection -> {
-            return SqlTemplate.forUpdate(connection, "TRUNCATE public.harvestjobs, public.institutions")
+            return SqlTemplate
+                    .forUpdate(connection, "TRUNCATE public.harvestruns, public.harvestjobs, public.institutions")
                     .execute(Map.of());
         });
     }
@@ -52,13 +52,34 @@ CREATE TABLE public.harvestjobs (
     metadataPrefix TEXT NOT NULL,
     sets TEXT [],
     lastSuccessfulRun TIMESTAMPTZ,
-    scheduleCronExpression TEXT NOT NULL
+    scheduleCronExpression TEXT NOT NULL,
+    scheduleJitterWindow INT CHECK (scheduleJitterWindow >= 0)
 );
 
+CREATE TABLE public.harvestruns (
+    id BIGSERIAL PRIMARY KEY,
+    jobID INT NOT NULL,
+    dueAt TIMESTAMPTZ NOT NULL,
+    leasedBy TEXT,
+    leaseExpiresAt TIMESTAMPTZ,
+    attempts INT NOT NULL DEFAULT 0,
+    completedAt TIMESTAMPTZ,
+    succeeded BOOLEAN,
+    UNIQUE (jobID, dueAt)
+);
+
+CREATE INDEX harvestjobs_institutionid_idx ON public.harvestjobs (institutionID);
+
+CREATE INDEX harvestruns_pending_idx ON public.harvestruns (dueAt) WHERE completedAt IS NULL;
+
+CREATE INDEX harvestruns_pending_jobid_idx ON public.harvestruns (jobID) WHERE completedAt IS NULL;
+
 ALTER TABLE public.institutions OWNER TO postgres;
 
 ALTER TABLE public.harvestjobs OWNER TO postgres;
 
+ALTER TABLE public.harvestruns OWNER TO postgres;
+
 --
 -- Name: COLUMN institutions.id; Type: COMMENT; Schema: public; Owner: postgres
 --
@@ -149,6 +170,42 @@ COMMENT ON COLUMN public.harvestjobs.lastSuccessfulRun IS 'The timestamp for the
 
 COMMENT ON COLUMN public.harvestjobs.scheduleCronExpression IS 'The cron expression for a harvest job';
 
+--
+-- Name: COLUMN harvestjobs.scheduleJitterWindow; Type: COMMENT; Schema: public; Owner: postgres
+--
+
+COMMENT ON COLUMN public.harvestjobs.scheduleJitterWindow IS 'The window (in seconds) within which the runs of a harvest job are spread out';
+
+--
+-- Name: COLUMN harvestruns.jobID; Type: COMMENT; Schema: public; Owner: postgres
+--
+
+COMMENT ON COLUMN public.harvestruns.jobID IS 'The unique identifier for the harvest job of a run';
+
+--
+-- Name: COLUMN harvestruns.dueAt; Type: COMMENT; Schema: public; Owner: postgres
+--
+
+COMMENT ON COLUMN public.harvestruns.dueAt IS 'The scheduled fire time of a harvest run';
+
+--
+-- Name: COLUMN harvestruns.leasedBy; Type: COMMENT; Schema: public; Owner: postgres
+--
+
+COMMENT ON COLUMN public.harvestruns.leasedBy IS 'The identifier of the worker that last leased a harvest run';
+
+--
+-- Name: COLUMN harvestruns.leaseExpiresAt; Type: COMMENT; Schema: public; Owner: postgres
+--
+
+COMMENT ON COLUMN public.harvestruns.leaseExpiresAt IS 'The time when the lease on a harvest run expires';
+
+--
+-- Name: COLUMN harvestruns.attempts; Type: COMMENT; Schema: public; Owner: postgres
+--
+
+COMMENT ON COLUMN public.harvestruns.attempts IS 'The number of times a harvest run has been leased';
+
 --
 -- Name: items; Type: TABLE DATA; Schema: public; Owner: postgres
 --
@@ -161,7 +218,7 @@ COPY public.institutions (id, name, description, location, email, phone, webCont
 --
 
 COPY public.harvestjobs (id, institutionID, repositoryBaseURL, metadataPrefix, sets, lastSuccessfulRun,
-  scheduleCronExpression) FROM stdin;
+  scheduleCronExpression, scheduleJitterWindow) FROM stdin;
 \.
 
 --
@@ -169,7 +226,45 @@ COPY public.harvestjobs (id, institutionID, repositoryBaseURL, metadataPrefix, s
 --
 
 ALTER TABLE ONLY public.harvestjobs
-    ADD CONSTRAINT harvestjobs_fkey FOREIGN KEY(institutionID) REFERENCES public.institutions(id);
+    ADD CONSTRAINT harvestjobs_fkey FOREIGN KEY(institutionID) REFERENCES public.institutions(id) ON DELETE CASCADE;
+
+--
+-- Name: harvestruns_fkey; Type: CONSTRAINT; Schema: public; Owner: postgres
+--
+
+ALTER TABLE ONLY public.harvestruns
+    ADD CONSTRAINT harvestruns_fkey FOREIGN KEY(jobID) REFERENCES public.harvestjobs(id) ON DELETE CASCADE;
+
+--
+-- Name: notify_store_change(); Type: FUNCTION; Schema: public; Owner: postgres
+--
+
+CREATE FUNCTION public.notify_store_change() RETURNS trigger
+    LANGUAGE plpgsql
+    AS $$
+BEGIN
+    PERFORM pg_notify('prl_store_changes', TG_TABLE_NAME || ':' || OLD.id);
+    RETURN NULL;
+END;
+$$;
+
+ALTER FUNCTION public.notify_store_change() OWNER TO postgres;
+
+COMMENT ON FUNCTION public.notify_store_change() IS 'Tells the application nodes which institution or job changed';
+
+--
+-- Name: institutions_notify_change; Type: TRIGGER; Schema: public; Owner: postgres
+--
+
+CREATE TRIGGER institutions_notify_change AFTER UPDATE OR DELETE ON public.institutions
+    FOR EACH ROW EXECUTE FUNCTION public.notify_store_change();
+
+--
+-- Name: harvestjobs_notify_change; Type: TRIGGER; Schema: public; Owner: postgres
+--
+
+CREATE TRIGGER harvestjobs_notify_change AFTER UPDATE OR DELETE ON public.harvestjobs
+    FOR EACH ROW EXECUTE FUNCTION public.notify_store_change();
 
 --
 -- Name: TABLE institutions; Type: ACL; Schema: public; Owner: postgres
@@ -183,6 +278,12 @@ GRANT ALL ON TABLE public.institutions TO prl;
 
 GRANT ALL ON TABLE public.harvestjobs TO prl;
 
+--
+-- Name: TABLE harvestruns; Type: ACL; Schema: public; Owner: postgres
+--
+
+GRANT ALL ON TABLE public.harvestruns TO prl;
+
 --
 
 GRANT USAGE, SELECT ON ALL SEQUENCES IN SCHEMA public TO prl;